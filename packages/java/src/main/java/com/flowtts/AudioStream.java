@@ -0,0 +1,320 @@
+package com.flowtts;
+
+import com.flowtts.model.StreamChunk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The audio of a streaming synthesis as a blocking stream, returned by
+ * {@link FlowTTS#openAudioStream}.
+ *
+ * <p>Decoded chunks are queued as they arrive and reads copy straight from them, so
+ * there is no intermediate pipe buffer. The queue holds
+ * {@link FlowTTSConfig.Builder#callbackQueueChunks(int)} chunks; when it is full the
+ * connection is not read until the consumer catches up, which slows the server down
+ * through TCP flow control.</p>
+ *
+ * <p>Reads return the audio queued before a failure, then throw an {@link IOException}
+ * whose cause is the {@link com.flowtts.exception.FlowTTSException}. Closing the stream
+ * before the end cancels the synthesis. A stream is meant for one reading thread at a
+ * time; {@link #close()} may be called from any thread and wakes a blocked read.</p>
+ */
+public final class AudioStream extends InputStream implements ReadableByteChannel {
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Listener listener = new Listener();
+
+    // Guarded by the lock
+    private final ArrayDeque<byte[]> chunks = new ArrayDeque<>();
+    private int position;
+    private long queuedBytes;
+    private boolean finished;
+    private Exception error;
+    private boolean closed;
+
+    private volatile StreamHandle handle;
+    private volatile String requestId;
+
+    AudioStream(int capacity) {
+        this.capacity = capacity;
+    }
+
+    StreamListener listener() {
+        return listener;
+    }
+
+    void start(StreamHandle handle) {
+        this.handle = handle;
+        boolean cancel;
+        lock.lock();
+        try {
+            cancel = closed;
+        } finally {
+            lock.unlock();
+        }
+        if (cancel) {
+            handle.cancel();
+        }
+    }
+
+    /**
+     * Get the Tencent Cloud request ID once the first chunk has arrived.
+     *
+     * @return the request ID, or null if not known yet
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    @Override
+    public int read() throws IOException {
+        lock.lock();
+        try {
+            byte[] chunk = awaitChunk();
+            if (chunk == null) {
+                return -1;
+            }
+            int value = chunk[position] & 0xff;
+            consumed(chunk, 1);
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            byte[] chunk = awaitChunk();
+            if (chunk == null) {
+                return -1;
+            }
+            // Wait for the first chunk only, then take whatever else is already queued
+            int read = 0;
+            while (chunk != null && read < len) {
+                int n = Math.min(len - read, chunk.length - position);
+                System.arraycopy(chunk, position, b, off + read, n);
+                consumed(chunk, n);
+                read += n;
+                chunk = chunks.peekFirst();
+            }
+            return read;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                throw new ClosedChannelException();
+            }
+            byte[] chunk = awaitChunk();
+            if (chunk == null) {
+                return -1;
+            }
+            int read = 0;
+            while (chunk != null && dst.hasRemaining()) {
+                int n = Math.min(dst.remaining(), chunk.length - position);
+                dst.put(chunk, position, n);
+                consumed(chunk, n);
+                read += n;
+                chunk = chunks.peekFirst();
+            }
+            return read;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write the rest of the audio to an output stream, chunk by chunk as it arrives.
+     * Each chunk is written from its own array, without copying.
+     *
+     * @param out the output stream
+     * @return the number of bytes written
+     * @throws IOException if the synthesis fails, the stream is closed or writing fails
+     */
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+        Objects.requireNonNull(out, "out");
+        long total = 0;
+        while (true) {
+            byte[] chunk;
+            int from;
+            lock.lock();
+            try {
+                chunk = awaitChunk();
+                if (chunk == null) {
+                    return total;
+                }
+                from = position;
+                consumed(chunk, chunk.length - from);
+            } finally {
+                lock.unlock();
+            }
+            out.write(chunk, from, chunk.length - from);
+            total += chunk.length - from;
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            return (int) Math.min(queuedBytes, Integer.MAX_VALUE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        lock.lock();
+        try {
+            return !closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the stream, discarding queued audio and cancelling the synthesis if it is
+     * still running.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            chunks.clear();
+            queuedBytes = 0;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        StreamHandle h = handle;
+        if (h != null) {
+            h.cancel();
+        }
+    }
+
+    // Caller holds the lock; returns null at the end of the audio
+    private byte[] awaitChunk() throws IOException {
+        while (true) {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            byte[] head = chunks.peekFirst();
+            if (head != null) {
+                return head;
+            }
+            if (error != null) {
+                throw new IOException(error.getMessage(), error);
+            }
+            if (finished) {
+                return null;
+            }
+            try {
+                notEmpty.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for audio");
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void consumed(byte[] chunk, int n) {
+        position += n;
+        queuedBytes -= n;
+        if (position == chunk.length) {
+            chunks.pollFirst();
+            position = 0;
+            notFull.signal();
+        }
+    }
+
+    /**
+     * Queues chunks on the thread reading the connection, which waits while the queue
+     * is full.
+     */
+    private final class Listener implements StreamListener {
+        @Override
+        public void onChunk(StreamChunk chunk) {
+            if (requestId == null) {
+                requestId = chunk.getRequestId();
+            }
+            byte[] audio = chunk.getAudio();
+            if (audio.length == 0) {
+                return;
+            }
+            lock.lock();
+            try {
+                // A cancellation or deadline ends the stream and releases a waiting reader
+                while (chunks.size() >= capacity && !closed && !finished) {
+                    notFull.awaitUninterruptibly();
+                }
+                if (closed || finished) {
+                    return;
+                }
+                chunks.addLast(audio);
+                queuedBytes += audio.length;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            end(null);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            end(e);
+        }
+
+        private void end(Exception e) {
+            lock.lock();
+            try {
+                finished = true;
+                error = e;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,25 +1,61 @@
 package com.flowtts;
 
+import com.flowtts.audio.VariantRenderer;
+import com.flowtts.core.AudioSizeEstimator;
+import com.flowtts.core.PayloadEncoder;
+import com.flowtts.core.RequestScheduler;
+import com.flowtts.core.Threads;
 import com.flowtts.core.VoiceResolver;
+import com.flowtts.exception.CancelledException;
 import com.flowtts.exception.FlowTTSException;
+import com.flowtts.exception.MemoryBudgetExceededException;
+import com.flowtts.exception.ThrottledException;
+import com.flowtts.io.DirectAudioDecoder;
+import com.flowtts.jfr.ChunkDecodeEvent;
+import com.flowtts.jfr.StreamEvent;
+import com.flowtts.jfr.SynthesizeEvent;
+import com.flowtts.io.SegmentPool;
+import com.flowtts.model.AudioStorage;
+import com.flowtts.model.Priority;
 import com.flowtts.model.StreamChunk;
 import com.flowtts.model.SynthesizeOptions;
 import com.flowtts.model.SynthesizeResponse;
 import com.flowtts.model.Voice;
-import com.flowtts.utils.Signature;
+import com.flowtts.trace.TraceRecord;
+import com.flowtts.trace.TraceRecorder;
+import com.flowtts.transport.JdkHttpTransport;
+import com.flowtts.transport.OkHttpTransport;
+import com.flowtts.transport.SseListener;
+import com.flowtts.transport.Transport;
+import com.flowtts.transport.TransportCall;
+import com.flowtts.transport.TransportRequest;
+import com.flowtts.transport.TransportResponse;
+import com.flowtts.utils.LanguageDetector;
+import com.flowtts.utils.Signer;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
-import okhttp3.*;
-import okhttp3.sse.EventSource;
-import okhttp3.sse.EventSourceListener;
-import okhttp3.sse.EventSources;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Flow TTS client for Tencent TRTC AI TTS with OpenAI-compatible interface.
@@ -49,74 +85,253 @@ import java.util.concurrent.TimeUnit;
 public class FlowTTS {
     private static final String ACTION_SYNC = "TextToSpeech";
     private static final String ACTION_STREAM = "TextToSpeechSSE";
-    private static final MediaType JSON_MEDIA_TYPE = MediaType.parse("application/json; charset=utf-8");
     private static final Gson gson = new Gson();
+    // Payload buffers above this size are not kept for reuse by the calling thread
+    private static final int MAX_RETAINED_PAYLOAD = 64 * 1024;
+    // Sync requests write their body before execute() returns, so the buffer can be reused
+    private static final ThreadLocal<PayloadEncoder> SYNC_ENCODER = ThreadLocal.withInitial(PayloadEncoder::new);
+    // Released direct audio kept for reuse; more than this is left to the garbage collector
+    private static final long MAX_POOLED_AUDIO = 16L * 1024 * 1024;
 
     private final FlowTTSConfig config;
-    private final OkHttpClient httpClient;
+    private final Transport transport;
     private final VoiceResolver voiceResolver;
+    private final RequestScheduler scheduler;
+    // Shared by all tenant views, keyed by Secret ID
+    private final Map<String, Signer> signers;
+    private final ScheduledExecutorService timer;
+    // Runs blocking synthesizeAsync calls; virtual threads on Java 21+ when configured
+    private final ExecutorService asyncExecutor;
+    // Runs stream listeners, so transport threads never wait for user code
+    private final Executor callbackExecutor;
+    // Off-heap audio segments for AudioStorage.DIRECT; null for heap storage
+    private final SegmentPool segmentPool;
+    // Joinable shared streams of all tenant views, keyed by tenant and request payload
+    private final Map<String, SharedStream> sharedStreams;
+    // Base renders of local variants of all tenant views, keyed by tenant and request payload
+    private final RenderCache renderCache;
+    // Views share their parent's resources; only the root client shuts them down
+    private final boolean root;
+    private final boolean ownsTransport;
+
+    private final long sdkAppId;
+    private final Signer signer;
+    private final RequestScheduler.Tenant tenant;
 
     /**
      * Create a new FlowTTS client.
+     * Requests are sent with {@link OkHttpTransport} when OkHttp is on the class path,
+     * and with {@link JdkHttpTransport} otherwise or when virtual threads are in use,
+     * since OkHttp would pin them.
      *
      * @param config the client configuration
      */
     public FlowTTS(FlowTTSConfig config) {
+        this(config, defaultTransport(config), true);
+    }
+
+    /**
+     * Create a new FlowTTS client that sends requests through the given transport.
+     * Closing the client does not close the transport.
+     *
+     * @param config    the client configuration
+     * @param transport the HTTP transport
+     */
+    public FlowTTS(FlowTTSConfig config, Transport transport) {
+        this(config, transport, false);
+    }
+
+    private FlowTTS(FlowTTSConfig config, Transport transport, boolean ownsTransport) {
         this.config = config;
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        this.transport = transport;
         this.voiceResolver = VoiceResolver.getInstance();
+        int[] reserved = new int[Priority.values().length];
+        for (Priority priority : Priority.values()) {
+            reserved[priority.ordinal()] = config.getReservedConcurrency(priority);
+        }
+        this.scheduler = new RequestScheduler(config.getMaxConcurrentRequests(), reserved,
+                config.getMemoryBudget(), config.isFailFastOverBudget());
+        this.signers = new ConcurrentHashMap<>();
+        this.timer = newTimer();
+        this.asyncExecutor = Threads.newExecutor("flow-tts-async", config.isVirtualThreads());
+        this.callbackExecutor = config.getCallbackExecutor() != null
+                ? config.getCallbackExecutor()
+                : Threads.newExecutor("flow-tts-callback", config.isVirtualThreads());
+        this.segmentPool = config.getAudioStorage() == AudioStorage.DIRECT
+                ? new SegmentPool(config.getAudioSegmentSize(), MAX_POOLED_AUDIO)
+                : null;
+        this.sharedStreams = new ConcurrentHashMap<>();
+        this.renderCache = new RenderCache(config.getVariantCacheBytes());
+        this.root = true;
+        this.ownsTransport = ownsTransport;
+
+        this.sdkAppId = config.getSdkAppId();
+        this.signer = signerFor(config.getSecretId(), config.getSecretKey());
+        this.tenant = scheduler.tenant(tenantKey(config.getSecretId(), sdkAppId), 0);
+    }
+
+    private FlowTTS(FlowTTS parent, TenantCredentials credentials, int maxConcurrentRequests) {
+        this.config = parent.config;
+        this.transport = parent.transport;
+        this.voiceResolver = parent.voiceResolver;
+        this.scheduler = parent.scheduler;
+        this.signers = parent.signers;
+        this.timer = parent.timer;
+        this.asyncExecutor = parent.asyncExecutor;
+        this.callbackExecutor = parent.callbackExecutor;
+        this.segmentPool = parent.segmentPool;
+        this.sharedStreams = parent.sharedStreams;
+        this.renderCache = parent.renderCache;
+        this.root = false;
+        this.ownsTransport = false;
+
+        this.sdkAppId = credentials.getSdkAppId();
+        this.signer = signerFor(credentials.getSecretId(), credentials.getSecretKey());
+        this.tenant = scheduler.tenant(tenantKey(credentials.getSecretId(), sdkAppId), maxConcurrentRequests);
+    }
+
+    /**
+     * Get a view of this client that signs requests with another tenant's credentials.
+     *
+     * <p>The view shares this client's HTTP transport, connection pool, signer cache and
+     * voice catalog, so serving many tenants costs no more sockets or threads than one.
+     * The tenant is limited to the configured
+     * {@link FlowTTSConfig.Builder#tenantMaxConcurrentRequests(int) per-tenant quota}, and
+     * tenants waiting for the shared {@link FlowTTSConfig.Builder#maxConcurrentRequests(int)
+     * slots} are served round-robin. Closing a view does not close the shared transport.</p>
+     *
+     * <p>A tenant's quota is fixed by the first view created for it, or by this client
+     * for its own credentials, and is kept while any view of the tenant is in use.</p>
+     *
+     * @param credentials the tenant credentials
+     * @return a client view for the tenant
+     */
+    public FlowTTS forTenant(TenantCredentials credentials) {
+        return forTenant(credentials, config.getTenantMaxConcurrentRequests());
+    }
+
+    /**
+     * Get a view of this client that signs requests with another tenant's credentials,
+     * with an explicit concurrency quota for the tenant.
+     *
+     * @param credentials           the tenant credentials
+     * @param maxConcurrentRequests the tenant's concurrency quota, or 0 for unlimited;
+     *                              ignored if the tenant already has a view in use
+     * @return a client view for the tenant
+     * @see #forTenant(TenantCredentials)
+     */
+    public FlowTTS forTenant(TenantCredentials credentials, int maxConcurrentRequests) {
+        return new FlowTTS(this, credentials, maxConcurrentRequests);
     }
 
     /**
      * Synthesize text to speech synchronously.
      *
+     * <p>With {@link SynthesizeOptions.Builder#localVariant(boolean) local variants}, speed
+     * and volume are applied on this machine to a cached render of the same request at
+     * speed 1.0 and volume 1.0, which is only requested if it is not cached.</p>
+     *
      * @param options the synthesis options
      * @return the synthesis response containing audio data
      * @throws FlowTTSException if synthesis fails
      */
     public SynthesizeResponse synthesize(SynthesizeOptions options) {
+        return synthesize(options, config.getTraceRecorder(), null);
+    }
+
+    // The recorder is null for base renders, which are part of a recorded request; the
+    // call, when given, lets another thread abort the request
+    private SynthesizeResponse synthesize(SynthesizeOptions options, TraceRecorder recorder, SyncCall call) {
+        long startNanos = System.nanoTime();
+        SynthesizeEvent event = new SynthesizeEvent();
+        event.begin();
+        SynthesizeResponse response = null;
+        String errorCode = null;
+        String errorRequestId = null;
+        try {
+            if (options.isLocalVariant() && ("pcm".equals(options.getCodec()) || "wav".equals(options.getCodec()))) {
+                event.localVariant = true;
+                response = synthesizeVariant(options, call);
+            } else {
+                response = synthesizeRemote(options, event, call);
+            }
+            return response;
+        } catch (FlowTTSException e) {
+            errorCode = e.getCode();
+            errorRequestId = e.getRequestId();
+            throw e;
+        } finally {
+            if (recorder != null) {
+                recorder.record(options, TraceRecord.Kind.SYNC, startNanos, 0,
+                        response != null ? response.getAudioLength() : 0,
+                        response != null ? null : errorCode != null ? errorCode : "Unknown");
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.model = options.getModel();
+                event.voice = options.getVoice();
+                event.codec = options.getCodec();
+                event.textLength = options.getText().length();
+                if (response != null) {
+                    event.audioBytes = response.getAudioLength();
+                    event.requestId = response.getRequestId();
+                } else {
+                    event.errorCode = errorCode != null ? errorCode : "Unknown";
+                    event.requestId = errorRequestId;
+                }
+                event.commit();
+            }
+        }
+    }
+
+    private SynthesizeResponse synthesizeRemote(SynthesizeOptions options, SynthesizeEvent event, SyncCall call) {
         String resolvedVoice = voiceResolver.resolve(options.getVoice(), options.getModel());
         String sessionId = UUID.randomUUID().toString();
 
-        JsonObject payload = buildPayload(options, resolvedVoice, false);
-        String payloadJson = gson.toJson(payload);
+        PayloadEncoder payload = encodePayload(SYNC_ENCODER.get(), options, resolvedVoice, false);
 
         long timestamp = Instant.now().getEpochSecond();
-        TreeMap<String, String> headers = Signature.generateHeaders(
-                config.getSecretId(),
-                config.getSecretKey(),
+        TreeMap<String, String> headers = signer.sign(
                 config.getEndpoint(),
                 ACTION_SYNC,
-                payloadJson,
+                payload.sha256(),
                 timestamp
         );
         headers.put("X-TC-Region", config.getRegion());
 
-        Request.Builder requestBuilder = new Request.Builder()
-                .url("https://" + config.getEndpoint())
-                .post(RequestBody.create(payloadJson, JSON_MEDIA_TYPE));
+        TransportRequest request = newRequest(headers, payload);
 
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            requestBuilder.addHeader(entry.getKey(), entry.getValue());
+        if (call != null && call.isCancelled()) {
+            throw new CancelledException("Cancelled", "Request cancelled", null);
+        }
+        RequestScheduler.Ticket ticket;
+        long queuedAt = System.nanoTime();
+        try {
+            ticket = scheduler.acquire(tenant, options.getPriority(), options.getText().length(),
+                    estimateAudioBytes(options, false));
+            event.queueTime = System.nanoTime() - queuedAt;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FlowTTSException("Interrupted", "Interrupted while waiting for a request slot", null, e);
         }
 
-        try (Response response = httpClient.newCall(requestBuilder.build()).execute()) {
+        DirectAudioDecoder decoder = segmentPool != null ? new DirectAudioDecoder(segmentPool) : null;
+        boolean decoded = false;
+        boolean sent = false;
+        try (TransportResponse response = call != null
+                ? transport.execute(request, call)
+                : transport.execute(request)) {
+            sent = true;
             if (!response.isSuccessful()) {
-                String body = response.body() != null ? response.body().string() : "";
-                throw new FlowTTSException("HTTP error " + response.code() + ": " + body);
+                throw httpError(response.getStatusCode(), response.bodyAsString(),
+                        response.getHeader("Retry-After"));
             }
 
-            ResponseBody responseBody = response.body();
-            if (responseBody == null) {
-                throw new FlowTTSException("Empty response body");
-            }
-
-            // Parse JSON response (sync API returns JSON, not SSE)
-            String responseJson = responseBody.string();
+            // Parse JSON response (sync API returns JSON, not SSE). Direct storage decodes
+            // the audio off-heap while reading and leaves the field empty in the JSON.
+            String responseJson = decoder != null
+                    ? decoder.extract(response.getBody(), "Audio")
+                    : response.bodyAsString();
             JsonObject result = gson.fromJson(responseJson, JsonObject.class);
             
             // Check for error
@@ -128,11 +343,15 @@ public class FlowTTS {
                     String code = error.has("Code") ? error.get("Code").getAsString() : "Unknown";
                     String message = error.has("Message") ? error.get("Message").getAsString() : "Unknown error";
                     String reqId = resp.has("RequestId") ? resp.get("RequestId").getAsString() : null;
-                    throw new FlowTTSException(code, message, reqId);
+                    throw FlowTTSException.of(code, message, reqId);
                 }
                 
                 // Extract audio data
                 String requestId = resp.has("RequestId") ? resp.get("RequestId").getAsString() : null;
+                if (decoder != null) {
+                    decoded = true;
+                    return new SynthesizeResponse(decoder.finish(), requestId, sessionId, options.getCodec());
+                }
                 byte[] audioBytes = new byte[0];
                 
                 if (resp.has("Audio") && !resp.get("Audio").isJsonNull()) {
@@ -147,57 +366,117 @@ public class FlowTTS {
                         options.getCodec()
                 );
             } else {
-                throw new FlowTTSException("Invalid response format: " + responseJson);
+                throw new FlowTTSException("InvalidResponse", "Invalid response format: " + responseJson, null);
             }
         } catch (IOException e) {
-            throw new FlowTTSException("Network error: " + e.getMessage(), e);
+            if (call != null && call.isCancelled()) {
+                throw new CancelledException("Cancelled", "Request cancelled", null);
+            }
+            throw new FlowTTSException("NetworkError", "Network error: " + e.getMessage(), null, e);
+        } finally {
+            if (decoder != null && !decoded) {
+                decoder.abort();
+            }
+            scheduler.release(ticket);
+            // After a failed send the transport may still be reading the buffer
+            if (!sent || payload.buffer().length > MAX_RETAINED_PAYLOAD) {
+                SYNC_ENCODER.remove();
+            }
         }
     }
 
+    // Derives speed and volume from a cached base render; see SynthesizeOptions.Builder#localVariant
+    private SynthesizeResponse synthesizeVariant(SynthesizeOptions options, SyncCall call) {
+        SynthesizeOptions base = options.toBuilder()
+                .speed(1.0)
+                .volume(1.0)
+                .codec("pcm")
+                .localVariant(false)
+                .build();
+        RenderCache.Entry entry = renderCache.get(payloadKey(base, false), () -> {
+            SynthesizeResponse response = synthesize(base, null, call);
+            try {
+                return new RenderCache.Entry(response.getAudio(), response.getRequestId());
+            } finally {
+                response.release();
+            }
+        });
+        byte[] audio = VariantRenderer.render(entry.pcm, options.getSampleRate(), options.getSpeed(),
+                options.getVolume());
+        if ("wav".equals(options.getCodec())) {
+            audio = wav(audio, options.getSampleRate());
+        }
+        return new SynthesizeResponse(audio, entry.requestId, UUID.randomUUID().toString(), options.getCodec());
+    }
+
     /**
      * Synthesize text to speech with streaming.
      *
+     * <p>The returned handle can cancel the stream and wait for it to finish. Deadlines
+     * for the first chunk and the whole stream are taken from
+     * {@link SynthesizeOptions#getFirstChunkTimeout()} and {@link SynthesizeOptions#getTimeout()}.</p>
+     *
+     * <p>The listener is called on the {@link FlowTTSConfig.Builder#callbackExecutor(Executor)
+     * callback executor}, never on the thread reading the connection, so a slow listener
+     * does not hold up other streams. Callbacks of one stream run one at a time and in
+     * order.</p>
+     *
      * @param options  the synthesis options
      * @param listener the listener to receive audio chunks
+     * @return a handle to the stream
      */
-    public void synthesizeStream(SynthesizeOptions options, StreamListener listener) {
+    public StreamHandle synthesizeStream(SynthesizeOptions options, StreamListener listener) {
+        StreamHandle handle = new StreamHandle(listener, scheduler, callbackExecutor,
+                config.getCallbackQueueChunks(), config.getCallbackOverflowPolicy());
+        return startStream(options, traced(handle, options, TraceRecord.Kind.STREAM));
+    }
+
+    private StreamHandle traced(StreamHandle handle, SynthesizeOptions options, TraceRecord.Kind kind) {
+        TraceRecorder recorder = config.getTraceRecorder();
+        if (recorder != null) {
+            handle.trace(recorder, options, kind);
+        }
+        return handle;
+    }
+
+    private StreamHandle startStream(SynthesizeOptions options, StreamHandle handle) {
+        StreamEvent streamEvent = new StreamEvent();
+        streamEvent.model = options.getModel();
+        streamEvent.voice = options.getVoice();
+        streamEvent.codec = options.getCodec();
+        streamEvent.textLength = options.getText().length();
+        handle.record(streamEvent);
         String resolvedVoice = voiceResolver.resolve(options.getVoice(), options.getModel());
         String sessionId = UUID.randomUUID().toString();
 
-        JsonObject payload = buildPayload(options, resolvedVoice, true);
-        String payloadJson = gson.toJson(payload);
+        // The body is written later on a dispatcher thread, so it gets its own buffer
+        PayloadEncoder payload = encodePayload(
+                new PayloadEncoder(PayloadEncoder.estimateSize(options.getText())), options, resolvedVoice, true);
 
         long timestamp = Instant.now().getEpochSecond();
-        TreeMap<String, String> headers = Signature.generateHeaders(
-                config.getSecretId(),
-                config.getSecretKey(),
+        TreeMap<String, String> headers = signer.sign(
                 config.getEndpoint(),
                 ACTION_STREAM,
-                payloadJson,
+                payload.sha256(),
                 timestamp
         );
         headers.put("X-TC-Region", config.getRegion());
         headers.put("Accept", "text/event-stream");
 
-        Request.Builder requestBuilder = new Request.Builder()
-                .url("https://" + config.getEndpoint())
-                .post(RequestBody.create(payloadJson, JSON_MEDIA_TYPE));
-
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            requestBuilder.addHeader(entry.getKey(), entry.getValue());
-        }
+        TransportRequest request = newRequest(headers, payload);
 
-        EventSource.Factory factory = EventSources.createFactory(httpClient);
-        factory.newEventSource(requestBuilder.build(), new EventSourceListener() {
+        SseListener eventListener = new SseListener() {
             private String requestId;
 
             @Override
-            public void onEvent(EventSource eventSource, String id, String type, String data) {
+            public void onEvent(String id, String type, String data) {
                 if (data.equals("[DONE]")) {
-                    listener.onComplete();
+                    handle.complete();
                     return;
                 }
 
+                ChunkDecodeEvent decodeEvent = new ChunkDecodeEvent();
+                decodeEvent.begin();
                 try {
                     JsonObject chunk = gson.fromJson(data, JsonObject.class);
 
@@ -209,8 +488,7 @@ public class FlowTTS {
                         String reqId = chunk.getAsJsonObject("Response").has("RequestId")
                                 ? chunk.getAsJsonObject("Response").get("RequestId").getAsString()
                                 : null;
-                        listener.onError(new FlowTTSException(code, message, reqId));
-                        eventSource.cancel();
+                        handle.fail(FlowTTSException.of(code, message, reqId));
                         return;
                     }
 
@@ -227,6 +505,13 @@ public class FlowTTS {
 
                     boolean isFinal = chunk.has("Final") && chunk.get("Final").getAsInt() == 1;
                     int subtitleSeq = chunk.has("SubtitleSeq") ? chunk.get("SubtitleSeq").getAsInt() : 0;
+                    decodeEvent.end();
+                    if (decodeEvent.shouldCommit()) {
+                        decodeEvent.dataLength = data.length();
+                        decodeEvent.audioBytes = audioBytes.length;
+                        decodeEvent.requestId = requestId;
+                        decodeEvent.commit();
+                    }
 
                     StreamChunk streamChunk = new StreamChunk(
                             audioBytes,
@@ -235,42 +520,204 @@ public class FlowTTS {
                             isFinal,
                             subtitleSeq
                     );
-                    listener.onChunk(streamChunk);
+                    handle.chunk(streamChunk);
 
                     if (isFinal) {
-                        listener.onComplete();
+                        handle.complete();
                     }
                 } catch (Exception e) {
-                    listener.onError(e);
+                    handle.fail(e);
                 }
             }
 
             @Override
-            public void onFailure(EventSource eventSource, Throwable t, Response response) {
-                String message = "Stream failed";
-                if (t != null) {
-                    message = t.getMessage();
-                } else if (response != null) {
-                    message = "HTTP " + response.code();
+            public void onFailure(Throwable t, int statusCode) {
+                onFailure(t, statusCode, name -> null);
+            }
+
+            @Override
+            public void onFailure(Throwable t, int statusCode, Function<String, String> headers) {
+                // No-op if the failure was caused by cancel() or a deadline
+                if (t == null && statusCode != 0) {
+                    // The transport does not read the body of a failed stream
+                    handle.fail(httpError(statusCode, null, headers.apply("Retry-After")));
+                } else {
+                    handle.fail(new FlowTTSException("NetworkError", t != null ? t.getMessage() : "Stream failed",
+                            null, t));
                 }
-                listener.onError(new FlowTTSException(message));
             }
 
             @Override
-            public void onClosed(EventSource eventSource) {
-                // Stream closed normally
+            public void onClosed() {
+                // Stream closed without a final chunk or [DONE]
+                handle.complete();
             }
-        });
+        };
+
+        handle.scheduleDeadlines(timer, toMillis(options.getFirstChunkTimeout()), toMillis(options.getTimeout()));
+
+        RequestScheduler.Ticket ticket;
+        try {
+            ticket = scheduler.submit(tenant, options.getPriority(), options.getText().length(),
+                    estimateAudioBytes(options, true), granted -> {
+                        handle.queued(granted);
+                        if (handle.isDone()) {
+                            return;
+                        }
+                        try {
+                            handle.started(transport.stream(request, eventListener));
+                        } catch (RuntimeException e) {
+                            handle.fail(new FlowTTSException("NetworkError", "Failed to start stream: " + e.getMessage(),
+                                    null, e));
+                        }
+                    });
+        } catch (MemoryBudgetExceededException e) {
+            handle.fail(e);
+            return handle;
+        }
+        handle.queued(ticket);
+        return handle;
+    }
+
+    /**
+     * Synthesize text to speech as a blocking stream of audio.
+     *
+     * <p>The returned stream is both an {@link java.io.InputStream} and a
+     * {@link java.nio.channels.ReadableByteChannel}, for consumers such as servlet
+     * responses, {@code javax.sound.sampled} playback or a process pipe. Chunks are read
+     * straight from a bounded queue, and the connection is not read while the queue is
+     * full. Deadlines are taken from the options as for {@link #synthesizeStream}.
+     * Closing the stream early cancels the synthesis.</p>
+     *
+     * <pre>
+     * try (AudioStream audio = client.openAudioStream(options)) {
+     *     audio.transferTo(response.getOutputStream());
+     * }
+     * </pre>
+     *
+     * @param options the synthesis options
+     * @return the audio stream
+     */
+    public AudioStream openAudioStream(SynthesizeOptions options) {
+        AudioStream stream = new AudioStream(config.getCallbackQueueChunks());
+        // Queuing a chunk never runs user code, so the stream is fed on the reader thread
+        stream.start(startStream(options,
+                traced(new StreamHandle(stream.listener(), scheduler), options, TraceRecord.Kind.AUDIO_STREAM)));
+        return stream;
+    }
+
+    /**
+     * Synthesize text to speech with streaming, sharing one upstream stream among
+     * identical concurrent requests.
+     *
+     * <p>Requests of the same tenant with the same text, voice, model and audio settings
+     * attach to the same upstream stream while it is running, for example when everyone
+     * in a room hears the same announcement. A subscriber that joins late first receives
+     * the chunks already sent, so every subscriber hears the whole clip. Chunks are kept
+     * in a buffer of {@link FlowTTSConfig.Builder#sharedStreamBufferChunks(int)} chunks;
+     * once the stream has produced more than that, new requests start a fresh stream.
+     * Each subscriber is called back by its own task on the
+     * {@link FlowTTSConfig.Builder#callbackExecutor(Executor) callback executor}; one that
+     * falls a whole buffer behind is handled per
+     * {@link FlowTTSConfig.Builder#slowSubscriberPolicy} instead of slowing the upstream
+     * stream or the other subscribers.</p>
+     *
+     * <p>The upstream request is queued with the priority and deadlines of the request
+     * that started it, and is cancelled when its last subscriber cancels. Subscribers
+     * receive the same {@link StreamChunk} instances, so listeners must not modify the
+     * audio arrays.</p>
+     *
+     * @param options  the synthesis options
+     * @param listener the listener to receive audio chunks
+     * @return a handle to this subscriber's stream
+     */
+    public StreamHandle synthesizeStreamShared(SynthesizeOptions options, StreamListener listener) {
+        String key = payloadKey(options, true);
+        StreamHandle handle = traced(new StreamHandle(listener, scheduler), options, TraceRecord.Kind.SHARED_STREAM);
+        handle.scheduleDeadlines(timer, toMillis(options.getFirstChunkTimeout()), toMillis(options.getTimeout()));
+        while (true) {
+            SharedStream stream = sharedStreams.computeIfAbsent(key, k -> new SharedStream(k, sharedStreams,
+                    callbackExecutor, config.getSharedStreamBufferChunks(), config.getSlowSubscriberPolicy()));
+            if (stream.subscribe(handle)) {
+                if (stream.claimUpstream()) {
+                    // The shared stream only copies chunks to its ring, so it is called on the reader thread
+                    stream.start(startStream(options, new StreamHandle(stream, scheduler)));
+                }
+                return handle;
+            }
+            // Finished or past its first buffer; start a new one
+            sharedStreams.remove(key, stream);
+        }
     }
 
     /**
      * Synthesize text to speech asynchronously.
+     * The call blocks a thread of the client's async executor, which uses virtual threads
+     * when {@link FlowTTSConfig.Builder#virtualThreads(boolean)} is set on Java 21 or later.
      *
      * @param options the synthesis options
      * @return a CompletableFuture that resolves to the synthesis response
      */
     public CompletableFuture<SynthesizeResponse> synthesizeAsync(SynthesizeOptions options) {
-        return CompletableFuture.supplyAsync(() -> synthesize(options));
+        return CompletableFuture.supplyAsync(() -> synthesize(options), asyncExecutor);
+    }
+
+    /**
+     * Synthesize mixed-language text with a voice per language.
+     *
+     * <p>The text is split into single-language runs with {@link LanguageDetector}.
+     * Each run is synthesized concurrently with the voice configured for its language
+     * via {@link FlowTTSConfig.Builder#languageVoice(String, String)}, falling back to
+     * the voice in {@code options}. Responses are returned in text order. If a run fails,
+     * the requests of the other runs are aborted.</p>
+     *
+     * @param options the synthesis options
+     * @return the synthesis responses, one per language run
+     * @throws FlowTTSException if synthesis of any run fails
+     */
+    public List<SynthesizeResponse> synthesizeMultilingual(SynthesizeOptions options) {
+        Map<String, String> languageVoices = config.getLanguageVoices();
+        List<CompletableFuture<SynthesizeResponse>> futures = new ArrayList<>();
+        List<SyncCall> calls = new ArrayList<>();
+
+        for (LanguageDetector.Segment segment : LanguageDetector.segment(options.getText())) {
+            if (segment.isBlank()) {
+                continue;
+            }
+            SynthesizeOptions segmentOptions = options.toBuilder()
+                    .text(segment.getText())
+                    .voice(languageVoices.getOrDefault(segment.getLanguage(), options.getVoice()))
+                    .build();
+            SyncCall call = new SyncCall();
+            calls.add(call);
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> synthesize(segmentOptions, config.getTraceRecorder(), call), asyncExecutor));
+        }
+
+        // Completes when every run has, or as soon as one fails
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        futures.forEach(f -> f.whenComplete((response, error) -> {
+            if (error != null) {
+                failed.completeExceptionally(error);
+            }
+        }));
+        List<SynthesizeResponse> responses = new ArrayList<>(futures.size());
+        try {
+            CompletableFuture.anyOf(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])), failed)
+                    .join();
+            for (CompletableFuture<SynthesizeResponse> future : futures) {
+                responses.add(future.join());
+            }
+        } catch (CompletionException e) {
+            // Abort the runs still in flight; any that complete anyway are released
+            calls.forEach(SyncCall::cancel);
+            futures.forEach(f -> f.thenAccept(SynthesizeResponse::release));
+            if (e.getCause() instanceof FlowTTSException) {
+                throw (FlowTTSException) e.getCause();
+            }
+            throw new FlowTTSException("Multilingual synthesis failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        return responses;
     }
 
     /**
@@ -294,41 +741,232 @@ public class FlowTTS {
         return voiceResolver.getVoice(voiceId, model);
     }
 
+    /**
+     * Get queueing metrics of a priority class on the shared transport.
+     * Queue waits are only incurred when a concurrency limit is configured.
+     *
+     * @param priority the priority class
+     * @return a snapshot of the class metrics
+     */
+    public RequestScheduler.Metrics getSchedulerMetrics(Priority priority) {
+        return scheduler.getMetrics(priority);
+    }
+
+    /**
+     * Get the usage of the memory budget shared by this client and its tenant views.
+     *
+     * @return a snapshot of the reserved and peak bytes
+     * @see FlowTTSConfig.Builder#memoryBudget(long)
+     */
+    public RequestScheduler.MemoryMetrics getMemoryMetrics() {
+        return scheduler.getMemoryMetrics();
+    }
+
     /**
      * Close the client and release resources.
+     * Has no effect on tenant views, which share the transport of their parent client.
      */
     public void close() {
-        httpClient.dispatcher().executorService().shutdown();
-        httpClient.connectionPool().evictAll();
+        if (!root) {
+            return;
+        }
+        timer.shutdownNow();
+        asyncExecutor.shutdown();
+        if (config.getCallbackExecutor() == null) {
+            ((ExecutorService) callbackExecutor).shutdown();
+        }
+        if (ownsTransport) {
+            transport.close();
+        }
+    }
+
+    private TransportRequest newRequest(Map<String, String> headers, PayloadEncoder payload) {
+        TransportRequest.Builder builder = TransportRequest.builder()
+                .url(config.getScheme() + "://" + config.getEndpoint())
+                .body(payload.buffer(), 0, payload.length());
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if ("Content-Type".equals(entry.getKey())) {
+                builder.contentType(entry.getValue());
+            } else {
+                builder.header(entry.getKey(), entry.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    static Transport defaultTransport(FlowTTSConfig config) {
+        if (config.isVirtualThreads() && Threads.isVirtualAvailable()) {
+            return JdkHttpTransport.create(config);
+        }
+        try {
+            Class.forName("okhttp3.sse.EventSources", false, FlowTTS.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return JdkHttpTransport.create(config);
+        }
+        return OkHttpTransport.create(config);
     }
 
-    private JsonObject buildPayload(SynthesizeOptions options, String resolvedVoice, boolean isStream) {
-        JsonObject payload = new JsonObject();
-        
-        // Match Go SDK structure exactly
-        payload.addProperty("SdkAppId", config.getSdkAppId());
-        payload.addProperty("Text", options.getText());
-        
+    private static ScheduledExecutorService newTimer() {
+        // The thread is started on first use, so clients without deadlines never create it
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "flow-tts-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    private long estimateAudioBytes(SynthesizeOptions options, boolean isStream) {
+        // Skip the text scan when there is no budget to charge
+        if (config.getMemoryBudget() == 0) {
+            return 0;
+        }
+        // Stream chunks are always PCM, whatever codec the options ask for
+        return AudioSizeEstimator.estimate(options.getText(), options.getSampleRate(),
+                isStream ? "pcm" : options.getCodec());
+    }
+
+    private static long toMillis(Duration duration) {
+        return duration == null ? 0 : Math.max(1, duration.toMillis());
+    }
+
+    // Identifies a request of this tenant by its payload
+    private String payloadKey(SynthesizeOptions options, boolean isStream) {
+        String resolvedVoice = voiceResolver.resolve(options.getVoice(), options.getModel());
+        PayloadEncoder payload = encodePayload(SYNC_ENCODER.get(), options, resolvedVoice, isStream);
+        String key = tenantKey(signer.getSecretId(), sdkAppId) + "/"
+                + Base64.getEncoder().encodeToString(payload.sha256());
+        if (payload.buffer().length > MAX_RETAINED_PAYLOAD) {
+            SYNC_ENCODER.remove();
+        }
+        return key;
+    }
+
+    // Only 5xx is worth sending again; any other status would be refused the same way
+    static FlowTTSException httpError(int statusCode, String body, String retryAfter) {
+        String message = body == null || body.isEmpty()
+                ? "HTTP error " + statusCode
+                : "HTTP error " + statusCode + ": " + body;
+        switch (statusCode) {
+            case 429:
+                return new ThrottledException("TooManyRequests", message, null, parseRetryAfter(retryAfter));
+            case 503:
+                return new ThrottledException("HttpError.ServiceUnavailable", message, null,
+                        parseRetryAfter(retryAfter));
+            case 401:
+                return new FlowTTSException("HttpError.Unauthorized", message, null);
+            case 403:
+                return new FlowTTSException("HttpError.Forbidden", message, null);
+            default:
+                return new FlowTTSException(statusCode >= 500 && statusCode < 600
+                        ? "HttpError" : "HttpError.RequestRejected", message, null);
+        }
+    }
+
+    // Retry-After is either a number of seconds or an HTTP date
+    static Duration parseRetryAfter(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            long seconds = Long.parseLong(value.trim());
+            return seconds >= 0 ? Duration.ofSeconds(seconds) : null;
+        } catch (NumberFormatException e) {
+            // An HTTP date
+        }
+        try {
+            Instant at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            Duration delay = Duration.between(Instant.now(), at);
+            return delay.isNegative() ? Duration.ZERO : delay;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static byte[] wav(byte[] pcm, int sampleRate) {
+        ByteBuffer wav = ByteBuffer.allocate(44 + pcm.length).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + pcm.length)
+                .put("WAVE".getBytes(StandardCharsets.US_ASCII))
+                .put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(sampleRate).putInt(sampleRate * 2)
+                .putShort((short) 2).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(pcm.length)
+                .put(pcm);
+        return wav.array();
+    }
+
+    private Signer signerFor(String secretId, String secretKey) {
+        return signers.compute(secretId, (id, existing) ->
+                existing != null && existing.matches(secretId, secretKey) ? existing : new Signer(secretId, secretKey));
+    }
+
+    private static String tenantKey(String secretId, long sdkAppId) {
+        return secretId + "/" + sdkAppId;
+    }
+
+    /**
+     * Aborts one blocking request from another thread, before or while it is sent.
+     */
+    private static final class SyncCall implements Consumer<TransportCall> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private TransportCall call;
+        private boolean cancelled;
+
+        @Override
+        public void accept(TransportCall started) {
+            lock.lock();
+            try {
+                call = started;
+                if (!cancelled) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            started.cancel();
+        }
+
+        void cancel() {
+            TransportCall started;
+            lock.lock();
+            try {
+                cancelled = true;
+                started = call;
+            } finally {
+                lock.unlock();
+            }
+            if (started != null) {
+                started.cancel();
+            }
+        }
+
+        boolean isCancelled() {
+            lock.lock();
+            try {
+                return cancelled;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private PayloadEncoder encodePayload(PayloadEncoder encoder, SynthesizeOptions options,
+                                         String resolvedVoice, boolean isStream) {
         // Convert user-friendly model name to API format
         // "flow-01-turbo" -> "flow_01_turbo", "flow-01-ex" -> "flow_01_ex"
-        String model = options.getModel();
-        String apiModel = model.replace("-", "_");
-        payload.addProperty("Model", apiModel);
-        
-        // Voice config (nested object)
-        JsonObject voice = new JsonObject();
-        voice.addProperty("VoiceId", resolvedVoice);
-        voice.addProperty("Speed", options.getSpeed());
-        voice.addProperty("Volume", options.getVolume());
-        voice.addProperty("Pitch", options.getPitch());
-        payload.add("Voice", voice);
-        
-        // AudioFormat config (nested object)
-        JsonObject audioFormat = new JsonObject();
-        audioFormat.addProperty("Format", isStream ? "pcm" : options.getCodec());
-        audioFormat.addProperty("SampleRate", options.getSampleRate());
-        payload.add("AudioFormat", audioFormat);
-        
-        return payload;
+        String apiModel = options.getModel().replace("-", "_");
+
+        return encoder.encode(
+                sdkAppId,
+                options.getText(),
+                apiModel,
+                resolvedVoice,
+                options.getSpeed(),
+                options.getVolume(),
+                options.getPitch(),
+                isStream ? "pcm" : options.getCodec(),
+                options.getSampleRate()
+        );
     }
 }
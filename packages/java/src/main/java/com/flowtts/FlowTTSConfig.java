@@ -1,5 +1,20 @@
 package com.flowtts;
 
+import com.flowtts.model.AudioStorage;
+import com.flowtts.model.CallbackOverflowPolicy;
+import com.flowtts.model.Priority;
+import com.flowtts.model.SlowSubscriberPolicy;
+import com.flowtts.trace.TraceRecorder;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
 /**
  * Configuration for Flow TTS client.
  */
@@ -9,6 +24,23 @@ public class FlowTTSConfig {
     private final long sdkAppId;
     private final String region;
     private final String endpoint;
+    private final String scheme;
+    private final Map<String, String> languageVoices;
+    private final int maxConcurrentRequests;
+    private final int tenantMaxConcurrentRequests;
+    private final int[] reservedConcurrency;
+    private final boolean virtualThreads;
+    private final AudioStorage audioStorage;
+    private final int audioSegmentSize;
+    private final long memoryBudget;
+    private final boolean failFastOverBudget;
+    private final int sharedStreamBufferChunks;
+    private final SlowSubscriberPolicy slowSubscriberPolicy;
+    private final long variantCacheBytes;
+    private final Executor callbackExecutor;
+    private final int callbackQueueChunks;
+    private final CallbackOverflowPolicy callbackOverflowPolicy;
+    private final TraceRecorder traceRecorder;
 
     private FlowTTSConfig(Builder builder) {
         this.secretId = builder.secretId;
@@ -16,6 +48,23 @@ public class FlowTTSConfig {
         this.sdkAppId = builder.sdkAppId;
         this.region = builder.region;
         this.endpoint = builder.endpoint;
+        this.scheme = builder.scheme;
+        this.languageVoices = Collections.unmodifiableMap(new HashMap<>(builder.languageVoices));
+        this.maxConcurrentRequests = builder.maxConcurrentRequests;
+        this.tenantMaxConcurrentRequests = builder.tenantMaxConcurrentRequests;
+        this.reservedConcurrency = builder.reservedConcurrency.clone();
+        this.virtualThreads = builder.virtualThreads;
+        this.audioStorage = builder.audioStorage;
+        this.audioSegmentSize = builder.audioSegmentSize;
+        this.memoryBudget = builder.memoryBudget;
+        this.failFastOverBudget = builder.failFastOverBudget;
+        this.sharedStreamBufferChunks = builder.sharedStreamBufferChunks;
+        this.slowSubscriberPolicy = builder.slowSubscriberPolicy;
+        this.variantCacheBytes = builder.variantCacheBytes;
+        this.callbackExecutor = builder.callbackExecutor;
+        this.callbackQueueChunks = builder.callbackQueueChunks;
+        this.callbackOverflowPolicy = builder.callbackOverflowPolicy;
+        this.traceRecorder = builder.traceRecorder;
     }
 
     public String getSecretId() {
@@ -38,6 +87,155 @@ public class FlowTTSConfig {
         return endpoint;
     }
 
+    public String getScheme() {
+        return scheme;
+    }
+
+    /**
+     * Get the voices used for each language by multilingual synthesis.
+     *
+     * @return an unmodifiable map from ISO 639-1 language code to voice
+     */
+    public Map<String, String> getLanguageVoices() {
+        return languageVoices;
+    }
+
+    /**
+     * Get the maximum number of concurrent requests across all tenants.
+     *
+     * @return the limit, or 0 for unlimited
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    /**
+     * Get the default maximum number of concurrent requests per tenant.
+     *
+     * @return the quota, or 0 for unlimited
+     */
+    public int getTenantMaxConcurrentRequests() {
+        return tenantMaxConcurrentRequests;
+    }
+
+    /**
+     * Get the number of concurrency slots reserved for a priority class.
+     *
+     * @param priority the priority class
+     * @return the number of reserved slots
+     */
+    public int getReservedConcurrency(Priority priority) {
+        return reservedConcurrency[priority.ordinal()];
+    }
+
+    /**
+     * Check if blocking work is run on virtual threads where the runtime supports it.
+     *
+     * @return true if virtual threads were requested
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Get where synchronous responses keep their audio.
+     *
+     * @return the audio storage
+     */
+    public AudioStorage getAudioStorage() {
+        return audioStorage;
+    }
+
+    /**
+     * Get the size of the segments that hold direct audio.
+     *
+     * @return the segment size in bytes
+     */
+    public int getAudioSegmentSize() {
+        return audioSegmentSize;
+    }
+
+    /**
+     * Get the bytes of audio that in-flight requests may reserve.
+     *
+     * @return the budget, or 0 for unlimited
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Check if requests that do not fit the memory budget are rejected instead of queued.
+     *
+     * @return true to fail fast
+     */
+    public boolean isFailFastOverBudget() {
+        return failFastOverBudget;
+    }
+
+    /**
+     * Get the number of chunks each shared stream keeps for its subscribers.
+     *
+     * @return the buffer size in chunks
+     */
+    public int getSharedStreamBufferChunks() {
+        return sharedStreamBufferChunks;
+    }
+
+    /**
+     * Get what happens to a shared stream subscriber that falls a whole buffer behind.
+     *
+     * @return the policy
+     */
+    public SlowSubscriberPolicy getSlowSubscriberPolicy() {
+        return slowSubscriberPolicy;
+    }
+
+    /**
+     * Get the size of the cache of base renders that local variants are derived from.
+     *
+     * @return the cache size in bytes
+     */
+    public long getVariantCacheBytes() {
+        return variantCacheBytes;
+    }
+
+    /**
+     * Get the executor that stream listeners are called on.
+     *
+     * @return the executor, or null for the client's own callback threads
+     */
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    /**
+     * Get how many chunks each stream queues for a listener that is still busy.
+     *
+     * @return the queue size in chunks
+     */
+    public int getCallbackQueueChunks() {
+        return callbackQueueChunks;
+    }
+
+    /**
+     * Get what a stream does when its callback queue is full.
+     *
+     * @return the policy
+     */
+    public CallbackOverflowPolicy getCallbackOverflowPolicy() {
+        return callbackOverflowPolicy;
+    }
+
+    /**
+     * Get the recorder that logs the shape of each request.
+     *
+     * @return the recorder, or null if requests are not recorded
+     */
+    public TraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
+
     /**
      * Create a new builder for FlowTTSConfig.
      *
@@ -56,6 +254,23 @@ public class FlowTTSConfig {
         private long sdkAppId;
         private String region = "ap-beijing";
         private String endpoint = "trtc.ai.tencentcloudapi.com";
+        private String scheme = "https";
+        private final Map<String, String> languageVoices = new HashMap<>();
+        private int maxConcurrentRequests;
+        private int tenantMaxConcurrentRequests;
+        private final int[] reservedConcurrency = new int[Priority.values().length];
+        private boolean virtualThreads;
+        private AudioStorage audioStorage = AudioStorage.HEAP;
+        private int audioSegmentSize = 64 * 1024;
+        private long memoryBudget;
+        private boolean failFastOverBudget;
+        private int sharedStreamBufferChunks = 256;
+        private SlowSubscriberPolicy slowSubscriberPolicy = SlowSubscriberPolicy.DROP;
+        private long variantCacheBytes = 32L * 1024 * 1024;
+        private Executor callbackExecutor;
+        private int callbackQueueChunks = 256;
+        private CallbackOverflowPolicy callbackOverflowPolicy = CallbackOverflowPolicy.BLOCK;
+        private TraceRecorder traceRecorder;
 
         /**
          * Set the Tencent Cloud Secret ID.
@@ -103,8 +318,10 @@ public class FlowTTSConfig {
 
         /**
          * Set the API endpoint (default: trtc.ai.tencentcloudapi.com).
+         * This is a host with an optional port; user info, a path, a query or a
+         * fragment is rejected by {@link #build()}.
          *
-         * @param endpoint the endpoint
+         * @param endpoint the endpoint, as host[:port]
          * @return this builder
          */
         public Builder endpoint(String endpoint) {
@@ -112,6 +329,240 @@ public class FlowTTSConfig {
             return this;
         }
 
+        /**
+         * Set the URL scheme used to reach the endpoint (default: https).
+         * "http" is only accepted for a loopback endpoint, such as a local emulator
+         * ({@code com.flowtts.emulator.TtsEmulator} in the tools jar), so credentials
+         * and text are never sent in the clear over a network.
+         *
+         * @param scheme "https" or "http"
+         * @return this builder
+         */
+        public Builder scheme(String scheme) {
+            this.scheme = scheme;
+            return this;
+        }
+
+        /**
+         * Set the voice used for a language by multilingual synthesis.
+         * Languages without a voice use the voice from the synthesis options.
+         *
+         * @param language the ISO 639-1 language code (zh, en, ja, ko)
+         * @param voice    the voice name (OpenAI name or Tencent voice ID)
+         * @return this builder
+         */
+        public Builder languageVoice(String language, String voice) {
+            this.languageVoices.put(language, voice);
+            return this;
+        }
+
+        /**
+         * Set the maximum number of concurrent requests on the shared transport,
+         * across the client and all its tenant views (default: 0, unlimited).
+         *
+         * @param maxConcurrentRequests the limit, or 0 for unlimited
+         * @return this builder
+         */
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * Set the default maximum number of concurrent requests per tenant
+         * (default: 0, bounded only by {@link #maxConcurrentRequests(int)}).
+         *
+         * @param tenantMaxConcurrentRequests the quota, or 0 for unlimited
+         * @return this builder
+         */
+        public Builder tenantMaxConcurrentRequests(int tenantMaxConcurrentRequests) {
+            this.tenantMaxConcurrentRequests = tenantMaxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * Reserve concurrency slots for a priority class (default: 0).
+         * Reserved slots are only used by that class; the remaining slots are shared and
+         * go to the highest-priority waiting request first. Requires
+         * {@link #maxConcurrentRequests(int)}.
+         *
+         * @param priority the priority class
+         * @param slots    the number of reserved slots
+         * @return this builder
+         */
+        public Builder reservedConcurrency(Priority priority, int slots) {
+            this.reservedConcurrency[priority.ordinal()] = slots;
+            return this;
+        }
+
+        /**
+         * Run blocking work on virtual threads (default: false).
+         * On Java 21 or later, {@code synthesizeAsync}, multilingual synthesis, stream
+         * callbacks and the HTTP client then use a virtual thread per call, so tens of
+         * thousands of calls can be in flight without a platform thread each. On older
+         * runtimes the setting has no effect; see
+         * {@link com.flowtts.core.Threads#isVirtualAvailable()}.
+         *
+         * <p>Clients created without a transport then use {@link
+         * com.flowtts.transport.JdkHttpTransport}: OkHttp holds monitors around socket
+         * I/O, which pins virtual threads to their carriers. Pass a JDK transport too
+         * when giving the client one explicitly.</p>
+         *
+         * @param virtualThreads whether to use virtual threads
+         * @return this builder
+         */
+        public Builder virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Set where synchronous responses keep their audio (default: {@link AudioStorage#HEAP}).
+         * With {@link AudioStorage#DIRECT}, the base64 audio in a response is decoded as it
+         * is read into pooled direct segments, and
+         * {@link com.flowtts.model.SynthesizeResponse#release()} returns them to the pool.
+         *
+         * @param audioStorage the audio storage
+         * @return this builder
+         */
+        public Builder audioStorage(AudioStorage audioStorage) {
+            this.audioStorage = audioStorage;
+            return this;
+        }
+
+        /**
+         * Set the size of the segments that hold direct audio (default: 64 KiB).
+         * Larger segments mean fewer buffers per clip but more unused space in the last one.
+         *
+         * @param audioSegmentSize the segment size in bytes, at least 1024
+         * @return this builder
+         */
+        public Builder audioSegmentSize(int audioSegmentSize) {
+            this.audioSegmentSize = audioSegmentSize;
+            return this;
+        }
+
+        /**
+         * Bound the audio held by in-flight requests across all tenants (default: 0, unlimited).
+         * Each request reserves its audio size, estimated from text length, sample rate and
+         * codec, when admitted; streams grow the reservation if more audio arrives than
+         * estimated. Requests that do not fit wait in the request queue, or fail with a
+         * {@link com.flowtts.exception.MemoryBudgetExceededException} if
+         * {@link #failFastOverBudget(boolean)} is set. Usage is reported by
+         * {@link FlowTTS#getMemoryMetrics()}.
+         *
+         * @param memoryBudget the budget in bytes, or 0 for unlimited
+         * @return this builder
+         */
+        public Builder memoryBudget(long memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        /**
+         * Reject requests that do not fit the memory budget instead of queueing them
+         * (default: false).
+         *
+         * @param failFastOverBudget whether to fail fast
+         * @return this builder
+         */
+        public Builder failFastOverBudget(boolean failFastOverBudget) {
+            this.failFastOverBudget = failFastOverBudget;
+            return this;
+        }
+
+        /**
+         * Set how many chunks each shared stream keeps (default: 256).
+         * Subscribers of {@link FlowTTS#synthesizeStreamShared} read the buffer at their own
+         * pace, and late joiners replay it from the start, so a stream can be joined until
+         * it has produced more chunks than this.
+         *
+         * @param sharedStreamBufferChunks the buffer size in chunks
+         * @return this builder
+         */
+        public Builder sharedStreamBufferChunks(int sharedStreamBufferChunks) {
+            this.sharedStreamBufferChunks = sharedStreamBufferChunks;
+            return this;
+        }
+
+        /**
+         * Set what happens to a shared stream subscriber that falls a whole buffer behind
+         * (default: {@link SlowSubscriberPolicy#DROP}).
+         *
+         * @param slowSubscriberPolicy the policy
+         * @return this builder
+         */
+        public Builder slowSubscriberPolicy(SlowSubscriberPolicy slowSubscriberPolicy) {
+            this.slowSubscriberPolicy = slowSubscriberPolicy;
+            return this;
+        }
+
+        /**
+         * Set the size of the cache of base renders that
+         * {@link com.flowtts.model.SynthesizeOptions.Builder#localVariant(boolean) local variants}
+         * are derived from (default: 32 MiB). With 0, each variant requests its base again.
+         *
+         * @param variantCacheBytes the cache size in bytes
+         * @return this builder
+         */
+        public Builder variantCacheBytes(long variantCacheBytes) {
+            this.variantCacheBytes = variantCacheBytes;
+            return this;
+        }
+
+        /**
+         * Set the executor that stream listeners are called on (default: a pool of daemon
+         * threads owned by the client, virtual threads if enabled).
+         * Callbacks of one stream run one at a time and in order; different streams run in
+         * parallel. Connections are read on transport threads, which never run listener code.
+         * The client does not shut down an executor passed here.
+         *
+         * @param callbackExecutor the executor
+         * @return this builder
+         */
+        public Builder callbackExecutor(Executor callbackExecutor) {
+            this.callbackExecutor = callbackExecutor;
+            return this;
+        }
+
+        /**
+         * Set how many chunks each stream queues for a listener that is still busy, or
+         * for the reader of an {@link AudioStream} (default: 256).
+         *
+         * @param callbackQueueChunks the queue size in chunks
+         * @return this builder
+         */
+        public Builder callbackQueueChunks(int callbackQueueChunks) {
+            this.callbackQueueChunks = callbackQueueChunks;
+            return this;
+        }
+
+        /**
+         * Set what a stream does when its callback queue is full
+         * (default: {@link CallbackOverflowPolicy#BLOCK}).
+         *
+         * @param callbackOverflowPolicy the policy
+         * @return this builder
+         */
+        public Builder callbackOverflowPolicy(CallbackOverflowPolicy callbackOverflowPolicy) {
+            this.callbackOverflowPolicy = callbackOverflowPolicy;
+            return this;
+        }
+
+        /**
+         * Record the anonymized shape of every request to a trace log (default: not recorded).
+         * Each finished request is logged with its options, timing and outcome; the text
+         * is reduced to its length and language. The client does not close the recorder.
+         * Logs are replayed with {@code com.flowtts.bench.TraceReplayer} from the tools jar.
+         *
+         * @param traceRecorder the recorder
+         * @return this builder
+         */
+        public Builder traceRecorder(TraceRecorder traceRecorder) {
+            this.traceRecorder = traceRecorder;
+            return this;
+        }
+
         /**
          * Build the FlowTTSConfig instance.
          *
@@ -128,7 +579,95 @@ public class FlowTTSConfig {
             if (sdkAppId <= 0) {
                 throw new IllegalArgumentException("sdkAppId must be positive");
             }
+            if (!"https".equals(scheme) && !"http".equals(scheme)) {
+                throw new IllegalArgumentException("scheme must be https or http");
+            }
+            URI endpointUri = parseEndpoint(endpoint);
+            if ("http".equals(scheme) && !isLoopback(endpointUri.getHost())) {
+                throw new IllegalArgumentException("scheme http is only allowed for a loopback endpoint");
+            }
+            if (maxConcurrentRequests < 0 || tenantMaxConcurrentRequests < 0) {
+                throw new IllegalArgumentException("concurrency limits must not be negative");
+            }
+            int reserved = 0;
+            for (int slots : reservedConcurrency) {
+                if (slots < 0) {
+                    throw new IllegalArgumentException("reserved concurrency must not be negative");
+                }
+                reserved += slots;
+            }
+            if (reserved > 0 && (maxConcurrentRequests == 0 || reserved > maxConcurrentRequests)) {
+                throw new IllegalArgumentException("reserved concurrency must fit within maxConcurrentRequests");
+            }
+            if (audioStorage == null) {
+                throw new IllegalArgumentException("audioStorage is required");
+            }
+            if (memoryBudget < 0) {
+                throw new IllegalArgumentException("memoryBudget must not be negative");
+            }
+            if (audioSegmentSize < 1024) {
+                throw new IllegalArgumentException("audioSegmentSize must be at least 1024");
+            }
+            if (sharedStreamBufferChunks <= 0) {
+                throw new IllegalArgumentException("sharedStreamBufferChunks must be positive");
+            }
+            if (slowSubscriberPolicy == null) {
+                throw new IllegalArgumentException("slowSubscriberPolicy is required");
+            }
+            if (variantCacheBytes < 0) {
+                throw new IllegalArgumentException("variantCacheBytes must not be negative");
+            }
+            if (callbackQueueChunks <= 0) {
+                throw new IllegalArgumentException("callbackQueueChunks must be positive");
+            }
+            if (callbackOverflowPolicy == null) {
+                throw new IllegalArgumentException("callbackOverflowPolicy is required");
+            }
             return new FlowTTSConfig(this);
         }
+
+        // The endpoint is a bare host[:port]; anything else would change where requests go
+        private static URI parseEndpoint(String endpoint) {
+            if (endpoint == null || endpoint.isEmpty()) {
+                throw new IllegalArgumentException("endpoint is required");
+            }
+            URI uri;
+            try {
+                uri = new URI("http://" + endpoint);
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Invalid endpoint: " + endpoint, e);
+            }
+            if (uri.getHost() == null || uri.getRawUserInfo() != null || !uri.getRawPath().isEmpty()
+                    || uri.getRawQuery() != null || uri.getRawFragment() != null) {
+                throw new IllegalArgumentException("endpoint must be a host with an optional port: " + endpoint);
+            }
+            return uri;
+        }
+
+        // Literal loopback hosts only; names other than localhost are not resolved
+        private static boolean isLoopback(String host) {
+            if (host.equalsIgnoreCase("localhost")) {
+                return true;
+            }
+            if (host.startsWith("[")) {
+                // An IPv6 literal, which InetAddress parses without a lookup
+                try {
+                    return InetAddress.getByName(host.substring(1, host.length() - 1)).isLoopbackAddress();
+                } catch (UnknownHostException e) {
+                    return false;
+                }
+            }
+            String[] octets = host.split("\\.", -1);
+            if (octets.length != 4 || !octets[0].equals("127")) {
+                return false;
+            }
+            for (String octet : octets) {
+                if (octet.isEmpty() || octet.length() > 3 || !octet.chars().allMatch(Character::isDigit)
+                        || Integer.parseInt(octet) > 255) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 }
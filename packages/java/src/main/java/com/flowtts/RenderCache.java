@@ -0,0 +1,131 @@
+package com.flowtts;
+
+import com.flowtts.exception.CancelledException;
+import com.flowtts.exception.FlowTTSException;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Least recently used PCM renders, bounded by their total size.
+ *
+ * <p>Callers that miss on a key that another caller is already rendering wait for that
+ * render instead of requesting their own, so a burst of variants of one text makes one
+ * upstream call.</p>
+ */
+final class RenderCache {
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Entry>> pending = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private long bytes;
+
+    RenderCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get a render, rendering it if no other caller is already doing so.
+     *
+     * <p>If the render another caller started fails, waiters get the same exception,
+     * except for a cancellation, after which the next waiter renders it itself.</p>
+     *
+     * @param key    the render key
+     * @param render renders the entry on a miss
+     * @return the cached or new entry
+     */
+    Entry get(String key, Supplier<Entry> render) {
+        while (true) {
+            CompletableFuture<Entry> future;
+            boolean owner = false;
+            lock.lock();
+            try {
+                Entry entry = entries.get(key);
+                if (entry != null) {
+                    return entry;
+                }
+                future = pending.get(key);
+                if (future == null) {
+                    future = new CompletableFuture<>();
+                    pending.put(key, future);
+                    owner = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (owner) {
+                return render(key, render, future);
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FlowTTSException("Interrupted", "Interrupted while waiting for a shared render", null, e);
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof CancelledException)) {
+                    throw (RuntimeException) e.getCause();
+                }
+                // Cancelled by the caller that started it; try again
+            }
+        }
+    }
+
+    private Entry render(String key, Supplier<Entry> render, CompletableFuture<Entry> future) {
+        try {
+            Entry entry = render.get();
+            put(key, entry);
+            future.complete(entry);
+            return entry;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            lock.lock();
+            try {
+                pending.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    void put(String key, Entry entry) {
+        if (entry.pcm.length > maxBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                bytes -= previous.pcm.length;
+            }
+            bytes += entry.pcm.length;
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes) {
+                bytes -= eldest.next().getValue().pcm.length;
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A cached render. The audio must not be modified.
+     */
+    static final class Entry {
+        final byte[] pcm;
+        final String requestId;
+
+        Entry(byte[] pcm, String requestId) {
+            this.pcm = pcm;
+            this.requestId = requestId;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.flowtts;
+
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.SlowSubscriberPolicy;
+import com.flowtts.model.StreamChunk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One upstream stream delivered to several subscribers by
+ * {@link FlowTTS#synthesizeStreamShared}.
+ *
+ * <p>Chunks are written to a fixed ring. Each subscriber has its own cursor and is fed by
+ * its own task on the executor, so the upstream reader never waits for a listener and a
+ * slow listener delays no one else; a subscriber that is lapped by the writer is handled
+ * per the {@link SlowSubscriberPolicy}. New subscribers replay from the first chunk, so
+ * the stream accepts them only while that chunk is still in the ring.</p>
+ */
+final class SharedStream implements StreamListener {
+    private final String key;
+    private final Map<String, SharedStream> registry;
+    private final Executor executor;
+    private final SlowSubscriberPolicy policy;
+    private final StreamChunk[] ring;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private long written;
+    private boolean finished;
+    private Exception error;
+    // Set once the stream ends, overwrites its first chunk or loses all subscribers
+    private boolean closed;
+    private boolean upstreamClaimed;
+    private StreamHandle upstream;
+
+    SharedStream(String key, Map<String, SharedStream> registry, Executor executor,
+                 int capacity, SlowSubscriberPolicy policy) {
+        this.key = key;
+        this.registry = registry;
+        this.executor = executor;
+        this.policy = policy;
+        this.ring = new StreamChunk[capacity];
+    }
+
+    /**
+     * Add a subscriber that replays the stream from its first chunk.
+     *
+     * @return false if the stream no longer accepts subscribers
+     */
+    boolean subscribe(StreamHandle handle) {
+        Subscriber subscriber = new Subscriber(handle);
+        boolean drain;
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            subscribers.add(subscriber);
+            drain = written > 0 && subscriber.markScheduled();
+        } finally {
+            lock.unlock();
+        }
+        // The handle cancels its call when it is cancelled or times out, which detaches it
+        handle.started(() -> unsubscribe(subscriber));
+        if (drain) {
+            subscriber.dispatch();
+        }
+        return true;
+    }
+
+    /**
+     * Claim the right to start the upstream stream; true for exactly one caller.
+     */
+    boolean claimUpstream() {
+        lock.lock();
+        try {
+            if (upstreamClaimed) {
+                return false;
+            }
+            upstreamClaimed = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void start(StreamHandle handle) {
+        boolean abandoned;
+        lock.lock();
+        try {
+            upstream = handle;
+            abandoned = subscribers.isEmpty() && !finished;
+        } finally {
+            lock.unlock();
+        }
+        // Every subscriber left before the upstream stream was started
+        if (abandoned) {
+            handle.cancel();
+        }
+    }
+
+    @Override
+    public void onChunk(StreamChunk chunk) {
+        List<Subscriber> ready;
+        lock.lock();
+        try {
+            ring[(int) (written % ring.length)] = chunk;
+            written++;
+            if (written > ring.length) {
+                close();
+            }
+            ready = scheduleAll();
+        } finally {
+            lock.unlock();
+        }
+        dispatch(ready);
+    }
+
+    @Override
+    public void onComplete() {
+        finish(null);
+    }
+
+    @Override
+    public void onError(Exception error) {
+        finish(error);
+    }
+
+    private void finish(Exception error) {
+        List<Subscriber> ready;
+        lock.lock();
+        try {
+            finished = true;
+            this.error = error;
+            close();
+            ready = scheduleAll();
+        } finally {
+            lock.unlock();
+        }
+        dispatch(ready);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        StreamHandle cancel = null;
+        lock.lock();
+        try {
+            if (!subscribers.remove(subscriber)) {
+                return;
+            }
+            if (subscribers.isEmpty() && !finished) {
+                close();
+                cancel = upstream;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (cancel != null) {
+            cancel.cancel();
+        }
+    }
+
+    // Caller holds the lock
+    private void close() {
+        if (!closed) {
+            closed = true;
+            registry.remove(key, this);
+        }
+    }
+
+    // Caller holds the lock
+    private List<Subscriber> scheduleAll() {
+        List<Subscriber> ready = new ArrayList<>(subscribers.size());
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.markScheduled()) {
+                ready.add(subscriber);
+            }
+        }
+        return ready;
+    }
+
+    private static void dispatch(List<Subscriber> ready) {
+        for (Subscriber subscriber : ready) {
+            subscriber.dispatch();
+        }
+    }
+
+    /**
+     * A read cursor into the ring, drained by at most one task at a time.
+     */
+    private final class Subscriber implements Runnable {
+        private final StreamHandle handle;
+        // Guarded by the stream lock
+        private long cursor;
+        private boolean scheduled;
+
+        Subscriber(StreamHandle handle) {
+            this.handle = handle;
+        }
+
+        // Caller holds the lock
+        boolean markScheduled() {
+            if (scheduled) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+
+        void dispatch() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                handle.fail(new FlowTTSException("ClientClosed", "Client is closed", handle.getRequestId(), e));
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                StreamChunk chunk = null;
+                Exception failure = null;
+                lock.lock();
+                try {
+                    long oldest = written - ring.length;
+                    if (cursor < oldest) {
+                        if (policy == SlowSubscriberPolicy.SKIP) {
+                            cursor = oldest;
+                        } else {
+                            failure = new FlowTTSException("SubscriberTooSlow", "Subscriber fell more than "
+                                    + ring.length + " chunks behind the shared stream", handle.getRequestId());
+                        }
+                    }
+                    if (failure == null) {
+                        if (cursor < written) {
+                            chunk = ring[(int) (cursor++ % ring.length)];
+                        } else if (finished) {
+                            failure = error;
+                        } else {
+                            scheduled = false;
+                            return;
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (chunk != null) {
+                    handle.chunk(chunk);
+                    if (handle.isDone()) {
+                        // Cancelled or timed out, and already detached
+                        return;
+                    }
+                    continue;
+                }
+                unsubscribe(this);
+                if (failure != null) {
+                    handle.fail(failure);
+                } else {
+                    handle.complete();
+                }
+                return;
+            }
+        }
+    }
+}
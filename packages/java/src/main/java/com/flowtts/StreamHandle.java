@@ -0,0 +1,519 @@
+package com.flowtts;
+
+import com.flowtts.core.RequestScheduler;
+import com.flowtts.exception.CancelledException;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.jfr.StreamEvent;
+import com.flowtts.model.CallbackOverflowPolicy;
+import com.flowtts.model.StreamChunk;
+import com.flowtts.model.SynthesizeOptions;
+import com.flowtts.trace.TraceRecord;
+import com.flowtts.trace.TraceRecorder;
+import com.flowtts.transport.TransportCall;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Handle to a streaming synthesis started by {@link FlowTTS#synthesizeStream}.
+ *
+ * <p>The handle can cancel the stream, for example when a user interrupts playback
+ * (barge-in). Cancelling a queued stream removes it from the request queue; cancelling
+ * a running stream cancels the HTTP call, which frees its connection and request slot
+ * right away.</p>
+ *
+ * <p>The listener receives exactly one terminal callback: {@code onComplete} when the
+ * stream ends normally, or {@code onError} when it fails, times out or is cancelled.
+ * No chunks are delivered after the terminal callback.</p>
+ *
+ * <p>Streams started by {@link FlowTTS#synthesizeStream} call their listener on the
+ * {@link FlowTTSConfig.Builder#callbackExecutor(Executor) callback executor}, one callback
+ * at a time and in order, through a bounded queue. {@code onComplete} follows every
+ * queued chunk; a failure or cancellation discards the chunks not yet delivered. The
+ * handle counts as finished once the terminal callback has returned.</p>
+ */
+public class StreamHandle {
+    private final StreamListener listener;
+    private final RequestScheduler scheduler;
+    // Null when the listener is called on the thread that delivers each event
+    private final Delivery delivery;
+    // Without a Delivery, held while calling the listener, so a chunk checked against
+    // done cannot be delivered after a terminal callback that raced with it
+    private final ReentrantLock directLock = new ReentrantLock();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final AtomicBoolean firstChunk = new AtomicBoolean();
+    // Chunks arrive on one thread at a time
+    private long receivedBytes;
+    private int receivedChunks;
+    // Set before the stream starts; null for subscribers of a shared stream
+    private StreamEvent event;
+    // Set before the stream starts; null unless requests are recorded
+    private TraceRecorder traceRecorder;
+    private SynthesizeOptions traceOptions;
+    private TraceRecord.Kind traceKind;
+    private final long startNanos = System.nanoTime();
+    private volatile long firstChunkNanos;
+
+    private volatile RequestScheduler.Ticket ticket;
+    private volatile TransportCall call;
+    private volatile String requestId;
+    private volatile ScheduledFuture<?> firstChunkDeadline;
+    private volatile ScheduledFuture<?> totalDeadline;
+
+    StreamHandle(StreamListener listener, RequestScheduler scheduler) {
+        this.listener = listener;
+        this.scheduler = scheduler;
+        this.delivery = null;
+    }
+
+    StreamHandle(StreamListener listener, RequestScheduler scheduler, Executor callbacks,
+                 int queueChunks, CallbackOverflowPolicy overflowPolicy) {
+        this.listener = listener;
+        this.scheduler = scheduler;
+        this.delivery = new Delivery(callbacks, queueChunks, overflowPolicy);
+    }
+
+    /**
+     * Cancel the stream.
+     * The listener receives {@code onError} with a {@link CancelledException} whose code is
+     * {@code "Cancelled"}, and the completion stage fails with a {@link CancellationException}.
+     * Chunks not yet delivered are discarded. Unless a callback of this stream is running,
+     * {@code onError} is called on this thread before this method returns. A handle that
+     * calls its listener directly, without the callback executor, waits for a running
+     * {@code onChunk} to return first.
+     *
+     * @return true if the stream was still running, false if it had already finished
+     */
+    public boolean cancel() {
+        return finish(new CancelledException("Cancelled", "Stream cancelled", requestId), true);
+    }
+
+    /**
+     * Stop calling {@code onChunk} until {@link #resume()}, for a listener that passes audio
+     * on to a consumer that is not keeping up. Chunks keep arriving into the callback queue;
+     * once it is full, the {@link FlowTTSConfig.Builder#callbackOverflowPolicy callback
+     * overflow policy} applies, so under {@code BLOCK} the connection stops being read.
+     * {@code onComplete} waits for the resume, while an error or {@link #cancel()} is still
+     * delivered. A handle that calls its listener directly, without the callback executor,
+     * ignores this. May be called from any thread, including inside {@code onChunk}.
+     */
+    public void pause() {
+        if (delivery != null) {
+            delivery.pause();
+        }
+    }
+
+    /**
+     * Resume calling the listener after {@link #pause()}, starting with the queued chunks.
+     */
+    public void resume() {
+        if (delivery != null) {
+            delivery.resume();
+        }
+    }
+
+    /**
+     * Wait for the stream to finish.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of the timeout
+     * @return true if the stream completed, failed or was cancelled within the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /**
+     * Get a completion stage that completes normally when the stream ends, or
+     * exceptionally when it fails, times out or is cancelled.
+     *
+     * @return the completion stage
+     */
+    public CompletionStage<Void> completion() {
+        return completion;
+    }
+
+    /**
+     * Check if the stream has finished.
+     *
+     * @return true if the stream completed, failed or was cancelled
+     */
+    public boolean isDone() {
+        return done.get();
+    }
+
+    /**
+     * Get the Tencent Cloud request ID once the first chunk has arrived.
+     *
+     * @return the request ID, or null if not known yet
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    void scheduleDeadlines(ScheduledExecutorService timer, long firstChunkMillis, long totalMillis) {
+        if (firstChunkMillis > 0) {
+            firstChunkDeadline = timer.schedule(() -> finish(new CancelledException("DeadlineExceeded",
+                    "No audio within " + firstChunkMillis + "ms", requestId), false),
+                    firstChunkMillis, TimeUnit.MILLISECONDS);
+        }
+        if (totalMillis > 0) {
+            totalDeadline = timer.schedule(() -> finish(new CancelledException("DeadlineExceeded",
+                    "Stream did not finish within " + totalMillis + "ms", requestId), false),
+                    totalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (done.get()) {
+            cancelDeadlines();
+        }
+    }
+
+    void record(StreamEvent event) {
+        this.event = event;
+        event.begin();
+    }
+
+    void trace(TraceRecorder recorder, SynthesizeOptions options, TraceRecord.Kind kind) {
+        this.traceRecorder = recorder;
+        this.traceOptions = options;
+        this.traceKind = kind;
+    }
+
+    void queued(RequestScheduler.Ticket ticket) {
+        this.ticket = ticket;
+        if (done.get()) {
+            releaseTicket(ticket);
+        }
+    }
+
+    void started(TransportCall call) {
+        this.call = call;
+        // Cancelled between admission and call creation
+        if (done.get()) {
+            call.cancel();
+        }
+    }
+
+    void chunk(StreamChunk chunk) {
+        if (done.get()) {
+            return;
+        }
+        if (requestId == null) {
+            requestId = chunk.getRequestId();
+        }
+        if (firstChunk.compareAndSet(false, true)) {
+            firstChunkNanos = System.nanoTime();
+            if (firstChunkDeadline != null) {
+                firstChunkDeadline.cancel(false);
+            }
+        }
+        // Charge audio beyond the admission estimate to the memory budget
+        receivedBytes += chunk.getAudio().length;
+        receivedChunks++;
+        RequestScheduler.Ticket t = ticket;
+        if (t != null) {
+            scheduler.reserveAtLeast(t, receivedBytes);
+        }
+        if (delivery == null) {
+            directLock.lock();
+            try {
+                if (!done.get()) {
+                    listener.onChunk(chunk);
+                }
+            } finally {
+                directLock.unlock();
+            }
+        } else if (!delivery.offer(chunk)) {
+            fail(new FlowTTSException("SubscriberTooSlow", "Listener fell more than "
+                    + delivery.capacity + " chunks behind the stream", requestId));
+        }
+    }
+
+    void complete() {
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        cleanup();
+        commitEvent(null);
+        commitTrace(null);
+        Runnable terminal = () -> {
+            try {
+                listener.onComplete();
+            } finally {
+                completion.complete(null);
+                finished.countDown();
+            }
+        };
+        if (delivery == null) {
+            runDirect(terminal);
+        } else {
+            delivery.finish(terminal, false, false);
+        }
+    }
+
+    boolean fail(Exception error) {
+        return finish(error, false);
+    }
+
+    private boolean finish(Exception error, boolean cancelled) {
+        if (!done.compareAndSet(false, true)) {
+            return false;
+        }
+        TransportCall active = call;
+        if (active != null) {
+            active.cancel();
+        }
+        cleanup();
+        commitEvent(error);
+        commitTrace(error);
+        Runnable terminal = () -> {
+            try {
+                listener.onError(error);
+            } finally {
+                if (cancelled) {
+                    CancellationException cancellation = new CancellationException(error.getMessage());
+                    cancellation.initCause(error);
+                    completion.completeExceptionally(cancellation);
+                } else {
+                    completion.completeExceptionally(error);
+                }
+                finished.countDown();
+            }
+        };
+        if (delivery == null) {
+            runDirect(terminal);
+        } else {
+            delivery.finish(terminal, true, cancelled);
+        }
+        return true;
+    }
+
+    private void runDirect(Runnable terminal) {
+        directLock.lock();
+        try {
+            terminal.run();
+        } finally {
+            directLock.unlock();
+        }
+    }
+
+    private void commitEvent(Exception error) {
+        StreamEvent e = event;
+        if (e == null) {
+            return;
+        }
+        e.end();
+        if (e.shouldCommit()) {
+            long first = firstChunkNanos;
+            e.timeToFirstByte = first != 0 ? first - startNanos : 0;
+            e.chunks = receivedChunks;
+            e.audioBytes = receivedBytes;
+            e.requestId = requestId;
+            if (error != null) {
+                e.errorCode = errorCode(error);
+            }
+            e.commit();
+        }
+    }
+
+    private void commitTrace(Exception error) {
+        TraceRecorder recorder = traceRecorder;
+        if (recorder != null) {
+            recorder.record(traceOptions, traceKind, startNanos, firstChunkNanos, receivedBytes,
+                    error != null ? errorCode(error) : null);
+        }
+    }
+
+    private static String errorCode(Exception error) {
+        String code = error instanceof FlowTTSException ? ((FlowTTSException) error).getCode() : null;
+        return code != null ? code : "Unknown";
+    }
+
+    private void cleanup() {
+        cancelDeadlines();
+        RequestScheduler.Ticket t = ticket;
+        if (t != null) {
+            releaseTicket(t);
+        }
+    }
+
+    private void releaseTicket(RequestScheduler.Ticket t) {
+        if (!scheduler.cancel(t)) {
+            scheduler.release(t);
+        }
+    }
+
+    private void cancelDeadlines() {
+        ScheduledFuture<?> first = firstChunkDeadline;
+        if (first != null) {
+            first.cancel(false);
+        }
+        ScheduledFuture<?> total = totalDeadline;
+        if (total != null) {
+            total.cancel(false);
+        }
+    }
+
+    /**
+     * Queued callbacks of this stream, drained by at most one task at a time.
+     */
+    private final class Delivery implements Runnable {
+        private final Executor executor;
+        private final int capacity;
+        private final CallbackOverflowPolicy policy;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private final ArrayDeque<StreamChunk> chunks = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean paused;
+        private Runnable terminal;
+
+        Delivery(Executor executor, int capacity, CallbackOverflowPolicy policy) {
+            this.executor = executor;
+            this.capacity = capacity;
+            this.policy = policy;
+        }
+
+        /**
+         * Queue a chunk, waiting for space under {@link CallbackOverflowPolicy#BLOCK}.
+         *
+         * @return false if the queue is full under {@link CallbackOverflowPolicy#FAIL}
+         */
+        boolean offer(StreamChunk chunk) {
+            lock.lock();
+            try {
+                while (chunks.size() >= capacity && terminal == null) {
+                    if (policy == CallbackOverflowPolicy.FAIL) {
+                        return false;
+                    }
+                    notFull.awaitUninterruptibly();
+                }
+                // Ended while waiting for space
+                if (terminal != null) {
+                    return true;
+                }
+                chunks.add(chunk);
+                if (paused || !markScheduled()) {
+                    return true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            dispatch();
+            return true;
+        }
+
+        void finish(Runnable terminal, boolean discardChunks, boolean runHere) {
+            lock.lock();
+            try {
+                this.terminal = terminal;
+                if (discardChunks) {
+                    chunks.clear();
+                }
+                notFull.signalAll();
+                if (!markScheduled()) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (runHere) {
+                run();
+            } else {
+                dispatch();
+            }
+        }
+
+        void pause() {
+            lock.lock();
+            try {
+                paused = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void resume() {
+            lock.lock();
+            try {
+                paused = false;
+                if ((chunks.isEmpty() && terminal == null) || !markScheduled()) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            dispatch();
+        }
+
+        // Caller holds the lock
+        private boolean markScheduled() {
+            if (scheduled) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+
+        private void dispatch() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // The client is closed; end the stream and deliver the terminal callback here
+                fail(new FlowTTSException("ClientClosed", "Client is closed", requestId, e));
+                run();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                StreamChunk chunk;
+                Runnable end = null;
+                lock.lock();
+                try {
+                    // A terminal callback with nothing left to deliver runs even while paused
+                    if (paused && !(chunks.isEmpty() && terminal != null)) {
+                        scheduled = false;
+                        return;
+                    }
+                    chunk = chunks.poll();
+                    if (chunk != null) {
+                        notFull.signal();
+                    } else if (terminal != null) {
+                        // Stays scheduled, so nothing runs after the terminal callback
+                        end = terminal;
+                        terminal = null;
+                    } else {
+                        scheduled = false;
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (chunk == null) {
+                    end.run();
+                    return;
+                }
+                try {
+                    listener.onChunk(chunk);
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.flowtts;
+
+/**
+ * Credentials of one tenant served through a shared {@link FlowTTS} client.
+ *
+ * @see FlowTTS#forTenant(TenantCredentials)
+ */
+public class TenantCredentials {
+    private final String secretId;
+    private final String secretKey;
+    private final long sdkAppId;
+
+    private TenantCredentials(Builder builder) {
+        this.secretId = builder.secretId;
+        this.secretKey = builder.secretKey;
+        this.sdkAppId = builder.sdkAppId;
+    }
+
+    public String getSecretId() {
+        return secretId;
+    }
+
+    public String getSecretKey() {
+        return secretKey;
+    }
+
+    public long getSdkAppId() {
+        return sdkAppId;
+    }
+
+    /**
+     * Create a new builder for TenantCredentials.
+     *
+     * @return a new Builder instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for TenantCredentials.
+     */
+    public static class Builder {
+        private String secretId;
+        private String secretKey;
+        private long sdkAppId;
+
+        /**
+         * Set the Tencent Cloud Secret ID.
+         *
+         * @param secretId the Secret ID
+         * @return this builder
+         */
+        public Builder secretId(String secretId) {
+            this.secretId = secretId;
+            return this;
+        }
+
+        /**
+         * Set the Tencent Cloud Secret Key.
+         *
+         * @param secretKey the Secret Key
+         * @return this builder
+         */
+        public Builder secretKey(String secretKey) {
+            this.secretKey = secretKey;
+            return this;
+        }
+
+        /**
+         * Set the SDK App ID.
+         *
+         * @param sdkAppId the SDK App ID
+         * @return this builder
+         */
+        public Builder sdkAppId(long sdkAppId) {
+            this.sdkAppId = sdkAppId;
+            return this;
+        }
+
+        /**
+         * Build the TenantCredentials instance.
+         *
+         * @return new TenantCredentials
+         * @throws IllegalArgumentException if required fields are missing
+         */
+        public TenantCredentials build() {
+            if (secretId == null || secretId.isEmpty()) {
+                throw new IllegalArgumentException("secretId is required");
+            }
+            if (secretKey == null || secretKey.isEmpty()) {
+                throw new IllegalArgumentException("secretKey is required");
+            }
+            if (sdkAppId <= 0) {
+                throw new IllegalArgumentException("sdkAppId must be positive");
+            }
+            return new TenantCredentials(this);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.flowtts.audio;
+
+import com.flowtts.StreamListener;
+import com.flowtts.model.StreamChunk;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link StreamListener} that joins separately synthesized segments of 16-bit
+ * little-endian mono PCM into one stream without long pauses or clicks.
+ *
+ * <p>Audio is classified in 10 ms frames by RMS energy. Silence before the first
+ * segment and after the last is removed, and any run of silence longer than the minimum
+ * gap, including the silence at the end of one segment and the start of the next, is
+ * shortened to the minimum gap. Wherever audio is cut, or one segment ends and the next
+ * begins without silence between them, the two sides are overlapped with a short
+ * equal-power crossfade.</p>
+ *
+ * <p>Each stream passed to the stitcher is one segment; it ends with a final chunk or
+ * {@link #onComplete()}. Segments must arrive one after another, and {@link #finish()}
+ * ends the stitched stream:</p>
+ * <pre>{@code
+ * SegmentStitcher stitcher = SegmentStitcher.builder(sink)
+ *     .sampleRate(24000)
+ *     .minGap(Duration.ofMillis(150))
+ *     .build();
+ * for (String sentence : sentences) {
+ *     client.synthesizeStream(options(sentence), stitcher).await(60, TimeUnit.SECONDS);
+ * }
+ * stitcher.finish();
+ * }</pre>
+ *
+ * <p>Work buffers are allocated once; each forwarded chunk holds the output of one
+ * incoming chunk, delayed by the crossfade length.</p>
+ */
+public final class SegmentStitcher implements StreamListener {
+    private final StreamListener downstream;
+    private final int sampleRate;
+    private final double thresholdSquared;
+    private final int minGap;
+    private final int crossfade;
+    private final float[] fadeIn;
+    private final float[] fadeOut;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Incoming samples until a frame is full
+    private final short[] frame;
+    private int frameLength;
+    // Low byte of a sample split across chunks, or -1
+    private int carry = -1;
+    // The current run of silence, up to the minimum gap
+    private final short[] run;
+    private int runLength;
+    private boolean runCut;
+    // Output not yet forwarded; the last crossfade samples are always held back
+    private short[] out;
+    private int outLength;
+
+    private boolean started;
+    private boolean inSegment;
+    // The next appended audio does not continue the audio before it
+    private boolean discontinuity;
+    private boolean finished;
+    private long removedSamples;
+    private String requestId;
+    private String sessionId;
+    private int subtitleSeq;
+
+    private SegmentStitcher(Builder builder) {
+        this.downstream = builder.downstream;
+        this.sampleRate = builder.sampleRate;
+        double amplitude = 32768 * Math.pow(10, builder.silenceThreshold / 20);
+        this.thresholdSquared = amplitude * amplitude;
+        this.minGap = samples(builder.minGap);
+        this.crossfade = samples(builder.crossfade);
+        this.fadeIn = new float[crossfade];
+        this.fadeOut = new float[crossfade];
+        for (int i = 0; i < crossfade; i++) {
+            double angle = (i + 0.5) / crossfade * Math.PI / 2;
+            fadeIn[i] = (float) Math.sin(angle);
+            fadeOut[i] = (float) Math.cos(angle);
+        }
+        this.frame = new short[Math.max(1, sampleRate / 100)];
+        this.run = new short[minGap];
+        this.out = new short[frame.length * 10 + minGap + crossfade];
+    }
+
+    /**
+     * Create a new builder.
+     *
+     * @param downstream the listener that receives the stitched audio
+     * @return a new Builder instance
+     */
+    public static Builder builder(StreamListener downstream) {
+        return new Builder(downstream);
+    }
+
+    @Override
+    public void onChunk(StreamChunk chunk) {
+        lock.lock();
+        try {
+            if (finished) {
+                return;
+            }
+            requestId = chunk.getRequestId();
+            sessionId = chunk.getSessionId();
+            subtitleSeq = chunk.getSubtitleSeq();
+            if (chunk.hasAudio()) {
+                inSegment = true;
+                feed(chunk.getAudio());
+            }
+            if (chunk.isFinal()) {
+                endSegment();
+            }
+            forward(false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the current segment. The stitched stream is completed by {@link #finish()}.
+     */
+    @Override
+    public void onComplete() {
+        lock.lock();
+        try {
+            if (!finished) {
+                endSegment();
+                forward(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onError(Exception error) {
+        downstream.onError(error);
+    }
+
+    /**
+     * End the stitched stream: drop trailing silence, forward the remaining audio in a
+     * final chunk and complete the downstream listener.
+     */
+    public void finish() {
+        lock.lock();
+        try {
+            if (finished) {
+                return;
+            }
+            endSegment();
+            removedSamples += runLength;
+            runLength = 0;
+            finished = true;
+            forward(true);
+            downstream.onComplete();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the audio removed so far, as silence or in crossfade overlaps.
+     *
+     * @return the removed duration
+     */
+    public Duration getRemovedDuration() {
+        lock.lock();
+        try {
+            return Duration.ofNanos(removedSamples * 1_000_000_000L / sampleRate);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void feed(byte[] audio) {
+        ensureCapacity(outLength + audio.length / 2 + minGap + frame.length + 1);
+        int i = 0;
+        if (carry >= 0) {
+            push((short) (carry | (audio[0] << 8)));
+            carry = -1;
+            i = 1;
+        }
+        for (; i + 1 < audio.length; i += 2) {
+            push((short) ((audio[i] & 0xff) | (audio[i + 1] << 8)));
+        }
+        if (i < audio.length) {
+            carry = audio[i] & 0xff;
+        }
+    }
+
+    private void push(short sample) {
+        frame[frameLength++] = sample;
+        if (frameLength == frame.length) {
+            processFrame(frameLength);
+            frameLength = 0;
+        }
+    }
+
+    private void endSegment() {
+        if (!inSegment) {
+            return;
+        }
+        inSegment = false;
+        if (frameLength > 0) {
+            processFrame(frameLength);
+            frameLength = 0;
+        }
+        carry = -1;
+        // A join inside silence is inaudible
+        if (runLength == 0 && started) {
+            discontinuity = true;
+        }
+    }
+
+    private void processFrame(int length) {
+        double energy = 0;
+        for (int i = 0; i < length; i++) {
+            energy += (double) frame[i] * frame[i];
+        }
+        if (energy < thresholdSquared * length) {
+            if (!started) {
+                // Leading silence of the whole stream; fade in from the cut
+                removedSamples += length;
+                discontinuity = true;
+                return;
+            }
+            int keep = Math.min(minGap - runLength, length);
+            System.arraycopy(frame, 0, run, runLength, keep);
+            runLength += keep;
+            if (keep < length) {
+                removedSamples += length - keep;
+                runCut = true;
+            }
+            return;
+        }
+        if (runLength > 0) {
+            append(run, runLength);
+            runLength = 0;
+            if (runCut) {
+                discontinuity = true;
+                runCut = false;
+            }
+        }
+        append(frame, length);
+        started = true;
+    }
+
+    private void append(short[] samples, int length) {
+        int offset = 0;
+        if (discontinuity) {
+            discontinuity = false;
+            int overlap = Math.min(crossfade, Math.min(outLength, length));
+            if (overlap > 0) {
+                int base = outLength - overlap;
+                for (int i = 0; i < overlap; i++) {
+                    int k = i * crossfade / overlap;
+                    out[base + i] = clamp(out[base + i] * fadeOut[k] + samples[i] * fadeIn[k]);
+                }
+                removedSamples += overlap;
+                offset = overlap;
+            } else if (outLength == 0) {
+                int ramp = Math.min(crossfade, length);
+                for (int i = 0; i < ramp; i++) {
+                    out[outLength++] = clamp(samples[i] * fadeIn[i * crossfade / ramp]);
+                }
+                offset = ramp;
+            }
+        }
+        int rest = length - offset;
+        System.arraycopy(samples, offset, out, outLength, rest);
+        outLength += rest;
+    }
+
+    private void forward(boolean last) {
+        int count = last ? outLength : outLength - crossfade;
+        if (count <= 0 && !last) {
+            return;
+        }
+        count = Math.max(0, count);
+        byte[] audio = new byte[count * 2];
+        for (int i = 0; i < count; i++) {
+            audio[2 * i] = (byte) out[i];
+            audio[2 * i + 1] = (byte) (out[i] >> 8);
+        }
+        System.arraycopy(out, count, out, 0, outLength - count);
+        outLength -= count;
+        downstream.onChunk(new StreamChunk(audio, requestId, sessionId, last, subtitleSeq));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > out.length) {
+            short[] grown = new short[Math.max(capacity, out.length * 2)];
+            System.arraycopy(out, 0, grown, 0, outLength);
+            out = grown;
+        }
+    }
+
+    private int samples(Duration duration) {
+        return (int) (duration.toNanos() * sampleRate / 1_000_000_000L);
+    }
+
+    private static short clamp(float value) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+    }
+
+    /**
+     * Builder for SegmentStitcher.
+     */
+    public static class Builder {
+        private final StreamListener downstream;
+        private int sampleRate = 24000;
+        private double silenceThreshold = -50;
+        private Duration minGap = Duration.ofMillis(200);
+        private Duration crossfade = Duration.ofMillis(10);
+
+        private Builder(StreamListener downstream) {
+            this.downstream = downstream;
+        }
+
+        /**
+         * Set the sample rate of the audio (default: 24000).
+         *
+         * @param sampleRate the sample rate in Hz
+         * @return this builder
+         */
+        public Builder sampleRate(int sampleRate) {
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        /**
+         * Set the RMS level below which a frame is silence (default: -50 dBFS).
+         *
+         * @param silenceThreshold the threshold in dBFS
+         * @return this builder
+         */
+        public Builder silenceThreshold(double silenceThreshold) {
+            this.silenceThreshold = silenceThreshold;
+            return this;
+        }
+
+        /**
+         * Set the silence kept where a longer run of silence is shortened, including
+         * between segments (default: 200 milliseconds).
+         *
+         * @param minGap the minimum gap
+         * @return this builder
+         */
+        public Builder minGap(Duration minGap) {
+            this.minGap = minGap;
+            return this;
+        }
+
+        /**
+         * Set the length of crossfades at cuts and joins (default: 10 milliseconds).
+         *
+         * @param crossfade the crossfade length, or zero for none
+         * @return this builder
+         */
+        public Builder crossfade(Duration crossfade) {
+            this.crossfade = crossfade;
+            return this;
+        }
+
+        /**
+         * Build the SegmentStitcher instance.
+         *
+         * @return a new SegmentStitcher
+         * @throws IllegalArgumentException if a required setting is missing or out of range
+         */
+        public SegmentStitcher build() {
+            if (downstream == null) {
+                throw new IllegalArgumentException("downstream is required");
+            }
+            if (sampleRate <= 0) {
+                throw new IllegalArgumentException("sampleRate must be positive");
+            }
+            if (silenceThreshold > 0) {
+                throw new IllegalArgumentException("silenceThreshold must not be above 0 dBFS");
+            }
+            if (minGap == null || minGap.isNegative()) {
+                throw new IllegalArgumentException("minGap must not be negative");
+            }
+            if (crossfade == null || crossfade.isNegative()) {
+                throw new IllegalArgumentException("crossfade must not be negative");
+            }
+            return new SegmentStitcher(this);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.flowtts.audio;
+
+import java.util.Arrays;
+
+/**
+ * Changes the tempo of 16-bit mono PCM without changing its pitch, using waveform
+ * similarity overlap-add (WSOLA).
+ *
+ * <p>The output is built from 20 ms Hann-windowed frames at half-frame steps. Each frame
+ * is read from the input near where the tempo change puts it, shifted by up to 10 ms to
+ * the position that best continues the waveform of the previous frame, so periods line
+ * up and no phasing is heard. Work buffers grow to the largest input seen and are
+ * reused, so a stretcher must not be shared between threads.</p>
+ */
+public final class TimeStretcher {
+    /** The slowest supported speed. */
+    public static final double MIN_SPEED = 0.25;
+    /** The fastest supported speed. */
+    public static final double MAX_SPEED = 4.0;
+
+    private final int frameLength;
+    private final int hop;
+    private final int tolerance;
+    private final float[] window;
+    private float[] input = new float[0];
+    private float[] output = new float[0];
+
+    /**
+     * Create a stretcher for audio at the given sample rate.
+     *
+     * @param sampleRate the sample rate in Hz
+     */
+    public TimeStretcher(int sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive");
+        }
+        this.frameLength = Math.max(4, sampleRate / 50) & ~1;
+        this.hop = frameLength / 2;
+        this.tolerance = Math.max(1, sampleRate / 100);
+        // Periodic Hann windows at half-frame steps sum to exactly one
+        this.window = new float[frameLength];
+        for (int i = 0; i < frameLength; i++) {
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / frameLength));
+        }
+    }
+
+    /**
+     * Change the tempo of audio.
+     *
+     * @param samples the audio
+     * @param length  the number of samples to read
+     * @param speed   the tempo factor; 2.0 halves the duration
+     * @return {@code round(length / speed)} samples
+     * @throws IllegalArgumentException if the speed is outside {@link #MIN_SPEED} to {@link #MAX_SPEED}
+     */
+    public short[] stretch(short[] samples, int length, double speed) {
+        if (!(speed >= MIN_SPEED && speed <= MAX_SPEED)) {
+            throw new IllegalArgumentException("speed must be between " + MIN_SPEED + " and " + MAX_SPEED);
+        }
+        if (speed == 1.0) {
+            return Arrays.copyOf(samples, length);
+        }
+        int outLength = (int) Math.round(length / speed);
+        double analysisHop = hop * speed;
+        int frames = outLength / hop + 2;
+
+        // The input is padded by one hop at the front, so frame 0 starts half a frame
+        // before the audio and every output sample is covered by two windows
+        int inputLength = hop + length + (int) Math.ceil(2 * analysisHop) + tolerance + 2 * frameLength;
+        if (input.length < inputLength) {
+            input = new float[inputLength];
+        }
+        Arrays.fill(input, 0, inputLength, 0f);
+        for (int i = 0; i < length; i++) {
+            input[hop + i] = samples[i];
+        }
+        int outputLength = (frames - 1) * hop + frameLength;
+        if (output.length < outputLength) {
+            output = new float[outputLength];
+        }
+        Arrays.fill(output, 0, outputLength, 0f);
+
+        int lastStart = inputLength - frameLength;
+        int previous = 0;
+        for (int k = 0; k < frames; k++) {
+            int start = k == 0 ? 0 : bestMatch(previous + hop, (int) Math.round(k * analysisHop), lastStart);
+            int base = k * hop;
+            for (int n = 0; n < frameLength; n++) {
+                output[base + n] += input[start + n] * window[n];
+            }
+            previous = start;
+        }
+
+        short[] result = new short[outLength];
+        for (int i = 0; i < outLength; i++) {
+            float value = output[hop + i];
+            result[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+        }
+        return result;
+    }
+
+    // The frame start near nominal whose first half best matches the natural continuation
+    private int bestMatch(int natural, int nominal, int lastStart) {
+        int best = Math.max(0, Math.min(lastStart, nominal));
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int from = Math.max(0, nominal - tolerance);
+        int to = Math.min(lastStart, nominal + tolerance);
+        for (int candidate = from; candidate <= to; candidate++) {
+            double correlation = 0;
+            double energy = 0;
+            // Every other sample is enough to find the alignment, at half the cost
+            for (int n = 0; n < hop; n += 2) {
+                float value = input[candidate + n];
+                correlation += input[natural + n] * value;
+                energy += value * value;
+            }
+            double score = energy > 0 ? correlation / Math.sqrt(energy) : 0;
+            if (score > bestScore) {
+                bestScore = score;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,73 @@
+package com.flowtts.audio;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Derives speed and volume variants of a synthesis from a render at speed 1.0 and
+ * volume 1.0, so a variant costs local CPU time instead of another request.
+ *
+ * <p>Speed is changed with a {@link TimeStretcher}, which keeps the pitch. Volume is a
+ * linear gain, lowered where needed so the loudest sample does not clip.</p>
+ */
+public final class VariantRenderer {
+    // Stretchers keep their work buffers, so each thread reuses one per sample rate
+    private static final ThreadLocal<Map<Integer, TimeStretcher>> STRETCHERS = ThreadLocal.withInitial(HashMap::new);
+
+    private VariantRenderer() {
+    }
+
+    /**
+     * Render a variant of 16-bit little-endian mono PCM.
+     *
+     * @param pcm        the base render
+     * @param sampleRate the sample rate in Hz
+     * @param speed      the tempo factor, from {@link TimeStretcher#MIN_SPEED} to {@link TimeStretcher#MAX_SPEED}
+     * @param volume     the gain
+     * @return a new array with the variant
+     * @throws IllegalArgumentException if the speed or volume is out of range
+     */
+    public static byte[] render(byte[] pcm, int sampleRate, double speed, double volume) {
+        if (!(volume >= 0)) {
+            throw new IllegalArgumentException("volume must not be negative");
+        }
+        int length = pcm.length / 2;
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) ((pcm[2 * i] & 0xff) | (pcm[2 * i + 1] << 8));
+        }
+        if (speed != 1.0) {
+            samples = STRETCHERS.get().computeIfAbsent(sampleRate, TimeStretcher::new).stretch(samples, length, speed);
+            length = samples.length;
+        }
+        if (volume != 1.0) {
+            applyGain(samples, length, volume);
+        }
+        byte[] result = new byte[length * 2];
+        for (int i = 0; i < length; i++) {
+            result[2 * i] = (byte) samples[i];
+            result[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        return result;
+    }
+
+    /**
+     * Multiply samples by a gain, lowered if needed so that no sample clips.
+     *
+     * @param samples the samples, changed in place
+     * @param length  the number of samples
+     * @param gain    the requested gain
+     * @return the gain applied
+     */
+    public static double applyGain(short[] samples, int length, double gain) {
+        int peak = 0;
+        for (int i = 0; i < length; i++) {
+            peak = Math.max(peak, Math.abs(samples[i]));
+        }
+        double applied = peak > 0 ? Math.min(gain, Short.MAX_VALUE / (double) peak) : gain;
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) Math.round(samples[i] * applied);
+        }
+        return applied;
+    }
+}
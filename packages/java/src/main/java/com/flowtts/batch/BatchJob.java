@@ -0,0 +1,136 @@
+package com.flowtts.batch;
+
+import com.flowtts.model.Priority;
+import com.flowtts.model.SynthesizeOptions;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+/**
+ * One line of a batch manifest: a synthesis request and where its audio goes.
+ *
+ * <p>Manifest lines are JSON objects with a unique {@code id}, the {@code text}, and
+ * optionally {@code voice}, {@code model}, {@code codec}, {@code sampleRate},
+ * {@code speed}, {@code volume}, {@code pitch} and {@code output}, a path relative to
+ * the output directory that defaults to the id with the codec's file extension:</p>
+ * <pre>
+ * {"id":"ch01-p001","text":"Chapter one.","voice":"nova","codec":"mp3","output":"ch01/p001.mp3"}
+ * </pre>
+ */
+public final class BatchJob {
+    private static final Gson gson = new Gson();
+
+    private final String id;
+    private final SynthesizeOptions options;
+    private final String output;
+
+    BatchJob(String id, SynthesizeOptions options, String output) {
+        this.id = id;
+        this.options = options;
+        this.output = output;
+    }
+
+    /**
+     * Get the job ID.
+     *
+     * @return the ID from the manifest
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Get the synthesis options.
+     *
+     * @return the options
+     */
+    public SynthesizeOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get the output path.
+     *
+     * @return the path relative to the output directory
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * Parse a manifest line.
+     *
+     * @throws IllegalArgumentException if the line is not a valid job
+     */
+    static BatchJob parse(String line, Priority priority) {
+        JsonObject json;
+        try {
+            JsonElement element = gson.fromJson(line, JsonElement.class);
+            if (element == null || !element.isJsonObject()) {
+                throw new IllegalArgumentException("not a JSON object");
+            }
+            json = element.getAsJsonObject();
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("invalid JSON: " + e.getMessage());
+        }
+        String id = string(json, "id");
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("id is required");
+        }
+        SynthesizeOptions.Builder builder = SynthesizeOptions.builder()
+                .text(string(json, "text"))
+                .priority(priority);
+        if (json.has("voice")) {
+            builder.voice(string(json, "voice"));
+        }
+        if (json.has("model")) {
+            builder.model(string(json, "model"));
+        }
+        if (json.has("codec")) {
+            builder.codec(string(json, "codec"));
+        }
+        try {
+            if (json.has("sampleRate")) {
+                builder.sampleRate(json.get("sampleRate").getAsInt());
+            }
+            if (json.has("speed")) {
+                builder.speed(json.get("speed").getAsDouble());
+            }
+            if (json.has("volume")) {
+                builder.volume(json.get("volume").getAsDouble());
+            }
+            if (json.has("pitch")) {
+                builder.pitch(json.get("pitch").getAsInt());
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("sampleRate, speed, volume and pitch must be numbers");
+        }
+        SynthesizeOptions options = builder.build();
+        String output = string(json, "output");
+        if (output == null || output.isEmpty()) {
+            output = id + "." + extension(options.getCodec());
+        }
+        return new BatchJob(id, options, output);
+    }
+
+    private static String extension(String codec) {
+        switch (codec) {
+            case "ogg_opus":
+                return "ogg";
+            default:
+                return codec;
+        }
+    }
+
+    private static String string(JsonObject json, String name) {
+        JsonElement element = json.get(name);
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        if (!element.isJsonPrimitive()) {
+            throw new IllegalArgumentException(name + " must be a string");
+        }
+        return element.getAsString();
+    }
+}
@@ -0,0 +1,187 @@
+package com.flowtts.batch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only record of batch job states, one JSON object per line.
+ *
+ * <p>A job is {@code started}, then {@code done} or {@code failed}; the last record for
+ * an ID wins when the journal is read back. Terminal records are forced to disk before
+ * the call returns, so a {@code done} record is never lost after its output file was
+ * moved into place. A line torn by a crash is cut off when the journal is reopened.</p>
+ */
+final class BatchJournal implements Closeable {
+    static final String STARTED = "started";
+    static final String DONE = "done";
+    static final String FAILED = "failed";
+
+    private static final Gson gson = new Gson();
+
+    private final FileChannel channel;
+    private final boolean fsync;
+    private final Map<String, String> states;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private BatchJournal(FileChannel channel, boolean fsync, Map<String, String> states) {
+        this.channel = channel;
+        this.fsync = fsync;
+        this.states = states;
+    }
+
+    /**
+     * Open a journal, creating it if needed, and load the state of every job in it.
+     */
+    static BatchJournal open(Path path, boolean fsync) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            Map<String, String> states = new HashMap<>();
+            long end = load(channel, states);
+            if (end < channel.size()) {
+                channel.truncate(end);
+            }
+            channel.position(end);
+            return new BatchJournal(channel, fsync, states);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Returns the length up to the last complete line
+    private static long load(FileChannel channel, Map<String, String> states) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Journal too large: " + size + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // Read until full
+        }
+        byte[] bytes = buffer.array();
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            String line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+            start = i + 1;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                JsonObject record = gson.fromJson(line, JsonObject.class);
+                states.put(record.get("id").getAsString(), record.get("state").getAsString());
+            } catch (JsonParseException | NullPointerException | IllegalStateException e) {
+                throw new IOException("Corrupt journal record: " + line);
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Treat jobs that another journal records as done as done here too, for example
+     * the journal another worker kept for the same part of the manifest.
+     */
+    void merge(Path other) throws IOException {
+        Map<String, String> others = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(other, StandardOpenOption.READ)) {
+            load(channel, others);
+        }
+        lock.lock();
+        try {
+            for (Map.Entry<String, String> entry : others.entrySet()) {
+                if (DONE.equals(entry.getValue())) {
+                    states.put(entry.getKey(), DONE);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the last recorded state of a job.
+     *
+     * @return the state, or null if the job is not in the journal
+     */
+    String state(String id) {
+        lock.lock();
+        try {
+            return states.get(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void started(String id) throws IOException {
+        append(record(id, STARTED), false);
+    }
+
+    void done(String id, String output, long bytes, long millis) throws IOException {
+        JsonObject record = record(id, DONE);
+        record.addProperty("output", output);
+        record.addProperty("bytes", bytes);
+        record.addProperty("millis", millis);
+        append(record, fsync);
+    }
+
+    void failed(String id, String code, String message) throws IOException {
+        JsonObject record = record(id, FAILED);
+        record.addProperty("code", code);
+        record.addProperty("message", message);
+        append(record, fsync);
+    }
+
+    private static JsonObject record(String id, String state) {
+        JsonObject record = new JsonObject();
+        record.addProperty("id", id);
+        record.addProperty("state", state);
+        record.addProperty("at", System.currentTimeMillis());
+        return record;
+    }
+
+    private void append(JsonObject record, boolean force) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((record.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+        lock.lock();
+        try {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            if (force) {
+                channel.force(false);
+            }
+            states.put(record.get("id").getAsString(), record.get("state").getAsString());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.flowtts.batch;
+
+import com.google.gson.JsonObject;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * A snapshot of a batch run.
+ *
+ * <p>Jobs skipped because an earlier run completed them count as neither completed nor
+ * failed, so throughput reflects only the work done by this run. A snapshot of workers
+ * sharing a manifest counts the jobs in finished chunks as completed and sums the rates
+ * of the workers.</p>
+ */
+public final class BatchProgress {
+    private final long total;
+    private final long completed;
+    private final long skipped;
+    private final long failed;
+    private final long running;
+    private final long audioBytes;
+    private final long elapsedNanos;
+    // Negative if derived from completed and elapsed
+    private final double jobsPerSecond;
+    private final int workers;
+
+    BatchProgress(long total, long completed, long skipped, long failed, long running,
+                  long audioBytes, long elapsedNanos) {
+        this(total, completed, skipped, failed, running, audioBytes, elapsedNanos, -1, 1);
+    }
+
+    BatchProgress(long total, long completed, long skipped, long failed, long running,
+                  long audioBytes, long elapsedNanos, double jobsPerSecond, int workers) {
+        this.total = total;
+        this.completed = completed;
+        this.skipped = skipped;
+        this.failed = failed;
+        this.running = running;
+        this.audioBytes = audioBytes;
+        this.elapsedNanos = elapsedNanos;
+        this.jobsPerSecond = jobsPerSecond;
+        this.workers = workers;
+    }
+
+    /**
+     * Get the number of jobs in the manifest.
+     *
+     * @return the job count
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Get the number of jobs rendered by this run.
+     *
+     * @return the completed count
+     */
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Get the number of jobs skipped because the journal already records them as done.
+     *
+     * @return the skipped count
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Get the number of jobs that failed in this run, including invalid manifest lines.
+     * Failed jobs are retried by the next run.
+     *
+     * @return the failed count
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Get the number of jobs being rendered.
+     *
+     * @return the running count
+     */
+    public long getRunning() {
+        return running;
+    }
+
+    /**
+     * Get the bytes of audio written by this run.
+     *
+     * @return the byte count
+     */
+    public long getAudioBytes() {
+        return audioBytes;
+    }
+
+    /**
+     * Get the time since the run started.
+     *
+     * @return the elapsed time
+     */
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    /**
+     * Get the number of workers the snapshot covers.
+     *
+     * @return 1 for a single run, or the number of live workers sharing the manifest
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Get the rate at which this run, or all workers together, complete jobs.
+     *
+     * @return jobs per second
+     */
+    public double getJobsPerSecond() {
+        if (jobsPerSecond >= 0) {
+            return jobsPerSecond;
+        }
+        return elapsedNanos > 0 ? completed * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * Estimate the time until all remaining jobs are done at the current rate.
+     *
+     * @return the estimate, or null before any job has completed
+     */
+    public Duration getEstimatedRemaining() {
+        double rate = getJobsPerSecond();
+        if (rate <= 0) {
+            return null;
+        }
+        long remaining = Math.max(0, total - completed - skipped - failed);
+        return Duration.ofMillis((long) (remaining / rate * 1000));
+    }
+
+    /**
+     * Get the snapshot as JSON.
+     *
+     * @return a JSON object with all counts and rates
+     */
+    public JsonObject toJsonObject() {
+        JsonObject json = new JsonObject();
+        json.addProperty("total", total);
+        json.addProperty("completed", completed);
+        json.addProperty("skipped", skipped);
+        json.addProperty("failed", failed);
+        json.addProperty("running", running);
+        json.addProperty("audioBytes", audioBytes);
+        json.addProperty("elapsedSeconds", elapsedNanos / 1e9);
+        json.addProperty("jobsPerSecond", getJobsPerSecond());
+        json.addProperty("workers", workers);
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        Duration eta = getEstimatedRemaining();
+        return String.format(Locale.ROOT, "%d/%d done (%d skipped, %d failed, %d running), %.1f jobs/s%s, ETA %s",
+                completed + skipped, total, skipped, failed, running, getJobsPerSecond(),
+                workers > 1 ? " on " + workers + " workers" : "",
+                eta == null ? "unknown" : formatDuration(eta));
+    }
+
+    private static String formatDuration(Duration duration) {
+        long seconds = duration.getSeconds();
+        return String.format(Locale.ROOT, "%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+}
@@ -0,0 +1,136 @@
+package com.flowtts.batch;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Command line entry point for {@link BatchRunner}.
+ *
+ * <p>Credentials are read from {@code TX_SECRET_ID}, {@code TX_SECRET_KEY} and
+ * {@code TRTC_SDK_APP_ID}:</p>
+ * <pre>
+ * java -cp flow-tts.jar:... com.flowtts.batch.BatchRender --manifest book.jsonl --out-dir out \
+ *     --concurrency 16
+ * </pre>
+ *
+ * <p>Run the same command again after a crash or interruption to render the remaining
+ * jobs. Other options: {@code --journal}, {@code --progress-s}, {@code --no-fsync},
+ * {@code --max-concurrency}, {@code --endpoint} and {@code --scheme}. Progress is
+ * printed to standard error and the final counts to standard output as JSON. The exit
+ * status is 1 if any job failed.</p>
+ *
+ * <p>To render with several processes, start each with the same {@code --lease-dir} on a
+ * shared file system. {@code --worker-id}, {@code --chunk-size} and
+ * {@code --lease-timeout-s} tune the sharding; progress then covers all workers.</p>
+ */
+public class BatchRender {
+    public static void main(String[] args) throws Exception {
+        String manifest = null;
+        String outDir = null;
+        String journal = null;
+        int concurrency = 8;
+        long progressSeconds = 10;
+        boolean fsync = true;
+        int maxConcurrency = 0;
+        String endpoint = null;
+        String scheme = "https";
+        String leaseDir = null;
+        String workerId = null;
+        int chunkSize = 100;
+        long leaseTimeoutSeconds = 30;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--manifest":
+                    manifest = args[++i];
+                    break;
+                case "--out-dir":
+                    outDir = args[++i];
+                    break;
+                case "--journal":
+                    journal = args[++i];
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--progress-s":
+                    progressSeconds = Long.parseLong(args[++i]);
+                    break;
+                case "--no-fsync":
+                    fsync = false;
+                    break;
+                case "--max-concurrency":
+                    maxConcurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--endpoint":
+                    endpoint = args[++i];
+                    break;
+                case "--scheme":
+                    scheme = args[++i];
+                    break;
+                case "--lease-dir":
+                    leaseDir = args[++i];
+                    break;
+                case "--worker-id":
+                    workerId = args[++i];
+                    break;
+                case "--chunk-size":
+                    chunkSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--lease-timeout-s":
+                    leaseTimeoutSeconds = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (manifest == null || outDir == null) {
+            System.err.println("Usage: BatchRender --manifest <file.jsonl> --out-dir <dir> [options]");
+            System.exit(2);
+        }
+
+        FlowTTSConfig.Builder config = FlowTTSConfig.builder()
+                .secretId(System.getenv("TX_SECRET_ID"))
+                .secretKey(System.getenv("TX_SECRET_KEY"))
+                .sdkAppId(Long.parseLong(envOrDefault("TRTC_SDK_APP_ID", "0")))
+                .scheme(scheme)
+                .maxConcurrentRequests(maxConcurrency);
+        if (endpoint != null) {
+            config.endpoint(endpoint);
+        }
+        FlowTTS client = new FlowTTS(config.build());
+        try {
+            BatchRunner.Builder runner = BatchRunner.builder(client)
+                    .manifest(Paths.get(manifest))
+                    .outputDir(Paths.get(outDir))
+                    .concurrency(concurrency)
+                    .fsync(fsync)
+                    .progressInterval(Duration.ofSeconds(Math.max(1, progressSeconds)))
+                    .progressListener(progress -> System.err.println(progress))
+                    .chunkSize(chunkSize)
+                    .leaseTimeout(Duration.ofSeconds(leaseTimeoutSeconds));
+            if (journal != null) {
+                runner.journal(Paths.get(journal));
+            }
+            if (leaseDir != null) {
+                runner.leaseDir(Paths.get(leaseDir)).workerId(workerId);
+            }
+            BatchProgress result = runner.build().run();
+            System.out.println(result.toJsonObject());
+            if (result.getFailed() > 0) {
+                System.exit(1);
+            }
+        } finally {
+            client.close();
+        }
+    }
+
+    private static String envOrDefault(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null ? value : fallback;
+    }
+}
@@ -0,0 +1,726 @@
+package com.flowtts.batch;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.core.Threads;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.Priority;
+import com.flowtts.model.SynthesizeResponse;
+
+import com.google.gson.JsonObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Renders a manifest of synthesis jobs to files, resuming where an earlier run stopped.
+ *
+ * <p>Every job's state is appended to a journal. Audio is written to a temporary file,
+ * forced to disk and atomically renamed into place before the job is journaled as done,
+ * so after a crash or restart the next run skips exactly the jobs whose output is
+ * complete and renders the rest, including jobs that failed or were in flight.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * BatchProgress result = BatchRunner.builder(client)
+ *     .manifest(Paths.get("book.jsonl"))
+ *     .outputDir(Paths.get("out"))
+ *     .concurrency(16)
+ *     .progressListener(progress -> System.err.println(progress))
+ *     .build()
+ *     .run();
+ * }</pre>
+ *
+ * <p>Several processes, on one host or many, can render the same manifest together
+ * when given the same {@link Builder#leaseDir(Path) lease directory} on a shared file
+ * system. The manifest is split into chunks that workers claim through lease files and
+ * keep by renewing them; the lease of a worker that stops renewing expires and another
+ * worker takes over the chunk. No coordinator is needed. A job may be rendered twice
+ * when a lease expires while its holder is still alive, which is harmless because
+ * outputs are replaced atomically.</p>
+ *
+ * <p>See {@link BatchJob} for the manifest format and {@link BatchRender} for the
+ * command line.</p>
+ */
+public class BatchRunner {
+    private final FlowTTS client;
+    private final Path manifest;
+    private final Path outputDir;
+    private final Path journalPath;
+    private final int concurrency;
+    private final Priority priority;
+    private final boolean fsync;
+    private final Duration progressInterval;
+    private final Consumer<BatchProgress> progressListener;
+    private final Path leaseDir;
+    private final String workerId;
+    private final int chunkSize;
+    private final Duration leaseTimeout;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong running = new AtomicLong();
+    private final AtomicLong audioBytes = new AtomicLong();
+    private volatile long total;
+    private volatile long startNanos;
+
+    // Sharded runs only
+    private volatile ManifestIndex index;
+    private volatile LeaseDirectory leases;
+    private final Map<Integer, ChunkRun> active = new ConcurrentHashMap<>();
+    // Chunks that this run finished with failures; left to the next run
+    private final Set<Integer> attempted = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<Integer> finished = new LinkedBlockingQueue<>();
+
+    private BatchRunner(Builder builder) {
+        this.client = builder.client;
+        this.manifest = builder.manifest;
+        this.outputDir = builder.outputDir.toAbsolutePath().normalize();
+        this.journalPath = builder.journal != null ? builder.journal : outputDir.resolve("batch-journal.jsonl");
+        this.concurrency = builder.concurrency;
+        this.priority = builder.priority;
+        this.fsync = builder.fsync;
+        this.progressInterval = builder.progressInterval;
+        this.progressListener = builder.progressListener;
+        this.leaseDir = builder.leaseDir;
+        this.workerId = builder.workerId != null ? builder.workerId : defaultWorkerId();
+        this.chunkSize = builder.chunkSize;
+        this.leaseTimeout = builder.leaseTimeout;
+    }
+
+    /**
+     * Create a new builder.
+     *
+     * @param client the client to synthesize with
+     * @return a new Builder instance
+     */
+    public static Builder builder(FlowTTS client) {
+        return new Builder(client);
+    }
+
+    /**
+     * Render every job that the journal does not record as done.
+     * A runner can be run once.
+     *
+     * <p>With a lease directory, render chunks until every chunk is finished or held by
+     * a live worker. Chunks with failed jobs are retried by the next run.</p>
+     *
+     * @return the final progress of this worker
+     * @throws IOException          if the manifest or journal cannot be read or written
+     * @throws InterruptedException if interrupted; jobs in flight are cancelled and
+     *                              rendered again by the next run
+     */
+    public BatchProgress run() throws IOException, InterruptedException {
+        if (leaseDir != null) {
+            return runSharded();
+        }
+        total = countJobs(manifest);
+        startNanos = System.nanoTime();
+        Files.createDirectories(outputDir);
+
+        ExecutorService workers = Threads.newExecutor("flow-tts-batch", false);
+        ScheduledExecutorService reporter = null;
+        Semaphore slots = new Semaphore(concurrency);
+        try (BatchJournal journal = BatchJournal.open(journalPath, fsync);
+             BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            if (progressListener != null) {
+                reporter = newScheduler();
+                long interval = progressInterval.toMillis();
+                reporter.scheduleAtFixedRate(() -> progressListener.accept(getProgress()),
+                        interval, interval, TimeUnit.MILLISECONDS);
+            }
+            try {
+                ChunkRun run = new ChunkRun(-1, journal);
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    dispatch(line, lineNumber, run, slots, workers);
+                }
+                slots.acquire(concurrency);
+            } finally {
+                workers.shutdownNow();
+                // The journal must outlive the jobs that write to it
+                workers.awaitTermination(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            if (reporter != null) {
+                reporter.shutdownNow();
+            }
+        }
+        BatchProgress result = getProgress();
+        if (progressListener != null) {
+            progressListener.accept(result);
+        }
+        return result;
+    }
+
+    private BatchProgress runSharded() throws IOException, InterruptedException {
+        index = ManifestIndex.build(manifest, chunkSize);
+        total = index.jobs();
+        startNanos = System.nanoTime();
+        Files.createDirectories(outputDir);
+        leases = new LeaseDirectory(leaseDir, workerId);
+
+        ExecutorService workers = Threads.newExecutor("flow-tts-batch", false);
+        ScheduledExecutorService scheduler = newScheduler();
+        Semaphore slots = new Semaphore(concurrency);
+        long timeoutNanos = leaseTimeout.toNanos();
+        long beat = Math.max(1, leaseTimeout.toMillis() / 3);
+        try {
+            scheduler.scheduleAtFixedRate(this::heartbeat, 0, beat, TimeUnit.MILLISECONDS);
+            if (progressListener != null) {
+                long interval = progressInterval.toMillis();
+                scheduler.scheduleAtFixedRate(() -> progressListener.accept(getClusterProgress()),
+                        interval, interval, TimeUnit.MILLISECONDS);
+            }
+            int chunks = index.chunks();
+            // Workers start at different chunks so they rarely race for the same lease
+            int first = chunks == 0 ? 0 : Math.floorMod(workerId.hashCode(), chunks);
+            while (true) {
+                boolean open = false;
+                boolean claimed = false;
+                for (int i = 0; i < chunks; i++) {
+                    int chunk = (first + i) % chunks;
+                    if (active.containsKey(chunk) || attempted.contains(chunk) || leases.isDone(chunk)) {
+                        continue;
+                    }
+                    open = true;
+                    if (leases.tryClaim(chunk) || (leases.tryExpire(chunk, timeoutNanos) && leases.tryClaim(chunk))) {
+                        claimed = true;
+                        dispatchChunk(chunk, slots, workers);
+                    }
+                }
+                if (!open && active.isEmpty()) {
+                    break;
+                }
+                if (!claimed) {
+                    // Wake up when a chunk of ours finishes, or to look at the leases of others again
+                    finished.poll(beat, TimeUnit.MILLISECONDS);
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+            scheduler.shutdownNow();
+            // Hand interrupted chunks to other workers without waiting for the leases to expire
+            for (ChunkRun run : active.values()) {
+                closeChunk(run, false);
+            }
+            writeProgress();
+        }
+        BatchProgress result = getProgress();
+        if (progressListener != null) {
+            progressListener.accept(getClusterProgress());
+        }
+        return result;
+    }
+
+    private void dispatchChunk(int chunk, Semaphore slots, ExecutorService workers)
+            throws IOException, InterruptedException {
+        BatchJournal journal;
+        try {
+            journal = BatchJournal.open(leases.journal(chunk), fsync);
+            // Jobs that an earlier holder of the chunk finished are skipped
+            for (Path other : leases.otherJournals(chunk)) {
+                journal.merge(other);
+            }
+        } catch (IOException e) {
+            leases.release(chunk);
+            throw e;
+        }
+        ChunkRun run = new ChunkRun(chunk, journal);
+        active.put(chunk, run);
+        try (BufferedReader reader = index.open(chunk)) {
+            int lineNumber = index.firstLine(chunk);
+            int jobs = 0;
+            String line;
+            while (jobs < index.jobsIn(chunk) && !run.lost && (line = reader.readLine()) != null) {
+                if (dispatch(line, lineNumber, run, slots, workers)) {
+                    jobs++;
+                }
+                lineNumber++;
+            }
+        } finally {
+            finishOne(run);
+        }
+    }
+
+    // Returns false for a blank line
+    private boolean dispatch(String line, int lineNumber, ChunkRun run, Semaphore slots, ExecutorService workers)
+            throws InterruptedException {
+        if (line.trim().isEmpty()) {
+            return false;
+        }
+        BatchJob job;
+        Path target;
+        try {
+            job = BatchJob.parse(line, priority);
+            target = resolveOutput(job);
+            if (!run.seen.add(job.getId())) {
+                throw new IllegalArgumentException("duplicate id " + job.getId());
+            }
+        } catch (IllegalArgumentException e) {
+            // Recorded under the line number so a valid job with the same ID keeps its state
+            recordFailure(run, "line:" + lineNumber, "InvalidJob", e.getMessage());
+            return true;
+        }
+        if (BatchJournal.DONE.equals(run.journal.state(job.getId())) && Files.exists(target)) {
+            skipped.incrementAndGet();
+            return true;
+        }
+        slots.acquire();
+        running.incrementAndGet();
+        run.pending.incrementAndGet();
+        workers.execute(() -> {
+            try {
+                render(job, target, run);
+            } finally {
+                running.decrementAndGet();
+                slots.release();
+                finishOne(run);
+            }
+        });
+        return true;
+    }
+
+    private void finishOne(ChunkRun run) {
+        if (run.pending.decrementAndGet() == 0 && run.chunk >= 0) {
+            closeChunk(run, !run.lost && run.failures.get() == 0);
+            if (run.failures.get() > 0) {
+                attempted.add(run.chunk);
+            }
+            finished.offer(run.chunk);
+        }
+    }
+
+    private void closeChunk(ChunkRun run, boolean done) {
+        try {
+            run.journal.close();
+            if (done) {
+                leases.markDone(run.chunk);
+            }
+        } catch (IOException e) {
+            // Without the marker the chunk is claimed again and its jobs are skipped by the journal
+        }
+        try {
+            leases.release(run.chunk);
+        } catch (IOException e) {
+            // The lease expires instead
+        }
+        active.remove(run.chunk);
+    }
+
+    private void heartbeat() {
+        for (ChunkRun run : active.values()) {
+            try {
+                if (!leases.renew(run.chunk)) {
+                    // Another worker took the chunk over; finish the jobs in flight and stop
+                    run.lost = true;
+                }
+            } catch (IOException e) {
+                // Retried on the next beat; the lease expires if renewing keeps failing
+            }
+        }
+        writeProgress();
+    }
+
+    private void writeProgress() {
+        JsonObject progress = getProgress().toJsonObject();
+        progress.addProperty("worker", workerId);
+        try {
+            leases.writeProgress(progress);
+        } catch (IOException e) {
+            // Other workers miss this worker's rate until the next beat
+        }
+    }
+
+    /**
+     * Get a snapshot of the run in progress.
+     *
+     * @return the current progress
+     */
+    public BatchProgress getProgress() {
+        long start = startNanos;
+        return new BatchProgress(total, completed.get(), skipped.get(), failed.get(), running.get(),
+                audioBytes.get(), start == 0 ? 0 : System.nanoTime() - start);
+    }
+
+    /**
+     * Get a snapshot of all workers sharing the lease directory, or of this run if there
+     * is none. Completed jobs are those in finished chunks, by any worker in any run, and
+     * the other counts and the rate are summed over workers that reported progress within
+     * the last three lease timeouts.
+     *
+     * @return the current progress of all workers
+     */
+    public BatchProgress getClusterProgress() {
+        LeaseDirectory leases = this.leases;
+        ManifestIndex index = this.index;
+        if (leases == null || index == null) {
+            return getProgress();
+        }
+        long done = 0;
+        for (int chunk = 0; chunk < index.chunks(); chunk++) {
+            if (leases.isDone(chunk)) {
+                done += index.jobsIn(chunk);
+            }
+        }
+        long failedJobs = 0;
+        long runningJobs = 0;
+        long bytes = 0;
+        double rate = 0;
+        int workers = 0;
+        try {
+            for (JsonObject worker : leases.readProgress(3 * leaseTimeout.toNanos())) {
+                failedJobs += worker.get("failed").getAsLong();
+                runningJobs += worker.get("running").getAsLong();
+                bytes += worker.get("audioBytes").getAsLong();
+                rate += worker.get("jobsPerSecond").getAsDouble();
+                workers++;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Report what the done markers show
+        }
+        long start = startNanos;
+        return new BatchProgress(total, done, 0, failedJobs, runningJobs, bytes,
+                start == 0 ? 0 : System.nanoTime() - start, rate, workers);
+    }
+
+    private void render(BatchJob job, Path target, ChunkRun run) {
+        BatchJournal journal = run.journal;
+        long start = System.nanoTime();
+        try {
+            journal.started(job.getId());
+            SynthesizeResponse response = client.synthesize(job.getOptions());
+            long bytes;
+            try {
+                bytes = write(response, target);
+            } finally {
+                response.release();
+            }
+            journal.done(job.getId(), job.getOutput(), bytes,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            completed.incrementAndGet();
+            audioBytes.addAndGet(bytes);
+        } catch (FlowTTSException e) {
+            recordFailure(run, job.getId(), e.getCode() != null ? e.getCode() : "SynthesisFailed", e.getMessage());
+        } catch (IOException e) {
+            recordFailure(run, job.getId(), "IOError", e.getMessage());
+        }
+    }
+
+    private long write(SynthesizeResponse response, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".part");
+        long bytes;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            bytes = response.writeTo(channel);
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return bytes;
+    }
+
+    private void recordFailure(ChunkRun run, String id, String code, String message) {
+        failed.incrementAndGet();
+        run.failures.incrementAndGet();
+        try {
+            run.journal.failed(id, code, message);
+        } catch (IOException e) {
+            // The job is not journaled as done, so the next run retries it either way
+        }
+    }
+
+    private Path resolveOutput(BatchJob job) {
+        Path target = outputDir.resolve(job.getOutput()).normalize();
+        if (!target.startsWith(outputDir) || target.equals(outputDir)) {
+            throw new IllegalArgumentException("output must be inside the output directory: " + job.getOutput());
+        }
+        return target;
+    }
+
+    private static ScheduledExecutorService newScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "flow-tts-batch-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final AtomicInteger runners = new AtomicInteger();
+
+    private static String defaultWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return host + "-" + ProcessHandle.current().pid() + "-" + runners.incrementAndGet();
+    }
+
+    private static long countJobs(Path manifest) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // The jobs of one chunk, or of the whole manifest without a lease directory
+    private static final class ChunkRun {
+        final int chunk;
+        final BatchJournal journal;
+        final Set<String> seen = new HashSet<>();
+        // Jobs in flight, plus one until every line has been dispatched
+        final AtomicInteger pending = new AtomicInteger(1);
+        final AtomicInteger failures = new AtomicInteger();
+        volatile boolean lost;
+
+        ChunkRun(int chunk, BatchJournal journal) {
+            this.chunk = chunk;
+            this.journal = journal;
+        }
+    }
+
+    /**
+     * Builder for BatchRunner.
+     */
+    public static class Builder {
+        private final FlowTTS client;
+        private Path manifest;
+        private Path outputDir;
+        private Path journal;
+        private int concurrency = 8;
+        private Priority priority = Priority.BULK;
+        private boolean fsync = true;
+        private Duration progressInterval = Duration.ofSeconds(10);
+        private Consumer<BatchProgress> progressListener;
+        private Path leaseDir;
+        private String workerId;
+        private int chunkSize = 100;
+        private Duration leaseTimeout = Duration.ofSeconds(30);
+
+        private Builder(FlowTTS client) {
+            this.client = client;
+        }
+
+        /**
+         * Set the JSONL manifest of jobs (required).
+         *
+         * @param manifest the manifest file
+         * @return this builder
+         */
+        public Builder manifest(Path manifest) {
+            this.manifest = manifest;
+            return this;
+        }
+
+        /**
+         * Set the directory that job outputs are relative to (required).
+         *
+         * @param outputDir the output directory
+         * @return this builder
+         */
+        public Builder outputDir(Path outputDir) {
+            this.outputDir = outputDir;
+            return this;
+        }
+
+        /**
+         * Set the journal file (default: {@code batch-journal.jsonl} in the output directory).
+         * Use the same journal for every run of a manifest.
+         *
+         * @param journal the journal file
+         * @return this builder
+         */
+        public Builder journal(Path journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        /**
+         * Set how many jobs are rendered at once (default: 8).
+         * The client's own concurrency limit still applies.
+         *
+         * @param concurrency the number of jobs in flight
+         * @return this builder
+         */
+        public Builder concurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * Set the priority of the synthesis requests (default: {@link Priority#BULK}).
+         *
+         * @param priority the priority
+         * @return this builder
+         */
+        public Builder priority(Priority priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        /**
+         * Force outputs and terminal journal records to disk (default: true).
+         * Without it, a power failure can lose jobs that were journaled as done.
+         *
+         * @param fsync whether to force writes
+         * @return this builder
+         */
+        public Builder fsync(boolean fsync) {
+            this.fsync = fsync;
+            return this;
+        }
+
+        /**
+         * Set how often the progress listener is called (default: 10 seconds).
+         *
+         * @param progressInterval the interval
+         * @return this builder
+         */
+        public Builder progressInterval(Duration progressInterval) {
+            this.progressInterval = progressInterval;
+            return this;
+        }
+
+        /**
+         * Receive progress snapshots while the batch runs, and once more at the end.
+         *
+         * @param progressListener the listener, called on a separate thread
+         * @return this builder
+         */
+        public Builder progressListener(Consumer<BatchProgress> progressListener) {
+            this.progressListener = progressListener;
+            return this;
+        }
+
+        /**
+         * Share the manifest with other workers through lease files in this directory
+         * (default: none). Every worker must see the same directory, manifest and output
+         * directory, for example on a network file system. Chunk journals are kept in
+         * the lease directory and {@link #journal(Path)} is not used.
+         *
+         * @param leaseDir the lease directory
+         * @return this builder
+         */
+        public Builder leaseDir(Path leaseDir) {
+            this.leaseDir = leaseDir;
+            return this;
+        }
+
+        /**
+         * Set the name of this worker in the lease directory
+         * (default: host name, process ID and a counter).
+         *
+         * @param workerId the worker ID, unique among running workers
+         * @return this builder
+         */
+        public Builder workerId(String workerId) {
+            this.workerId = workerId;
+            return this;
+        }
+
+        /**
+         * Set how many jobs a worker claims at once (default: 100).
+         * All workers of a manifest must use the same chunk size.
+         *
+         * @param chunkSize the jobs per chunk
+         * @return this builder
+         */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Set how long a lease may go without renewal before other workers take the
+         * chunk over (default: 30 seconds). Leases are renewed every third of this.
+         *
+         * @param leaseTimeout the lease timeout
+         * @return this builder
+         */
+        public Builder leaseTimeout(Duration leaseTimeout) {
+            this.leaseTimeout = leaseTimeout;
+            return this;
+        }
+
+        /**
+         * Build the BatchRunner instance.
+         *
+         * @return a new BatchRunner
+         * @throws IllegalArgumentException if a required setting is missing or out of range
+         */
+        public BatchRunner build() {
+            if (client == null) {
+                throw new IllegalArgumentException("client is required");
+            }
+            if (manifest == null) {
+                throw new IllegalArgumentException("manifest is required");
+            }
+            if (outputDir == null) {
+                throw new IllegalArgumentException("outputDir is required");
+            }
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive");
+            }
+            if (priority == null) {
+                throw new IllegalArgumentException("priority is required");
+            }
+            if (progressInterval == null || progressInterval.toMillis() <= 0) {
+                throw new IllegalArgumentException("progressInterval must be positive");
+            }
+            if (chunkSize <= 0) {
+                throw new IllegalArgumentException("chunkSize must be positive");
+            }
+            if (leaseTimeout == null || leaseTimeout.toMillis() < 3) {
+                throw new IllegalArgumentException("leaseTimeout must be at least 3 milliseconds");
+            }
+            if (workerId != null && workerId.trim().isEmpty()) {
+                throw new IllegalArgumentException("workerId must not be empty");
+            }
+            return new BatchRunner(this);
+        }
+    }
+}
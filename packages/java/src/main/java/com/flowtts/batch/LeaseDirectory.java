@@ -0,0 +1,339 @@
+package com.flowtts.batch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The files through which batch workers share a manifest, in a directory that all of
+ * them can reach, such as a network file system.
+ *
+ * <p>A worker claims a chunk by creating {@code chunk-N.lease} with a hard link, which
+ * fails if the lease exists, and a finished chunk gets a {@code chunk-N.done} marker.
+ * A lease is expired when its content has not changed for the lease timeout as measured
+ * by the observing worker, so clocks of different hosts need not agree.</p>
+ *
+ * <p>Renewing, stealing and releasing a lease all first rename it to a name unique to
+ * the worker, which succeeds for only one of them, and then check the owner and
+ * heartbeat count of the file they took. A lease that turns out to be someone else's,
+ * or renewed since it was judged expired, is linked back; a renewed lease is linked
+ * into place, so it never replaces a claim made in between. Each worker journals a
+ * chunk in its own file, so no file is appended to by two processes.</p>
+ */
+final class LeaseDirectory {
+    private static final Gson gson = new Gson();
+
+    private final Path dir;
+    private final String workerId;
+    private final Path progressDir;
+    // Heartbeat count per held lease
+    private final Map<Integer, Long> beats = new ConcurrentHashMap<>();
+    // Keeps a heartbeat from recreating a lease that is being released
+    private final ReentrantLock heldLock = new ReentrantLock();
+    // Lease content and when this worker first saw it, per chunk leased by others; main loop only
+    private final Map<Integer, String> observed = new HashMap<>();
+    private final Map<Integer, Long> observedSince = new HashMap<>();
+    // Progress file content and when this worker first saw it, per worker
+    private final Map<String, Observation> progressSeen = new ConcurrentHashMap<>();
+
+    LeaseDirectory(Path dir, String workerId) throws IOException {
+        this.dir = dir;
+        this.workerId = workerId;
+        this.progressDir = dir.resolve("workers");
+        Files.createDirectories(progressDir);
+    }
+
+    boolean isDone(int chunk) {
+        return Files.exists(dir.resolve(name(chunk) + ".done"));
+    }
+
+    /**
+     * Claim a chunk that has no lease.
+     *
+     * @return true if this worker now holds the lease
+     */
+    boolean tryClaim(int chunk) throws IOException {
+        if (!install(writeTemp(chunk, 0), lease(chunk))) {
+            return false;
+        }
+        beats.put(chunk, 0L);
+        return true;
+    }
+
+    /**
+     * Renew a held lease.
+     *
+     * @return false if the lease was stolen
+     */
+    boolean renew(int chunk) throws IOException {
+        heldLock.lock();
+        try {
+            Long last = beats.get(chunk);
+            if (last == null) {
+                return false;
+            }
+            Path next = writeTemp(chunk, last + 1);
+            Path taken = take(chunk);
+            if (taken == null) {
+                Files.deleteIfExists(next);
+                return false;
+            }
+            if (!isHeldBy(taken, workerId, last)) {
+                // Stolen and claimed again since the last beat
+                Files.deleteIfExists(next);
+                install(taken, lease(chunk));
+                return false;
+            }
+            Files.delete(taken);
+            // Fails if another worker claimed the chunk while it had no lease
+            if (!install(next, lease(chunk))) {
+                return false;
+            }
+            beats.replace(chunk, last + 1);
+            return true;
+        } finally {
+            heldLock.unlock();
+        }
+    }
+
+    /**
+     * Steal the lease of a chunk if its holder has not renewed it for the timeout.
+     *
+     * @return true if the lease was removed and the chunk can be claimed
+     */
+    boolean tryExpire(int chunk, long timeoutNanos) throws IOException {
+        String content;
+        try {
+            content = new String(Files.readAllBytes(lease(chunk)), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (!content.equals(observed.get(chunk))) {
+            observed.put(chunk, content);
+            observedSince.put(chunk, now);
+            return false;
+        }
+        if (now - observedSince.get(chunk) < timeoutNanos) {
+            return false;
+        }
+        Path taken = take(chunk);
+        if (taken != null) {
+            String current = read(taken);
+            if (!content.equals(current)) {
+                // Renewed or claimed again after it was read
+                install(taken, lease(chunk));
+                observed.put(chunk, current);
+                observedSince.put(chunk, now);
+                return false;
+            }
+            Files.delete(taken);
+        }
+        // Otherwise another worker stole or released it first
+        observed.remove(chunk);
+        observedSince.remove(chunk);
+        return true;
+    }
+
+    void markDone(int chunk) throws IOException {
+        try {
+            Files.createFile(dir.resolve(name(chunk) + ".done"));
+        } catch (FileAlreadyExistsException e) {
+            // Finished by another worker too
+        }
+    }
+
+    void release(int chunk) throws IOException {
+        heldLock.lock();
+        try {
+            Long last = beats.remove(chunk);
+            Path taken = last != null ? take(chunk) : null;
+            if (taken != null) {
+                if (isHeldBy(taken, workerId, last)) {
+                    Files.delete(taken);
+                } else {
+                    install(taken, lease(chunk));
+                }
+            }
+        } finally {
+            heldLock.unlock();
+        }
+    }
+
+    Path journal(int chunk) {
+        return dir.resolve(name(chunk) + "." + safe(workerId) + ".journal");
+    }
+
+    /**
+     * Get the journals of a chunk written by other workers.
+     */
+    List<Path> otherJournals(int chunk) throws IOException {
+        List<Path> journals = new ArrayList<>();
+        Path own = journal(chunk);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, name(chunk) + ".*.journal")) {
+            for (Path path : stream) {
+                if (!path.equals(own)) {
+                    journals.add(path);
+                }
+            }
+        }
+        return journals;
+    }
+
+    void writeProgress(JsonObject progress) throws IOException {
+        Path target = progressDir.resolve(safe(workerId) + ".json");
+        Path temp = progressDir.resolve(safe(workerId) + ".json.tmp");
+        Files.write(temp, progress.toString().getBytes(StandardCharsets.UTF_8));
+        move(temp, target);
+    }
+
+    /**
+     * Read the progress of workers whose progress file changed within the given time,
+     * as measured by this worker.
+     */
+    List<JsonObject> readProgress(long staleNanos) throws IOException {
+        List<JsonObject> workers = new ArrayList<>();
+        long now = System.nanoTime();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(progressDir, "*.json")) {
+            for (Path path : stream) {
+                String content;
+                try {
+                    content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                String name = path.getFileName().toString();
+                Observation seen = progressSeen.get(name);
+                if (seen == null || !seen.content.equals(content)) {
+                    progressSeen.put(name, new Observation(content, now));
+                } else if (now - seen.sinceNanos > staleNanos) {
+                    continue;
+                }
+                try {
+                    JsonObject progress = gson.fromJson(content, JsonObject.class);
+                    if (progress != null) {
+                        workers.add(progress);
+                    }
+                } catch (JsonParseException e) {
+                    // Written by something else
+                }
+            }
+        }
+        return workers;
+    }
+
+    /**
+     * Rename the lease of a chunk to a name unique to this call, so no other worker can
+     * renew, steal or release it while it is checked.
+     *
+     * @return the renamed lease, or null if there was none
+     */
+    private Path take(int chunk) throws IOException {
+        Path taken = dir.resolve(name(chunk) + ".lease." + safe(workerId) + "."
+                + Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36) + ".taken");
+        try {
+            Files.move(lease(chunk), taken, StandardCopyOption.ATOMIC_MOVE);
+            return taken;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Move a lease file into place unless a lease already exists there.
+     *
+     * @return false if another lease was in place; the source is removed either way
+     */
+    private static boolean install(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (UnsupportedOperationException e) {
+            // No hard links; exclusive create is also atomic, but readers may briefly see an empty lease
+            try {
+                Files.write(target, Files.readAllBytes(source), StandardOpenOption.CREATE_NEW);
+                return true;
+            } catch (FileAlreadyExistsException exists) {
+                return false;
+            }
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    private static boolean isHeldBy(Path lease, String workerId, long beat) throws IOException {
+        try {
+            JsonObject content = gson.fromJson(read(lease), JsonObject.class);
+            return content != null && content.has("owner") && content.has("beat")
+                    && workerId.equals(content.get("owner").getAsString())
+                    && content.get("beat").getAsLong() == beat;
+        } catch (JsonParseException e) {
+            return false;
+        }
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    private Path writeTemp(int chunk, long beat) throws IOException {
+        JsonObject lease = new JsonObject();
+        lease.addProperty("owner", workerId);
+        lease.addProperty("beat", beat);
+        Path temp = dir.resolve(name(chunk) + ".lease." + safe(workerId) + ".tmp");
+        Files.write(temp, lease.toString().getBytes(StandardCharsets.UTF_8));
+        return temp;
+    }
+
+    private Path lease(int chunk) {
+        return dir.resolve(name(chunk) + ".lease");
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String name(int chunk) {
+        return String.format(Locale.ROOT, "chunk-%06d", chunk);
+    }
+
+    private static final class Observation {
+        final String content;
+        final long sinceNanos;
+
+        Observation(String content, long sinceNanos) {
+            this.content = content;
+            this.sinceNanos = sinceNanos;
+        }
+    }
+
+    // Worker IDs become part of file names
+    private static String safe(String id) {
+        return id.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
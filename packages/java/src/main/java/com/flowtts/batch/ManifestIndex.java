@@ -0,0 +1,102 @@
+package com.flowtts.batch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a manifest into chunks of a fixed number of jobs, remembering the byte offset
+ * of each chunk so it can be read without scanning the lines before it.
+ */
+final class ManifestIndex {
+    private final Path manifest;
+    private final int chunkSize;
+    private final long jobs;
+    private final long[] offsets;
+    private final int[] firstLines;
+
+    private ManifestIndex(Path manifest, int chunkSize, long jobs, long[] offsets, int[] firstLines) {
+        this.manifest = manifest;
+        this.chunkSize = chunkSize;
+        this.jobs = jobs;
+        this.offsets = offsets;
+        this.firstLines = firstLines;
+    }
+
+    static ManifestIndex build(Path manifest, int chunkSize) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        List<Integer> firstLines = new ArrayList<>();
+        long jobs = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(manifest), 64 * 1024)) {
+            long offset = 0;
+            long lineStart = 0;
+            int lineNumber = 1;
+            boolean blank = true;
+            int b;
+            do {
+                b = in.read();
+                if (b == '\n' || b < 0) {
+                    // Blank lines, as String.trim() sees them, are not jobs
+                    if (!blank) {
+                        if (jobs % chunkSize == 0) {
+                            offsets.add(lineStart);
+                            firstLines.add(lineNumber);
+                        }
+                        jobs++;
+                    }
+                    lineStart = offset + 1;
+                    lineNumber++;
+                    blank = true;
+                } else if (b > ' ') {
+                    blank = false;
+                }
+                offset++;
+            } while (b >= 0);
+        }
+        long[] offsetArray = new long[offsets.size()];
+        int[] lineArray = new int[offsets.size()];
+        for (int i = 0; i < offsetArray.length; i++) {
+            offsetArray[i] = offsets.get(i);
+            lineArray[i] = firstLines.get(i);
+        }
+        return new ManifestIndex(manifest, chunkSize, jobs, offsetArray, lineArray);
+    }
+
+    long jobs() {
+        return jobs;
+    }
+
+    int chunks() {
+        return offsets.length;
+    }
+
+    int jobsIn(int chunk) {
+        return (int) Math.min(chunkSize, jobs - (long) chunk * chunkSize);
+    }
+
+    int firstLine(int chunk) {
+        return firstLines[chunk];
+    }
+
+    /**
+     * Open a reader positioned at the first line of a chunk.
+     */
+    BufferedReader open(int chunk) throws IOException {
+        FileChannel channel = FileChannel.open(manifest);
+        try {
+            channel.position(offsets[chunk]);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1));
+    }
+}
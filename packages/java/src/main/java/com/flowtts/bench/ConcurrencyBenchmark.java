@@ -0,0 +1,114 @@
+package com.flowtts.bench;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.core.Threads;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.model.SynthesizeOptions;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how many blocking synthesis calls one JVM can hold in flight at once.
+ *
+ * <p>Starts a local {@link TtsEmulator} that holds every response for a fixed time,
+ * then issues all calls at once through {@code synthesizeAsync}. With virtual threads
+ * each waiting call parks a virtual thread; with platform threads each one occupies
+ * an OS thread. The result reports the peak number of calls the emulator saw in flight,
+ * the wall time, and the peak platform thread count.</p>
+ *
+ * <pre>
+ * ulimit -n 65536
+ * java -cp flow-tts.jar:flow-tts-tools.jar:... com.flowtts.bench.ConcurrencyBenchmark --calls 10000 --hold-ms 2000 --virtual true
+ * </pre>
+ *
+ * <p>Every call uses its own HTTP connection, so the process needs two file
+ * descriptors per call (client and emulator side).</p>
+ */
+public class ConcurrencyBenchmark {
+    public static void main(String[] args) throws Exception {
+        int calls = 10_000;
+        long holdMs = 2_000;
+        boolean virtual = true;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--calls":
+                    calls = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--hold-ms":
+                    holdMs = Long.parseLong(args[i + 1]);
+                    break;
+                case "--virtual":
+                    virtual = Boolean.parseBoolean(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        System.out.println(new GsonBuilder().setPrettyPrinting().create().toJson(run(calls, holdMs, virtual)));
+    }
+
+    /**
+     * Run the benchmark.
+     *
+     * @param calls   the number of concurrent calls
+     * @param holdMs  how long the emulator holds each response
+     * @param virtual whether the client uses virtual threads
+     * @return the results as JSON
+     * @throws Exception if the emulator cannot start
+     */
+    public static JsonObject run(int calls, long holdMs, boolean virtual) throws Exception {
+        try (TtsEmulator emulator = TtsEmulator.builder()
+                .credentials("bench-id", "bench-key")
+                .timeToFirstByte(Duration.ofMillis(holdMs))
+                .millisPerCharacter(10)
+                .build()
+                .start()) {
+            FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                    .secretId("bench-id")
+                    .secretKey("bench-key")
+                    .sdkAppId(1)
+                    .endpoint(emulator.getEndpoint())
+                    .scheme("http")
+                    .virtualThreads(virtual)
+                    .build());
+            SynthesizeOptions options = SynthesizeOptions.builder().text("Concurrency benchmark").codec("pcm").build();
+
+            ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+            AtomicInteger failed = new AtomicInteger();
+            long start = System.nanoTime();
+            List<CompletableFuture<?>> futures = new ArrayList<>(calls);
+            for (int i = 0; i < calls; i++) {
+                futures.add(client.synthesizeAsync(options).whenComplete((response, error) -> {
+                    if (error != null) {
+                        failed.incrementAndGet();
+                    }
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+            long elapsedNanos = System.nanoTime() - start;
+            client.close();
+
+            JsonObject result = new JsonObject();
+            result.addProperty("javaVersion", System.getProperty("java.version"));
+            result.addProperty("virtualThreadsRequested", virtual);
+            result.addProperty("virtualThreadsAvailable", Threads.isVirtualAvailable());
+            result.addProperty("calls", calls);
+            result.addProperty("failed", failed.get());
+            result.addProperty("holdMillis", holdMs);
+            result.addProperty("peakInFlight", emulator.getPeakInFlight());
+            result.addProperty("wallMillis", elapsedNanos / 1_000_000);
+            result.addProperty("callsPerSecond", calls * 1e9 / elapsedNanos);
+            result.addProperty("peakPlatformThreads", ManagementFactory.getThreadMXBean().getPeakThreadCount());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.flowtts.bench;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.gateway.SpeechGateway;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the requests per second and time to first audio byte of a {@link SpeechGateway}
+ * backed by a local {@link TtsEmulator}.
+ *
+ * <pre>
+ * java -cp flow-tts.jar:flow-tts-tools.jar:... com.flowtts.bench.GatewayBenchmark --connections 64 --duration-s 30 --io-threads 1
+ * </pre>
+ *
+ * <p>Each connection is a keep-alive socket sending one request after another. Time to
+ * first byte is measured from writing the request to reading the first audio chunk, so
+ * it includes the emulator's own delay; compare it against {@code --ttfb-ms}. Since the
+ * emulator, the client and the gateway share the process, the CPU figures are for the
+ * whole process, with the gateway's selector threads listed separately.</p>
+ */
+public class GatewayBenchmark {
+    private static final String BODY =
+            "{\"model\":\"tts-1\",\"input\":\"Hello from the speech gateway benchmark.\","
+                    + "\"voice\":\"alloy\",\"response_format\":\"pcm\"}";
+
+    public static void main(String[] args) throws Exception {
+        int connections = 64;
+        long durationSeconds = 20;
+        int ioThreads = 1;
+        long ttfbMillis = 50;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--connections":
+                    connections = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--duration-s":
+                    durationSeconds = Long.parseLong(args[i + 1]);
+                    break;
+                case "--io-threads":
+                    ioThreads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--ttfb-ms":
+                    ttfbMillis = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        try (TtsEmulator emulator = TtsEmulator.builder()
+                .credentials("bench-id", "bench-key")
+                .timeToFirstByte(Duration.ofMillis(ttfbMillis))
+                .chunkInterval(Duration.ofMillis(10))
+                .build()
+                .start()) {
+            FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                    .secretId("bench-id")
+                    .secretKey("bench-key")
+                    .sdkAppId(1)
+                    .endpoint(emulator.getEndpoint())
+                    .scheme("http")
+                    .maxConcurrentRequests(Math.max(connections, 1))
+                    .build());
+            try (SpeechGateway gateway = SpeechGateway.builder(client).port(0).ioThreads(ioThreads).build().start()) {
+                run(gateway.getPort(), connections, Duration.ofSeconds(Math.max(1, durationSeconds / 4)));
+                JsonObject result = run(gateway.getPort(), connections, Duration.ofSeconds(durationSeconds));
+                result.addProperty("connections", connections);
+                result.addProperty("ioThreads", ioThreads);
+                result.addProperty("emulatorTtfbMillis", ttfbMillis);
+                System.out.println(new GsonBuilder().setPrettyPrinting().create().toJson(result));
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    private static JsonObject run(int port, int connections, Duration duration) throws InterruptedException {
+        LatencyHistogram ttfb = new LatencyHistogram();
+        LatencyHistogram total = new LatencyHistogram();
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long cpuBefore = processCpuTime();
+        long ioBefore = gatewayCpuTime();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        Thread[] workers = new Thread[connections];
+        for (int i = 0; i < connections; i++) {
+            workers[i] = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    try (Socket socket = new Socket("127.0.0.1", port)) {
+                        socket.setTcpNoDelay(true);
+                        OutputStream out = socket.getOutputStream();
+                        InputStream in = new BufferedInputStream(socket.getInputStream());
+                        byte[] request = request();
+                        while (System.nanoTime() < end) {
+                            long sent = System.nanoTime();
+                            out.write(request);
+                            out.flush();
+                            long first = readResponse(in);
+                            long done = System.nanoTime();
+                            if (first < 0) {
+                                errors.incrementAndGet();
+                            } else {
+                                ttfb.record(first - sent);
+                                total.record(done - sent);
+                                completed.incrementAndGet();
+                            }
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }, "gateway-bench-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double cores = (processCpuTime() - cpuBefore) / 1e9 / seconds;
+        double ioCores = (gatewayCpuTime() - ioBefore) / 1e9 / seconds;
+        double rps = completed.get() / seconds;
+        JsonObject result = new JsonObject();
+        result.addProperty("requests", completed.get());
+        result.addProperty("errors", errors.get());
+        result.addProperty("requestsPerSecond", rps);
+        result.addProperty("processCpuCores", cores);
+        result.addProperty("requestsPerSecondPerCore", cores > 0 ? rps / cores : 0);
+        result.addProperty("gatewayIoCpuCores", ioCores);
+        result.add("ttfbMillis", percentiles(ttfb));
+        result.add("totalMillis", percentiles(total));
+        return result;
+    }
+
+    private static byte[] request() {
+        byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+        String head = "POST /v1/audio/speech HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Content-Length: " + body.length + "\r\n\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.US_ASCII);
+        byte[] request = new byte[headBytes.length + body.length];
+        System.arraycopy(headBytes, 0, request, 0, headBytes.length);
+        System.arraycopy(body, 0, request, headBytes.length, body.length);
+        return request;
+    }
+
+    /**
+     * Read one response and return when its first body byte arrived, or -1 for a
+     * non-200 status.
+     */
+    private static long readResponse(InputStream in) throws IOException {
+        boolean ok = line(in).startsWith("HTTP/1.1 200");
+        long contentLength = 0;
+        boolean chunked = false;
+        String line;
+        while (!(line = line(in)).isEmpty()) {
+            String lower = line.toLowerCase();
+            if (lower.startsWith("content-length:")) {
+                contentLength = Long.parseLong(lower.substring(15).trim());
+            } else if (lower.equals("transfer-encoding: chunked")) {
+                chunked = true;
+            }
+        }
+        if (!chunked) {
+            skip(in, contentLength);
+            return -1;
+        }
+        long first = 0;
+        int size;
+        while ((size = Integer.parseInt(line(in), 16)) > 0) {
+            if (first == 0) {
+                first = System.nanoTime();
+            }
+            skip(in, size);
+            line(in);
+        }
+        line(in);
+        return ok ? first : -1;
+    }
+
+    private static String line(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Connection closed");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void skip(InputStream in, long length) throws IOException {
+        while (length > 0) {
+            long skipped = in.skip(length);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Connection closed");
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    private static JsonObject percentiles(LatencyHistogram histogram) {
+        JsonObject json = new JsonObject();
+        json.addProperty("p50", millis(histogram.getValueAtPercentile(50)));
+        json.addProperty("p90", millis(histogram.getValueAtPercentile(90)));
+        json.addProperty("p99", millis(histogram.getValueAtPercentile(99)));
+        json.addProperty("max", millis(histogram.getMax()));
+        return json;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static long processCpuTime() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        return os instanceof com.sun.management.OperatingSystemMXBean
+                ? ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime() : 0;
+    }
+
+    private static long gatewayCpuTime() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info != null && info.getThreadName().startsWith("flow-tts-gateway-")) {
+                total += Math.max(0, threads.getThreadCpuTime(info.getThreadId()));
+            }
+        }
+        return total;
+    }
+}
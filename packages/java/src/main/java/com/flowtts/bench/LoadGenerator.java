@@ -0,0 +1,539 @@
+package com.flowtts.bench;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.StreamListener;
+import com.flowtts.core.Threads;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.StreamChunk;
+import com.flowtts.model.SynthesizeOptions;
+import com.google.gson.JsonObject;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for a {@link FlowTTS} client.
+ *
+ * <p>Requests are started on a fixed or Poisson arrival schedule regardless of how
+ * many are still in flight, as real traffic would arrive, and each picks synchronous
+ * or streaming synthesis according to the configured mix. Latencies are measured from
+ * the scheduled start, so a stalled client or server cannot hide queueing delay by
+ * holding back the next request (coordinated omission).</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * LoadReport report = LoadGenerator.builder(client)
+ *     .rate(100)
+ *     .arrival(LoadGenerator.Arrival.POISSON)
+ *     .duration(Duration.ofMinutes(1))
+ *     .streamRatio(0.8)
+ *     .build()
+ *     .run();
+ * report.write(Paths.get("load-report.json"));
+ * }</pre>
+ */
+public class LoadGenerator {
+    /**
+     * Arrival process of the generated requests.
+     */
+    public enum Arrival {
+        /** Requests start at a constant interval. */
+        FIXED,
+        /** Requests start at exponentially distributed intervals with the configured mean rate. */
+        POISSON
+    }
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final FlowTTS client;
+    private final double rate;
+    private final Arrival arrival;
+    private final Duration duration;
+    private final Duration drainTimeout;
+    private final double streamRatio;
+    private final SynthesizeOptions options;
+    private final List<String> texts;
+    private final int maxOutstanding;
+    private final Random random;
+    private final Map<String, Object> labels;
+
+    private final LatencyHistogram syncTotal = new LatencyHistogram();
+    private final LatencyHistogram syncService = new LatencyHistogram();
+    private final LatencyHistogram streamTtfb = new LatencyHistogram();
+    private final LatencyHistogram streamTotal = new LatencyHistogram();
+    private final LatencyHistogram streamService = new LatencyHistogram();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private LoadGenerator(Builder builder) {
+        this.client = builder.client;
+        this.rate = builder.rate;
+        this.arrival = builder.arrival;
+        this.duration = builder.duration;
+        this.drainTimeout = builder.drainTimeout;
+        this.streamRatio = builder.streamRatio;
+        this.options = builder.options;
+        this.texts = new ArrayList<>(builder.texts);
+        this.maxOutstanding = builder.maxOutstanding;
+        this.random = new Random(builder.seed);
+        this.labels = new TreeMap<>(builder.labels);
+    }
+
+    /**
+     * Create a new builder.
+     *
+     * @param client the client to drive
+     * @return a new Builder instance
+     */
+    public static Builder builder(FlowTTS client) {
+        return new Builder(client);
+    }
+
+    /**
+     * Run the load test and wait for in-flight requests to finish.
+     * A generator runs once.
+     *
+     * @return the report
+     * @throws InterruptedException if interrupted while running
+     */
+    public LoadReport run() throws InterruptedException {
+        // Open-loop arrivals may pile up blocked sync calls, which virtual threads absorb cheaply
+        ExecutorService syncExecutor = Threads.newExecutor("flow-tts-load", true);
+        Phaser inFlight = new Phaser(1);
+        ResourceSnapshot before = ResourceSnapshot.take();
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long sent = 0;
+        long maxDispatchLag = 0;
+
+        try {
+            long intended = start;
+            while (intended < end) {
+                long lag = waitUntil(intended);
+                maxDispatchLag = Math.max(maxDispatchLag, lag);
+                if (outstanding.get() >= maxOutstanding) {
+                    error("Overloaded");
+                } else {
+                    String text = texts.get((int) (sent % texts.size()));
+                    SynthesizeOptions request = options.toBuilder().text(text).build();
+                    inFlight.register();
+                    outstanding.incrementAndGet();
+                    if (random.nextDouble() < streamRatio) {
+                        startStream(request, intended, inFlight);
+                    } else {
+                        startSync(request, intended, inFlight, syncExecutor);
+                    }
+                }
+                sent++;
+                intended += nextInterval();
+            }
+            try {
+                inFlight.awaitAdvanceInterruptibly(inFlight.arrive(), drainTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Requests still running are reported as timed out
+                errors.computeIfAbsent("DrainTimeout", k -> new LongAdder()).add(outstanding.get());
+            }
+            long elapsed = System.nanoTime() - start;
+            ResourceSnapshot after = ResourceSnapshot.take();
+            return new LoadReport(report(startedAt, sent, elapsed, maxDispatchLag, before, after));
+        } finally {
+            syncExecutor.shutdownNow();
+        }
+    }
+
+    private void startSync(SynthesizeOptions request, long intended, Phaser inFlight, ExecutorService executor) {
+        executor.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                client.synthesize(request);
+                long now = System.nanoTime();
+                syncTotal.record(now - intended);
+                syncService.record(now - started);
+                succeeded.incrementAndGet();
+            } catch (RuntimeException e) {
+                error(codeOf(e));
+            } finally {
+                outstanding.decrementAndGet();
+                inFlight.arriveAndDeregister();
+            }
+        });
+    }
+
+    private void startStream(SynthesizeOptions request, long intended, Phaser inFlight) {
+        long started = System.nanoTime();
+        AtomicBoolean firstChunk = new AtomicBoolean();
+        AtomicBoolean finished = new AtomicBoolean();
+        StreamListener listener = new StreamListener() {
+            @Override
+            public void onChunk(StreamChunk chunk) {
+                if (firstChunk.compareAndSet(false, true)) {
+                    streamTtfb.record(System.nanoTime() - intended);
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                if (finished.compareAndSet(false, true)) {
+                    long now = System.nanoTime();
+                    streamTotal.record(now - intended);
+                    streamService.record(now - started);
+                    succeeded.incrementAndGet();
+                    done();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (finished.compareAndSet(false, true)) {
+                    error(codeOf(e));
+                    done();
+                }
+            }
+
+            private void done() {
+                outstanding.decrementAndGet();
+                inFlight.arriveAndDeregister();
+            }
+        };
+        try {
+            client.synthesizeStream(request, listener);
+        } catch (RuntimeException e) {
+            listener.onError(e);
+        }
+    }
+
+    private long nextInterval() {
+        double meanNanos = 1_000_000_000.0 / rate;
+        if (arrival == Arrival.POISSON) {
+            return (long) (-Math.log(1 - random.nextDouble()) * meanNanos);
+        }
+        return (long) meanNanos;
+    }
+
+    private void error(String code) {
+        errors.computeIfAbsent(code, k -> new LongAdder()).increment();
+    }
+
+    static String codeOf(Exception e) {
+        if (e instanceof FlowTTSException && ((FlowTTSException) e).getCode() != null) {
+            return ((FlowTTSException) e).getCode();
+        }
+        return e.getClass().getSimpleName();
+    }
+
+    static long waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+        return -remaining;
+    }
+
+    private JsonObject report(Instant startedAt, long sent, long elapsedNanos, long maxDispatchLag,
+                              ResourceSnapshot before, ResourceSnapshot after) {
+        JsonObject root = new JsonObject();
+        String version = FlowTTS.class.getPackage().getImplementationVersion();
+        root.addProperty("sdkVersion", version != null ? version : "dev");
+        root.addProperty("javaVersion", System.getProperty("java.version"));
+        root.addProperty("startedAt", startedAt.toString());
+
+        JsonObject config = new JsonObject();
+        config.addProperty("arrival", arrival.name());
+        config.addProperty("ratePerSecond", rate);
+        config.addProperty("durationSeconds", duration.toMillis() / 1000.0);
+        config.addProperty("streamRatio", streamRatio);
+        config.addProperty("texts", texts.size());
+        for (Map.Entry<String, Object> label : labels.entrySet()) {
+            config.addProperty(label.getKey(), String.valueOf(label.getValue()));
+        }
+        root.add("config", config);
+
+        long failed = 0;
+        JsonObject errorCounts = new JsonObject();
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(errors).entrySet()) {
+            errorCounts.addProperty(entry.getKey(), entry.getValue().sum());
+            failed += entry.getValue().sum();
+        }
+        JsonObject requests = new JsonObject();
+        requests.addProperty("sent", sent);
+        requests.addProperty("succeeded", succeeded.get());
+        requests.addProperty("failed", failed);
+        requests.addProperty("errorRate", sent == 0 ? 0 : (double) failed / sent);
+        requests.addProperty("maxDispatchLagMillis", maxDispatchLag / NANOS_PER_MILLI);
+        root.add("requests", requests);
+        root.addProperty("throughputPerSecond", succeeded.get() * 1_000_000_000.0 / elapsedNanos);
+        root.add("errors", errorCounts);
+
+        JsonObject latency = new JsonObject();
+        JsonObject sync = new JsonObject();
+        sync.add("total", summarize(syncTotal));
+        sync.add("service", summarize(syncService));
+        latency.add("sync", sync);
+        JsonObject stream = new JsonObject();
+        stream.add("ttfb", summarize(streamTtfb));
+        stream.add("total", summarize(streamTotal));
+        stream.add("service", summarize(streamService));
+        latency.add("stream", stream);
+        root.add("latencyMillis", latency);
+
+        JsonObject resources = new JsonObject();
+        long cpuNanos = after.cpuNanos - before.cpuNanos;
+        long allocated = after.allocatedBytes - before.allocatedBytes;
+        resources.addProperty("availableProcessors", Runtime.getRuntime().availableProcessors());
+        resources.addProperty("cpuSeconds", before.cpuNanos < 0 ? -1 : cpuNanos / 1e9);
+        resources.addProperty("cpuUtilization", before.cpuNanos < 0 ? -1
+                : (double) cpuNanos / elapsedNanos / Runtime.getRuntime().availableProcessors());
+        resources.addProperty("allocatedBytes", before.allocatedBytes < 0 ? -1 : allocated);
+        resources.addProperty("allocatedBytesPerRequest", before.allocatedBytes < 0 || sent == 0 ? -1
+                : allocated / sent);
+        resources.addProperty("gcCount", after.gcCount - before.gcCount);
+        resources.addProperty("gcTimeMillis", after.gcMillis - before.gcMillis);
+        root.add("client", resources);
+        return root;
+    }
+
+    static JsonObject summarize(LatencyHistogram histogram) {
+        JsonObject summary = new JsonObject();
+        summary.addProperty("count", histogram.getCount());
+        summary.addProperty("mean", histogram.getMean() / NANOS_PER_MILLI);
+        summary.addProperty("p50", histogram.getValueAtPercentile(50) / NANOS_PER_MILLI);
+        summary.addProperty("p90", histogram.getValueAtPercentile(90) / NANOS_PER_MILLI);
+        summary.addProperty("p99", histogram.getValueAtPercentile(99) / NANOS_PER_MILLI);
+        summary.addProperty("p999", histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI);
+        summary.addProperty("max", histogram.getMax() / NANOS_PER_MILLI);
+        return summary;
+    }
+
+    /**
+     * Process CPU time, heap allocation and GC counters at one point in time.
+     * Values are -1 when the JVM does not expose them.
+     */
+    private static final class ResourceSnapshot {
+        final long cpuNanos;
+        final long allocatedBytes;
+        final long gcCount;
+        final long gcMillis;
+
+        private ResourceSnapshot(long cpuNanos, long allocatedBytes, long gcCount, long gcMillis) {
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        static ResourceSnapshot take() {
+            long cpu = -1;
+            OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            if (os instanceof com.sun.management.OperatingSystemMXBean) {
+                cpu = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+            }
+
+            // Sums live threads, so allocation by threads that exit mid-run is not counted
+            long allocated = -1;
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+                if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                    allocated = 0;
+                    for (long bytes : sunThreads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+                        if (bytes > 0) {
+                            allocated += bytes;
+                        }
+                    }
+                }
+            }
+
+            long gcCount = 0;
+            long gcMillis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                gcCount += Math.max(0, gc.getCollectionCount());
+                gcMillis += Math.max(0, gc.getCollectionTime());
+            }
+            return new ResourceSnapshot(cpu, allocated, gcCount, gcMillis);
+        }
+    }
+
+    /**
+     * Builder for LoadGenerator.
+     */
+    public static class Builder {
+        private final FlowTTS client;
+        private double rate = 10;
+        private Arrival arrival = Arrival.POISSON;
+        private Duration duration = Duration.ofSeconds(30);
+        private Duration drainTimeout = Duration.ofSeconds(60);
+        private double streamRatio = 0.5;
+        private SynthesizeOptions options = SynthesizeOptions.builder().text("load test").build();
+        private List<String> texts = Collections.singletonList(
+                "Flow TTS load test: the quick brown fox jumps over the lazy dog.");
+        private int maxOutstanding = 10_000;
+        private long seed = 42;
+        private final Map<String, Object> labels = new TreeMap<>();
+
+        private Builder(FlowTTS client) {
+            this.client = client;
+        }
+
+        /**
+         * Set the mean request rate (default: 10 per second).
+         *
+         * @param requestsPerSecond the arrival rate
+         * @return this builder
+         */
+        public Builder rate(double requestsPerSecond) {
+            this.rate = requestsPerSecond;
+            return this;
+        }
+
+        /**
+         * Set the arrival process (default: POISSON).
+         *
+         * @param arrival the arrival process
+         * @return this builder
+         */
+        public Builder arrival(Arrival arrival) {
+            this.arrival = arrival;
+            return this;
+        }
+
+        /**
+         * Set how long requests are generated for (default: 30 seconds).
+         *
+         * @param duration the duration
+         * @return this builder
+         */
+        public Builder duration(Duration duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * Set how long to wait for in-flight requests after the last one starts (default: 60 seconds).
+         *
+         * @param drainTimeout the timeout
+         * @return this builder
+         */
+        public Builder drainTimeout(Duration drainTimeout) {
+            this.drainTimeout = drainTimeout;
+            return this;
+        }
+
+        /**
+         * Set the fraction of requests that use streaming synthesis (default: 0.5).
+         *
+         * @param streamRatio the fraction, from 0 to 1
+         * @return this builder
+         */
+        public Builder streamRatio(double streamRatio) {
+            this.streamRatio = streamRatio;
+            return this;
+        }
+
+        /**
+         * Set the options of every request; the text is replaced by one of {@link #texts(List)}.
+         *
+         * @param options the request options
+         * @return this builder
+         */
+        public Builder options(SynthesizeOptions options) {
+            this.options = options;
+            return this;
+        }
+
+        /**
+         * Set the texts to synthesize, used in turn.
+         *
+         * @param texts the texts
+         * @return this builder
+         */
+        public Builder texts(List<String> texts) {
+            this.texts = texts;
+            return this;
+        }
+
+        /**
+         * Set the number of in-flight requests beyond which new arrivals are counted as
+         * {@code Overloaded} failures instead of being sent (default: 10000).
+         *
+         * @param maxOutstanding the limit
+         * @return this builder
+         */
+        public Builder maxOutstanding(int maxOutstanding) {
+            this.maxOutstanding = maxOutstanding;
+            return this;
+        }
+
+        /**
+         * Set the seed of the arrival schedule and request mix (default: 42).
+         *
+         * @param seed the random seed
+         * @return this builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Add a label to the {@code config} section of the report, such as the endpoint.
+         *
+         * @param name  the label name
+         * @param value the label value
+         * @return this builder
+         */
+        public Builder label(String name, Object value) {
+            this.labels.put(name, value);
+            return this;
+        }
+
+        /**
+         * Build the LoadGenerator instance.
+         *
+         * @return a new LoadGenerator
+         * @throws IllegalArgumentException if a setting is invalid
+         */
+        public LoadGenerator build() {
+            if (client == null) {
+                throw new IllegalArgumentException("client is required");
+            }
+            if (!(rate > 0)) {
+                throw new IllegalArgumentException("rate must be positive");
+            }
+            if (arrival == null || duration == null || drainTimeout == null || options == null) {
+                throw new IllegalArgumentException("arrival, duration, drainTimeout and options are required");
+            }
+            if (streamRatio < 0 || streamRatio > 1) {
+                throw new IllegalArgumentException("streamRatio must be between 0 and 1");
+            }
+            if (texts == null || texts.isEmpty()) {
+                throw new IllegalArgumentException("texts must not be empty");
+            }
+            if (maxOutstanding <= 0 || maxOutstanding > 65_000) {
+                throw new IllegalArgumentException("maxOutstanding must be between 1 and 65000");
+            }
+            return new LoadGenerator(this);
+        }
+    }
+}
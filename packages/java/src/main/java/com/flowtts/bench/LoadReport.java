@@ -0,0 +1,115 @@
+package com.flowtts.bench;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Machine-readable result of a {@link LoadGenerator} run.
+ *
+ * <p>The report is a JSON document with a stable layout, so reports from two SDK
+ * versions can be diffed directly:</p>
+ * <pre>{@code
+ * {
+ *   "sdkVersion": "0.1.0",
+ *   "config": {...},
+ *   "requests": {"sent": 6000, "succeeded": 5991, "failed": 9, "errorRate": 0.0015},
+ *   "throughputPerSecond": 99.8,
+ *   "errors": {"RequestLimitExceeded": 9},
+ *   "latencyMillis": {
+ *     "sync": {"total": {...}, "service": {...}},
+ *     "stream": {"ttfb": {...}, "total": {...}, "service": {...}}
+ *   },
+ *   "client": {"cpuSeconds": 4.2, "allocatedBytesPerRequest": 183220, ...}
+ * }
+ * }</pre>
+ *
+ * <p>{@code total} and {@code ttfb} latencies are measured from the time each request
+ * was scheduled to start, which corrects for coordinated omission; {@code service}
+ * latencies are measured from when it actually started.</p>
+ */
+public class LoadReport {
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    private final JsonObject json;
+
+    LoadReport(JsonObject json) {
+        this.json = json;
+    }
+
+    /**
+     * Get the number of requests sent.
+     *
+     * @return the request count
+     */
+    public long getSent() {
+        return json.getAsJsonObject("requests").get("sent").getAsLong();
+    }
+
+    /**
+     * Get the number of failed requests.
+     *
+     * @return the failure count
+     */
+    public long getFailed() {
+        return json.getAsJsonObject("requests").get("failed").getAsLong();
+    }
+
+    /**
+     * Get the number of failures for an error code.
+     *
+     * @param code the error code, or exception class name for errors without a code
+     * @return the failure count
+     */
+    public long getErrors(String code) {
+        JsonObject errors = json.getAsJsonObject("errors");
+        return errors.has(code) ? errors.get(code).getAsLong() : 0;
+    }
+
+    /**
+     * Get the completed requests per second.
+     *
+     * @return the throughput
+     */
+    public double getThroughput() {
+        return json.get("throughputPerSecond").getAsDouble();
+    }
+
+    /**
+     * Get the report as a JSON object.
+     *
+     * @return a copy of the report
+     */
+    public JsonObject toJsonObject() {
+        return json.deepCopy();
+    }
+
+    /**
+     * Get the report as pretty-printed JSON.
+     *
+     * @return the JSON text
+     */
+    public String toJson() {
+        return gson.toJson(json);
+    }
+
+    /**
+     * Write the report as pretty-printed JSON.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        Files.write(path, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,151 @@
+package com.flowtts.bench;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.emulator.TtsEmulator;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Command line entry point for {@link LoadGenerator}.
+ *
+ * <p>Against a local emulator started in-process:</p>
+ * <pre>
+ * java -cp flow-tts.jar:flow-tts-tools.jar:... com.flowtts.bench.LoadTest --emulator --rate 200 --duration-s 60 \
+ *     --stream-ratio 0.8 --out report.json
+ * </pre>
+ *
+ * <p>Against another endpoint, with credentials from {@code TX_SECRET_ID},
+ * {@code TX_SECRET_KEY} and {@code TRTC_SDK_APP_ID}:</p>
+ * <pre>
+ * java -cp flow-tts.jar:flow-tts-tools.jar:... com.flowtts.bench.LoadTest --endpoint localhost:8080 --scheme http \
+ *     --rate 50 --arrival fixed
+ * </pre>
+ *
+ * <p>Other options: {@code --text} (repeatable), {@code --max-concurrency},
+ * {@code --emulator-ttfb-ms} and {@code --emulator-chunk-interval-ms}. The report is
+ * printed to standard output unless {@code --out} is given.</p>
+ */
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        String endpoint = null;
+        String scheme = "https";
+        boolean emulated = false;
+        long emulatorTtfbMs = 150;
+        long emulatorChunkIntervalMs = 40;
+        int maxConcurrency = 0;
+        String out = null;
+        List<String> texts = new ArrayList<>();
+        double rate = 10;
+        LoadGenerator.Arrival arrival = LoadGenerator.Arrival.POISSON;
+        long durationSeconds = 30;
+        double streamRatio = 0.5;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--emulator":
+                    emulated = true;
+                    break;
+                case "--endpoint":
+                    endpoint = args[++i];
+                    break;
+                case "--scheme":
+                    scheme = args[++i];
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "--arrival":
+                    arrival = LoadGenerator.Arrival.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    break;
+                case "--duration-s":
+                    durationSeconds = Long.parseLong(args[++i]);
+                    break;
+                case "--stream-ratio":
+                    streamRatio = Double.parseDouble(args[++i]);
+                    break;
+                case "--text":
+                    texts.add(args[++i]);
+                    break;
+                case "--max-concurrency":
+                    maxConcurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--emulator-ttfb-ms":
+                    emulatorTtfbMs = Long.parseLong(args[++i]);
+                    break;
+                case "--emulator-chunk-interval-ms":
+                    emulatorChunkIntervalMs = Long.parseLong(args[++i]);
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        String secretId = envOrDefault("TX_SECRET_ID", "emulator-id");
+        String secretKey = envOrDefault("TX_SECRET_KEY", "emulator-key");
+        long sdkAppId = Long.parseLong(envOrDefault("TRTC_SDK_APP_ID", "1"));
+
+        TtsEmulator emulator = null;
+        if (emulated) {
+            emulator = TtsEmulator.builder()
+                    .credentials(secretId, secretKey)
+                    .timeToFirstByte(Duration.ofMillis(emulatorTtfbMs))
+                    .chunkInterval(Duration.ofMillis(emulatorChunkIntervalMs))
+                    .build()
+                    .start();
+            endpoint = emulator.getEndpoint();
+            scheme = "http";
+        }
+
+        FlowTTSConfig.Builder config = FlowTTSConfig.builder()
+                .secretId(secretId)
+                .secretKey(secretKey)
+                .sdkAppId(sdkAppId)
+                .scheme(scheme)
+                .maxConcurrentRequests(maxConcurrency);
+        if (endpoint != null) {
+            config.endpoint(endpoint);
+        }
+        FlowTTSConfig built = config.build();
+        FlowTTS client = new FlowTTS(built);
+
+        try {
+            LoadGenerator.Builder load = LoadGenerator.builder(client)
+                    .rate(rate)
+                    .arrival(arrival)
+                    .duration(Duration.ofSeconds(durationSeconds))
+                    .streamRatio(streamRatio)
+                    .label("endpoint", built.getScheme() + "://" + built.getEndpoint())
+                    .label("emulator", emulated)
+                    .label("maxConcurrentRequests", maxConcurrency);
+            if (!texts.isEmpty()) {
+                load.texts(texts);
+            }
+            LoadReport report = load.build().run();
+            if (out != null) {
+                report.write(Paths.get(out));
+                System.err.println("Report written to " + out);
+            } else {
+                System.out.println(report.toJson());
+            }
+        } finally {
+            client.close();
+            if (emulator != null) {
+                emulator.close();
+            }
+        }
+    }
+
+    private static String envOrDefault(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null ? value : fallback;
+    }
+}
@@ -0,0 +1,134 @@
+package com.flowtts.bench;
+
+import com.flowtts.emulator.TtsEmulator;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from launching a JVM to the first synthesized audio byte, with and
+ * without the application class-data-sharing archive built by the {@code appcds} profile.
+ *
+ * <pre>
+ * mvn -P appcds package -DskipTests
+ * java -cp "$(cat target/appcds-tools.classpath)" com.flowtts.bench.StartupBenchmark \
+ *     --archive target/flow-tts.jsa --classpath "$(cat target/appcds-tools.classpath)" --runs 10
+ * </pre>
+ *
+ * <p>Each run launches {@link StartupWorkload} in a new JVM against a {@link TtsEmulator}
+ * in this process, and times from starting the process to the workload's first-byte
+ * line. Runs with and without the archive alternate, so both see the same machine load.
+ * The archive only applies to the class path it was created with, optionally extended
+ * at the end, so pass the class path file written by the profile that appends the tools
+ * jar; runs with the archive use {@code -Xshare:on} and fail rather than silently run
+ * without it. Run it on the JDK that built the archive, 17 or later.</p>
+ */
+public class StartupBenchmark {
+    public static void main(String[] args) throws Exception {
+        int runs = 10;
+        String archive = "target/flow-tts.jsa";
+        String classpath = System.getProperty("java.class.path");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--runs":
+                    runs = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--archive":
+                    archive = args[i + 1];
+                    break;
+                case "--classpath":
+                    classpath = args[i + 1];
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        Path archivePath = Paths.get(archive);
+        if (!Files.isRegularFile(archivePath)) {
+            System.err.println("Archive not found: " + archive + " (build it with mvn -P appcds package)");
+            System.exit(2);
+        }
+
+        try (TtsEmulator emulator = TtsEmulator.builder().build().start()) {
+            LatencyHistogram withoutArchive = new LatencyHistogram();
+            LatencyHistogram withArchive = new LatencyHistogram();
+            // One untimed launch each warms the file cache
+            launch(classpath, null, emulator.getEndpoint());
+            launch(classpath, archivePath, emulator.getEndpoint());
+            for (int i = 0; i < runs; i++) {
+                withoutArchive.record(launch(classpath, null, emulator.getEndpoint()));
+                withArchive.record(launch(classpath, archivePath, emulator.getEndpoint()));
+            }
+
+            JsonObject result = new JsonObject();
+            result.addProperty("runs", runs);
+            result.addProperty("javaVersion", System.getProperty("java.version"));
+            result.add("withoutArchiveMillis", percentiles(withoutArchive));
+            result.add("withArchiveMillis", percentiles(withArchive));
+            result.addProperty("medianSpeedup", (double) withoutArchive.getValueAtPercentile(50)
+                    / withArchive.getValueAtPercentile(50));
+            System.out.println(new GsonBuilder().setPrettyPrinting().create().toJson(result));
+        }
+    }
+
+    /**
+     * Launch the workload and return the nanoseconds until it printed its first-byte line.
+     */
+    private static long launch(String classpath, Path archive, String endpoint)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (archive != null) {
+            command.add("-Xshare:on");
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        command.add("-cp");
+        command.add(classpath);
+        command.add(StartupWorkload.class.getName());
+        command.add("--endpoint");
+        command.add(endpoint);
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        long firstByte = -1;
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (firstByte < 0 && line.equals(StartupWorkload.FIRST_BYTE)) {
+                    firstByte = System.nanoTime() - start;
+                }
+            }
+        }
+        if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0 || firstByte < 0) {
+            process.destroyForcibly();
+            throw new IOException("Workload failed: " + String.join(" ", command));
+        }
+        return firstByte;
+    }
+
+    private static JsonObject percentiles(LatencyHistogram histogram) {
+        JsonObject json = new JsonObject();
+        json.addProperty("p50", millis(histogram.getValueAtPercentile(50)));
+        json.addProperty("p90", millis(histogram.getValueAtPercentile(90)));
+        json.addProperty("max", millis(histogram.getMax()));
+        return json;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
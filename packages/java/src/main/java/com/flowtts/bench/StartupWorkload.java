@@ -0,0 +1,92 @@
+package com.flowtts.bench;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.StreamHandle;
+import com.flowtts.StreamListener;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.model.StreamChunk;
+import com.flowtts.model.SynthesizeOptions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The work of a freshly started TTS worker: create a client, resolve a voice, sign and
+ * stream one request, then synthesize one synchronously.
+ *
+ * <pre>
+ * java -cp flow-tts.jar:flow-tts-tools.jar:... com.flowtts.bench.StartupWorkload [--endpoint 127.0.0.1:8080]
+ * </pre>
+ *
+ * <p>This is the training run of the {@code appcds} build profile, which archives the
+ * classes it loads, and the process launched by {@link StartupBenchmark}. It prints
+ * {@value #FIRST_BYTE} when the first audio byte arrives. Without {@code --endpoint} it
+ * talks to a {@link TtsEmulator} in the same process.</p>
+ */
+public class StartupWorkload {
+    /** The line printed when the first audio byte arrives. */
+    public static final String FIRST_BYTE = "first-byte";
+
+    public static void main(String[] args) throws Exception {
+        String endpoint = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--endpoint":
+                    endpoint = args[i + 1];
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        TtsEmulator emulator = null;
+        if (endpoint == null) {
+            emulator = TtsEmulator.builder().build().start();
+            endpoint = emulator.getEndpoint();
+        }
+        FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                .secretId("startup")
+                .secretKey("startup")
+                .sdkAppId(1)
+                .endpoint(endpoint)
+                .scheme("http")
+                .build());
+        try {
+            SynthesizeOptions options = SynthesizeOptions.builder()
+                    .text("Hello from a cold start.")
+                    .voice("alloy")
+                    .codec("pcm")
+                    .build();
+            AtomicBoolean first = new AtomicBoolean();
+            StreamHandle handle = client.synthesizeStream(options, new StreamListener() {
+                @Override
+                public void onChunk(StreamChunk chunk) {
+                    if (chunk.hasAudio() && first.compareAndSet(false, true)) {
+                        System.out.println(FIRST_BYTE);
+                        System.out.flush();
+                    }
+                }
+
+                @Override
+                public void onComplete() {
+                }
+
+                @Override
+                public void onError(Exception error) {
+                    System.err.println("Stream failed: " + error.getMessage());
+                }
+            });
+            if (!handle.await(30, TimeUnit.SECONDS) || !first.get()) {
+                System.exit(1);
+            }
+            client.synthesize(options.toBuilder().codec("wav").build());
+        } finally {
+            client.close();
+            if (emulator != null) {
+                emulator.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.flowtts.bench;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.trace.TraceReader;
+import com.flowtts.trace.TraceRecord;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Command line entry point for {@link TraceReplayer}.
+ *
+ * <p>Against a local emulator started in-process, twice as fast as recorded:</p>
+ * <pre>
+ * java -cp flow-tts.jar:flow-tts-tools.jar:... com.flowtts.bench.TraceReplay --log traffic.fttr --emulator --speed 2
+ * </pre>
+ *
+ * <p>Against another endpoint, with credentials from {@code TX_SECRET_ID},
+ * {@code TX_SECRET_KEY} and {@code TRTC_SDK_APP_ID}:</p>
+ * <pre>
+ * java -cp flow-tts.jar:flow-tts-tools.jar:... com.flowtts.bench.TraceReplay --log traffic.fttr \
+ *     --endpoint localhost:8080 --scheme http
+ * </pre>
+ *
+ * <p>Other options: {@code --max-concurrency} and {@code --emulator-ttfb-ms}. The report
+ * is printed to standard output unless {@code --out} is given.</p>
+ */
+public class TraceReplay {
+    public static void main(String[] args) throws Exception {
+        String log = null;
+        String endpoint = null;
+        String scheme = "https";
+        boolean emulated = false;
+        long emulatorTtfbMs = 150;
+        int maxConcurrency = 0;
+        double speed = 1.0;
+        String out = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--log":
+                    log = args[++i];
+                    break;
+                case "--emulator":
+                    emulated = true;
+                    break;
+                case "--endpoint":
+                    endpoint = args[++i];
+                    break;
+                case "--scheme":
+                    scheme = args[++i];
+                    break;
+                case "--speed":
+                    speed = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-concurrency":
+                    maxConcurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--emulator-ttfb-ms":
+                    emulatorTtfbMs = Long.parseLong(args[++i]);
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (log == null) {
+            System.err.println("--log is required");
+            System.exit(2);
+        }
+        List<TraceRecord> records = TraceReader.readAll(Paths.get(log));
+
+        String secretId = envOrDefault("TX_SECRET_ID", "emulator-id");
+        String secretKey = envOrDefault("TX_SECRET_KEY", "emulator-key");
+        long sdkAppId = Long.parseLong(envOrDefault("TRTC_SDK_APP_ID", "1"));
+
+        TtsEmulator emulator = null;
+        if (emulated) {
+            emulator = TtsEmulator.builder()
+                    .credentials(secretId, secretKey)
+                    .timeToFirstByte(Duration.ofMillis(emulatorTtfbMs))
+                    .build()
+                    .start();
+            endpoint = emulator.getEndpoint();
+            scheme = "http";
+        }
+
+        FlowTTSConfig.Builder config = FlowTTSConfig.builder()
+                .secretId(secretId)
+                .secretKey(secretKey)
+                .sdkAppId(sdkAppId)
+                .scheme(scheme)
+                .maxConcurrentRequests(maxConcurrency);
+        if (endpoint != null) {
+            config.endpoint(endpoint);
+        }
+        FlowTTSConfig built = config.build();
+        FlowTTS client = new FlowTTS(built);
+
+        try {
+            LoadReport report = TraceReplayer.builder(client)
+                    .records(records)
+                    .speed(speed)
+                    .label("log", log)
+                    .label("endpoint", built.getScheme() + "://" + built.getEndpoint())
+                    .label("emulator", emulated)
+                    .label("maxConcurrentRequests", maxConcurrency)
+                    .build()
+                    .run();
+            if (out != null) {
+                report.write(Paths.get(out));
+                System.err.println("Report written to " + out);
+            } else {
+                System.out.println(report.toJson());
+            }
+        } finally {
+            client.close();
+            if (emulator != null) {
+                emulator.close();
+            }
+        }
+    }
+
+    private static String envOrDefault(String name, String fallback) {
+        String value = System.getenv(name);
+        return value != null ? value : fallback;
+    }
+}
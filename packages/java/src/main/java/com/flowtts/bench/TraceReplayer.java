@@ -0,0 +1,432 @@
+package com.flowtts.bench;
+
+import com.flowtts.AudioStream;
+import com.flowtts.FlowTTS;
+import com.flowtts.StreamListener;
+import com.flowtts.core.Threads;
+import com.flowtts.model.StreamChunk;
+import com.flowtts.model.SynthesizeOptions;
+import com.flowtts.trace.TraceRecord;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Re-issues requests recorded by a {@link com.flowtts.trace.TraceRecorder} through a
+ * {@link FlowTTS} client, at their original pacing or sped up.
+ *
+ * <p>Each record is started at its offset in the recording divided by the speed, with
+ * the same options, the same API (synchronous, streaming, shared or
+ * {@link AudioStream}) and placeholder text of the same length and language. As with
+ * {@link LoadGenerator}, requests start on schedule however many are in flight and
+ * latencies are measured from the scheduled start. The report has the layout of a
+ * {@link LoadReport} with a {@code recorded} section holding the same latencies and
+ * errors as seen by the recorded client, for comparison.</p>
+ *
+ * <pre>{@code
+ * LoadReport report = TraceReplayer.builder(client)
+ *     .records(TraceReader.readAll(Paths.get("traffic.fttr")))
+ *     .speed(2.0)
+ *     .build()
+ *     .run();
+ * }</pre>
+ */
+public class TraceReplayer {
+    private final FlowTTS client;
+    private final List<TraceRecord> records;
+    private final double speed;
+    private final Duration drainTimeout;
+    private final int maxOutstanding;
+    private final Map<String, Object> labels;
+
+    private final LatencyHistogram syncTotal = new LatencyHistogram();
+    private final LatencyHistogram syncService = new LatencyHistogram();
+    private final LatencyHistogram streamTtfb = new LatencyHistogram();
+    private final LatencyHistogram streamTotal = new LatencyHistogram();
+    private final LatencyHistogram streamService = new LatencyHistogram();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private TraceReplayer(Builder builder) {
+        this.client = builder.client;
+        // The log is in completion order; replay in start order
+        this.records = new ArrayList<>(builder.records);
+        this.records.sort(Comparator.comparingLong(TraceRecord::getStartNanos));
+        this.speed = builder.speed;
+        this.drainTimeout = builder.drainTimeout;
+        this.maxOutstanding = builder.maxOutstanding;
+        this.labels = new TreeMap<>(builder.labels);
+    }
+
+    /**
+     * Create a new builder.
+     *
+     * @param client the client to replay through
+     * @return a new Builder instance
+     */
+    public static Builder builder(FlowTTS client) {
+        return new Builder(client);
+    }
+
+    /**
+     * Replay the records and wait for in-flight requests to finish.
+     * A replayer runs once.
+     *
+     * @return the report
+     * @throws InterruptedException if interrupted while running
+     */
+    public LoadReport run() throws InterruptedException {
+        // Sync calls and audio stream readers block, which virtual threads absorb cheaply
+        ExecutorService blocking = Threads.newExecutor("flow-tts-replay", true);
+        Phaser inFlight = new Phaser(1);
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        long sent = 0;
+        long maxDispatchLag = 0;
+
+        try {
+            long origin = records.isEmpty() ? 0 : records.get(0).getStartNanos();
+            for (TraceRecord record : records) {
+                long intended = start + (long) ((record.getStartNanos() - origin) / speed);
+                maxDispatchLag = Math.max(maxDispatchLag, LoadGenerator.waitUntil(intended));
+                sent++;
+                if (outstanding.get() >= maxOutstanding) {
+                    error("Overloaded");
+                    continue;
+                }
+                inFlight.register();
+                outstanding.incrementAndGet();
+                SynthesizeOptions request = record.toOptions();
+                switch (record.getKind()) {
+                    case SYNC:
+                        startSync(request, intended, inFlight, blocking);
+                        break;
+                    case AUDIO_STREAM:
+                        startAudioStream(request, intended, inFlight, blocking);
+                        break;
+                    default:
+                        startStream(request, record.getKind() == TraceRecord.Kind.SHARED_STREAM, intended, inFlight);
+                }
+            }
+            try {
+                inFlight.awaitAdvanceInterruptibly(inFlight.arrive(), drainTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                errors.computeIfAbsent("DrainTimeout", k -> new LongAdder()).add(outstanding.get());
+            }
+            long elapsed = System.nanoTime() - start;
+            return new LoadReport(report(startedAt, sent, elapsed, maxDispatchLag));
+        } finally {
+            blocking.shutdownNow();
+        }
+    }
+
+    private void startSync(SynthesizeOptions request, long intended, Phaser inFlight, ExecutorService executor) {
+        executor.execute(() -> {
+            long started = System.nanoTime();
+            try {
+                client.synthesize(request);
+                long now = System.nanoTime();
+                syncTotal.record(now - intended);
+                syncService.record(now - started);
+                succeeded.incrementAndGet();
+            } catch (RuntimeException e) {
+                error(LoadGenerator.codeOf(e));
+            } finally {
+                done(inFlight);
+            }
+        });
+    }
+
+    private void startAudioStream(SynthesizeOptions request, long intended, Phaser inFlight,
+                                  ExecutorService executor) {
+        executor.execute(() -> {
+            long started = System.nanoTime();
+            byte[] buffer = new byte[16 * 1024];
+            boolean first = true;
+            try (AudioStream audio = client.openAudioStream(request)) {
+                while (audio.read(buffer) >= 0) {
+                    if (first) {
+                        streamTtfb.record(System.nanoTime() - intended);
+                        first = false;
+                    }
+                }
+                long now = System.nanoTime();
+                streamTotal.record(now - intended);
+                streamService.record(now - started);
+                succeeded.incrementAndGet();
+            } catch (IOException e) {
+                error(e.getCause() instanceof Exception ? LoadGenerator.codeOf((Exception) e.getCause())
+                        : LoadGenerator.codeOf(e));
+            } catch (RuntimeException e) {
+                error(LoadGenerator.codeOf(e));
+            } finally {
+                done(inFlight);
+            }
+        });
+    }
+
+    private void startStream(SynthesizeOptions request, boolean shared, long intended, Phaser inFlight) {
+        long started = System.nanoTime();
+        AtomicBoolean firstChunk = new AtomicBoolean();
+        AtomicBoolean finished = new AtomicBoolean();
+        StreamListener listener = new StreamListener() {
+            @Override
+            public void onChunk(StreamChunk chunk) {
+                if (firstChunk.compareAndSet(false, true)) {
+                    streamTtfb.record(System.nanoTime() - intended);
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                if (finished.compareAndSet(false, true)) {
+                    long now = System.nanoTime();
+                    streamTotal.record(now - intended);
+                    streamService.record(now - started);
+                    succeeded.incrementAndGet();
+                    done(inFlight);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (finished.compareAndSet(false, true)) {
+                    error(LoadGenerator.codeOf(e));
+                    done(inFlight);
+                }
+            }
+        };
+        try {
+            if (shared) {
+                client.synthesizeStreamShared(request, listener);
+            } else {
+                client.synthesizeStream(request, listener);
+            }
+        } catch (RuntimeException e) {
+            listener.onError(e);
+        }
+    }
+
+    private void done(Phaser inFlight) {
+        outstanding.decrementAndGet();
+        inFlight.arriveAndDeregister();
+    }
+
+    private void error(String code) {
+        errors.computeIfAbsent(code, k -> new LongAdder()).increment();
+    }
+
+    private JsonObject report(Instant startedAt, long sent, long elapsedNanos, long maxDispatchLag) {
+        JsonObject root = new JsonObject();
+        String version = FlowTTS.class.getPackage().getImplementationVersion();
+        root.addProperty("sdkVersion", version != null ? version : "dev");
+        root.addProperty("javaVersion", System.getProperty("java.version"));
+        root.addProperty("startedAt", startedAt.toString());
+
+        JsonObject config = new JsonObject();
+        config.addProperty("records", records.size());
+        config.addProperty("speed", speed);
+        Map<TraceRecord.Kind, Integer> kinds = new EnumMap<>(TraceRecord.Kind.class);
+        for (TraceRecord record : records) {
+            kinds.merge(record.getKind(), 1, Integer::sum);
+        }
+        for (Map.Entry<TraceRecord.Kind, Integer> kind : kinds.entrySet()) {
+            config.addProperty("kind." + kind.getKey().name(), kind.getValue());
+        }
+        for (Map.Entry<String, Object> label : labels.entrySet()) {
+            config.addProperty(label.getKey(), String.valueOf(label.getValue()));
+        }
+        root.add("config", config);
+
+        long failed = 0;
+        JsonObject errorCounts = new JsonObject();
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(errors).entrySet()) {
+            errorCounts.addProperty(entry.getKey(), entry.getValue().sum());
+            failed += entry.getValue().sum();
+        }
+        JsonObject requests = new JsonObject();
+        requests.addProperty("sent", sent);
+        requests.addProperty("succeeded", succeeded.get());
+        requests.addProperty("failed", failed);
+        requests.addProperty("errorRate", sent == 0 ? 0 : (double) failed / sent);
+        requests.addProperty("maxDispatchLagMillis", maxDispatchLag / 1_000_000.0);
+        root.add("requests", requests);
+        root.addProperty("throughputPerSecond", succeeded.get() * 1_000_000_000.0 / elapsedNanos);
+        root.add("errors", errorCounts);
+
+        JsonObject latency = new JsonObject();
+        JsonObject sync = new JsonObject();
+        sync.add("total", LoadGenerator.summarize(syncTotal));
+        sync.add("service", LoadGenerator.summarize(syncService));
+        latency.add("sync", sync);
+        JsonObject stream = new JsonObject();
+        stream.add("ttfb", LoadGenerator.summarize(streamTtfb));
+        stream.add("total", LoadGenerator.summarize(streamTotal));
+        stream.add("service", LoadGenerator.summarize(streamService));
+        latency.add("stream", stream);
+        root.add("latencyMillis", latency);
+        root.add("recorded", recorded());
+        return root;
+    }
+
+    // The same figures as measured by the recorded client, which timed each call from its start
+    private JsonObject recorded() {
+        LatencyHistogram sync = new LatencyHistogram();
+        LatencyHistogram ttfb = new LatencyHistogram();
+        LatencyHistogram total = new LatencyHistogram();
+        Map<String, Long> failures = new TreeMap<>();
+        long failed = 0;
+        for (TraceRecord record : records) {
+            if (record.getErrorCode() != null) {
+                failures.merge(record.getErrorCode(), 1L, Long::sum);
+                failed++;
+            } else if (record.getKind() == TraceRecord.Kind.SYNC) {
+                sync.record(record.getDurationNanos());
+            } else {
+                if (record.getFirstByteNanos() > 0) {
+                    ttfb.record(record.getFirstByteNanos());
+                }
+                total.record(record.getDurationNanos());
+            }
+        }
+        JsonObject recorded = new JsonObject();
+        JsonObject requests = new JsonObject();
+        requests.addProperty("sent", records.size());
+        requests.addProperty("succeeded", records.size() - failed);
+        requests.addProperty("failed", failed);
+        requests.addProperty("errorRate", records.isEmpty() ? 0 : (double) failed / records.size());
+        recorded.add("requests", requests);
+        JsonObject errorCounts = new JsonObject();
+        for (Map.Entry<String, Long> entry : failures.entrySet()) {
+            errorCounts.addProperty(entry.getKey(), entry.getValue());
+        }
+        recorded.add("errors", errorCounts);
+        JsonObject latency = new JsonObject();
+        JsonObject syncLatency = new JsonObject();
+        syncLatency.add("total", LoadGenerator.summarize(sync));
+        latency.add("sync", syncLatency);
+        JsonObject streamLatency = new JsonObject();
+        streamLatency.add("ttfb", LoadGenerator.summarize(ttfb));
+        streamLatency.add("total", LoadGenerator.summarize(total));
+        latency.add("stream", streamLatency);
+        recorded.add("latencyMillis", latency);
+        return recorded;
+    }
+
+    /**
+     * Builder for TraceReplayer.
+     */
+    public static class Builder {
+        private final FlowTTS client;
+        private List<TraceRecord> records;
+        private double speed = 1.0;
+        private Duration drainTimeout = Duration.ofSeconds(60);
+        private int maxOutstanding = 10_000;
+        private final Map<String, Object> labels = new TreeMap<>();
+
+        private Builder(FlowTTS client) {
+            this.client = client;
+        }
+
+        /**
+         * Set the records to replay, as read by {@link com.flowtts.trace.TraceReader}.
+         *
+         * @param records the records
+         * @return this builder
+         */
+        public Builder records(List<TraceRecord> records) {
+            this.records = records;
+            return this;
+        }
+
+        /**
+         * Set how much faster than recorded the requests are started (default: 1.0, the
+         * original pacing). 2.0 starts them twice as fast; 0.5 at half the rate.
+         *
+         * @param speed the pacing factor
+         * @return this builder
+         */
+        public Builder speed(double speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        /**
+         * Set how long to wait for in-flight requests after the last one starts (default: 60 seconds).
+         *
+         * @param drainTimeout the timeout
+         * @return this builder
+         */
+        public Builder drainTimeout(Duration drainTimeout) {
+            this.drainTimeout = drainTimeout;
+            return this;
+        }
+
+        /**
+         * Set the number of in-flight requests beyond which records are counted as
+         * {@code Overloaded} failures instead of being sent (default: 10000).
+         *
+         * @param maxOutstanding the limit
+         * @return this builder
+         */
+        public Builder maxOutstanding(int maxOutstanding) {
+            this.maxOutstanding = maxOutstanding;
+            return this;
+        }
+
+        /**
+         * Add a label to the {@code config} section of the report, such as the endpoint.
+         *
+         * @param name  the label name
+         * @param value the label value
+         * @return this builder
+         */
+        public Builder label(String name, Object value) {
+            this.labels.put(name, value);
+            return this;
+        }
+
+        /**
+         * Build the TraceReplayer instance.
+         *
+         * @return a new TraceReplayer
+         * @throws IllegalArgumentException if a setting is invalid
+         */
+        public TraceReplayer build() {
+            if (client == null) {
+                throw new IllegalArgumentException("client is required");
+            }
+            if (records == null) {
+                throw new IllegalArgumentException("records are required");
+            }
+            if (!(speed > 0)) {
+                throw new IllegalArgumentException("speed must be positive");
+            }
+            if (drainTimeout == null) {
+                throw new IllegalArgumentException("drainTimeout is required");
+            }
+            if (maxOutstanding <= 0 || maxOutstanding > 65_000) {
+                throw new IllegalArgumentException("maxOutstanding must be between 1 and 65000");
+            }
+            return new TraceReplayer(this);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.flowtts.bench;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.transport.JdkHttpTransport;
+import com.flowtts.transport.OkHttpTransport;
+import com.flowtts.transport.Transport;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.time.Duration;
+
+/**
+ * Compares the throughput and latency of the {@link OkHttpTransport} and
+ * {@link JdkHttpTransport} under the same open-loop load against a local
+ * {@link TtsEmulator}.
+ *
+ * <pre>
+ * java -cp flow-tts.jar:flow-tts-tools.jar:... com.flowtts.bench.TransportBenchmark --rate 300 --duration-s 30 --stream-ratio 0.5 --max-concurrency 256
+ * </pre>
+ *
+ * <p>Each transport gets a warm-up run followed by a measured run; the output holds one
+ * {@link LoadReport} per transport.</p>
+ */
+public class TransportBenchmark {
+    public static void main(String[] args) throws Exception {
+        double rate = 200;
+        long durationSeconds = 20;
+        double streamRatio = 0.5;
+        int maxConcurrency = 256;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--rate":
+                    rate = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--duration-s":
+                    durationSeconds = Long.parseLong(args[i + 1]);
+                    break;
+                case "--stream-ratio":
+                    streamRatio = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--max-concurrency":
+                    maxConcurrency = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        JsonObject results = new JsonObject();
+        try (TtsEmulator emulator = TtsEmulator.builder()
+                .credentials("bench-id", "bench-key")
+                .timeToFirstByte(Duration.ofMillis(50))
+                .chunkInterval(Duration.ofMillis(10))
+                .build()
+                .start()) {
+            FlowTTSConfig config = FlowTTSConfig.builder()
+                    .secretId("bench-id")
+                    .secretKey("bench-key")
+                    .sdkAppId(1)
+                    .endpoint(emulator.getEndpoint())
+                    .scheme("http")
+                    // Same admission limit for both; OkHttp otherwise caps itself at 5 calls per host
+                    .maxConcurrentRequests(maxConcurrency)
+                    .build();
+            for (String name : new String[]{"okhttp", "jdk"}) {
+                try (Transport transport = "jdk".equals(name)
+                        ? JdkHttpTransport.create(config) : OkHttpTransport.create(config)) {
+                    FlowTTS client = new FlowTTS(config, transport);
+                    run(client, rate, Duration.ofSeconds(Math.max(1, durationSeconds / 4)), streamRatio, name);
+                    LoadReport report = run(client, rate, Duration.ofSeconds(durationSeconds), streamRatio, name);
+                    results.add(name, report.toJsonObject());
+                    client.close();
+                }
+            }
+        }
+        System.out.println(new GsonBuilder().setPrettyPrinting().create().toJson(results));
+    }
+
+    private static LoadReport run(FlowTTS client, double rate, Duration duration, double streamRatio,
+                                  String transport) throws InterruptedException {
+        return LoadGenerator.builder(client)
+                .rate(rate)
+                .arrival(LoadGenerator.Arrival.POISSON)
+                .duration(duration)
+                .streamRatio(streamRatio)
+                .label("transport", transport)
+                .build()
+                .run();
+    }
+}
@@ -0,0 +1,99 @@
+package com.flowtts.bench;
+
+import com.flowtts.audio.VariantRenderer;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Measures the CPU cost of deriving speed and volume variants locally with
+ * {@link VariantRenderer}, as a real-time factor per core.
+ *
+ * <pre>
+ * java -cp flow-tts.jar:flow-tts-tools.jar:... com.flowtts.bench.VariantBenchmark --audio-s 60 --sample-rate 24000 --speeds 0.75,1.25,1.5,2
+ * </pre>
+ *
+ * <p>The input is a synthetic voiced signal with a gliding pitch. For each speed, the
+ * output holds the CPU seconds spent per second of input audio on one thread
+ * ({@code realTimeFactor}) and its inverse, the seconds of audio one core can process
+ * per second.</p>
+ */
+public class VariantBenchmark {
+    public static void main(String[] args) {
+        int audioSeconds = 60;
+        int sampleRate = 24000;
+        String speeds = "0.75,1.25,1.5,2";
+        double volume = 1.5;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--audio-s":
+                    audioSeconds = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--sample-rate":
+                    sampleRate = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--speeds":
+                    speeds = args[i + 1];
+                    break;
+                case "--volume":
+                    volume = Double.parseDouble(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        byte[] pcm = voice(audioSeconds, sampleRate);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        JsonObject results = new JsonObject();
+        results.addProperty("audioSeconds", audioSeconds);
+        results.addProperty("sampleRate", sampleRate);
+        for (String value : speeds.split(",")) {
+            double speed = Double.parseDouble(value.trim());
+            // Warm up on a slice so the measured run is compiled code
+            for (int i = 0; i < 5; i++) {
+                VariantRenderer.render(Arrays.copyOf(pcm, Math.min(pcm.length, sampleRate * 10)),
+                        sampleRate, speed, volume);
+            }
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            long wallStart = System.nanoTime();
+            byte[] variant = VariantRenderer.render(pcm, sampleRate, speed, volume);
+            double cpuSeconds = (threads.getCurrentThreadCpuTime() - cpuStart) / 1e9;
+            double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+
+            JsonObject result = new JsonObject();
+            result.addProperty("outputSeconds", variant.length / 2.0 / sampleRate);
+            result.addProperty("cpuSeconds", cpuSeconds);
+            result.addProperty("wallSeconds", wallSeconds);
+            result.addProperty("realTimeFactor", cpuSeconds / audioSeconds);
+            result.addProperty("audioSecondsPerCoreSecond", audioSeconds / cpuSeconds);
+            results.add("speed " + value.trim(), result);
+        }
+        System.out.println(new GsonBuilder().setPrettyPrinting().create().toJson(results));
+    }
+
+    // Harmonics of a pitch gliding between 100 and 220 Hz, with syllable-rate amplitude changes
+    private static byte[] voice(int seconds, int sampleRate) {
+        int samples = seconds * sampleRate;
+        byte[] pcm = new byte[samples * 2];
+        double phase = 0;
+        for (int i = 0; i < samples; i++) {
+            double t = (double) i / sampleRate;
+            double pitch = 160 + 60 * Math.sin(2 * Math.PI * 0.7 * t);
+            phase += 2 * Math.PI * pitch / sampleRate;
+            double value = 0;
+            for (int harmonic = 1; harmonic <= 8; harmonic++) {
+                value += Math.sin(phase * harmonic) / harmonic;
+            }
+            double envelope = 0.5 + 0.5 * Math.sin(2 * Math.PI * 4 * t);
+            short sample = (short) (value * envelope * 6000);
+            pcm[i * 2] = (byte) sample;
+            pcm[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+}
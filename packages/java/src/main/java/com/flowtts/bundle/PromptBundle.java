@@ -0,0 +1,248 @@
+package com.flowtts.bundle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only view of a prompt bundle written by {@link PromptBundleBuilder} or
+ * {@link PromptBundleWriter}.
+ *
+ * <p>The bundle file is memory-mapped, so opening it only reads the header and
+ * checks each index entry against the file, and its pages are shared through the page cache by every process that maps the same
+ * file. Lookups binary-search the sorted index in place and return read-only
+ * {@link ByteBuffer} slices of the mapping, without copying audio onto the heap.</p>
+ *
+ * <p>Instances are thread-safe. Returned buffers stay valid after {@link #close()};
+ * the mapping itself is released when it is garbage collected.</p>
+ */
+public class PromptBundle implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final int count;
+
+    private PromptBundle(Path path, FileChannel channel, MappedByteBuffer mapped, int count) {
+        this.path = path;
+        this.channel = channel;
+        this.mapped = mapped;
+        this.count = count;
+    }
+
+    /**
+     * Open and memory-map a bundle.
+     *
+     * @param path the bundle file
+     * @return the opened bundle
+     * @throws IOException if the file cannot be mapped or is not a valid bundle
+     */
+    public static PromptBundle open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Bundle larger than 2 GiB is not supported: " + path);
+            }
+            if (size < PromptBundleWriter.HEADER_SIZE) {
+                throw new IOException("Not a prompt bundle: " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] magic = new byte[PromptBundleWriter.MAGIC.length];
+            mapped.duplicate().get(magic);
+            if (!Arrays.equals(magic, PromptBundleWriter.MAGIC)) {
+                throw new IOException("Not a prompt bundle: " + path);
+            }
+            int version = mapped.getInt(8);
+            if (version != PromptBundleWriter.VERSION) {
+                throw new IOException("Unsupported bundle version " + version + ": " + path);
+            }
+            int count = mapped.getInt(12);
+            if (count < 0 || PromptBundleWriter.HEADER_SIZE + (long) count * PromptBundleWriter.ENTRY_SIZE > size) {
+                throw new IOException("Corrupt bundle index: " + path);
+            }
+            validateEntries(path, mapped, count, size);
+            return new PromptBundle(path, channel, mapped, count);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Every string and blob must lie after the index and inside the file, so lookups never go out of bounds
+    private static void validateEntries(Path path, MappedByteBuffer mapped, int count, long size) throws IOException {
+        long indexEnd = PromptBundleWriter.HEADER_SIZE + (long) count * PromptBundleWriter.ENTRY_SIZE;
+        for (int i = 0; i < count; i++) {
+            int entry = PromptBundleWriter.HEADER_SIZE + i * PromptBundleWriter.ENTRY_SIZE;
+            if (!inRange(mapped.getInt(entry), mapped.getInt(entry + 4), indexEnd, size)
+                    || !inRange(mapped.getInt(entry + 8), mapped.getInt(entry + 12), indexEnd, size)
+                    || !inRange(mapped.getLong(entry + 24), mapped.getLong(entry + 32), indexEnd, size)) {
+                throw new IOException("Corrupt bundle entry " + i + ": " + path);
+            }
+        }
+    }
+
+    private static boolean inRange(long offset, long length, long start, long end) {
+        return offset >= start && length >= 0 && length <= end - offset;
+    }
+
+    /**
+     * Get the audio of a prompt.
+     *
+     * @param id the prompt ID
+     * @return a read-only slice of the mapped bundle, or null if the ID is not present
+     */
+    public ByteBuffer getAudio(String id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        int entry = entryOffset(index);
+        long offset = mapped.getLong(entry + 24);
+        long length = mapped.getLong(entry + 32);
+        ByteBuffer slice = mapped.duplicate();
+        slice.position((int) offset).limit((int) (offset + length));
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Get the codec of a prompt.
+     *
+     * @param id the prompt ID
+     * @return the codec name, or null if the ID is not present
+     */
+    public String getCodec(String id) {
+        int index = indexOf(id);
+        if (index < 0) {
+            return null;
+        }
+        int entry = entryOffset(index);
+        return readString(mapped.getInt(entry + 8), mapped.getInt(entry + 12));
+    }
+
+    /**
+     * Get the sample rate of a prompt.
+     *
+     * @param id the prompt ID
+     * @return the sample rate in Hz, or 0 if the ID is not present
+     */
+    public int getSampleRate(String id) {
+        int index = indexOf(id);
+        return index < 0 ? 0 : mapped.getInt(entryOffset(index) + 16);
+    }
+
+    /**
+     * Check if the bundle contains a prompt.
+     *
+     * @param id the prompt ID
+     * @return true if the prompt is present
+     */
+    public boolean contains(String id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * Get the number of prompts in the bundle.
+     *
+     * @return the prompt count
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get the prompt IDs in index order.
+     * IDs are decoded on access.
+     *
+     * @return a read-only list of IDs
+     */
+    public List<String> ids() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException("Index: " + index);
+                }
+                int entry = entryOffset(index);
+                return readString(mapped.getInt(entry), mapped.getInt(entry + 4));
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Get the path of the bundle file.
+     *
+     * @return the path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int indexOf(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int entry = entryOffset(mid);
+            int cmp = compareMapped(mapped.getInt(entry), mapped.getInt(entry + 4), key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareMapped(int offset, int length, byte[] key) {
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Integer.compare(mapped.get(offset + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        mapped.duplicate().position(offset).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int entryOffset(int index) {
+        return PromptBundleWriter.HEADER_SIZE + index * PromptBundleWriter.ENTRY_SIZE;
+    }
+
+    static int compareUtf8(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+}
@@ -0,0 +1,354 @@
+package com.flowtts.bundle;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.io.PartFiles;
+import com.flowtts.model.SynthesizeOptions;
+import com.flowtts.model.SynthesizeResponse;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Pre-renders a manifest of fixed prompts through a {@link FlowTTS} client and packs
+ * them into a single bundle file that can be served with {@link PromptBundle}.
+ *
+ * <p>Each prompt is rendered into a staging directory under a name derived from its ID
+ * and synthesis options. Prompts whose staged file already exists are not rendered
+ * again, so a build that failed part way can be resumed by running it again with the
+ * same staging directory; changing a prompt's text or options renders it anew.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * PromptBundleBuilder builder = PromptBundleBuilder.builder(client)
+ *     .stagingDirectory(Paths.get("prompts-staging"))
+ *     .concurrency(8)
+ *     .build();
+ * builder.addManifest(Paths.get("prompts.json"));
+ * builder.build(Paths.get("prompts.bundle"));
+ * }</pre>
+ */
+public class PromptBundleBuilder {
+    private static final Gson GSON = new Gson();
+
+    private final FlowTTS client;
+    private final Path stagingDirectory;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final Map<String, SynthesizeOptions> prompts = new LinkedHashMap<>();
+
+    private PromptBundleBuilder(Builder builder) {
+        this.client = builder.client;
+        this.stagingDirectory = builder.stagingDirectory;
+        this.concurrency = builder.concurrency;
+        this.maxAttempts = builder.maxAttempts;
+    }
+
+    /**
+     * Create a new builder.
+     *
+     * @param client the client used to render prompts
+     * @return a new Builder instance
+     */
+    public static Builder builder(FlowTTS client) {
+        return new Builder(client);
+    }
+
+    /**
+     * Add a prompt to render.
+     *
+     * @param id      the prompt ID
+     * @param options the synthesis options of the prompt
+     * @return this bundle builder
+     * @throws IllegalArgumentException if the ID was already added
+     */
+    public PromptBundleBuilder add(String id, SynthesizeOptions options) {
+        if (prompts.putIfAbsent(id, options) != null) {
+            throw new IllegalArgumentException("Duplicate prompt id: " + id);
+        }
+        return this;
+    }
+
+    /**
+     * Add the prompts of a JSON manifest.
+     * The manifest is an object mapping each prompt ID to either its text or an object
+     * with {@code text} and any of {@code voice}, {@code model}, {@code codec},
+     * {@code sampleRate}, {@code speed}, {@code volume} and {@code pitch}.
+     *
+     * <pre>{@code
+     * {
+     *   "welcome": {"text": "Welcome to our service.", "voice": "v-female-R2s4N9qJ"},
+     *   "goodbye": "Thank you for calling."
+     * }
+     * }</pre>
+     *
+     * @param manifest the manifest file
+     * @return this bundle builder
+     * @throws IOException if the manifest cannot be read
+     * @throws IllegalArgumentException if an entry is malformed or an ID was already added
+     */
+    public PromptBundleBuilder addManifest(Path manifest) throws IOException {
+        JsonObject root;
+        try (Reader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            root = GSON.fromJson(reader, JsonObject.class);
+        }
+        if (root == null) {
+            throw new IllegalArgumentException("Empty manifest: " + manifest);
+        }
+        for (Map.Entry<String, JsonElement> entry : root.entrySet()) {
+            add(entry.getKey(), parseOptions(entry.getKey(), entry.getValue()));
+        }
+        return this;
+    }
+
+    /**
+     * Render any prompts not yet staged and write the bundle.
+     *
+     * @param output the bundle file to create or replace
+     * @throws FlowTTSException if any prompt fails to render; rendered prompts stay staged
+     *                          so that a later build resumes from them
+     * @throws IOException if the staging directory or bundle cannot be written
+     */
+    public void build(Path output) throws IOException {
+        Files.createDirectories(stagingDirectory);
+
+        Map<String, Path> staged = new LinkedHashMap<>();
+        Map<String, Future<?>> pending = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, "flow-tts-bundle");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (Map.Entry<String, SynthesizeOptions> entry : prompts.entrySet()) {
+                String id = entry.getKey();
+                SynthesizeOptions options = entry.getValue();
+                Path file = stagingDirectory.resolve(stagedName(id, options));
+                staged.put(id, file);
+                if (!Files.exists(file)) {
+                    pending.put(id, executor.submit(() -> {
+                        render(options, file);
+                        return null;
+                    }));
+                }
+            }
+
+            List<String> failed = new ArrayList<>();
+            Throwable firstError = null;
+            for (Map.Entry<String, Future<?>> entry : pending.entrySet()) {
+                try {
+                    entry.getValue().get();
+                } catch (ExecutionException e) {
+                    failed.add(entry.getKey());
+                    if (firstError == null) {
+                        firstError = e.getCause();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new FlowTTSException("Interrupted while rendering prompts", e);
+                }
+            }
+            if (!failed.isEmpty()) {
+                throw new FlowTTSException("Failed to render " + failed.size() + " of "
+                        + prompts.size() + " prompts: " + failed, firstError);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        PromptBundleWriter writer = new PromptBundleWriter();
+        for (Map.Entry<String, Path> entry : staged.entrySet()) {
+            SynthesizeOptions options = prompts.get(entry.getKey());
+            writer.add(entry.getKey(), options.getCodec(), options.getSampleRate(), entry.getValue());
+        }
+        writer.write(output);
+    }
+
+    /**
+     * Get the prompts added so far.
+     *
+     * @return a read-only map of prompt IDs to options
+     */
+    public Map<String, SynthesizeOptions> getPrompts() {
+        return Collections.unmodifiableMap(prompts);
+    }
+
+    private void render(SynthesizeOptions options, Path file) throws IOException {
+        SynthesizeResponse response = null;
+        for (int attempt = 1; response == null; attempt++) {
+            try {
+                response = client.synthesize(options);
+            } catch (FlowTTSException e) {
+                // Auth failures and invalid parameters fail again however often they are sent
+                if (attempt >= maxAttempts || !e.isRetryable()) {
+                    throw e;
+                }
+                try {
+                    long backoff = 200L << Math.min(attempt - 1, 5);
+                    Thread.sleep(e.getRetryAfter() != null ? Math.max(backoff, e.getRetryAfter().toMillis()) : backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+        // Stage atomically so that a crash never leaves a truncated file to resume from
+        Path temp = PartFiles.create(file);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                response.writeTo(channel);
+            } finally {
+                response.release();
+            }
+            PartFiles.moveIntoPlace(temp, file);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static String stagedName(String id, SynthesizeOptions options) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        String fingerprint = id + '\0' + options.getText() + '\0' + options.getVoice() + '\0'
+                + options.getModel() + '\0' + options.getCodec() + '\0' + options.getSampleRate() + '\0'
+                + options.getSpeed() + '\0' + options.getVolume() + '\0' + options.getPitch();
+        byte[] hash = digest.digest(fingerprint.getBytes(StandardCharsets.UTF_8));
+        StringBuilder name = new StringBuilder(40);
+        for (int i = 0; i < 16; i++) {
+            name.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        return name.append('.').append(options.getCodec()).toString();
+    }
+
+    private static SynthesizeOptions parseOptions(String id, JsonElement value) {
+        SynthesizeOptions.Builder builder = SynthesizeOptions.builder();
+        if (value.isJsonPrimitive()) {
+            return builder.text(value.getAsString()).build();
+        }
+        if (!value.isJsonObject()) {
+            throw new IllegalArgumentException("Invalid manifest entry: " + id);
+        }
+        JsonObject object = value.getAsJsonObject();
+        if (!object.has("text")) {
+            throw new IllegalArgumentException("Manifest entry has no text: " + id);
+        }
+        builder.text(object.get("text").getAsString());
+        if (object.has("voice")) {
+            builder.voice(object.get("voice").getAsString());
+        }
+        if (object.has("model")) {
+            builder.model(object.get("model").getAsString());
+        }
+        if (object.has("codec")) {
+            builder.codec(object.get("codec").getAsString());
+        }
+        if (object.has("sampleRate")) {
+            builder.sampleRate(object.get("sampleRate").getAsInt());
+        }
+        if (object.has("speed")) {
+            builder.speed(object.get("speed").getAsDouble());
+        }
+        if (object.has("volume")) {
+            builder.volume(object.get("volume").getAsDouble());
+        }
+        if (object.has("pitch")) {
+            builder.pitch(object.get("pitch").getAsInt());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builder for PromptBundleBuilder.
+     */
+    public static class Builder {
+        private final FlowTTS client;
+        private Path stagingDirectory;
+        private int concurrency = 4;
+        private int maxAttempts = 3;
+
+        private Builder(FlowTTS client) {
+            this.client = client;
+        }
+
+        /**
+         * Set the directory where rendered prompts are staged (required).
+         * Reusing the directory across builds resumes from prompts already rendered.
+         *
+         * @param stagingDirectory the staging directory
+         * @return this builder
+         */
+        public Builder stagingDirectory(Path stagingDirectory) {
+            this.stagingDirectory = stagingDirectory;
+            return this;
+        }
+
+        /**
+         * Set the number of prompts rendered at once (default: 4).
+         *
+         * @param concurrency the number of concurrent requests
+         * @return this builder
+         */
+        public Builder concurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * Set the number of attempts per prompt before it is reported as failed (default: 3).
+         * Only errors that {@link FlowTTSException#isRetryable() may succeed on retry} are
+         * retried; an auth failure or invalid parameter fails the prompt at once.
+         *
+         * @param maxAttempts the maximum number of attempts
+         * @return this builder
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Build the PromptBundleBuilder instance.
+         *
+         * @return a new PromptBundleBuilder
+         * @throws IllegalArgumentException if required fields are missing or invalid
+         */
+        public PromptBundleBuilder build() {
+            if (client == null) {
+                throw new IllegalArgumentException("client is required");
+            }
+            if (stagingDirectory == null) {
+                throw new IllegalArgumentException("stagingDirectory is required");
+            }
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency must be positive");
+            }
+            if (maxAttempts <= 0) {
+                throw new IllegalArgumentException("maxAttempts must be positive");
+            }
+            return new PromptBundleBuilder(this);
+        }
+    }
+}
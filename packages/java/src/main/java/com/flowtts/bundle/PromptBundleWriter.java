@@ -0,0 +1,160 @@
+package com.flowtts.bundle;
+
+import com.flowtts.io.PartFiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Packs rendered audio files into a prompt bundle readable by {@link PromptBundle}.
+ *
+ * <p>Layout (big-endian):</p>
+ * <pre>
+ * magic        8 bytes  "FTTSBNDL"
+ * version      int      1
+ * count        int      number of prompts
+ * index        count * 40 bytes, sorted by the UTF-8 bytes of the id:
+ *                idOffset int, idLength int, codecOffset int, codecLength int,
+ *                sampleRate int, reserved int, dataOffset long, dataLength long
+ * strings      UTF-8 ids and codec names referenced by the index
+ * data         audio blobs, each aligned to 16 bytes
+ * </pre>
+ *
+ * <p>Audio is copied from the source files with {@link FileChannel#transferTo}, and the
+ * bundle is written to a part file that is atomically renamed into place. The bundle
+ * gets the directory's default permissions, so other processes can map it. Bundles are
+ * limited to 2 GiB, the most {@link PromptBundle} can map.</p>
+ */
+public class PromptBundleWriter {
+    static final byte[] MAGIC = {'F', 'T', 'T', 'S', 'B', 'N', 'D', 'L'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 40;
+    private static final int DATA_ALIGNMENT = 16;
+
+    private final List<Item> items = new ArrayList<>();
+    private final Set<String> ids = new HashSet<>();
+
+    /**
+     * Add a prompt to the bundle.
+     *
+     * @param id         the prompt ID
+     * @param codec      the audio codec of the file (e.g. "wav")
+     * @param sampleRate the sample rate in Hz
+     * @param audio      the file holding the rendered audio
+     * @return this writer
+     * @throws IllegalArgumentException if the ID was already added
+     */
+    public PromptBundleWriter add(String id, String codec, int sampleRate, Path audio) {
+        if (!ids.add(id)) {
+            throw new IllegalArgumentException("Duplicate prompt id: " + id);
+        }
+        items.add(new Item(id, codec, sampleRate, audio));
+        return this;
+    }
+
+    /**
+     * Write the bundle.
+     *
+     * @param output the bundle file to create or replace
+     * @throws IOException if a source file cannot be read or the bundle cannot be written
+     */
+    public void write(Path output) throws IOException {
+        items.sort((a, b) -> PromptBundle.compareUtf8(a.idBytes, b.idBytes));
+
+        // Lay out the string table and data region
+        long stringsStart = HEADER_SIZE + (long) items.size() * ENTRY_SIZE;
+        long stringsSize = 0;
+        for (Item item : items) {
+            stringsSize += item.idBytes.length + item.codecBytes.length;
+            item.size = Files.size(item.audio);
+        }
+        long dataOffset = align(stringsStart + stringsSize);
+        for (Item item : items) {
+            item.dataOffset = dataOffset;
+            dataOffset = align(dataOffset + item.size);
+        }
+        if (stringsStart + stringsSize > Integer.MAX_VALUE) {
+            throw new IOException("Bundle index too large");
+        }
+        long bundleSize = items.isEmpty() ? stringsStart + stringsSize
+                : items.get(items.size() - 1).dataOffset + items.get(items.size() - 1).size;
+        if (bundleSize > Integer.MAX_VALUE) {
+            throw new IOException("Bundle larger than 2 GiB is not supported: " + bundleSize + " bytes");
+        }
+
+        Path temp = PartFiles.create(output.toAbsolutePath());
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer head = ByteBuffer.allocate((int) (stringsStart + stringsSize));
+                head.put(MAGIC).putInt(VERSION).putInt(items.size());
+                int stringOffset = (int) stringsStart;
+                for (Item item : items) {
+                    head.putInt(stringOffset).putInt(item.idBytes.length);
+                    stringOffset += item.idBytes.length;
+                    head.putInt(stringOffset).putInt(item.codecBytes.length);
+                    stringOffset += item.codecBytes.length;
+                    head.putInt(item.sampleRate).putInt(0);
+                    head.putLong(item.dataOffset).putLong(item.size);
+                }
+                for (Item item : items) {
+                    head.put(item.idBytes).put(item.codecBytes);
+                }
+                head.flip();
+                writeFully(out, head, 0);
+
+                for (Item item : items) {
+                    try (FileChannel in = FileChannel.open(item.audio, StandardOpenOption.READ)) {
+                        long copied = 0;
+                        while (copied < item.size) {
+                            long n = in.transferTo(copied, item.size - copied, out.position(item.dataOffset + copied));
+                            if (n <= 0) {
+                                throw new IOException("Unexpected end of " + item.audio);
+                            }
+                            copied += n;
+                        }
+                    }
+                }
+                out.force(true);
+            }
+            PartFiles.moveIntoPlace(temp, output);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + DATA_ALIGNMENT - 1) & -DATA_ALIGNMENT;
+    }
+
+    private static final class Item {
+        final byte[] idBytes;
+        final byte[] codecBytes;
+        final int sampleRate;
+        final Path audio;
+        long size;
+        long dataOffset;
+
+        Item(String id, String codec, int sampleRate, Path audio) {
+            this.idBytes = id.getBytes(StandardCharsets.UTF_8);
+            this.codecBytes = codec.getBytes(StandardCharsets.UTF_8);
+            this.sampleRate = sampleRate;
+            this.audio = audio;
+        }
+    }
+}
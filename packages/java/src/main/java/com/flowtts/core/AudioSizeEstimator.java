@@ -0,0 +1,71 @@
+package com.flowtts.core;
+
+/**
+ * Estimates the size of synthesized audio before the request is sent, for memory
+ * budgeting.
+ *
+ * <p>Speech duration is estimated per character at slow speaking rates, so the estimate
+ * errs on the high side: Han, kana and Hangul characters count as one syllable each,
+ * other characters as a fraction of one. The byte rate follows from the codec and
+ * sample rate, with compressed codecs taken at their highest bit rate.</p>
+ */
+public final class AudioSizeEstimator {
+    private static final int MILLIS_PER_SYLLABIC_CHAR = 250;
+    private static final int MILLIS_PER_OTHER_CHAR = 80;
+    private static final int WAV_HEADER_SIZE = 44;
+
+    private AudioSizeEstimator() {
+    }
+
+    /**
+     * Estimate the audio size of a synthesis.
+     *
+     * @param text       the text to synthesize
+     * @param sampleRate the sample rate in Hz
+     * @param codec      the codec: pcm, wav, mp3, ogg_opus or flac
+     * @return the estimated size in bytes
+     */
+    public static long estimate(String text, int sampleRate, String codec) {
+        return bytesPerSecond(sampleRate, codec) * estimateMillis(text) / 1000
+                + ("wav".equals(codec) ? WAV_HEADER_SIZE : 0);
+    }
+
+    /**
+     * Estimate the speech duration of a text.
+     *
+     * @param text the text
+     * @return the estimated duration in milliseconds
+     */
+    public static long estimateMillis(String text) {
+        long millis = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+            if (script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                    || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL) {
+                millis += MILLIS_PER_SYLLABIC_CHAR;
+            } else {
+                millis += MILLIS_PER_OTHER_CHAR;
+            }
+        }
+        return millis;
+    }
+
+    private static long bytesPerSecond(int sampleRate, String codec) {
+        switch (codec) {
+            case "mp3":
+                // 128 kbit/s
+                return 16_000;
+            case "ogg_opus":
+                // 64 kbit/s
+                return 8_000;
+            case "flac":
+                // Speech rarely compresses below about 60% losslessly
+                return sampleRate * 2L * 6 / 10;
+            default:
+                // pcm and wav: 16-bit mono
+                return sampleRate * 2L;
+        }
+    }
+}
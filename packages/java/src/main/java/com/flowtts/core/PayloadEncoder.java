@@ -0,0 +1,274 @@
+package com.flowtts.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Writes the TTS request payload directly as UTF-8 JSON bytes while hashing it.
+ *
+ * <p>The fixed request schema is serialized field by field into a growable byte buffer
+ * that is reused across calls, and the bytes are fed to a SHA-256 digest as they are
+ * written. The result can be signed with {@link #sha256()} and sent as-is, without
+ * building a JSON tree, an intermediate String or encoding the payload twice.</p>
+ *
+ * <p>The output is byte-for-byte identical to Gson's default serialization of the same
+ * payload. Instances are not thread-safe, and the buffer returned by {@link #buffer()}
+ * is only valid until the next call to {@link #encode}.</p>
+ */
+public final class PayloadEncoder {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    // Feed the digest in blocks while the bytes are still hot in cache
+    private static final int DIGEST_BLOCK = 256;
+
+    private final MessageDigest digest;
+    private byte[] buf;
+    private int count;
+    private int digested;
+    private byte[] hash;
+
+    /**
+     * Create an encoder with a default initial buffer size.
+     */
+    public PayloadEncoder() {
+        this(512);
+    }
+
+    /**
+     * Create an encoder with the given initial buffer size.
+     *
+     * @param initialCapacity the initial buffer size in bytes
+     */
+    public PayloadEncoder(int initialCapacity) {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not available", e);
+        }
+        this.buf = new byte[Math.max(64, initialCapacity)];
+    }
+
+    /**
+     * Estimate the encoded size of a payload for the given text.
+     *
+     * @param text the text to synthesize
+     * @return an upper bound of the payload size for typical text
+     */
+    public static int estimateSize(String text) {
+        return 256 + text.length() * 3;
+    }
+
+    /**
+     * Encode a TTS request payload, replacing any previous content.
+     *
+     * @param sdkAppId   the SDK App ID
+     * @param text       the text to synthesize
+     * @param model      the API model name (e.g. "flow_01_turbo")
+     * @param voiceId    the resolved voice ID
+     * @param speed      the speech speed
+     * @param volume     the volume
+     * @param pitch      the pitch adjustment
+     * @param format     the audio format
+     * @param sampleRate the sample rate in Hz
+     * @return this encoder
+     */
+    public PayloadEncoder encode(long sdkAppId, String text, String model, String voiceId,
+                                 double speed, double volume, int pitch, String format, int sampleRate) {
+        count = 0;
+        digested = 0;
+        hash = null;
+        digest.reset();
+        ensureCapacity(estimateSize(text));
+
+        // Match Go SDK structure exactly
+        writeAscii("{\"SdkAppId\":");
+        writeLong(sdkAppId);
+        writeAscii(",\"Text\":");
+        writeString(text);
+        writeAscii(",\"Model\":");
+        writeString(model);
+        writeAscii(",\"Voice\":{\"VoiceId\":");
+        writeString(voiceId);
+        writeAscii(",\"Speed\":");
+        writeDouble(speed);
+        writeAscii(",\"Volume\":");
+        writeDouble(volume);
+        writeAscii(",\"Pitch\":");
+        writeLong(pitch);
+        writeAscii("},\"AudioFormat\":{\"Format\":");
+        writeString(format);
+        writeAscii(",\"SampleRate\":");
+        writeLong(sampleRate);
+        writeAscii("}}");
+
+        digest.update(buf, digested, count - digested);
+        digested = count;
+        hash = digest.digest();
+        return this;
+    }
+
+    /**
+     * Get the buffer holding the encoded payload in {@code [0, length())}.
+     *
+     * @return the internal buffer
+     */
+    public byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * Get the length of the encoded payload.
+     *
+     * @return the payload length in bytes
+     */
+    public int length() {
+        return count;
+    }
+
+    /**
+     * Get the SHA-256 digest of the encoded payload.
+     *
+     * @return the 32-byte digest
+     */
+    public byte[] sha256() {
+        return hash;
+    }
+
+    /**
+     * Copy the encoded payload into a new array.
+     *
+     * @return the payload bytes
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    private void writeAscii(String s) {
+        int n = s.length();
+        ensureCapacity(count + n);
+        for (int i = 0; i < n; i++) {
+            buf[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeLong(long v) {
+        ensureCapacity(count + 20);
+        if (v < 0) {
+            if (v == Long.MIN_VALUE) {
+                writeAscii(Long.toString(v));
+                return;
+            }
+            buf[count++] = '-';
+            v = -v;
+        }
+        int start = count;
+        do {
+            buf[count++] = (byte) ('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+        for (int i = start, j = count - 1; i < j; i++, j--) {
+            byte t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+    }
+
+    private void writeDouble(double v) {
+        // JSON has no NaN or Infinity; Gson refuses them the same way
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+            throw new IllegalArgumentException(v + " is not a valid double value as per JSON specification.");
+        }
+        // Integral values below 1e7 print as "<long>.0", the same as Double.toString
+        if (v == Math.rint(v) && Math.abs(v) < 1e7 && !(v == 0 && 1 / v < 0)) {
+            writeLong((long) v);
+            writeAscii(".0");
+        } else {
+            writeAscii(Double.toString(v));
+        }
+    }
+
+    private void writeString(String s) {
+        int n = s.length();
+        ensureCapacity(count + 2 + n * 3);
+        buf[count++] = '"';
+        for (int i = 0; i < n; i++) {
+            // Room for the longest write below (an escape) plus the closing quote
+            if (buf.length - count < 7) {
+                ensureCapacity(count + 7 + (n - i) * 3);
+            }
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (c < 0x20 || c == '"' || c == '\\' || c == '<' || c == '>'
+                        || c == '&' || c == '=' || c == '\'') {
+                    writeEscape(c);
+                } else {
+                    buf[count++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                buf[count++] = (byte) (0xC0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c == 0x2028 || c == 0x2029) {
+                writeEscape(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[count++] = (byte) (0xF0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, encoded as '?' like String.getBytes(UTF_8)
+                buf[count++] = '?';
+            } else {
+                buf[count++] = (byte) (0xE0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+            if (count - digested >= DIGEST_BLOCK) {
+                digest.update(buf, digested, count - digested);
+                digested = count;
+            }
+        }
+        buf[count++] = '"';
+    }
+
+    private void writeEscape(char c) {
+        buf[count++] = '\\';
+        switch (c) {
+            case '"':
+                buf[count++] = '"';
+                break;
+            case '\\':
+                buf[count++] = '\\';
+                break;
+            case '\t':
+                buf[count++] = 't';
+                break;
+            case '\b':
+                buf[count++] = 'b';
+                break;
+            case '\n':
+                buf[count++] = 'n';
+                break;
+            case '\r':
+                buf[count++] = 'r';
+                break;
+            case '\f':
+                buf[count++] = 'f';
+                break;
+            default:
+                buf[count++] = 'u';
+                buf[count++] = HEX[(c >> 12) & 0xF];
+                buf[count++] = HEX[(c >> 8) & 0xF];
+                buf[count++] = HEX[(c >> 4) & 0xF];
+                buf[count++] = HEX[c & 0xF];
+                break;
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(required, buf.length * 2));
+        }
+    }
+}
@@ -0,0 +1,710 @@
+package com.flowtts.core;
+
+import com.flowtts.exception.MemoryBudgetExceededException;
+import com.flowtts.model.Priority;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Admits requests to a shared transport under a global concurrency limit,
+ * per-class reservations and per-tenant quotas.
+ *
+ * <p>Requests are grouped by {@link Priority}. Each class may reserve slots that only it
+ * can use; the remaining slots are shared, and when one frees up the highest class with
+ * a waiting request gets it. Within a class, tenants with waiting requests are served
+ * round-robin, so a tenant with a deep backlog gets one slot per turn instead of
+ * monopolizing the transport. A tenant at its quota is skipped until one of its own
+ * requests completes. Interactive and normal requests of a tenant are FIFO; bulk
+ * requests are ordered shortest job first by their estimated cost.</p>
+ *
+ * <p>With a memory budget, each request also reserves its estimated audio size in bytes.
+ * A request whose reservation does not fit waits at the head of the line, so larger
+ * requests are not starved by smaller ones; a request larger than the whole budget is
+ * admitted once nothing else holds a reservation. Alternatively the scheduler can reject
+ * requests that do not fit when they are submitted. Reservations grow as audio arrives
+ * beyond the estimate, and are returned on {@link #release}.</p>
+ *
+ * <p>Grants are delivered either by unblocking {@link #acquire} or by running the
+ * callback passed to {@link #submit} on the thread that freed the slot; callbacks
+ * must therefore be short and non-blocking. Every grant must be paired with exactly
+ * one {@link #release}.</p>
+ */
+public class RequestScheduler {
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+    private static final Priority[] PRIORITIES = Priority.values();
+    private static final Comparator<Ticket> SHORTEST_FIRST = Comparator
+            .comparingLong((Ticket t) -> t.cost)
+            .thenComparingLong(t -> t.sequence);
+
+    private final int maxConcurrent;
+    private final int[] reserved;
+    private final int sharedSlots;
+    private final long memoryBudget;
+    private final boolean failFastOverBudget;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Registered tenants, held weakly: a tenant is dropped once no client view and no
+    // request refers to it. Guarded by lock.
+    private final Map<String, TenantRef> tenants = new HashMap<>();
+    private final ReferenceQueue<Tenant> unusedTenants = new ReferenceQueue<>();
+    // Per class: tenants with waiting tickets that are below their quota, in service order
+    private final List<ArrayDeque<Tenant>> ready = new ArrayList<>(PRIORITIES.length);
+    private final ClassStats[] stats = new ClassStats[PRIORITIES.length];
+    private int inFlight;
+    private long sequence;
+    private long reservedBytes;
+    private long peakReservedBytes;
+    private long rejected;
+
+    /**
+     * Create a scheduler without class reservations.
+     *
+     * @param maxConcurrent the global concurrency limit, or 0 for unlimited
+     */
+    public RequestScheduler(int maxConcurrent) {
+        this(maxConcurrent, new int[PRIORITIES.length]);
+    }
+
+    /**
+     * Create a scheduler.
+     *
+     * @param maxConcurrent the global concurrency limit, or 0 for unlimited
+     * @param reserved      the slots reserved per class, indexed by {@link Priority#ordinal()}
+     */
+    public RequestScheduler(int maxConcurrent, int[] reserved) {
+        this(maxConcurrent, reserved, 0, false);
+    }
+
+    /**
+     * Create a scheduler with a memory budget.
+     *
+     * @param maxConcurrent      the global concurrency limit, or 0 for unlimited
+     * @param reserved           the slots reserved per class, indexed by {@link Priority#ordinal()}
+     * @param memoryBudget       the bytes of audio that admitted requests may reserve, or 0 for unlimited
+     * @param failFastOverBudget whether to reject requests that do not fit the budget
+     *                           when submitted, instead of queueing them
+     */
+    public RequestScheduler(int maxConcurrent, int[] reserved, long memoryBudget, boolean failFastOverBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("memoryBudget must not be negative");
+        }
+        this.memoryBudget = memoryBudget > 0 ? memoryBudget : Long.MAX_VALUE;
+        this.failFastOverBudget = failFastOverBudget && memoryBudget > 0;
+        this.maxConcurrent = maxConcurrent > 0 ? maxConcurrent : UNLIMITED;
+        this.reserved = reserved.clone();
+        int totalReserved = 0;
+        for (int slots : this.reserved) {
+            totalReserved += slots;
+        }
+        if (totalReserved > this.maxConcurrent) {
+            throw new IllegalArgumentException("reserved slots exceed the concurrency limit");
+        }
+        this.sharedSlots = this.maxConcurrent == UNLIMITED ? UNLIMITED : this.maxConcurrent - totalReserved;
+        for (int p = 0; p < PRIORITIES.length; p++) {
+            ready.add(new ArrayDeque<>());
+            stats[p] = new ClassStats();
+        }
+    }
+
+    /**
+     * Get or create the tenant with the given key.
+     *
+     * <p>The quota is fixed when the tenant is created: while the tenant is still in use,
+     * later calls return it unchanged and their quota is ignored. A tenant is forgotten
+     * once nothing refers to it, so the next call creates it afresh.</p>
+     *
+     * @param key           the tenant key
+     * @param maxConcurrent the tenant concurrency quota, or 0 for unlimited
+     * @return the tenant
+     */
+    public Tenant tenant(String key, int maxConcurrent) {
+        lock.lock();
+        try {
+            expungeUnusedTenants();
+            TenantRef ref = tenants.get(key);
+            Tenant tenant = ref != null ? ref.get() : null;
+            if (tenant == null) {
+                tenant = new Tenant(key, maxConcurrent > 0 ? maxConcurrent : UNLIMITED);
+                tenants.put(key, new TenantRef(tenant, unusedTenants));
+            }
+            return tenant;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of registered tenants that are still in use.
+     *
+     * @return the tenant count
+     */
+    public int getTenantCount() {
+        lock.lock();
+        try {
+            expungeUnusedTenants();
+            return tenants.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a request and run a callback once it is admitted.
+     * The callback runs immediately on the calling thread if a slot is free.
+     *
+     * @param tenant    the tenant issuing the request
+     * @param priority  the priority class of the request
+     * @param cost      the estimated cost, used to order bulk requests (e.g. text length)
+     * @param onGranted the callback to run with the ticket when admitted
+     * @return the ticket, which can be passed to {@link #cancel}
+     */
+    public Ticket submit(Tenant tenant, Priority priority, long cost, Consumer<Ticket> onGranted) {
+        return submit(tenant, priority, cost, 0, onGranted);
+    }
+
+    /**
+     * Queue a request that reserves memory, and run a callback once it is admitted.
+     *
+     * @param tenant    the tenant issuing the request
+     * @param priority  the priority class of the request
+     * @param cost      the estimated cost, used to order bulk requests (e.g. text length)
+     * @param bytes     the estimated audio size to reserve from the memory budget
+     * @param onGranted the callback to run with the ticket when admitted
+     * @return the ticket, which can be passed to {@link #cancel}
+     * @throws MemoryBudgetExceededException if failing fast and the reservation does not fit
+     */
+    public Ticket submit(Tenant tenant, Priority priority, long cost, long bytes, Consumer<Ticket> onGranted) {
+        List<Ticket> grants;
+        Ticket ticket;
+        lock.lock();
+        try {
+            if (failFastOverBudget && bytes > 0 && !fitsBudget(bytes)) {
+                rejected++;
+                throw new MemoryBudgetExceededException(bytes, reservedBytes, memoryBudget);
+            }
+            ticket = new Ticket(tenant, priority, cost, bytes, sequence++, onGranted);
+            tenant.waiting.get(priority.ordinal()).add(ticket);
+            stats[priority.ordinal()].queued++;
+            markReady(tenant, priority.ordinal());
+            grants = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        grantAll(grants);
+        return ticket;
+    }
+
+    /**
+     * Block until a request of the tenant is admitted.
+     *
+     * @param tenant   the tenant issuing the request
+     * @param priority the priority class of the request
+     * @param cost     the estimated cost, used to order bulk requests (e.g. text length)
+     * @return the admitted ticket, to be passed to {@link #release}
+     * @throws InterruptedException if interrupted while waiting; no slot is held then
+     */
+    public Ticket acquire(Tenant tenant, Priority priority, long cost) throws InterruptedException {
+        return acquire(tenant, priority, cost, 0);
+    }
+
+    /**
+     * Block until a request of the tenant that reserves memory is admitted.
+     *
+     * @param tenant   the tenant issuing the request
+     * @param priority the priority class of the request
+     * @param cost     the estimated cost, used to order bulk requests (e.g. text length)
+     * @param bytes    the estimated audio size to reserve from the memory budget
+     * @return the admitted ticket, to be passed to {@link #release}
+     * @throws InterruptedException          if interrupted while waiting; no slot is held then
+     * @throws MemoryBudgetExceededException if failing fast and the reservation does not fit
+     */
+    public Ticket acquire(Tenant tenant, Priority priority, long cost, long bytes) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        Ticket ticket = submit(tenant, priority, cost, bytes, granted -> latch.countDown());
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            if (!cancel(ticket)) {
+                // Granted concurrently with the interrupt; hand the slot back
+                release(ticket);
+            }
+            throw e;
+        }
+        return ticket;
+    }
+
+    /**
+     * Remove a request that has not been admitted yet.
+     *
+     * @param ticket the ticket returned by {@link #submit}
+     * @return true if the request was removed, false if it was already admitted
+     */
+    public boolean cancel(Ticket ticket) {
+        lock.lock();
+        try {
+            if (ticket.state != Ticket.WAITING) {
+                return false;
+            }
+            ticket.state = Ticket.CANCELLED;
+            ticket.tenant.waiting.get(ticket.priority.ordinal()).remove(ticket);
+            stats[ticket.priority.ordinal()].queued--;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release the slot held by an admitted request.
+     * Releasing a ticket that is not admitted, or twice, has no effect.
+     *
+     * @param ticket the ticket of the completed request
+     */
+    public void release(Ticket ticket) {
+        List<Ticket> grants;
+        lock.lock();
+        try {
+            if (ticket.state != Ticket.GRANTED) {
+                return;
+            }
+            ticket.state = Ticket.RELEASED;
+            reservedBytes -= ticket.bytes;
+            inFlight--;
+            stats[ticket.priority.ordinal()].inFlight--;
+            ticket.tenant.inFlight--;
+            markReady(ticket.tenant);
+            grants = dispatch();
+        } finally {
+            lock.unlock();
+        }
+        grantAll(grants);
+    }
+
+    /**
+     * Grow the memory reservation of an admitted request, e.g. when more audio has
+     * arrived than estimated. The reservation never shrinks before {@link #release}.
+     *
+     * @param ticket the ticket of the admitted request
+     * @param bytes  the bytes the request holds now
+     */
+    public void reserveAtLeast(Ticket ticket, long bytes) {
+        if (memoryBudget == Long.MAX_VALUE) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (ticket.state != Ticket.GRANTED || bytes <= ticket.bytes) {
+                return;
+            }
+            reservedBytes += bytes - ticket.bytes;
+            ticket.bytes = bytes;
+            peakReservedBytes = Math.max(peakReservedBytes, reservedBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get a snapshot of the memory budget usage.
+     *
+     * @return the memory metrics snapshot
+     */
+    public MemoryMetrics getMemoryMetrics() {
+        lock.lock();
+        try {
+            return new MemoryMetrics(memoryBudget == Long.MAX_VALUE ? 0 : memoryBudget,
+                    reservedBytes, peakReservedBytes, rejected);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of admitted requests across all tenants.
+     *
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get a snapshot of the queueing metrics of a priority class.
+     *
+     * @param priority the priority class
+     * @return the metrics snapshot
+     */
+    public Metrics getMetrics(Priority priority) {
+        lock.lock();
+        try {
+            ClassStats s = stats[priority.ordinal()];
+            return new Metrics(priority, s.queued, s.inFlight, s.admitted, s.totalWaitNanos, s.maxWaitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void expungeUnusedTenants() {
+        Reference<? extends Tenant> ref;
+        while ((ref = unusedTenants.poll()) != null) {
+            TenantRef unused = (TenantRef) ref;
+            tenants.remove(unused.key, unused);
+        }
+    }
+
+    private void markReady(Tenant tenant) {
+        for (int p = 0; p < PRIORITIES.length; p++) {
+            markReady(tenant, p);
+        }
+    }
+
+    private void markReady(Tenant tenant, int p) {
+        if (!tenant.inReadyQueue[p] && !tenant.waiting.get(p).isEmpty() && tenant.inFlight < tenant.maxConcurrent) {
+            tenant.inReadyQueue[p] = true;
+            ready.get(p).add(tenant);
+        }
+    }
+
+    private boolean hasCapacity(int p) {
+        if (inFlight >= maxConcurrent) {
+            return false;
+        }
+        if (stats[p].inFlight < reserved[p]) {
+            return true;
+        }
+        int sharedInUse = 0;
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            sharedInUse += Math.max(0, stats[i].inFlight - reserved[i]);
+        }
+        return sharedInUse < sharedSlots;
+    }
+
+    private boolean fitsBudget(long bytes) {
+        // A request larger than the whole budget runs alone rather than never
+        return reservedBytes == 0 || bytes <= memoryBudget - reservedBytes;
+    }
+
+    private List<Ticket> dispatch() {
+        List<Ticket> grants = null;
+        // Classes in priority order, so higher classes take shared slots first
+        for (int p = 0; p < PRIORITIES.length; p++) {
+            ArrayDeque<Tenant> ring = ready.get(p);
+            while (!ring.isEmpty() && hasCapacity(p)) {
+                Tenant tenant = ring.poll();
+                tenant.inReadyQueue[p] = false;
+                Queue<Ticket> queue = tenant.waiting.get(p);
+                if (queue.isEmpty() || tenant.inFlight >= tenant.maxConcurrent) {
+                    // Re-queued by markReady() once it has work and a free slot again
+                    continue;
+                }
+                if (!fitsBudget(queue.peek().bytes)) {
+                    // Hold the line until enough memory is released, so nothing overtakes it
+                    ring.addFirst(tenant);
+                    tenant.inReadyQueue[p] = true;
+                    return grants;
+                }
+                Ticket ticket = queue.poll();
+                ticket.state = Ticket.GRANTED;
+                tenant.inFlight++;
+                inFlight++;
+                reservedBytes += ticket.bytes;
+                peakReservedBytes = Math.max(peakReservedBytes, reservedBytes);
+
+                ClassStats s = stats[p];
+                long wait = System.nanoTime() - ticket.enqueuedAt;
+                s.queued--;
+                s.inFlight++;
+                s.admitted++;
+                s.totalWaitNanos += wait;
+                s.maxWaitNanos = Math.max(s.maxWaitNanos, wait);
+
+                if (grants == null) {
+                    grants = new ArrayList<>(1);
+                }
+                grants.add(ticket);
+                // Back of the line, so other tenants get the next slot
+                markReady(tenant, p);
+            }
+        }
+        return grants;
+    }
+
+    private static void grantAll(List<Ticket> grants) {
+        if (grants != null) {
+            for (Ticket ticket : grants) {
+                ticket.onGranted.accept(ticket);
+            }
+        }
+    }
+
+    private static final class TenantRef extends WeakReference<Tenant> {
+        final String key;
+
+        TenantRef(Tenant tenant, ReferenceQueue<Tenant> queue) {
+            super(tenant, queue);
+            this.key = tenant.key;
+        }
+    }
+
+    private static final class ClassStats {
+        int queued;
+        int inFlight;
+        long admitted;
+        long totalWaitNanos;
+        long maxWaitNanos;
+    }
+
+    /**
+     * Scheduling state of one tenant.
+     */
+    public static final class Tenant {
+        private final String key;
+        // Per class, indexed by Priority#ordinal()
+        private final List<Queue<Ticket>> waiting = new ArrayList<>(PRIORITIES.length);
+        private final boolean[] inReadyQueue = new boolean[PRIORITIES.length];
+        private final int maxConcurrent;
+        private int inFlight;
+
+        private Tenant(String key, int maxConcurrent) {
+            this.key = key;
+            this.maxConcurrent = maxConcurrent;
+            for (Priority priority : PRIORITIES) {
+                waiting.add(priority == Priority.BULK
+                        ? new PriorityQueue<>(SHORTEST_FIRST)
+                        : new ArrayDeque<>());
+            }
+        }
+
+        /**
+         * Get the tenant key.
+         *
+         * @return the key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Get the number of admitted requests of this tenant.
+         * The value is a snapshot and may be stale.
+         *
+         * @return the number of requests in flight
+         */
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        /**
+         * Get the number of requests of this tenant waiting for a slot.
+         * The value is a snapshot and may be stale.
+         *
+         * @return the number of queued requests
+         */
+        public int getQueued() {
+            int queued = 0;
+            for (Queue<Ticket> queue : waiting) {
+                queued += queue.size();
+            }
+            return queued;
+        }
+    }
+
+    /**
+     * A queued or admitted request.
+     */
+    public static final class Ticket {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+        private static final int RELEASED = 3;
+
+        private final Tenant tenant;
+        private final Priority priority;
+        private final long cost;
+        private final long sequence;
+        private final long enqueuedAt = System.nanoTime();
+        private final Consumer<Ticket> onGranted;
+        private int state = WAITING;
+        // Guarded by the scheduler lock once admitted
+        private long bytes;
+
+        private Ticket(Tenant tenant, Priority priority, long cost, long bytes, long sequence,
+                       Consumer<Ticket> onGranted) {
+            this.tenant = tenant;
+            this.priority = priority;
+            this.cost = cost;
+            this.bytes = bytes;
+            this.sequence = sequence;
+            this.onGranted = onGranted;
+        }
+    }
+
+    /**
+     * Queueing metrics of one priority class.
+     */
+    public static final class Metrics {
+        private final Priority priority;
+        private final int queued;
+        private final int inFlight;
+        private final long admitted;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+
+        Metrics(Priority priority, int queued, int inFlight, long admitted, long totalWaitNanos, long maxWaitNanos) {
+            this.priority = priority;
+            this.queued = queued;
+            this.inFlight = inFlight;
+            this.admitted = admitted;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Get the number of requests currently waiting for a slot.
+         *
+         * @return the queue length
+         */
+        public int getQueued() {
+            return queued;
+        }
+
+        /**
+         * Get the number of admitted requests currently holding a slot.
+         *
+         * @return the number of requests in flight
+         */
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        /**
+         * Get the total number of requests admitted so far.
+         *
+         * @return the admitted count
+         */
+        public long getAdmitted() {
+            return admitted;
+        }
+
+        /**
+         * Get the total time admitted requests spent waiting for a slot.
+         *
+         * @return the summed queue wait in nanoseconds
+         */
+        public long getTotalWaitNanos() {
+            return totalWaitNanos;
+        }
+
+        /**
+         * Get the average time admitted requests spent waiting for a slot.
+         *
+         * @return the mean queue wait in nanoseconds, or 0 if none were admitted
+         */
+        public long getAverageWaitNanos() {
+            return admitted == 0 ? 0 : totalWaitNanos / admitted;
+        }
+
+        /**
+         * Get the longest time an admitted request spent waiting for a slot.
+         *
+         * @return the maximum queue wait in nanoseconds
+         */
+        public long getMaxWaitNanos() {
+            return maxWaitNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" + priority +
+                    ", queued=" + queued +
+                    ", inFlight=" + inFlight +
+                    ", admitted=" + admitted +
+                    ", avgWaitMs=" + getAverageWaitNanos() / 1_000_000.0 +
+                    ", maxWaitMs=" + maxWaitNanos / 1_000_000.0 +
+                    '}';
+        }
+    }
+
+    /**
+     * Memory budget usage across all tenants.
+     */
+    public static final class MemoryMetrics {
+        private final long budget;
+        private final long reservedBytes;
+        private final long peakReservedBytes;
+        private final long rejected;
+
+        MemoryMetrics(long budget, long reservedBytes, long peakReservedBytes, long rejected) {
+            this.budget = budget;
+            this.reservedBytes = reservedBytes;
+            this.peakReservedBytes = peakReservedBytes;
+            this.rejected = rejected;
+        }
+
+        /**
+         * Get the configured budget.
+         *
+         * @return the budget in bytes, or 0 if unlimited
+         */
+        public long getBudget() {
+            return budget;
+        }
+
+        /**
+         * Get the bytes currently reserved by admitted requests.
+         *
+         * @return the reserved bytes
+         */
+        public long getReservedBytes() {
+            return reservedBytes;
+        }
+
+        /**
+         * Get the highest reservation seen so far.
+         *
+         * @return the peak reserved bytes
+         */
+        public long getPeakReservedBytes() {
+            return peakReservedBytes;
+        }
+
+        /**
+         * Get the number of requests rejected because they did not fit the budget.
+         *
+         * @return the rejected count
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        @Override
+        public String toString() {
+            return "MemoryMetrics{budget=" + budget +
+                    ", reservedBytes=" + reservedBytes +
+                    ", peakReservedBytes=" + peakReservedBytes +
+                    ", rejected=" + rejected +
+                    '}';
+        }
+    }
+}
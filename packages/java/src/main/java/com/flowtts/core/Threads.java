@@ -0,0 +1,46 @@
+package com.flowtts.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors that run blocking SDK work.
+ *
+ * <p>This is the Java 11 implementation, which always uses daemon platform threads.
+ * The multi-release JAR carries a Java 21 version of this class under
+ * {@code META-INF/versions/21} that runs work on virtual threads when asked to.
+ * Code that blocks while holding a monitor, such as OkHttp, pins a virtual thread to its
+ * carrier, so only pass {@code virtual} for work that blocks in {@code java.*} I/O and
+ * {@code java.util.concurrent} locks.</p>
+ */
+public final class Threads {
+
+    private Threads() {
+    }
+
+    /**
+     * Check if this runtime can run SDK work on virtual threads.
+     *
+     * @return true on Java 21 or later when loaded from the multi-release JAR
+     */
+    public static boolean isVirtualAvailable() {
+        return false;
+    }
+
+    /**
+     * Create an executor that starts a thread per task, or reuses idle ones.
+     *
+     * @param name    the thread name prefix
+     * @param virtual whether to use virtual threads when available
+     * @return a new unbounded executor
+     */
+    public static ExecutorService newExecutor(String name, boolean virtual) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
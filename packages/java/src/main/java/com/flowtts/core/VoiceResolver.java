@@ -1,5 +1,6 @@
 package com.flowtts.core;
 
+import com.flowtts.jfr.VoiceCatalogLoadEvent;
 import com.flowtts.model.Voice;
 import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
@@ -13,6 +14,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
@@ -33,7 +35,8 @@ public class VoiceResolver {
         OPENAI_VOICE_MAP.put("shimmer", "v-female-m1KpW7zE");  // Female, expressive
     }
 
-    private final Object lock = new Object();
+    // Not a monitor: loading reads resources, which would pin a virtual thread to its carrier
+    private final ReentrantLock lock = new ReentrantLock();
     private volatile Map<String, Map<String, Voice>> voicesByModel;
 
     /**
@@ -128,15 +131,20 @@ public class VoiceResolver {
 
     private void ensureLoaded() {
         if (voicesByModel == null) {
-            synchronized (lock) {
+            lock.lock();
+            try {
                 if (voicesByModel == null) {
                     voicesByModel = loadVoices();
                 }
+            } finally {
+                lock.unlock();
             }
         }
     }
 
     private Map<String, Map<String, Voice>> loadVoices() {
+        VoiceCatalogLoadEvent event = new VoiceCatalogLoadEvent();
+        event.begin();
         Map<String, Map<String, Voice>> result = new HashMap<>();
         Gson gson = new Gson();
 
@@ -170,6 +178,14 @@ public class VoiceResolver {
             }
         }
 
+        event.end();
+        if (event.shouldCommit()) {
+            event.models = result.size();
+            for (Map<String, Voice> voices : result.values()) {
+                event.voices += voices.size();
+            }
+            event.commit();
+        }
         return result;
     }
 
@@ -0,0 +1,696 @@
+package com.flowtts.emulator;
+
+import com.flowtts.core.Threads;
+import com.flowtts.utils.Signature;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local emulator of the Tencent TRTC AI TTS API for offline load and latency testing.
+ *
+ * <p>The emulator serves the {@code TextToSpeech} (JSON) and {@code TextToSpeechSSE}
+ * actions over plain HTTP, so the client's HTTP, SSE and signing layers are exercised
+ * exactly as against the real endpoint. Requests are checked with the same TC3-HMAC-SHA256
+ * algorithm as {@link Signature} when credentials are registered. Audio is deterministic
+ * 16-bit mono PCM whose length is proportional to the text, and timing, throughput,
+ * concurrency limits and failures are configurable.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * try (TtsEmulator emulator = TtsEmulator.builder()
+ *         .credentials("test-id", "test-key")
+ *         .timeToFirstByte(Duration.ofMillis(150))
+ *         .chunkInterval(Duration.ofMillis(40))
+ *         .build()
+ *         .start()) {
+ *     FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+ *         .secretId("test-id")
+ *         .secretKey("test-key")
+ *         .sdkAppId(1)
+ *         .endpoint(emulator.getEndpoint())
+ *         .scheme("http")
+ *         .build());
+ *     client.synthesize(options);
+ * }
+ * }</pre>
+ *
+ * <p>Or run standalone:</p>
+ * <pre>
+ * java -cp flow-tts.jar:flow-tts-tools.jar:... com.flowtts.emulator.TtsEmulator --port 8080 --ttfb-ms 150
+ * </pre>
+ */
+public class TtsEmulator implements Closeable {
+    /** Action of the JSON synthesis API. */
+    public static final String ACTION_SYNC = "TextToSpeech";
+    /** Action of the streaming synthesis API. */
+    public static final String ACTION_STREAM = "TextToSpeechSSE";
+
+    private static final Gson gson = new Gson();
+    private static final long MAX_CLOCK_SKEW_SECONDS = 300;
+    private static final int BACKLOG = 4096;
+
+    private final int port;
+    private final Map<String, String> credentials;
+    private final long ttfbNanos;
+    private final int chunkSize;
+    private final long chunkIntervalNanos;
+    private final long bandwidth;
+    private final int millisPerCharacter;
+    private final int maxConcurrentRequests;
+    private final List<Fault> faults;
+    private final double disconnectProbability;
+    private final Random random;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private TtsEmulator(Builder builder) {
+        this.port = builder.port;
+        this.credentials = new HashMap<>(builder.credentials);
+        this.ttfbNanos = builder.timeToFirstByte.toNanos();
+        this.chunkSize = builder.chunkSize;
+        this.chunkIntervalNanos = builder.chunkInterval.toNanos();
+        this.bandwidth = builder.bandwidth;
+        this.millisPerCharacter = builder.millisPerCharacter;
+        this.maxConcurrentRequests = builder.maxConcurrentRequests;
+        this.faults = new ArrayList<>(builder.faults);
+        this.disconnectProbability = builder.disconnectProbability;
+        this.random = new Random(builder.seed);
+    }
+
+    /**
+     * Create a new builder.
+     *
+     * @return a new Builder instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Start serving on the loopback interface.
+     *
+     * @return this emulator
+     * @throws IOException if the port cannot be bound
+     */
+    public TtsEmulator start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        // Each open request parks a handler thread, so use virtual threads where available
+        executor = Threads.newExecutor("flow-tts-emulator", true);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        return this;
+    }
+
+    /**
+     * Get the port the emulator listens on.
+     *
+     * @return the bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Get the endpoint to configure on the client with
+     * {@link com.flowtts.FlowTTSConfig.Builder#endpoint(String)}.
+     *
+     * @return the endpoint as host:port
+     */
+    public String getEndpoint() {
+        return "localhost:" + getPort();
+    }
+
+    /**
+     * Get the number of requests received, including rejected ones.
+     *
+     * @return the request count
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Get the number of requests rejected by the concurrency limit.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Get the number of requests being served.
+     *
+     * @return the in-flight count
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Get the highest number of requests served at once.
+     *
+     * @return the peak in-flight count
+     */
+    public int getPeakInFlight() {
+        return peakInFlight.get();
+    }
+
+    /**
+     * Stop the emulator, closing open connections.
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String requestId = "emulator-" + sequence.incrementAndGet();
+        byte[] body = readAll(exchange.getRequestBody());
+        String action = exchange.getRequestHeaders().getFirst("X-TC-Action");
+        boolean stream = ACTION_STREAM.equals(action);
+
+        if (!"POST".equals(exchange.getRequestMethod())
+                || !(ACTION_SYNC.equals(action) || ACTION_STREAM.equals(action))) {
+            sendError(exchange, stream, requestId, "InvalidAction", "Unsupported action: " + action);
+            return;
+        }
+        String authError = verifySignature(exchange, action, body);
+        if (authError != null) {
+            sendError(exchange, stream, requestId, authError, "Signature verification failed");
+            return;
+        }
+
+        int current = inFlight.incrementAndGet();
+        boolean dropped = false;
+        try {
+            if (maxConcurrentRequests > 0 && current > maxConcurrentRequests) {
+                rejected.incrementAndGet();
+                sendError(exchange, stream, requestId, "RequestLimitExceeded",
+                        "Concurrency limit of " + maxConcurrentRequests + " exceeded");
+                return;
+            }
+            peakInFlight.accumulateAndGet(current, Math::max);
+
+            for (Fault fault : faults) {
+                if (random.nextDouble() < fault.probability) {
+                    sendError(exchange, stream, requestId, fault.code, "Injected " + fault.code);
+                    return;
+                }
+            }
+
+            JsonObject payload;
+            try {
+                payload = gson.fromJson(new String(body, StandardCharsets.UTF_8), JsonObject.class);
+            } catch (RuntimeException e) {
+                payload = null;
+            }
+            if (payload == null || !payload.has("Text")) {
+                sendError(exchange, stream, requestId, "InvalidParameter", "Text is required");
+                return;
+            }
+            String text = payload.get("Text").getAsString();
+            JsonObject format = payload.has("AudioFormat") ? payload.getAsJsonObject("AudioFormat") : new JsonObject();
+            int sampleRate = format.has("SampleRate") ? format.get("SampleRate").getAsInt() : 24000;
+            String codec = format.has("Format") ? format.get("Format").getAsString() : "pcm";
+            boolean disconnect = disconnectProbability > 0 && random.nextDouble() < disconnectProbability;
+
+            byte[] pcm = renderPcm(text, sampleRate, millisPerCharacter);
+            if (stream) {
+                sendStream(exchange, requestId, pcm, disconnect);
+            } else {
+                sendSync(exchange, requestId, "wav".equals(codec) ? wav(pcm, sampleRate) : pcm, disconnect);
+            }
+        } catch (InjectedDisconnect e) {
+            // Let the server abort the connection instead of ending the response cleanly
+            dropped = true;
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+            if (!dropped) {
+                exchange.close();
+            }
+        }
+    }
+
+    private String verifySignature(HttpExchange exchange, String action, byte[] body) {
+        if (credentials.isEmpty()) {
+            return null;
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        String timestampHeader = exchange.getRequestHeaders().getFirst("X-TC-Timestamp");
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (authorization == null || timestampHeader == null || host == null) {
+            return "AuthFailure.SignatureFailure";
+        }
+        int start = authorization.indexOf("Credential=");
+        int end = start < 0 ? -1 : authorization.indexOf('/', start);
+        if (end < 0) {
+            return "AuthFailure.SignatureFailure";
+        }
+        String secretId = authorization.substring(start + "Credential=".length(), end);
+        String secretKey = credentials.get(secretId);
+        if (secretKey == null) {
+            return "AuthFailure.SecretIdNotFound";
+        }
+        long timestamp;
+        try {
+            timestamp = Long.parseLong(timestampHeader);
+        } catch (NumberFormatException e) {
+            return "AuthFailure.SignatureFailure";
+        }
+        if (Math.abs(Instant.now().getEpochSecond() - timestamp) > MAX_CLOCK_SKEW_SECONDS) {
+            return "AuthFailure.SignatureExpire";
+        }
+        TreeMap<String, String> expected = Signature.generateHeaders(
+                secretId, secretKey, host, action, sha256(body), timestamp);
+        return authorization.equals(expected.get("Authorization")) ? null : "AuthFailure.SignatureFailure";
+    }
+
+    private void sendSync(HttpExchange exchange, String requestId, byte[] audio, boolean disconnect)
+            throws IOException {
+        JsonObject response = new JsonObject();
+        response.addProperty("Audio", Base64.getEncoder().encodeToString(audio));
+        response.addProperty("RequestId", requestId);
+        JsonObject root = new JsonObject();
+        root.add("Response", response);
+        byte[] json = gson.toJson(root).getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        sleepNanos(ttfbNanos);
+        exchange.sendResponseHeaders(200, json.length);
+        OutputStream out = exchange.getResponseBody();
+        long startNanos = System.nanoTime();
+        for (int offset = 0; offset < json.length; offset += chunkSize) {
+            if (disconnect && offset >= json.length / 2) {
+                throw new InjectedDisconnect();
+            }
+            int n = Math.min(chunkSize, json.length - offset);
+            throttle(startNanos, offset + n);
+            out.write(json, offset, n);
+            out.flush();
+        }
+    }
+
+    private void sendStream(HttpExchange exchange, String requestId, byte[] pcm, boolean disconnect)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        sleepNanos(ttfbNanos);
+
+        int chunks = Math.max(1, (pcm.length + chunkSize - 1) / chunkSize);
+        long startNanos = System.nanoTime();
+        long sent = 0;
+        for (int seq = 0; seq < chunks; seq++) {
+            if (disconnect && seq >= chunks / 2) {
+                throw new InjectedDisconnect();
+            }
+            if (seq > 0) {
+                sleepNanos(chunkIntervalNanos);
+            }
+            int offset = seq * chunkSize;
+            int n = Math.min(chunkSize, pcm.length - offset);
+            JsonObject event = new JsonObject();
+            event.addProperty("Audio", Base64.getEncoder().encodeToString(
+                    Arrays.copyOfRange(pcm, offset, offset + n)));
+            event.addProperty("RequestId", requestId);
+            event.addProperty("SubtitleSeq", seq);
+            event.addProperty("Final", seq == chunks - 1 ? 1 : 0);
+            byte[] frame = ("data: " + gson.toJson(event) + "\n\n").getBytes(StandardCharsets.UTF_8);
+            sent += frame.length;
+            throttle(startNanos, sent);
+            out.write(frame);
+            out.flush();
+        }
+    }
+
+    private void sendError(HttpExchange exchange, boolean stream, String requestId, String code, String message)
+            throws IOException {
+        JsonObject error = new JsonObject();
+        error.addProperty("Code", code);
+        error.addProperty("Message", message);
+        JsonObject response = new JsonObject();
+        response.add("Error", error);
+        response.addProperty("RequestId", requestId);
+        JsonObject root = new JsonObject();
+        root.add("Response", response);
+        String json = gson.toJson(root);
+
+        // Tencent Cloud reports API errors with HTTP 200
+        byte[] bytes = (stream ? "data: " + json + "\n\n" : json).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", stream ? "text/event-stream" : "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void throttle(long startNanos, long bytesSent) {
+        if (bandwidth > 0) {
+            long due = startNanos + bytesSent * 1_000_000_000L / bandwidth;
+            sleepNanos(due - System.nanoTime());
+        }
+    }
+
+    /**
+     * Render the deterministic audio for a text: a tone whose pitch depends on the text,
+     * lasting {@code millisPerCharacter} per code point.
+     */
+    static byte[] renderPcm(String text, int sampleRate, int millisPerCharacter) {
+        int samples = (int) ((long) text.codePointCount(0, text.length()) * millisPerCharacter * sampleRate / 1000);
+        double step = 2 * Math.PI * (200 + (text.hashCode() & 0xFF)) / sampleRate;
+        byte[] pcm = new byte[samples * 2];
+        for (int i = 0; i < samples; i++) {
+            short sample = (short) (Math.sin(i * step) * 8000);
+            pcm[i * 2] = (byte) sample;
+            pcm[i * 2 + 1] = (byte) (sample >> 8);
+        }
+        return pcm;
+    }
+
+    private static byte[] wav(byte[] pcm, int sampleRate) {
+        ByteBuffer header = ByteBuffer.allocate(44 + pcm.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + pcm.length)
+                .put("WAVE".getBytes(StandardCharsets.US_ASCII))
+                .put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(sampleRate).putInt(sampleRate * 2)
+                .putShort((short) 2).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(pcm.length)
+                .put(pcm);
+        return header.array();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run the emulator until the process is stopped.
+     *
+     * <p>Options: {@code --port}, {@code --secret-id}, {@code --secret-key}, {@code --ttfb-ms},
+     * {@code --chunk-bytes}, {@code --chunk-interval-ms}, {@code --bandwidth},
+     * {@code --max-concurrency}, {@code --disconnect-rate} and
+     * {@code --fault CODE=PROBABILITY} (repeatable).</p>
+     *
+     * @param args command line options
+     * @throws Exception if the emulator cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        Builder builder = builder().port(8080);
+        String secretId = null;
+        String secretKey = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port":
+                    builder.port(Integer.parseInt(value));
+                    break;
+                case "--secret-id":
+                    secretId = value;
+                    break;
+                case "--secret-key":
+                    secretKey = value;
+                    break;
+                case "--ttfb-ms":
+                    builder.timeToFirstByte(Duration.ofMillis(Long.parseLong(value)));
+                    break;
+                case "--chunk-bytes":
+                    builder.chunkSize(Integer.parseInt(value));
+                    break;
+                case "--chunk-interval-ms":
+                    builder.chunkInterval(Duration.ofMillis(Long.parseLong(value)));
+                    break;
+                case "--bandwidth":
+                    builder.bandwidth(Long.parseLong(value));
+                    break;
+                case "--max-concurrency":
+                    builder.maxConcurrentRequests(Integer.parseInt(value));
+                    break;
+                case "--disconnect-rate":
+                    builder.disconnectProbability(Double.parseDouble(value));
+                    break;
+                case "--fault":
+                    int eq = value.indexOf('=');
+                    builder.fault(value.substring(0, eq), Double.parseDouble(value.substring(eq + 1)));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (secretId != null && secretKey != null) {
+            builder.credentials(secretId, secretKey);
+        }
+        TtsEmulator emulator = builder.build().start();
+        System.out.println("TTS emulator listening on " + emulator.getEndpoint());
+    }
+
+    private static final class InjectedDisconnect extends IOException {
+        InjectedDisconnect() {
+            super("Injected disconnect");
+        }
+    }
+
+    private static final class Fault {
+        final String code;
+        final double probability;
+
+        Fault(String code, double probability) {
+            this.code = code;
+            this.probability = probability;
+        }
+    }
+
+    /**
+     * Builder for TtsEmulator.
+     */
+    public static class Builder {
+        private int port;
+        private final Map<String, String> credentials = new HashMap<>();
+        private Duration timeToFirstByte = Duration.ZERO;
+        private int chunkSize = 4800;
+        private Duration chunkInterval = Duration.ZERO;
+        private long bandwidth;
+        private int millisPerCharacter = 80;
+        private int maxConcurrentRequests;
+        private final List<Fault> faults = new ArrayList<>();
+        private double disconnectProbability;
+        private long seed = 42;
+
+        /**
+         * Set the port to listen on (default: 0, an ephemeral port).
+         *
+         * @param port the port
+         * @return this builder
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Accept requests signed with these credentials.
+         * Signatures are only verified when at least one credential is registered.
+         *
+         * @param secretId  the Secret ID
+         * @param secretKey the Secret Key
+         * @return this builder
+         */
+        public Builder credentials(String secretId, String secretKey) {
+            this.credentials.put(secretId, secretKey);
+            return this;
+        }
+
+        /**
+         * Set the delay before the first byte of a response (default: none).
+         *
+         * @param timeToFirstByte the delay
+         * @return this builder
+         */
+        public Builder timeToFirstByte(Duration timeToFirstByte) {
+            this.timeToFirstByte = timeToFirstByte;
+            return this;
+        }
+
+        /**
+         * Set the PCM bytes per streamed chunk, and the write size of JSON responses
+         * (default: 4800, 100ms at 24kHz).
+         *
+         * @param chunkSize the chunk size in bytes
+         * @return this builder
+         */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Set the delay between streamed chunks (default: none).
+         *
+         * @param chunkInterval the delay
+         * @return this builder
+         */
+        public Builder chunkInterval(Duration chunkInterval) {
+            this.chunkInterval = chunkInterval;
+            return this;
+        }
+
+        /**
+         * Limit the response throughput of each request (default: unlimited).
+         *
+         * @param bytesPerSecond the bandwidth in bytes per second, or 0 for unlimited
+         * @return this builder
+         */
+        public Builder bandwidth(long bytesPerSecond) {
+            this.bandwidth = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * Set the audio duration rendered per character of text (default: 80).
+         *
+         * @param millisPerCharacter the duration in milliseconds
+         * @return this builder
+         */
+        public Builder millisPerCharacter(int millisPerCharacter) {
+            this.millisPerCharacter = millisPerCharacter;
+            return this;
+        }
+
+        /**
+         * Reject requests beyond this many at once with {@code RequestLimitExceeded}
+         * (default: 0, unlimited).
+         *
+         * @param maxConcurrentRequests the limit
+         * @return this builder
+         */
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        /**
+         * Fail a fraction of requests with an API error such as
+         * {@code RequestLimitExceeded}, {@code AuthFailure} or {@code InternalError}.
+         *
+         * @param code        the error code to return
+         * @param probability the fraction of requests to fail, from 0 to 1
+         * @return this builder
+         */
+        public Builder fault(String code, double probability) {
+            this.faults.add(new Fault(code, probability));
+            return this;
+        }
+
+        /**
+         * Drop the connection half way through a fraction of responses.
+         *
+         * @param probability the fraction of requests to cut off, from 0 to 1
+         * @return this builder
+         */
+        public Builder disconnectProbability(double probability) {
+            this.disconnectProbability = probability;
+            return this;
+        }
+
+        /**
+         * Set the seed for fault injection (default: 42).
+         *
+         * @param seed the random seed
+         * @return this builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Build the TtsEmulator instance.
+         *
+         * @return a new TtsEmulator, not yet started
+         * @throws IllegalArgumentException if a setting is invalid
+         */
+        public TtsEmulator build() {
+            if (chunkSize <= 0) {
+                throw new IllegalArgumentException("chunkSize must be positive");
+            }
+            if (millisPerCharacter <= 0) {
+                throw new IllegalArgumentException("millisPerCharacter must be positive");
+            }
+            if (bandwidth < 0 || maxConcurrentRequests < 0) {
+                throw new IllegalArgumentException("limits must not be negative");
+            }
+            if (timeToFirstByte.isNegative() || chunkInterval.isNegative()) {
+                throw new IllegalArgumentException("delays must not be negative");
+            }
+            return new TtsEmulator(this);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.flowtts.exception;
+
+/**
+ * Thrown to a stream's listener when the stream was cancelled by the caller
+ * (code {@code Cancelled}) or ran past its deadline (code {@code DeadlineExceeded}).
+ *
+ * <p>Cancellation is routine, for example on barge-in, so this exception does not
+ * record a stack trace.</p>
+ */
+public class CancelledException extends FlowTTSException {
+    public CancelledException(String code, String message, String requestId) {
+        super(code, message, requestId, null, null, false);
+    }
+}
@@ -0,0 +1,21 @@
+package com.flowtts.exception;
+
+/**
+ * Broad classes of failure, for deciding how to react to an error.
+ */
+public enum ErrorCategory {
+    /** The request was rejected by a rate, concurrency or memory limit; retry later. */
+    THROTTLED,
+    /** The credentials were rejected or lack permission. */
+    AUTH,
+    /** The request itself is invalid; retrying it unchanged fails again. */
+    INVALID_PARAMETER,
+    /** The service failed to process a valid request. */
+    SERVER,
+    /** The connection failed or timed out. */
+    NETWORK,
+    /** The client ended the request, for example by cancelling it. */
+    CLIENT,
+    /** The error code is not known to this SDK. */
+    UNKNOWN
+}
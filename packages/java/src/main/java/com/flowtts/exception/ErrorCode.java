@@ -0,0 +1,137 @@
+package com.flowtts.exception;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Error codes of Tencent Cloud and of this SDK, with their category and whether a
+ * retry may succeed.
+ *
+ * <p>Tencent codes have dotted sub-codes such as {@code InvalidParameterValue.TextTooLong};
+ * {@link #of(String)} maps a sub-code without its own constant to its parent code.</p>
+ */
+public enum ErrorCode {
+    AUTH_FAILURE("AuthFailure", ErrorCategory.AUTH, false, 0),
+    /** The request timestamp is too far from the server's clock; a re-signed retry may pass. */
+    SIGNATURE_EXPIRE("AuthFailure.SignatureExpire", ErrorCategory.AUTH, true, 0),
+    UNAUTHORIZED_OPERATION("UnauthorizedOperation", ErrorCategory.AUTH, false, 0),
+    OPERATION_DENIED("OperationDenied", ErrorCategory.AUTH, false, 0),
+    /** HTTP 401 without a Tencent error body. */
+    HTTP_UNAUTHORIZED("HttpError.Unauthorized", ErrorCategory.AUTH, false, 0),
+    /** HTTP 403 without a Tencent error body. */
+    HTTP_FORBIDDEN("HttpError.Forbidden", ErrorCategory.AUTH, false, 0),
+
+    INVALID_PARAMETER("InvalidParameter", ErrorCategory.INVALID_PARAMETER, false, 0),
+    INVALID_PARAMETER_VALUE("InvalidParameterValue", ErrorCategory.INVALID_PARAMETER, false, 0),
+    MISSING_PARAMETER("MissingParameter", ErrorCategory.INVALID_PARAMETER, false, 0),
+    UNKNOWN_PARAMETER("UnknownParameter", ErrorCategory.INVALID_PARAMETER, false, 0),
+    UNSUPPORTED_OPERATION("UnsupportedOperation", ErrorCategory.INVALID_PARAMETER, false, 0),
+    INVALID_ACTION("InvalidAction", ErrorCategory.INVALID_PARAMETER, false, 0),
+    UNSUPPORTED_REGION("UnsupportedRegion", ErrorCategory.INVALID_PARAMETER, false, 0),
+    REQUEST_SIZE_LIMIT_EXCEEDED("RequestSizeLimitExceeded", ErrorCategory.INVALID_PARAMETER, false, 0),
+    RESOURCE_NOT_FOUND("ResourceNotFound", ErrorCategory.INVALID_PARAMETER, false, 0),
+    /** Any other HTTP status outside 2xx and 5xx without a Tencent error body, such as 400, 404 or 413. */
+    HTTP_REQUEST_REJECTED("HttpError.RequestRejected", ErrorCategory.INVALID_PARAMETER, false, 0),
+
+    REQUEST_LIMIT_EXCEEDED("RequestLimitExceeded", ErrorCategory.THROTTLED, true, 1000),
+    LIMIT_EXCEEDED("LimitExceeded", ErrorCategory.THROTTLED, true, 1000),
+    RESOURCE_INSUFFICIENT("ResourceInsufficient", ErrorCategory.THROTTLED, true, 1000),
+    /** HTTP 429 without a Tencent error body. */
+    TOO_MANY_REQUESTS("TooManyRequests", ErrorCategory.THROTTLED, true, 1000),
+    /** HTTP 503 without a Tencent error body. */
+    SERVICE_UNAVAILABLE("HttpError.ServiceUnavailable", ErrorCategory.THROTTLED, true, 1000),
+    /** The client's memory budget is full; retry once in-flight requests complete. */
+    MEMORY_BUDGET_EXCEEDED("MemoryBudgetExceeded", ErrorCategory.THROTTLED, true, 0),
+
+    INTERNAL_ERROR("InternalError", ErrorCategory.SERVER, true, 0),
+    RESOURCE_UNAVAILABLE("ResourceUnavailable", ErrorCategory.SERVER, true, 0),
+    RESOURCE_IN_USE("ResourceInUse", ErrorCategory.SERVER, true, 0),
+    FAILED_OPERATION("FailedOperation", ErrorCategory.SERVER, false, 0),
+    /** An HTTP 5xx status other than 503 without a Tencent error body. */
+    HTTP_ERROR("HttpError", ErrorCategory.SERVER, true, 0),
+    /** The response could not be parsed. */
+    INVALID_RESPONSE("InvalidResponse", ErrorCategory.SERVER, true, 0),
+
+    NETWORK_ERROR("NetworkError", ErrorCategory.NETWORK, true, 0),
+    DEADLINE_EXCEEDED("DeadlineExceeded", ErrorCategory.NETWORK, true, 0),
+
+    CANCELLED("Cancelled", ErrorCategory.CLIENT, false, 0),
+    INTERRUPTED("Interrupted", ErrorCategory.CLIENT, false, 0),
+    CLIENT_CLOSED("ClientClosed", ErrorCategory.CLIENT, false, 0),
+    SUBSCRIBER_TOO_SLOW("SubscriberTooSlow", ErrorCategory.CLIENT, false, 0),
+
+    /** No code, or a code not known to this SDK. */
+    UNKNOWN(null, ErrorCategory.UNKNOWN, false, 0);
+
+    private static final Map<String, ErrorCode> byCode = new HashMap<>();
+
+    static {
+        for (ErrorCode code : values()) {
+            if (code.code != null) {
+                byCode.put(code.code, code);
+            }
+        }
+    }
+
+    private final String code;
+    private final ErrorCategory category;
+    private final boolean retryable;
+    private final long retryAfterMillis;
+
+    ErrorCode(String code, ErrorCategory category, boolean retryable, long retryAfterMillis) {
+        this.code = code;
+        this.category = category;
+        this.retryable = retryable;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Look up a code, falling back to its parent for dotted sub-codes.
+     *
+     * @param code the error code string, may be null
+     * @return the matching constant, or {@link #UNKNOWN}
+     */
+    public static ErrorCode of(String code) {
+        while (code != null) {
+            ErrorCode match = byCode.get(code);
+            if (match != null) {
+                return match;
+            }
+            int dot = code.lastIndexOf('.');
+            code = dot > 0 ? code.substring(0, dot) : null;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Get the code as sent by the service.
+     *
+     * @return the code string, or null for {@link #UNKNOWN}
+     */
+    public String getCode() {
+        return code;
+    }
+
+    public ErrorCategory getCategory() {
+        return category;
+    }
+
+    /**
+     * Check whether the same request may succeed if sent again.
+     *
+     * @return true if a retry may succeed
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    /**
+     * Get how long to wait before retrying.
+     *
+     * @return the suggested delay, or null if there is no suggestion
+     */
+    public Duration getRetryAfter() {
+        return retryAfterMillis > 0 ? Duration.ofMillis(retryAfterMillis) : null;
+    }
+}
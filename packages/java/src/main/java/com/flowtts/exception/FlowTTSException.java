@@ -1,34 +1,73 @@
 package com.flowtts.exception;
 
+import java.time.Duration;
+
 /**
  * Exception thrown when a Flow TTS operation fails.
+ *
+ * <p>{@link #getErrorCode()} maps the code to an {@link ErrorCode} with a category and a
+ * retry hint, so callers can branch without comparing strings:</p>
+ * <pre>{@code
+ * } catch (FlowTTSException e) {
+ *     if (e.isRetryable()) {
+ *         Duration delay = e.getRetryAfter() != null ? e.getRetryAfter() : backoff.next();
+ *         // schedule a retry
+ *     }
+ * }
+ * }</pre>
  */
 public class FlowTTSException extends RuntimeException {
     private final String code;
     private final String requestId;
+    private final ErrorCode errorCode;
+    private final Duration retryAfter;
 
     public FlowTTSException(String message) {
-        super(message);
-        this.code = null;
-        this.requestId = null;
+        this(null, message, null, null, null, true);
     }
 
     public FlowTTSException(String message, Throwable cause) {
-        super(message, cause);
-        this.code = null;
-        this.requestId = null;
+        this(null, message, null, cause, null, true);
     }
 
     public FlowTTSException(String code, String message, String requestId) {
-        super(message);
-        this.code = code;
-        this.requestId = requestId;
+        this(code, message, requestId, null, null, true);
     }
 
     public FlowTTSException(String code, String message, String requestId, Throwable cause) {
-        super(message, cause);
+        this(code, message, requestId, cause, null, true);
+    }
+
+    /**
+     * Create an exception, optionally without a stack trace for failures that are
+     * expected in volume.
+     *
+     * @param retryAfter         the suggested retry delay, or null for the code's default
+     * @param writableStackTrace false to skip filling in the stack trace
+     */
+    protected FlowTTSException(String code, String message, String requestId, Throwable cause,
+                               Duration retryAfter, boolean writableStackTrace) {
+        super(message, cause, writableStackTrace, writableStackTrace);
         this.code = code;
         this.requestId = requestId;
+        this.errorCode = ErrorCode.of(code);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Create the exception for an error returned by the service: a
+     * {@link ThrottledException} for throttling codes, otherwise a FlowTTSException.
+     *
+     * @param code      the error code
+     * @param message   the error message
+     * @param requestId the request ID, may be null
+     * @return the exception
+     */
+    public static FlowTTSException of(String code, String message, String requestId) {
+        if (ErrorCode.of(code).getCategory() == ErrorCategory.THROTTLED) {
+            return new ThrottledException(code, message, requestId);
+        }
+        return new FlowTTSException(code, message, requestId);
     }
 
     /**
@@ -40,6 +79,42 @@ public class FlowTTSException extends RuntimeException {
         return code;
     }
 
+    /**
+     * Get the error code as a constant.
+     *
+     * @return the code, or {@link ErrorCode#UNKNOWN} if there is none or it is not known
+     */
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * Get the category of the error.
+     *
+     * @return the category
+     */
+    public ErrorCategory getCategory() {
+        return errorCode.getCategory();
+    }
+
+    /**
+     * Check whether the same request may succeed if sent again.
+     *
+     * @return true if a retry may succeed
+     */
+    public boolean isRetryable() {
+        return errorCode.isRetryable();
+    }
+
+    /**
+     * Get how long to wait before retrying.
+     *
+     * @return the suggested delay, or null if there is no suggestion
+     */
+    public Duration getRetryAfter() {
+        return retryAfter != null ? retryAfter : errorCode.getRetryAfter();
+    }
+
     /**
      * Get the request ID associated with the error.
      *
@@ -0,0 +1,49 @@
+package com.flowtts.exception;
+
+/**
+ * Thrown when a request is rejected because its estimated audio does not fit the
+ * client's memory budget and the client is configured to fail fast.
+ *
+ * <p>The error code is {@code MemoryBudgetExceeded}. Retrying after in-flight requests
+ * complete may succeed. Like other {@link ThrottledException}s, it has no stack trace.</p>
+ */
+public class MemoryBudgetExceededException extends ThrottledException {
+    private final long requestedBytes;
+    private final long reservedBytes;
+    private final long budget;
+
+    public MemoryBudgetExceededException(long requestedBytes, long reservedBytes, long budget) {
+        super("MemoryBudgetExceeded", "Request needs " + requestedBytes + " bytes but " + reservedBytes
+                + " of the " + budget + " byte memory budget are in use", null);
+        this.requestedBytes = requestedBytes;
+        this.reservedBytes = reservedBytes;
+        this.budget = budget;
+    }
+
+    /**
+     * Get the estimated audio size of the rejected request.
+     *
+     * @return the requested bytes
+     */
+    public long getRequestedBytes() {
+        return requestedBytes;
+    }
+
+    /**
+     * Get the bytes reserved by admitted requests when this one was rejected.
+     *
+     * @return the reserved bytes
+     */
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * Get the configured memory budget.
+     *
+     * @return the budget in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+}
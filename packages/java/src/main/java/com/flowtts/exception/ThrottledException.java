@@ -0,0 +1,24 @@
+package com.flowtts.exception;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a request is rejected by a rate, concurrency or memory limit.
+ *
+ * <p>Rejections arrive in bursts under overload, so this exception does not record a
+ * stack trace. Retry after {@link #getRetryAfter()}.</p>
+ */
+public class ThrottledException extends FlowTTSException {
+    public ThrottledException(String code, String message, String requestId) {
+        this(code, message, requestId, null);
+    }
+
+    /**
+     * Create the exception with an explicit retry hint.
+     *
+     * @param retryAfter the suggested retry delay, or null for the code's default
+     */
+    public ThrottledException(String code, String message, String requestId, Duration retryAfter) {
+        super(code, message, requestId, null, retryAfter, false);
+    }
+}
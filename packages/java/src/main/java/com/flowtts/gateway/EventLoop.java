@@ -0,0 +1,156 @@
+package com.flowtts.gateway;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A selector thread that owns a set of connections.
+ *
+ * <p>All socket I/O and connection state changes run on the loop thread. Other threads,
+ * such as stream listeners, hand work over with {@link #execute(Runnable)}.</p>
+ */
+final class EventLoop implements Runnable {
+    private static final long TICK_MILLIS = 1000;
+
+    private final SpeechGateway gateway;
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // Avoids a wakeup system call per task while the loop is already awake
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private volatile boolean running = true;
+
+    EventLoop(SpeechGateway gateway, String name) throws IOException {
+        this.gateway = gateway;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (!inLoop() && wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                GatewayConnection connection = new GatewayConnection(gateway, this, channel);
+                connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+            } catch (IOException e) {
+                closeQuietly(channel);
+            }
+        });
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+        try {
+            while (running) {
+                selector.select(TICK_MILLIS);
+                wakeupPending.set(false);
+                runTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    dispatch(key);
+                }
+                long now = System.nanoTime();
+                if (now - nextTick >= 0) {
+                    nextTick = now + TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+                    expireIdle(now);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Fall through and release the connections
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof GatewayConnection) {
+                    ((GatewayConnection) key.attachment()).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private void dispatch(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        Object attachment = key.attachment();
+        if (attachment == gateway) {
+            gateway.accept();
+            return;
+        }
+        GatewayConnection connection = (GatewayConnection) attachment;
+        if (key.isWritable()) {
+            connection.onWritable();
+        }
+        if (key.isValid() && key.isReadable()) {
+            connection.onReadable();
+        }
+    }
+
+    private void expireIdle(long now) {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof GatewayConnection) {
+                ((GatewayConnection) key.attachment()).checkIdle(now);
+            }
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+}
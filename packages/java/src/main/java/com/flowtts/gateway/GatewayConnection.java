@@ -0,0 +1,648 @@
+package com.flowtts.gateway;
+
+import com.flowtts.StreamHandle;
+import com.flowtts.StreamListener;
+import com.flowtts.model.StreamChunk;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One HTTP/1.1 connection of the gateway.
+ *
+ * <p>Requests are parsed and answered one at a time on the event loop; bytes of a
+ * pipelined request stay buffered until the current response is complete. Audio chunks
+ * are framed by the stream listener thread and queued for the loop to write; neither
+ * thread ever waits on the client. When the client reads slower than audio arrives, the
+ * loop pauses the stream's delivery once {@link SpeechGateway.Builder#maxBufferedBytes(int)}
+ * are queued, which in turn stops reading from the upstream connection, and resumes it when
+ * {@code OP_WRITE} has drained the queue.</p>
+ */
+final class GatewayConnection {
+    private static final int MAX_HEAD_SIZE = 16 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final String SPEECH_PATH = "/v1/audio/speech";
+
+    private enum AfterFlush { NOTHING, RESUME, CLOSE }
+
+    private final SpeechGateway gateway;
+    private final EventLoop loop;
+    private final SocketChannel channel;
+    private SelectionKey key;
+
+    // Loop thread only
+    private ByteBuffer in = ByteBuffer.allocate(8 * 1024);
+    private boolean reading = true;
+    private boolean continueSent;
+    private boolean keepAlive;
+    private String permit;
+    private StreamHandle handle;
+    private boolean streaming;
+    private boolean paused;
+    private long pausedSince;
+    private long lastActivity = System.nanoTime();
+
+    // Shared with the stream listener thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private long queuedBytes;
+    private boolean flushScheduled;
+    private boolean headerSent;
+    private AfterFlush afterFlush = AfterFlush.NOTHING;
+    private volatile boolean closed;
+
+    GatewayConnection(SpeechGateway gateway, EventLoop loop, SocketChannel channel) {
+        this.gateway = gateway;
+        this.loop = loop;
+        this.channel = channel;
+        gateway.connectionOpened();
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    void onReadable() {
+        if (!in.hasRemaining()) {
+            // A pipelined request is waiting for the current response; stop reading until then
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            return;
+        }
+        int read;
+        try {
+            read = channel.read(in);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (read < 0) {
+            close();
+            return;
+        }
+        lastActivity = System.nanoTime();
+        if (reading) {
+            processInput();
+        }
+    }
+
+    void onWritable() {
+        flush();
+    }
+
+    void checkIdle(long now) {
+        boolean waitingOnClient;
+        lock.lock();
+        try {
+            waitingOnClient = reading || !outbound.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+        if (waitingOnClient && now - lastActivity > gateway.idleTimeoutNanos()) {
+            close();
+        } else if (paused && now - pausedSince > gateway.writeTimeoutNanos()) {
+            // The client stopped reading
+            close();
+        }
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+        StreamHandle active = handle;
+        endStream();
+        if (active != null) {
+            active.cancel();
+        }
+        releasePermit();
+        lock.lock();
+        try {
+            outbound.clear();
+            queuedBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+        gateway.connectionClosed();
+    }
+
+    private void processInput() {
+        while (reading && !closed) {
+            in.flip();
+            int headEnd = findHeadEnd(in);
+            if (headEnd < 0) {
+                boolean tooLarge = in.limit() >= MAX_HEAD_SIZE;
+                in.position(in.limit());
+                in.limit(in.capacity());
+                if (tooLarge) {
+                    respondError(new GatewayException(431, "invalid_request_error", null, null,
+                            "Request header too large"), true);
+                } else if (!in.hasRemaining()) {
+                    ensureCapacity(MAX_HEAD_SIZE);
+                }
+                return;
+            }
+
+            Request request;
+            try {
+                request = Request.parse(in.array(), headEnd);
+            } catch (GatewayException e) {
+                in.clear();
+                respondError(e, true);
+                return;
+            }
+            int total = headEnd + request.contentLength;
+            if (request.contentLength > gateway.maxRequestSize()) {
+                in.clear();
+                respondError(new GatewayException(413, "invalid_request_error", null, null,
+                        "Request body larger than " + gateway.maxRequestSize() + " bytes"), true);
+                return;
+            }
+            if (in.limit() < total) {
+                // Wait for the rest of the body
+                in.position(in.limit());
+                in.limit(in.capacity());
+                ensureCapacity(total);
+                if (request.expectContinue && !continueSent) {
+                    continueSent = true;
+                    lock.lock();
+                    try {
+                        enqueue(ByteBuffer.wrap(CONTINUE));
+                    } finally {
+                        lock.unlock();
+                    }
+                    flush();
+                }
+                return;
+            }
+
+            byte[] body = new byte[request.contentLength];
+            System.arraycopy(in.array(), headEnd, body, 0, body.length);
+            in.position(total);
+            in.compact();
+            continueSent = false;
+            reading = false;
+            keepAlive = request.keepAlive;
+            handle(request, body);
+        }
+    }
+
+    private void handle(Request request, byte[] body) {
+        gateway.requestReceived();
+        String path = request.target;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        if ("/health".equals(path) && "GET".equals(request.method)) {
+            respond(200, "application/json", "{\"status\":\"ok\"}".getBytes(StandardCharsets.US_ASCII), false);
+            return;
+        }
+        if (!SPEECH_PATH.equals(path)) {
+            respondError(new GatewayException(404, "invalid_request_error", null, null,
+                    "Unknown path: " + path), false);
+            return;
+        }
+        if (!"POST".equals(request.method)) {
+            respondError(new GatewayException(405, "invalid_request_error", null, null,
+                    "Use POST for " + SPEECH_PATH), false);
+            return;
+        }
+
+        String clientKey;
+        if (gateway.requiresApiKey()) {
+            String authorization = request.headers.get("authorization");
+            String apiKey = authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)
+                    ? authorization.substring(7).trim() : null;
+            if (apiKey == null || !gateway.isValidApiKey(apiKey)) {
+                respondError(new GatewayException(401, "invalid_request_error", "invalid_api_key", null,
+                        "Missing or invalid API key"), false);
+                return;
+            }
+            clientKey = apiKey;
+        } else {
+            clientKey = remoteHost();
+        }
+
+        SpeechRequest speech;
+        try {
+            speech = SpeechRequest.parse(body, 0, body.length, gateway.sampleRate());
+        } catch (GatewayException e) {
+            respondError(e, false);
+            return;
+        }
+        if (!gateway.tryAcquire(clientKey)) {
+            respondError(new GatewayException(429, "rate_limit_error", "concurrency_limit_exceeded", null,
+                    "Too many concurrent requests for this client"), false);
+            return;
+        }
+        permit = clientKey;
+        streaming = true;
+        gateway.streamStarted();
+        handle = gateway.client().synthesizeStream(speech.getOptions(), new StreamListener() {
+            @Override
+            public void onChunk(StreamChunk chunk) {
+                writeAudio(speech, chunk.getAudio());
+            }
+
+            @Override
+            public void onComplete() {
+                loop.execute(() -> finishStream(speech));
+            }
+
+            @Override
+            public void onError(Exception error) {
+                loop.execute(() -> failStream(error));
+            }
+        });
+    }
+
+    // Stream listener thread
+    private void writeAudio(SpeechRequest speech, byte[] audio) {
+        if (audio.length == 0) {
+            // A zero-length chunk would end the response
+            return;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (!headerSent) {
+                sendHeader(speech);
+            }
+            enqueue(chunkFrame(audio, 0, audio.length));
+            // The flush pauses the stream if this went over the limit
+            scheduleFlush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finishStream(SpeechRequest speech) {
+        endStream();
+        if (closed) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (!headerSent) {
+                sendHeader(speech);
+            }
+            enqueue(ByteBuffer.wrap(LAST_CHUNK));
+            afterFlush = keepAlive ? AfterFlush.RESUME : AfterFlush.CLOSE;
+        } finally {
+            lock.unlock();
+        }
+        flush();
+    }
+
+    private void failStream(Exception error) {
+        endStream();
+        if (closed) {
+            return;
+        }
+        boolean started;
+        lock.lock();
+        try {
+            started = headerSent;
+        } finally {
+            lock.unlock();
+        }
+        if (started) {
+            // Audio was already sent with a 200 status; closing without the last chunk tells
+            // the client the body is incomplete
+            close();
+        } else {
+            respondError(GatewayException.from(error), false);
+        }
+    }
+
+    private void endStream() {
+        if (!streaming) {
+            return;
+        }
+        streaming = false;
+        if (paused) {
+            paused = false;
+            gateway.streamPaused(false);
+        }
+        handle = null;
+        releasePermit();
+        gateway.streamEnded();
+    }
+
+    private void releasePermit() {
+        if (permit != null) {
+            gateway.release(permit);
+            permit = null;
+        }
+    }
+
+    private void respondError(GatewayException error, boolean close) {
+        if (close) {
+            keepAlive = false;
+        }
+        gateway.errorSent();
+        respond(error.getStatus(), "application/json", error.toJson(), close);
+    }
+
+    private void respond(int status, String contentType, byte[] body, boolean close) {
+        reading = false;
+        lock.lock();
+        try {
+            boolean persistent = keepAlive && !close;
+            enqueue(ByteBuffer.wrap(head(status, contentType, body.length, persistent)));
+            enqueue(ByteBuffer.wrap(body));
+            afterFlush = persistent ? AfterFlush.RESUME : AfterFlush.CLOSE;
+        } finally {
+            lock.unlock();
+        }
+        flush();
+    }
+
+    // Caller holds the lock
+    private void sendHeader(SpeechRequest speech) {
+        headerSent = true;
+        enqueue(ByteBuffer.wrap(head(200, speech.getContentType(), -1, keepAlive)));
+        if (speech.isWav()) {
+            byte[] header = streamingWavHeader(gateway.sampleRate());
+            enqueue(chunkFrame(header, 0, header.length));
+        }
+    }
+
+    // Caller holds the lock
+    private void enqueue(ByteBuffer buffer) {
+        outbound.add(buffer);
+        queuedBytes += buffer.remaining();
+    }
+
+    // Caller holds the lock
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            loop.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        if (closed) {
+            return;
+        }
+        AfterFlush action = AfterFlush.NOTHING;
+        boolean pending;
+        boolean overLimit;
+        lock.lock();
+        try {
+            flushScheduled = false;
+            try {
+                ByteBuffer head;
+                while ((head = outbound.peek()) != null) {
+                    int written = channel.write(head);
+                    if (written > 0) {
+                        queuedBytes -= written;
+                        lastActivity = System.nanoTime();
+                    }
+                    if (head.hasRemaining()) {
+                        break;
+                    }
+                    outbound.poll();
+                }
+            } catch (IOException e) {
+                action = AfterFlush.CLOSE;
+                outbound.clear();
+            }
+            overLimit = queuedBytes > gateway.maxBufferedBytes();
+            pending = !outbound.isEmpty();
+            if (!pending && action == AfterFlush.NOTHING) {
+                action = afterFlush;
+                afterFlush = AfterFlush.NOTHING;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (action == AfterFlush.CLOSE) {
+            close();
+            return;
+        }
+        int ops = key.interestOps();
+        key.interestOps(pending ? ops | SelectionKey.OP_WRITE : ops & ~SelectionKey.OP_WRITE);
+        applyBackpressure(overLimit);
+        if (action == AfterFlush.RESUME) {
+            resume();
+        }
+    }
+
+    // Chunks already being delivered may still arrive after the pause; they are only queued
+    private void applyBackpressure(boolean overLimit) {
+        StreamHandle active = handle;
+        if (active == null || overLimit == paused) {
+            return;
+        }
+        paused = overLimit;
+        gateway.streamPaused(overLimit);
+        if (overLimit) {
+            pausedSince = System.nanoTime();
+            active.pause();
+        } else {
+            active.resume();
+        }
+    }
+
+    private void resume() {
+        lock.lock();
+        try {
+            headerSent = false;
+        } finally {
+            lock.unlock();
+        }
+        reading = true;
+        lastActivity = System.nanoTime();
+        key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        if (in.position() > 0) {
+            processInput();
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (in.capacity() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(size);
+            in.flip();
+            grown.put(in);
+            in = grown;
+        }
+    }
+
+    private String remoteHost() {
+        try {
+            SocketAddress address = channel.getRemoteAddress();
+            return address instanceof InetSocketAddress
+                    ? ((InetSocketAddress) address).getAddress().getHostAddress()
+                    : String.valueOf(address);
+        } catch (IOException e) {
+            return "unknown";
+        }
+    }
+
+    private static int findHeadEnd(ByteBuffer buffer) {
+        byte[] array = buffer.array();
+        for (int i = 3, end = buffer.limit(); i < end; i++) {
+            if (array[i] == '\n' && array[i - 1] == '\r' && array[i - 2] == '\n' && array[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer chunkFrame(byte[] data, int offset, int length) {
+        byte[] size = Integer.toHexString(length).getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer frame = ByteBuffer.allocate(size.length + length + 4);
+        frame.put(size).put(CRLF).put(data, offset, length).put(CRLF);
+        frame.flip();
+        return frame;
+    }
+
+    private static byte[] head(int status, String contentType, long contentLength, boolean keepAlive) {
+        StringBuilder head = new StringBuilder(160)
+                .append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n")
+                .append("Content-Type: ").append(contentType).append("\r\n");
+        if (contentLength >= 0) {
+            head.append("Content-Length: ").append(contentLength).append("\r\n");
+        } else {
+            head.append("Transfer-Encoding: chunked\r\n");
+        }
+        if (status == 405) {
+            head.append("Allow: POST\r\n");
+        }
+        head.append(keepAlive ? "Connection: keep-alive\r\n" : "Connection: close\r\n").append("\r\n");
+        return head.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 400:
+                return "Bad Request";
+            case 401:
+                return "Unauthorized";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 411:
+                return "Length Required";
+            case 413:
+                return "Payload Too Large";
+            case 429:
+                return "Too Many Requests";
+            case 431:
+                return "Request Header Fields Too Large";
+            case 502:
+                return "Bad Gateway";
+            case 504:
+                return "Gateway Timeout";
+            default:
+                return "Error";
+        }
+    }
+
+    // Sizes are unknown while streaming, so they are set to the maximum as most players expect
+    static byte[] streamingWavHeader(int sampleRate) {
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(-1)
+                .put("WAVE".getBytes(StandardCharsets.US_ASCII))
+                .put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16)
+                .putShort((short) 1).putShort((short) 1)
+                .putInt(sampleRate).putInt(sampleRate * 2)
+                .putShort((short) 2).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(-1);
+        return header.array();
+    }
+
+    /**
+     * A parsed request head.
+     */
+    private static final class Request {
+        final String method;
+        final String target;
+        final Map<String, String> headers;
+        final int contentLength;
+        final boolean keepAlive;
+        final boolean expectContinue;
+
+        private Request(String method, String target, Map<String, String> headers, int contentLength,
+                        boolean keepAlive, boolean expectContinue) {
+            this.method = method;
+            this.target = target;
+            this.headers = headers;
+            this.contentLength = contentLength;
+            this.keepAlive = keepAlive;
+            this.expectContinue = expectContinue;
+        }
+
+        static Request parse(byte[] bytes, int length) {
+            String[] lines = new String(bytes, 0, length - 4, StandardCharsets.ISO_8859_1).split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+                throw badRequest("Malformed request line");
+            }
+            Map<String, String> headers = new HashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) {
+                    throw badRequest("Malformed header line");
+                }
+                headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                        lines[i].substring(colon + 1).trim());
+            }
+            if (headers.containsKey("transfer-encoding")) {
+                throw new GatewayException(411, "invalid_request_error", null, null,
+                        "Chunked request bodies are not supported; send Content-Length");
+            }
+            int contentLength = 0;
+            String value = headers.get("content-length");
+            if (value != null) {
+                try {
+                    contentLength = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw badRequest("Invalid Content-Length");
+                }
+                if (contentLength < 0) {
+                    throw badRequest("Invalid Content-Length");
+                }
+            }
+            String connection = headers.getOrDefault("connection", "");
+            boolean keepAlive = "HTTP/1.1".equals(requestLine[2])
+                    ? !"close".equalsIgnoreCase(connection)
+                    : "keep-alive".equalsIgnoreCase(connection);
+            boolean expectContinue = "100-continue".equalsIgnoreCase(headers.get("expect"));
+            return new Request(requestLine[0], requestLine[1], headers, contentLength, keepAlive, expectContinue);
+        }
+
+        private static GatewayException badRequest(String message) {
+            return new GatewayException(400, "invalid_request_error", null, null, message);
+        }
+    }
+}
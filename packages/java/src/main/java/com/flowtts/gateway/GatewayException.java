@@ -0,0 +1,63 @@
+package com.flowtts.gateway;
+
+import com.flowtts.exception.ErrorCode;
+import com.flowtts.exception.FlowTTSException;
+import com.google.gson.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An error answered with an OpenAI-style JSON error body.
+ */
+final class GatewayException extends RuntimeException {
+    private final int status;
+    private final String type;
+    private final String code;
+    private final String param;
+
+    GatewayException(int status, String type, String code, String param, String message) {
+        super(message, null, false, false);
+        this.status = status;
+        this.type = type;
+        this.code = code;
+        this.param = param;
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    /**
+     * Map an SDK failure that happened before any audio was sent.
+     */
+    static GatewayException from(Exception error) {
+        String message = error.getMessage() != null ? error.getMessage() : error.toString();
+        if (!(error instanceof FlowTTSException) || ((FlowTTSException) error).getCode() == null) {
+            return new GatewayException(502, "api_error", null, null, message);
+        }
+        FlowTTSException failure = (FlowTTSException) error;
+        String code = failure.getCode();
+        if (failure.getErrorCode() == ErrorCode.DEADLINE_EXCEEDED) {
+            return new GatewayException(504, "api_error", code, null, message);
+        }
+        switch (failure.getCategory()) {
+            case INVALID_PARAMETER:
+                return new GatewayException(400, "invalid_request_error", code, null, message);
+            case THROTTLED:
+                return new GatewayException(429, "rate_limit_error", code, null, message);
+            default:
+                return new GatewayException(502, "api_error", code, null, message);
+        }
+    }
+
+    byte[] toJson() {
+        JsonObject error = new JsonObject();
+        error.addProperty("message", getMessage());
+        error.addProperty("type", type);
+        error.addProperty("param", param);
+        error.addProperty("code", code);
+        JsonObject root = new JsonObject();
+        root.add("error", error);
+        return root.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
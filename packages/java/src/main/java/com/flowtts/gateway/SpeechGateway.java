@@ -0,0 +1,579 @@
+package com.flowtts.gateway;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP gateway that serves the OpenAI {@code POST /v1/audio/speech} endpoint from a
+ * {@link FlowTTS} client, so existing OpenAI SDKs and tools can use Flow TTS by changing
+ * their base URL.
+ *
+ * <p>Audio is streamed with chunked transfer encoding as it arrives from
+ * {@link FlowTTS#synthesizeStream}, so the first bytes reach the caller after the
+ * upstream time to first byte rather than after the whole clip. The server uses
+ * non-blocking I/O on a few selector threads and keeps connections alive between
+ * requests. Requests can be limited per client, identified by API key or, without
+ * keys, by remote address. Errors before the first audio byte are answered with an
+ * OpenAI-style JSON error; a failure after that closes the connection without the final
+ * chunk.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * try (SpeechGateway gateway = SpeechGateway.builder(client)
+ *         .port(8000)
+ *         .apiKey("sk-internal")
+ *         .maxConcurrentPerClient(8)
+ *         .build()
+ *         .start()) {
+ *     // curl http://localhost:8000/v1/audio/speech -H "Authorization: Bearer sk-internal" \
+ *     //     -d '{"model":"tts-1","input":"Hello","voice":"alloy"}' -o hello.mp3
+ * }
+ * }</pre>
+ *
+ * <p>Or run standalone with credentials from {@code TX_SECRET_ID}, {@code TX_SECRET_KEY}
+ * and {@code TRTC_SDK_APP_ID}:</p>
+ * <pre>
+ * java -cp flow-tts.jar:flow-tts-tools.jar:... com.flowtts.gateway.SpeechGateway --port 8000 --max-per-client 8
+ * </pre>
+ *
+ * <p>The gateway ships in the {@code tools} jar, not the main SDK jar.</p>
+ *
+ * <p>The gateway does not close the client.</p>
+ */
+public class SpeechGateway implements Closeable {
+    private static final int BACKLOG = 1024;
+
+    private final FlowTTS client;
+    private final String host;
+    private final int port;
+    private final int ioThreads;
+    private final Set<String> apiKeys;
+    private final int maxConcurrentPerClient;
+    private final int maxRequestSize;
+    private final int maxBufferedBytes;
+    private final long idleTimeoutNanos;
+    private final long writeTimeoutNanos;
+    private final int sampleRate;
+
+    private final Map<String, Integer> permits = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final AtomicInteger pausedStreams = new AtomicInteger();
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    private ServerSocketChannel server;
+    private EventLoop[] loops;
+    private int nextLoop;
+
+    private SpeechGateway(Builder builder) {
+        this.client = builder.client;
+        this.host = builder.host;
+        this.port = builder.port;
+        this.ioThreads = builder.ioThreads;
+        this.apiKeys = new HashSet<>(builder.apiKeys);
+        this.maxConcurrentPerClient = builder.maxConcurrentPerClient;
+        this.maxRequestSize = builder.maxRequestSize;
+        this.maxBufferedBytes = builder.maxBufferedBytes;
+        this.idleTimeoutNanos = builder.idleTimeout.toNanos();
+        this.writeTimeoutNanos = builder.writeTimeout.toNanos();
+        this.sampleRate = builder.sampleRate;
+    }
+
+    /**
+     * Create a new builder.
+     *
+     * @param client the client to synthesize with
+     * @return a new Builder instance
+     */
+    public static Builder builder(FlowTTS client) {
+        return new Builder(client);
+    }
+
+    /**
+     * Bind the port and start serving.
+     *
+     * @return this gateway
+     * @throws IOException if the port cannot be bound
+     */
+    public SpeechGateway start() throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(host != null ? new InetSocketAddress(host, port) : new InetSocketAddress(port), BACKLOG);
+        server.configureBlocking(false);
+        loops = new EventLoop[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            loops[i] = new EventLoop(this, "flow-tts-gateway-" + i);
+            loops[i].start();
+        }
+        EventLoop acceptor = loops[0];
+        acceptor.execute(() -> {
+            try {
+                server.register(acceptor.selector(), SelectionKey.OP_ACCEPT, this);
+            } catch (IOException e) {
+                close();
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Get the bound port, e.g. after binding port 0.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Get the number of requests received.
+     *
+     * @return the request count
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Get the number of requests answered with an error status.
+     *
+     * @return the error count
+     */
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    /**
+     * Get the number of requests rejected by the per-client concurrency limit.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Get the number of speech streams in progress.
+     *
+     * @return the active stream count
+     */
+    public int getActiveStreams() {
+        return activeStreams.get();
+    }
+
+    /**
+     * Get the number of speech streams paused because their client reads slower than
+     * audio arrives.
+     *
+     * @return the paused stream count
+     */
+    public int getPausedStreams() {
+        return pausedStreams.get();
+    }
+
+    /**
+     * Get the number of open client connections.
+     *
+     * @return the connection count
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * Stop accepting connections and close all open ones, cancelling their streams.
+     */
+    @Override
+    public void close() {
+        if (server != null) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+        if (loops != null) {
+            for (EventLoop loop : loops) {
+                if (loop != null) {
+                    loop.shutdown();
+                }
+            }
+        }
+    }
+
+    // Runs on the first event loop
+    void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                loops[nextLoop].register(channel);
+                nextLoop = (nextLoop + 1) % loops.length;
+            }
+        } catch (IOException e) {
+            // Out of file descriptors or closed; retried on the next select
+        }
+    }
+
+    FlowTTS client() {
+        return client;
+    }
+
+    boolean requiresApiKey() {
+        return !apiKeys.isEmpty();
+    }
+
+    boolean isValidApiKey(String apiKey) {
+        return apiKeys.contains(apiKey);
+    }
+
+    boolean tryAcquire(String clientKey) {
+        if (maxConcurrentPerClient <= 0) {
+            return true;
+        }
+        boolean[] acquired = new boolean[1];
+        permits.compute(clientKey, (k, held) -> {
+            int count = held == null ? 0 : held;
+            if (count >= maxConcurrentPerClient) {
+                return held;
+            }
+            acquired[0] = true;
+            return count + 1;
+        });
+        if (!acquired[0]) {
+            rejected.incrementAndGet();
+        }
+        return acquired[0];
+    }
+
+    void release(String clientKey) {
+        if (maxConcurrentPerClient > 0) {
+            permits.computeIfPresent(clientKey, (k, held) -> held <= 1 ? null : held - 1);
+        }
+    }
+
+    int maxRequestSize() {
+        return maxRequestSize;
+    }
+
+    int maxBufferedBytes() {
+        return maxBufferedBytes;
+    }
+
+    long idleTimeoutNanos() {
+        return idleTimeoutNanos;
+    }
+
+    long writeTimeoutNanos() {
+        return writeTimeoutNanos;
+    }
+
+    int sampleRate() {
+        return sampleRate;
+    }
+
+    void requestReceived() {
+        requests.incrementAndGet();
+    }
+
+    void errorSent() {
+        errors.incrementAndGet();
+    }
+
+    void streamStarted() {
+        activeStreams.incrementAndGet();
+    }
+
+    void streamEnded() {
+        activeStreams.decrementAndGet();
+    }
+
+    void streamPaused(boolean paused) {
+        if (paused) {
+            pausedStreams.incrementAndGet();
+        } else {
+            pausedStreams.decrementAndGet();
+        }
+    }
+
+    void connectionOpened() {
+        openConnections.incrementAndGet();
+    }
+
+    void connectionClosed() {
+        openConnections.decrementAndGet();
+    }
+
+    /**
+     * Run the gateway until the process is stopped.
+     *
+     * @param args command line options: {@code --host}, {@code --port}, {@code --io-threads},
+     *             {@code --api-key} (repeatable), {@code --max-per-client},
+     *             {@code --endpoint} and {@code --scheme}
+     * @throws Exception if the gateway cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        FlowTTSConfig.Builder config = FlowTTSConfig.builder()
+                .secretId(System.getenv("TX_SECRET_ID"))
+                .secretKey(System.getenv("TX_SECRET_KEY"))
+                .sdkAppId(Long.parseLong(System.getenv().getOrDefault("TRTC_SDK_APP_ID", "0")));
+        String region = System.getenv("TRTC_REGION");
+        if (region != null) {
+            config.region(region);
+        }
+        String host = null;
+        int port = 8000;
+        int ioThreads = Runtime.getRuntime().availableProcessors();
+        int maxPerClient = 0;
+        Set<String> keys = new HashSet<>();
+        if (args.length % 2 != 0) {
+            System.err.println("Usage: SpeechGateway [--host <host>] [--port <port>] [--io-threads <n>]"
+                    + " [--api-key <key>]... [--max-per-client <n>] [--endpoint <host:port>] [--scheme <scheme>]");
+            System.exit(2);
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--host":
+                    host = value;
+                    break;
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--io-threads":
+                    ioThreads = Integer.parseInt(value);
+                    break;
+                case "--api-key":
+                    keys.add(value);
+                    break;
+                case "--max-per-client":
+                    maxPerClient = Integer.parseInt(value);
+                    break;
+                case "--endpoint":
+                    config.endpoint(value);
+                    break;
+                case "--scheme":
+                    config.scheme(value);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        FlowTTS client = new FlowTTS(config.build());
+        SpeechGateway server = builder(client)
+                .host(host)
+                .port(port)
+                .ioThreads(ioThreads)
+                .apiKeys(keys)
+                .maxConcurrentPerClient(maxPerClient)
+                .build()
+                .start();
+        System.err.println("Speech gateway listening on port " + server.getPort());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            client.close();
+        }));
+        Thread.currentThread().join();
+    }
+
+    /**
+     * Builder for SpeechGateway.
+     */
+    public static class Builder {
+        private final FlowTTS client;
+        private String host;
+        private int port = 8000;
+        private int ioThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private final Set<String> apiKeys = new HashSet<>();
+        private int maxConcurrentPerClient;
+        private int maxRequestSize = 64 * 1024;
+        private int maxBufferedBytes = 1024 * 1024;
+        private Duration idleTimeout = Duration.ofSeconds(60);
+        private Duration writeTimeout = Duration.ofSeconds(30);
+        private int sampleRate = 24000;
+
+        private Builder(FlowTTS client) {
+            this.client = client;
+        }
+
+        /**
+         * Set the address to bind (default: all interfaces).
+         *
+         * @param host the host name or address, or null for all interfaces
+         * @return this builder
+         */
+        public Builder host(String host) {
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * Set the port to listen on (default: 8000). Use 0 for an ephemeral port.
+         *
+         * @param port the port
+         * @return this builder
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Set the number of selector threads (default: half the available processors).
+         * The threads only move bytes; synthesis runs on the client's threads.
+         *
+         * @param ioThreads the thread count
+         * @return this builder
+         */
+        public Builder ioThreads(int ioThreads) {
+            this.ioThreads = ioThreads;
+            return this;
+        }
+
+        /**
+         * Accept an API key as {@code Authorization: Bearer <key>}.
+         * Without keys, requests are not authenticated.
+         *
+         * @param apiKey the API key
+         * @return this builder
+         */
+        public Builder apiKey(String apiKey) {
+            this.apiKeys.add(apiKey);
+            return this;
+        }
+
+        /**
+         * Accept several API keys.
+         *
+         * @param apiKeys the API keys
+         * @return this builder
+         * @see #apiKey(String)
+         */
+        public Builder apiKeys(Collection<String> apiKeys) {
+            this.apiKeys.addAll(apiKeys);
+            return this;
+        }
+
+        /**
+         * Limit the speech requests in progress per client (default: 0, unlimited).
+         * Clients are identified by API key, or by remote address without keys.
+         * Requests over the limit are rejected with status 429.
+         *
+         * @param maxConcurrentPerClient the limit, or 0 for unlimited
+         * @return this builder
+         */
+        public Builder maxConcurrentPerClient(int maxConcurrentPerClient) {
+            this.maxConcurrentPerClient = maxConcurrentPerClient;
+            return this;
+        }
+
+        /**
+         * Set the largest accepted request body (default: 64 KiB).
+         *
+         * @param maxRequestSize the limit in bytes
+         * @return this builder
+         */
+        public Builder maxRequestSize(int maxRequestSize) {
+            this.maxRequestSize = maxRequestSize;
+            return this;
+        }
+
+        /**
+         * Set how much audio may be queued for a slow client before the upstream stream
+         * is paused (default: 1 MiB). The pause holds chunks in the client's callback queue,
+         * so with {@link com.flowtts.model.CallbackOverflowPolicy#FAIL} a client that stays
+         * paused for a whole queue ends its stream.
+         *
+         * @param maxBufferedBytes the limit in bytes
+         * @return this builder
+         */
+        public Builder maxBufferedBytes(int maxBufferedBytes) {
+            this.maxBufferedBytes = maxBufferedBytes;
+            return this;
+        }
+
+        /**
+         * Set how long a connection may sit idle between requests, or without the client
+         * reading a pending response, before it is closed (default: 60 seconds).
+         *
+         * @param idleTimeout the timeout
+         * @return this builder
+         */
+        public Builder idleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * Set how long a stream may stay paused on a full buffer before the connection is
+         * closed (default: 30 seconds). Paused streams are checked about once a second.
+         *
+         * @param writeTimeout the timeout
+         * @return this builder
+         */
+        public Builder writeTimeout(Duration writeTimeout) {
+            this.writeTimeout = writeTimeout;
+            return this;
+        }
+
+        /**
+         * Set the sample rate of {@code pcm} and {@code wav} responses (default: 24000,
+         * as in the OpenAI API).
+         *
+         * @param sampleRate the sample rate in Hz
+         * @return this builder
+         */
+        public Builder sampleRate(int sampleRate) {
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        /**
+         * Build the SpeechGateway instance.
+         *
+         * @return a new SpeechGateway, not yet started
+         * @throws IllegalArgumentException if a setting is out of range
+         */
+        public SpeechGateway build() {
+            if (client == null) {
+                throw new IllegalArgumentException("client is required");
+            }
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("port must be between 0 and 65535");
+            }
+            if (ioThreads <= 0) {
+                throw new IllegalArgumentException("ioThreads must be positive");
+            }
+            if (maxConcurrentPerClient < 0) {
+                throw new IllegalArgumentException("maxConcurrentPerClient must not be negative");
+            }
+            if (maxRequestSize <= 0 || maxBufferedBytes <= 0) {
+                throw new IllegalArgumentException("size limits must be positive");
+            }
+            if (idleTimeout == null || idleTimeout.isNegative() || idleTimeout.isZero()
+                    || writeTimeout == null || writeTimeout.isNegative() || writeTimeout.isZero()) {
+                throw new IllegalArgumentException("timeouts must be positive");
+            }
+            if (sampleRate <= 0) {
+                throw new IllegalArgumentException("sampleRate must be positive");
+            }
+            return new SpeechGateway(this);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.flowtts.gateway;
+
+import com.flowtts.model.SynthesizeOptions;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An OpenAI {@code POST /v1/audio/speech} request mapped onto {@link SynthesizeOptions}.
+ */
+final class SpeechRequest {
+    // Same limit as the OpenAI endpoint
+    static final int MAX_INPUT_LENGTH = 4096;
+
+    private static final Gson gson = new Gson();
+
+    private final SynthesizeOptions options;
+    private final String contentType;
+    private final boolean wav;
+
+    private SpeechRequest(SynthesizeOptions options, String contentType, boolean wav) {
+        this.options = options;
+        this.contentType = contentType;
+        this.wav = wav;
+    }
+
+    SynthesizeOptions getOptions() {
+        return options;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Whether the PCM stream must be wrapped in a WAV header, which is written up front
+     * with unknown sizes since the length is not known until the stream ends.
+     */
+    boolean isWav() {
+        return wav;
+    }
+
+    /**
+     * Parse a request body.
+     *
+     * @throws GatewayException with status 400 if the request is invalid
+     */
+    static SpeechRequest parse(byte[] body, int offset, int length, int sampleRate) {
+        JsonObject json;
+        try {
+            JsonElement element = gson.fromJson(new String(body, offset, length, StandardCharsets.UTF_8), JsonElement.class);
+            if (element == null || !element.isJsonObject()) {
+                throw invalid(null, "Request body must be a JSON object");
+            }
+            json = element.getAsJsonObject();
+        } catch (JsonParseException e) {
+            throw invalid(null, "Request body is not valid JSON");
+        }
+
+        String input = string(json, "input");
+        if (input == null || input.isEmpty()) {
+            throw invalid("input", "input is required");
+        }
+        if (input.length() > MAX_INPUT_LENGTH) {
+            throw invalid("input", "input must be at most " + MAX_INPUT_LENGTH + " characters");
+        }
+
+        SynthesizeOptions.Builder builder = SynthesizeOptions.builder()
+                .text(input)
+                .sampleRate(sampleRate);
+        String voice = string(json, "voice");
+        if (voice != null) {
+            builder.voice(voice);
+        }
+        String model = model(string(json, "model"));
+        if (model != null) {
+            builder.model(model);
+        }
+        if (json.has("speed") && !json.get("speed").isJsonNull()) {
+            double speed;
+            try {
+                speed = json.get("speed").getAsDouble();
+            } catch (RuntimeException e) {
+                throw invalid("speed", "speed must be a number");
+            }
+            if (speed < 0.25 || speed > 4.0) {
+                throw invalid("speed", "speed must be between 0.25 and 4.0");
+            }
+            builder.speed(speed);
+        }
+        String streamFormat = string(json, "stream_format");
+        if (streamFormat != null && !"audio".equals(streamFormat)) {
+            throw invalid("stream_format", "Only the audio stream format is supported");
+        }
+
+        String format = string(json, "response_format");
+        switch (format == null ? "mp3" : format) {
+            case "mp3":
+                return new SpeechRequest(builder.codec("mp3").build(), "audio/mpeg", false);
+            case "opus":
+                return new SpeechRequest(builder.codec("ogg_opus").build(), "audio/ogg", false);
+            case "flac":
+                return new SpeechRequest(builder.codec("flac").build(), "audio/flac", false);
+            case "wav":
+                return new SpeechRequest(builder.codec("pcm").build(), "audio/wav", true);
+            case "pcm":
+                return new SpeechRequest(builder.codec("pcm").build(), "audio/pcm", false);
+            default:
+                throw invalid("response_format", "Unsupported response_format: " + format);
+        }
+    }
+
+    private static String model(String model) {
+        if (model == null) {
+            return null;
+        }
+        if (model.startsWith("flow-")) {
+            return model;
+        }
+        // OpenAI model names select the closest Flow model
+        return model.endsWith("-hd") ? "flow-01-ex" : "flow-01-turbo";
+    }
+
+    private static String string(JsonObject json, String name) {
+        JsonElement element = json.get(name);
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        if (!element.isJsonPrimitive() || !element.getAsJsonPrimitive().isString()) {
+            throw invalid(name, name + " must be a string");
+        }
+        return element.getAsString();
+    }
+
+    private static GatewayException invalid(String param, String message) {
+        return new GatewayException(400, "invalid_request_error", null, param, message);
+    }
+}
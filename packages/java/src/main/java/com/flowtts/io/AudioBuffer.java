@@ -0,0 +1,159 @@
+package com.flowtts.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Audio held off the Java heap in a chain of pooled direct segments.
+ *
+ * <p>Instances are created by {@link DirectAudioDecoder}. Once {@link #release()} is
+ * called the segments go back to their {@link SegmentPool} and every accessor throws
+ * {@link IllegalStateException}; callers must make sure no other thread is still
+ * reading the audio at that point.</p>
+ */
+public final class AudioBuffer {
+    private final SegmentPool pool;
+    private final int size;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Flipped segments; null once released
+    private ByteBuffer[] segments;
+    private ByteBuffer contiguous;
+
+    AudioBuffer(SegmentPool pool, List<ByteBuffer> segments, int size) {
+        this.pool = pool;
+        this.segments = segments.toArray(new ByteBuffer[0]);
+        this.size = size;
+    }
+
+    /**
+     * Get the audio length.
+     *
+     * @return the number of bytes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the audio as a single read-only direct buffer.
+     *
+     * <p>When the audio spans more than one segment it is copied once into a new direct
+     * buffer of the exact size, and the segments are returned to the pool; later calls
+     * return views of that buffer. Use {@link #writeTo(WritableByteChannel)} to avoid the
+     * copy.</p>
+     *
+     * @return a read-only buffer positioned at the start of the audio
+     */
+    public ByteBuffer asByteBuffer() {
+        lock.lock();
+        try {
+            ByteBuffer[] chain = checkNotReleased();
+            if (contiguous == null) {
+                if (chain.length == 1) {
+                    contiguous = chain[0];
+                } else {
+                    contiguous = ByteBuffer.allocateDirect(size);
+                    for (ByteBuffer segment : chain) {
+                        contiguous.put(segment.duplicate());
+                    }
+                    contiguous.flip();
+                    for (ByteBuffer segment : chain) {
+                        pool.release(segment);
+                    }
+                    segments = new ByteBuffer[]{contiguous};
+                }
+            }
+            return contiguous.asReadOnlyBuffer();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write the audio to a channel, e.g. a {@link java.nio.channels.FileChannel} or socket.
+     *
+     * @param channel the channel to write to
+     * @return the number of bytes written
+     * @throws IOException if the channel fails
+     */
+    public long writeTo(WritableByteChannel channel) throws IOException {
+        for (ByteBuffer segment : chain()) {
+            ByteBuffer view = segment.duplicate();
+            while (view.hasRemaining()) {
+                channel.write(view);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Copy the audio onto the heap.
+     *
+     * @return a new array holding the audio
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (ByteBuffer segment : chain()) {
+            int length = segment.remaining();
+            segment.duplicate().get(bytes, offset, length);
+            offset += length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Return the segments to the pool. Calling this more than once has no effect.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            if (segments == null) {
+                return;
+            }
+            // A buffer consolidated by asByteBuffer() does not fit the pool and is left to the GC
+            for (ByteBuffer segment : segments) {
+                if (segment != contiguous || segment.capacity() == pool.getSegmentSize()) {
+                    pool.release(segment);
+                }
+            }
+            segments = null;
+            contiguous = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Check whether {@link #release()} has been called.
+     *
+     * @return true if released
+     */
+    public boolean isReleased() {
+        lock.lock();
+        try {
+            return segments == null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ByteBuffer[] chain() {
+        lock.lock();
+        try {
+            return checkNotReleased();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ByteBuffer[] checkNotReleased() {
+        if (segments == null) {
+            throw new IllegalStateException("Audio has been released");
+        }
+        return segments;
+    }
+}
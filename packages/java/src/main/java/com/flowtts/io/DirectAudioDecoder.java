@@ -0,0 +1,214 @@
+package com.flowtts.io;
+
+import com.flowtts.exception.FlowTTSException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams the base64 audio field of a JSON response body into an {@link AudioBuffer}.
+ *
+ * <p>The body is scanned as it is read. Characters of the audio string are decoded
+ * straight into pooled direct segments, so neither the base64 text nor the decoded audio
+ * is ever staged on the heap. Everything else is copied through with the audio value
+ * emptied, leaving a small document for the caller to parse for the request ID or an
+ * error.</p>
+ *
+ * <p>A decoder reads a single body and is not thread-safe.</p>
+ */
+public final class DirectAudioDecoder {
+    private static final int[] ALPHABET = new int[128];
+
+    static {
+        Arrays.fill(ALPHABET, -1);
+        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < chars.length(); i++) {
+            ALPHABET[chars.charAt(i)] = i;
+        }
+    }
+
+    private final SegmentPool pool;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private ByteBuffer current;
+    private int size;
+
+    // Base64 state
+    private int bits;
+    private int quantum;
+    private int padding;
+
+    /**
+     * Create a decoder.
+     *
+     * @param pool the pool to take segments from
+     */
+    public DirectAudioDecoder(SegmentPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Read a JSON body, decoding the first string value of the given field.
+     *
+     * @param body  the response body; read to the end but not closed
+     * @param field the name of the field holding base64 audio, e.g. {@code Audio}
+     * @return the body with the audio value replaced by an empty string
+     * @throws IOException       if reading the body fails
+     * @throws FlowTTSException  if the audio is not valid base64
+     */
+    public String extract(InputStream body, String field) throws IOException {
+        byte[] key = ('"' + field + '"').getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream rest = new ByteArrayOutputStream(256);
+        byte[] buffer = new byte[8192];
+
+        // Scanner state outside the audio value
+        boolean inString = false;
+        boolean escaped = false;
+        int keyMatch = 0;      // bytes of key matched by the current string so far, or -1
+        boolean afterKey = false;
+        boolean afterColon = false;
+        boolean inAudio = false;
+        boolean audioDone = false;
+
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                byte b = buffer[i];
+                if (inAudio) {
+                    if (escaped) {
+                        escaped = false;
+                        decode(b);
+                    } else if (b == '\\') {
+                        escaped = true;
+                    } else if (b == '"') {
+                        inAudio = false;
+                        audioDone = true;
+                        rest.write(b);
+                    } else {
+                        decode(b);
+                    }
+                    continue;
+                }
+                rest.write(b);
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                        keyMatch = -1;
+                    } else if (b == '\\') {
+                        escaped = true;
+                        keyMatch = -1;
+                    } else if (b == '"') {
+                        inString = false;
+                        afterKey = keyMatch == key.length - 1;
+                    } else if (keyMatch >= 0) {
+                        keyMatch = keyMatch < key.length - 1 && key[keyMatch] == b ? keyMatch + 1 : -1;
+                    }
+                    continue;
+                }
+                if (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                    continue;
+                }
+                if (b == ':' && afterKey) {
+                    afterColon = true;
+                } else if (b == '"') {
+                    if (afterColon && !audioDone) {
+                        inAudio = true;
+                    } else {
+                        inString = true;
+                        keyMatch = 1;
+                    }
+                    afterColon = false;
+                } else {
+                    afterColon = false;
+                }
+                afterKey = false;
+            }
+        }
+        if (inAudio) {
+            throw new IOException("Response body ended inside the audio value");
+        }
+        finishQuantum();
+        return rest.toString("UTF-8");
+    }
+
+    /**
+     * Get the decoded audio. The decoder must not be used afterwards.
+     *
+     * @return the audio, owning the segments written so far
+     */
+    public AudioBuffer finish() {
+        if (current != null) {
+            current.flip();
+            segments.add(current);
+            current = null;
+        }
+        return new AudioBuffer(pool, segments, size);
+    }
+
+    /**
+     * Return the segments written so far to the pool, e.g. after an error response.
+     */
+    public void abort() {
+        if (current != null) {
+            pool.release(current);
+            current = null;
+        }
+        for (ByteBuffer segment : segments) {
+            pool.release(segment);
+        }
+        segments.clear();
+        size = 0;
+    }
+
+    private void decode(byte b) {
+        if (b == '=') {
+            padding++;
+            return;
+        }
+        int value = b >= 0 ? ALPHABET[b] : -1;
+        if (value < 0 || padding > 0) {
+            throw new FlowTTSException("InvalidResponse", "Invalid base64 audio data", null);
+        }
+        bits = bits << 6 | value;
+        if (++quantum == 4) {
+            put((byte) (bits >> 16));
+            put((byte) (bits >> 8));
+            put((byte) bits);
+            bits = 0;
+            quantum = 0;
+        }
+    }
+
+    private void finishQuantum() {
+        // A trailing partial quantum carries 1 or 2 bytes, with or without padding
+        if (quantum == 1 || (padding > 0 && (quantum < 2 || quantum + padding != 4))) {
+            throw new FlowTTSException("InvalidResponse", "Invalid base64 audio data", null);
+        }
+        if (quantum == 2) {
+            put((byte) (bits >> 4));
+        } else if (quantum == 3) {
+            put((byte) (bits >> 10));
+            put((byte) (bits >> 2));
+        }
+        bits = 0;
+        quantum = 0;
+        padding = 0;
+    }
+
+    private void put(byte b) {
+        if (current == null || !current.hasRemaining()) {
+            if (current != null) {
+                current.flip();
+                segments.add(current);
+            }
+            current = pool.acquire();
+        }
+        current.put(b);
+        size++;
+    }
+}
@@ -0,0 +1,478 @@
+package com.flowtts.io;
+
+import com.flowtts.StreamListener;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.StreamChunk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link StreamListener} that writes streamed audio straight to a file.
+ *
+ * <p>Chunks are copied through preallocated direct buffers into a temporary file next
+ * to the target, so memory use per stream is constant regardless of audio length. When
+ * a WAV header is requested, a placeholder header is written first and its RIFF and data
+ * sizes are patched in place on completion. The temporary file is then forced to disk
+ * according to the {@link FsyncPolicy} and atomically renamed to the target.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * FileAudioSink sink = FileAudioSink.builder(Paths.get("output.wav"))
+ *     .wavHeader(24000)
+ *     .build();
+ * client.synthesizeStream(options, sink);
+ * Path saved = sink.await(60, TimeUnit.SECONDS);
+ * }</pre>
+ *
+ * <p>A sink writes a single stream and cannot be reused.</p>
+ */
+public class FileAudioSink implements StreamListener {
+    private static final int WAV_HEADER_SIZE = 44;
+
+    /**
+     * When the written audio is forced to the storage device.
+     */
+    public enum FsyncPolicy {
+        /** Never force; rely on the operating system to flush. */
+        NONE,
+        /** Force once before the temporary file is renamed. */
+        ON_COMPLETE,
+        /** Force after every chunk and before the rename. */
+        EVERY_CHUNK
+    }
+
+    private final Path target;
+    private final Path tempFile;
+    private final int sampleRate;
+    private final boolean wavHeader;
+    private final FsyncPolicy fsyncPolicy;
+    private final CompletableFuture<Path> completion = new CompletableFuture<>();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private final AtomicReference<Throwable> writeError = new AtomicReference<>();
+
+    // Synchronous mode
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    // Asynchronous mode
+    private final AsynchronousFileChannel asyncChannel;
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final int bufferCount;
+
+    private long position;
+
+    private FileAudioSink(Builder builder) throws IOException {
+        this.target = builder.target.toAbsolutePath();
+        this.sampleRate = builder.sampleRate;
+        this.wavHeader = builder.wavHeader;
+        this.fsyncPolicy = builder.fsyncPolicy;
+
+        this.tempFile = PartFiles.create(target);
+
+        if (builder.async) {
+            this.channel = null;
+            this.buffer = null;
+            this.asyncChannel = AsynchronousFileChannel.open(tempFile, StandardOpenOption.WRITE);
+            this.bufferCount = builder.asyncBuffers;
+            this.freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+            for (int i = 0; i < bufferCount; i++) {
+                freeBuffers.add(ByteBuffer.allocateDirect(builder.bufferSize));
+            }
+        } else {
+            this.channel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+            this.buffer = ByteBuffer.allocateDirect(builder.bufferSize);
+            this.asyncChannel = null;
+            this.bufferCount = 0;
+            this.freeBuffers = null;
+        }
+
+        if (wavHeader) {
+            // Sizes are unknown until completion; they are patched in onComplete()
+            try {
+                writeAt(wavHeader(0), 0);
+            } catch (IOException e) {
+                closeChannel();
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+            position = WAV_HEADER_SIZE;
+        }
+    }
+
+    /**
+     * Create a new builder for a sink writing to the given file.
+     *
+     * @param target the file to create or replace on completion
+     * @return a new Builder instance
+     */
+    public static Builder builder(Path target) {
+        return new Builder(target);
+    }
+
+    @Override
+    public void onChunk(StreamChunk chunk) {
+        if (finished.get() || !chunk.hasAudio()) {
+            return;
+        }
+        try {
+            if (asyncChannel != null) {
+                writeAsync(chunk.getAudio());
+            } else {
+                writeSync(chunk.getAudio());
+            }
+            if (fsyncPolicy == FsyncPolicy.EVERY_CHUNK) {
+                // An asynchronous write is only queued; force once it has landed
+                awaitPendingWrites();
+                force();
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(e);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            awaitPendingWrites();
+            if (wavHeader) {
+                writeAt(wavHeader(position - WAV_HEADER_SIZE), 0);
+            }
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                force();
+            }
+            closeChannel();
+            PartFiles.moveIntoPlace(tempFile, target);
+            completion.complete(target);
+        } catch (IOException | RuntimeException e) {
+            abort(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(e);
+        }
+    }
+
+    @Override
+    public void onError(Exception error) {
+        fail(error);
+    }
+
+    /**
+     * Get a future that completes with the target path once the file is in place,
+     * or exceptionally if the stream or a write fails.
+     *
+     * @return the completion future
+     */
+    public CompletableFuture<Path> completion() {
+        return completion;
+    }
+
+    /**
+     * Wait for the file to be written and renamed into place.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of the timeout
+     * @return the target path
+     * @throws FlowTTSException if the stream or a write fails, or the wait times out
+     */
+    public Path await(long timeout, TimeUnit unit) {
+        try {
+            return completion.get(timeout, unit);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof FlowTTSException) {
+                throw (FlowTTSException) cause;
+            }
+            throw new FlowTTSException("Failed to write " + target + ": " + cause.getMessage(), cause);
+        } catch (TimeoutException e) {
+            throw new FlowTTSException("Timed out writing " + target);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FlowTTSException("Interrupted while writing " + target, e);
+        }
+    }
+
+    /**
+     * Get the number of audio bytes written so far, excluding any WAV header.
+     *
+     * @return the audio byte count
+     */
+    public long getAudioBytes() {
+        return wavHeader ? position - WAV_HEADER_SIZE : position;
+    }
+
+    private void writeSync(byte[] audio) throws IOException {
+        int offset = 0;
+        while (offset < audio.length) {
+            int n = Math.min(buffer.capacity(), audio.length - offset);
+            buffer.clear();
+            buffer.put(audio, offset, n);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            offset += n;
+        }
+    }
+
+    private void writeAsync(byte[] audio) throws IOException, InterruptedException {
+        int offset = 0;
+        while (offset < audio.length) {
+            checkWriteError();
+            // Blocks when all buffers are in flight, bounding memory per stream
+            ByteBuffer buf = freeBuffers.take();
+            int n = Math.min(buf.capacity(), audio.length - offset);
+            buf.clear();
+            buf.put(audio, offset, n);
+            buf.flip();
+            asyncChannel.write(buf, position, position, new WriteHandler(buf));
+            position += n;
+            offset += n;
+        }
+    }
+
+    private final class WriteHandler implements CompletionHandler<Integer, Long> {
+        private final ByteBuffer buf;
+
+        WriteHandler(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public void completed(Integer written, Long offset) {
+            if (buf.hasRemaining()) {
+                long next = offset + written;
+                asyncChannel.write(buf, next, next, this);
+                return;
+            }
+            freeBuffers.add(buf);
+        }
+
+        @Override
+        public void failed(Throwable exc, Long offset) {
+            writeError.compareAndSet(null, exc);
+            freeBuffers.add(buf);
+        }
+    }
+
+    private void awaitPendingWrites() throws IOException, InterruptedException {
+        if (asyncChannel == null) {
+            return;
+        }
+        // All buffers are back in the pool once every write has finished
+        ByteBuffer[] drained = new ByteBuffer[bufferCount];
+        for (int i = 0; i < bufferCount; i++) {
+            drained[i] = freeBuffers.take();
+        }
+        for (ByteBuffer buf : drained) {
+            freeBuffers.add(buf);
+        }
+        checkWriteError();
+    }
+
+    private void checkWriteError() throws IOException {
+        Throwable error = writeError.get();
+        if (error != null) {
+            throw new IOException("Asynchronous write failed: " + error.getMessage(), error);
+        }
+    }
+
+    private void writeAt(ByteBuffer data, long offset) throws IOException {
+        if (asyncChannel != null) {
+            try {
+                while (data.hasRemaining()) {
+                    offset += asyncChannel.write(data, offset).get();
+                }
+            } catch (ExecutionException e) {
+                throw new IOException("Asynchronous write failed: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing", e);
+            }
+        } else {
+            while (data.hasRemaining()) {
+                offset += channel.write(data, offset);
+            }
+        }
+    }
+
+    private void force() throws IOException {
+        if (asyncChannel != null) {
+            asyncChannel.force(false);
+        } else {
+            channel.force(false);
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (asyncChannel != null) {
+            asyncChannel.close();
+        } else {
+            channel.close();
+        }
+    }
+
+    private void fail(Throwable error) {
+        if (finished.compareAndSet(false, true)) {
+            abort(error);
+        }
+    }
+
+    private void abort(Throwable error) {
+        try {
+            closeChannel();
+        } catch (IOException ignored) {
+            // Already failing; the original error is reported
+        }
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException ignored) {
+            // Best effort cleanup of the partial file
+        }
+        completion.completeExceptionally(error);
+    }
+
+    private ByteBuffer wavHeader(long dataSize) {
+        // Sizes saturate at the 32-bit RIFF limit for oversized streams
+        long riffSize = Math.min(0xFFFFFFFFL, dataSize + 36);
+        long dataField = Math.min(0xFFFFFFFFL, dataSize);
+        int channels = 1;
+        int bitsPerSample = 16;
+        int blockAlign = channels * bitsPerSample / 8;
+
+        ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'R', 'I', 'F', 'F'});
+        header.putInt((int) riffSize);
+        header.put(new byte[]{'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+        header.putInt(16);
+        header.putShort((short) 1);
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * blockAlign);
+        header.putShort((short) blockAlign);
+        header.putShort((short) bitsPerSample);
+        header.put(new byte[]{'d', 'a', 't', 'a'});
+        header.putInt((int) dataField);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * Builder for FileAudioSink.
+     */
+    public static class Builder {
+        private final Path target;
+        private boolean wavHeader;
+        private int sampleRate = 24000;
+        private FsyncPolicy fsyncPolicy = FsyncPolicy.ON_COMPLETE;
+        private boolean async;
+        private int bufferSize = 64 * 1024;
+        private int asyncBuffers = 4;
+
+        private Builder(Path target) {
+            this.target = target;
+        }
+
+        /**
+         * Write a WAV header for 16-bit mono PCM audio (streams are always PCM).
+         *
+         * @param sampleRate the sample rate in Hz, matching the synthesis options
+         * @return this builder
+         */
+        public Builder wavHeader(int sampleRate) {
+            this.wavHeader = true;
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        /**
+         * Set when audio is forced to disk (default: ON_COMPLETE).
+         *
+         * @param fsyncPolicy the fsync policy
+         * @return this builder
+         */
+        public Builder fsync(FsyncPolicy fsyncPolicy) {
+            this.fsyncPolicy = fsyncPolicy;
+            return this;
+        }
+
+        /**
+         * Write through an AsynchronousFileChannel so chunk callbacks do not wait for
+         * the disk unless all buffers are in flight (default: false).
+         *
+         * @param async whether to write asynchronously
+         * @return this builder
+         */
+        public Builder async(boolean async) {
+            this.async = async;
+            return this;
+        }
+
+        /**
+         * Set the size of each direct buffer (default: 64 KiB).
+         *
+         * @param bufferSize the buffer size in bytes
+         * @return this builder
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * Set the number of direct buffers in flight in async mode (default: 4).
+         *
+         * @param asyncBuffers the number of buffers
+         * @return this builder
+         */
+        public Builder asyncBuffers(int asyncBuffers) {
+            this.asyncBuffers = asyncBuffers;
+            return this;
+        }
+
+        /**
+         * Build the sink and create its temporary file.
+         *
+         * @return a new FileAudioSink
+         * @throws FlowTTSException if the temporary file cannot be created
+         * @throws IllegalArgumentException if a setting is out of range
+         */
+        public FileAudioSink build() {
+            if (target == null) {
+                throw new IllegalArgumentException("target is required");
+            }
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("bufferSize must be positive");
+            }
+            if (asyncBuffers <= 0) {
+                throw new IllegalArgumentException("asyncBuffers must be positive");
+            }
+            try {
+                return new FileAudioSink(this);
+            } catch (IOException e) {
+                throw new FlowTTSException("Cannot create temporary file for " + target + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
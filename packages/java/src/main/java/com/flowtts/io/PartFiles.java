@@ -0,0 +1,57 @@
+package com.flowtts.io;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Partial files that are written next to their target and renamed into place when
+ * complete, so readers never see a truncated file.
+ *
+ * <p>{@link Files#createTempFile} would make the file, and so the target, owner-only
+ * (0600). Part files are created plainly instead and get the same permissions as any
+ * other new file in the directory, so other processes can read the result.</p>
+ */
+public final class PartFiles {
+
+    private PartFiles() {
+    }
+
+    /**
+     * Create an empty part file with a random name beside a target.
+     *
+     * @param target the file the part will become
+     * @return the new part file
+     * @throws IOException if the file cannot be created
+     */
+    public static Path create(Path target) throws IOException {
+        while (true) {
+            Path part = target.resolveSibling("." + target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".part");
+            try {
+                return Files.createFile(part);
+            } catch (FileAlreadyExistsException e) {
+                // Taken by another writer; pick another name
+            }
+        }
+    }
+
+    /**
+     * Rename a complete part file over its target, atomically where the file system allows.
+     *
+     * @param part   the part file
+     * @param target the file to create or replace
+     * @throws IOException if the file cannot be moved
+     */
+    public static void moveIntoPlace(Path part, Path target) throws IOException {
+        try {
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.flowtts.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of fixed-size direct buffers backing {@link AudioBuffer}s.
+ *
+ * <p>Direct memory is only reclaimed after the owning buffer object is garbage collected,
+ * so released segments are kept for reuse instead, up to a limit. Segments beyond the
+ * limit are dropped and left to the collector.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ */
+public class SegmentPool {
+    private final int segmentSize;
+    private final long maxPooledBytes;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicLong allocatedSegments = new AtomicLong();
+
+    /**
+     * Create a pool.
+     *
+     * @param segmentSize    the size of each segment in bytes
+     * @param maxPooledBytes the most memory kept in released segments
+     */
+    public SegmentPool(int segmentSize, long maxPooledBytes) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("segmentSize must be positive");
+        }
+        if (maxPooledBytes < 0) {
+            throw new IllegalArgumentException("maxPooledBytes must not be negative");
+        }
+        this.segmentSize = segmentSize;
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * Take a cleared segment from the pool, allocating one if the pool is empty.
+     *
+     * @return a direct buffer of {@link #getSegmentSize()} bytes
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer segment = free.poll();
+        if (segment == null) {
+            allocatedSegments.incrementAndGet();
+            return ByteBuffer.allocateDirect(segmentSize);
+        }
+        pooledBytes.addAndGet(-segmentSize);
+        segment.clear();
+        return segment;
+    }
+
+    /**
+     * Return a segment to the pool. The caller must not use it afterwards.
+     *
+     * @param segment a segment obtained from {@link #acquire()}
+     */
+    public void release(ByteBuffer segment) {
+        if (segment.capacity() != segmentSize || !segment.isDirect()) {
+            throw new IllegalArgumentException("Segment does not belong to this pool");
+        }
+        if (pooledBytes.addAndGet(segmentSize) <= maxPooledBytes) {
+            free.offer(segment);
+        } else {
+            pooledBytes.addAndGet(-segmentSize);
+        }
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Get the memory currently held in released segments.
+     *
+     * @return the pooled bytes
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * Get the number of segments allocated since the pool was created.
+     *
+     * @return the allocation count
+     */
+    public long getAllocatedSegments() {
+        return allocatedSegments.get();
+    }
+}
@@ -0,0 +1,30 @@
+package com.flowtts.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Parsing one server-sent event of a stream and decoding its audio. Fields are set by
+ * the SDK.
+ */
+@Name("com.flowtts.ChunkDecode")
+@Label("Chunk Decode")
+@Category("Flow TTS")
+@Description("Parsing and decoding one stream chunk")
+public final class ChunkDecodeEvent extends jdk.jfr.Event {
+    @Label("Event Size")
+    @Description("Characters of event data")
+    @DataAmount
+    public int dataLength;
+
+    @Label("Audio Size")
+    @DataAmount
+    public int audioBytes;
+
+    @Label("Request ID")
+    @Description("Tencent Cloud request ID")
+    public String requestId;
+}
@@ -0,0 +1,22 @@
+package com.flowtts.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Signing one request with TC3-HMAC-SHA256. Fields are set by the SDK.
+ */
+@Name("com.flowtts.Sign")
+@Label("Sign Request")
+@Category("Flow TTS")
+@Description("Generating the authorization headers of a request")
+public final class SignEvent extends jdk.jfr.Event {
+    @Label("Action")
+    public String action;
+
+    @Label("Key Derived")
+    @Description("The daily signing key was derived, rather than reused from the cache")
+    public boolean keyDerived;
+}
@@ -0,0 +1,51 @@
+package com.flowtts.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A stream started by {@link com.flowtts.FlowTTS#synthesizeStream}, from the call until
+ * it completes, fails or is cancelled. Fields are set by the SDK.
+ */
+@Name("com.flowtts.Stream")
+@Label("Stream")
+@Category("Flow TTS")
+@Description("A streaming synthesis session")
+public final class StreamEvent extends jdk.jfr.Event {
+    @Label("Model")
+    public String model;
+
+    @Label("Voice")
+    public String voice;
+
+    @Label("Codec")
+    public String codec;
+
+    @Label("Text Length")
+    @Description("Characters of text")
+    public int textLength;
+
+    @Label("Time to First Byte")
+    @Description("Time from the call to the first chunk, or 0 if none arrived")
+    @Timespan(Timespan.NANOSECONDS)
+    public long timeToFirstByte;
+
+    @Label("Chunks")
+    public int chunks;
+
+    @Label("Audio Size")
+    @DataAmount
+    public long audioBytes;
+
+    @Label("Request ID")
+    @Description("Tencent Cloud request ID")
+    public String requestId;
+
+    @Label("Error Code")
+    @Description("Code of the failure, or null if the stream completed")
+    public String errorCode;
+}
@@ -0,0 +1,52 @@
+package com.flowtts.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A call to {@link com.flowtts.FlowTTS#synthesize}, from the call until the audio is
+ * decoded or the call fails. Fields are set by the SDK.
+ */
+@Name("com.flowtts.Synthesize")
+@Label("Synthesize")
+@Category("Flow TTS")
+@Description("A synchronous synthesis call")
+public final class SynthesizeEvent extends jdk.jfr.Event {
+    @Label("Model")
+    public String model;
+
+    @Label("Voice")
+    public String voice;
+
+    @Label("Codec")
+    public String codec;
+
+    @Label("Text Length")
+    @Description("Characters of text")
+    public int textLength;
+
+    @Label("Local Variant")
+    @Description("Speed and volume were applied locally to a cached render")
+    public boolean localVariant;
+
+    @Label("Queue Time")
+    @Description("Time spent waiting for a request slot")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueTime;
+
+    @Label("Audio Size")
+    @DataAmount
+    public long audioBytes;
+
+    @Label("Request ID")
+    @Description("Tencent Cloud request ID")
+    public String requestId;
+
+    @Label("Error Code")
+    @Description("Code of the failure, or null if the call succeeded")
+    public String errorCode;
+}
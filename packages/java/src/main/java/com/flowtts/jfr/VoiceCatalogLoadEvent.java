@@ -0,0 +1,22 @@
+package com.flowtts.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Loading the bundled voice catalog, which happens once per class loader. Fields are
+ * set by the SDK.
+ */
+@Name("com.flowtts.VoiceCatalogLoad")
+@Label("Voice Catalog Load")
+@Category("Flow TTS")
+@Description("Reading and parsing the bundled voice lists")
+public final class VoiceCatalogLoadEvent extends jdk.jfr.Event {
+    @Label("Models")
+    public int models;
+
+    @Label("Voices")
+    public int voices;
+}
@@ -0,0 +1,15 @@
+package com.flowtts.model;
+
+/**
+ * Where the audio of a {@link SynthesizeResponse} is kept.
+ */
+public enum AudioStorage {
+    /** A {@code byte[]} on the Java heap (default). */
+    HEAP,
+    /**
+     * Pooled fixed-size direct buffers outside the Java heap. Large clips do not become
+     * humongous heap objects, and {@link SynthesizeResponse#release()} returns the buffers
+     * to the pool for the next response.
+     */
+    DIRECT
+}
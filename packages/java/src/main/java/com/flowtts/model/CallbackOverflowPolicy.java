@@ -0,0 +1,18 @@
+package com.flowtts.model;
+
+/**
+ * What a stream does when its listener falls a whole callback queue behind the chunks
+ * read from the connection.
+ */
+public enum CallbackOverflowPolicy {
+    /**
+     * Stop reading the connection until the listener catches up (default). The server
+     * is slowed down through TCP flow control, and no audio is lost.
+     */
+    BLOCK,
+    /**
+     * End the stream with a {@link com.flowtts.exception.FlowTTSException} whose code is
+     * {@code "SubscriberTooSlow"}, so the connection is freed right away.
+     */
+    FAIL
+}
@@ -0,0 +1,16 @@
+package com.flowtts.model;
+
+/**
+ * Scheduling class of a synthesis request.
+ *
+ * <p>When the client has a concurrency limit, waiting requests are admitted in
+ * priority order, and each class can reserve slots that lower classes cannot use.</p>
+ */
+public enum Priority {
+    /** Latency-critical work such as live voice-agent turns. */
+    INTERACTIVE,
+    /** Regular requests (default). */
+    NORMAL,
+    /** Offline bulk renders; admitted shortest text first and only into spare capacity. */
+    BULK
+}
@@ -0,0 +1,19 @@
+package com.flowtts.model;
+
+/**
+ * What a shared stream does with a subscriber that falls a whole buffer behind the
+ * upstream stream. Either way the upstream reader and the other subscribers are not
+ * slowed down.
+ */
+public enum SlowSubscriberPolicy {
+    /**
+     * End the subscriber's stream with a {@link com.flowtts.exception.FlowTTSException}
+     * whose code is {@code "SubscriberTooSlow"} (default).
+     */
+    DROP,
+    /**
+     * Skip the chunks that were overwritten and continue from the oldest one still
+     * buffered. The subscriber hears a gap instead of losing the stream.
+     */
+    SKIP
+}
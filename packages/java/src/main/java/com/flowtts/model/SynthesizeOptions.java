@@ -1,5 +1,7 @@
 package com.flowtts.model;
 
+import java.time.Duration;
+
 /**
  * Options for text-to-speech synthesis.
  */
@@ -12,6 +14,10 @@ public class SynthesizeOptions {
     private double speed;
     private double volume;
     private int pitch;
+    private Priority priority;
+    private Duration firstChunkTimeout;
+    private Duration timeout;
+    private boolean localVariant;
 
     private SynthesizeOptions(Builder builder) {
         this.text = builder.text;
@@ -22,6 +28,10 @@ public class SynthesizeOptions {
         this.speed = builder.speed;
         this.volume = builder.volume;
         this.pitch = builder.pitch;
+        this.priority = builder.priority;
+        this.firstChunkTimeout = builder.firstChunkTimeout;
+        this.timeout = builder.timeout;
+        this.localVariant = builder.localVariant;
     }
 
     public String getText() {
@@ -56,10 +66,62 @@ public class SynthesizeOptions {
         return pitch;
     }
 
+    public Priority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Get the maximum time from starting a stream to its first chunk.
+     *
+     * @return the timeout, or null if none
+     */
+    public Duration getFirstChunkTimeout() {
+        return firstChunkTimeout;
+    }
+
+    /**
+     * Get the maximum total time of a stream.
+     *
+     * @return the timeout, or null if none
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Check whether speed and volume are applied locally to a cached base render.
+     *
+     * @return true if local variants are requested
+     */
+    public boolean isLocalVariant() {
+        return localVariant;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
 
+    /**
+     * Create a builder initialized with the values of these options.
+     *
+     * @return a new Builder instance
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .text(text)
+                .voice(voice)
+                .model(model)
+                .codec(codec)
+                .sampleRate(sampleRate)
+                .speed(speed)
+                .volume(volume)
+                .pitch(pitch)
+                .priority(priority)
+                .firstChunkTimeout(firstChunkTimeout)
+                .timeout(timeout)
+                .localVariant(localVariant);
+    }
+
     public static class Builder {
         private String text;
         private String voice = "alloy";
@@ -69,6 +131,10 @@ public class SynthesizeOptions {
         private double speed = 1.0;
         private double volume = 1.0;
         private int pitch = 0;
+        private Priority priority = Priority.NORMAL;
+        private Duration firstChunkTimeout;
+        private Duration timeout;
+        private boolean localVariant;
 
         /**
          * Set the text to synthesize (required).
@@ -165,6 +231,59 @@ public class SynthesizeOptions {
             return this;
         }
 
+        /**
+         * Set the scheduling priority (default: NORMAL).
+         * Only takes effect when the client has a concurrency limit.
+         *
+         * @param priority the priority class
+         * @return this builder
+         */
+        public Builder priority(Priority priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        /**
+         * Set the maximum time from starting a stream to its first chunk, including any
+         * time spent queued for a request slot (default: none).
+         * The stream fails with error code "DeadlineExceeded" when it expires.
+         *
+         * @param firstChunkTimeout the timeout, or null for none
+         * @return this builder
+         */
+        public Builder firstChunkTimeout(Duration firstChunkTimeout) {
+            this.firstChunkTimeout = firstChunkTimeout;
+            return this;
+        }
+
+        /**
+         * Set the maximum total time of a stream, including any time spent queued for
+         * a request slot (default: none).
+         * The stream fails with error code "DeadlineExceeded" when it expires.
+         *
+         * @param timeout the timeout, or null for none
+         * @return this builder
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        /**
+         * Derive speed and volume locally from a render at speed 1.0 and volume 1.0
+         * instead of requesting the variant (default: false).
+         * The base render is requested once and cached, so further variants of the same
+         * text and voice cost no request. Applies to synchronous synthesis with the pcm
+         * or wav codec; speed is changed without changing pitch.
+         *
+         * @param localVariant whether to derive variants locally
+         * @return this builder
+         */
+        public Builder localVariant(boolean localVariant) {
+            this.localVariant = localVariant;
+            return this;
+        }
+
         /**
          * Build the SynthesizeOptions instance.
          *
@@ -175,6 +294,9 @@ public class SynthesizeOptions {
             if (text == null || text.isEmpty()) {
                 throw new IllegalArgumentException("text is required");
             }
+            if (priority == null) {
+                throw new IllegalArgumentException("priority is required");
+            }
             return new SynthesizeOptions(this);
         }
     }
@@ -1,16 +1,36 @@
 package com.flowtts.model;
 
+import com.flowtts.io.AudioBuffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
 /**
  * Response from a synchronous TTS synthesis request.
+ *
+ * <p>With {@link AudioStorage#DIRECT} storage the audio is held off the heap. Read it
+ * with {@link #asByteBuffer()} or {@link #writeTo(WritableByteChannel)}, and call
+ * {@link #release()} when done so the memory can be reused.</p>
  */
 public class SynthesizeResponse {
     private final byte[] audio;
+    private final AudioBuffer buffer;
     private final String requestId;
     private final String sessionId;
     private final String codec;
 
     public SynthesizeResponse(byte[] audio, String requestId, String sessionId, String codec) {
         this.audio = audio;
+        this.buffer = null;
+        this.requestId = requestId;
+        this.sessionId = sessionId;
+        this.codec = codec;
+    }
+
+    public SynthesizeResponse(AudioBuffer audio, String requestId, String sessionId, String codec) {
+        this.audio = null;
+        this.buffer = audio;
         this.requestId = requestId;
         this.sessionId = sessionId;
         this.codec = codec;
@@ -18,11 +38,72 @@ public class SynthesizeResponse {
 
     /**
      * Get the audio data as a byte array.
+     * For {@link AudioStorage#DIRECT direct} responses this copies the audio onto the heap.
      *
      * @return the audio bytes
+     * @throws IllegalStateException if the audio has been released
      */
     public byte[] getAudio() {
-        return audio;
+        return buffer != null ? buffer.toByteArray() : audio;
+    }
+
+    /**
+     * Get the audio length without copying it.
+     *
+     * @return the number of audio bytes
+     */
+    public int getAudioLength() {
+        return buffer != null ? buffer.size() : audio.length;
+    }
+
+    /**
+     * Check whether the audio is held off the heap.
+     *
+     * @return true for {@link AudioStorage#DIRECT} responses
+     */
+    public boolean isDirect() {
+        return buffer != null;
+    }
+
+    /**
+     * Get a read-only view of the audio.
+     *
+     * @return a buffer positioned at the start of the audio; direct for direct responses
+     * @throws IllegalStateException if the audio has been released
+     * @see AudioBuffer#asByteBuffer()
+     */
+    public ByteBuffer asByteBuffer() {
+        return buffer != null ? buffer.asByteBuffer() : ByteBuffer.wrap(audio).asReadOnlyBuffer();
+    }
+
+    /**
+     * Write the audio to a channel.
+     *
+     * @param channel the channel to write to
+     * @return the number of bytes written
+     * @throws IOException           if the channel fails
+     * @throws IllegalStateException if the audio has been released
+     */
+    public long writeTo(WritableByteChannel channel) throws IOException {
+        if (buffer != null) {
+            return buffer.writeTo(channel);
+        }
+        ByteBuffer view = ByteBuffer.wrap(audio);
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+        return audio.length;
+    }
+
+    /**
+     * Release off-heap audio so its memory can be reused by later responses.
+     * The audio must not be read afterwards. Has no effect on heap responses, and
+     * calling it more than once has no effect.
+     */
+    public void release() {
+        if (buffer != null) {
+            buffer.release();
+        }
     }
 
     /**
@@ -0,0 +1,158 @@
+package com.flowtts.trace;
+
+import com.flowtts.model.Priority;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a trace log written by {@link TraceRecorder}.
+ *
+ * <p>A record cut off at the end of the log, as left by a process that was killed while
+ * recording, ends the log.</p>
+ */
+public final class TraceReader implements Closeable {
+    private static final TraceRecord.Kind[] KINDS = TraceRecord.Kind.values();
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    private final DataInputStream in;
+    private final List<String> strings = new ArrayList<>();
+    private long previousStartMicros;
+
+    /**
+     * Open a reader over a log stream.
+     *
+     * @param in the log
+     * @throws IOException if the stream is not a trace log
+     */
+    public TraceReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        if (this.in.readInt() != TraceWriter.MAGIC) {
+            throw new IOException("Not a trace log");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != TraceWriter.VERSION) {
+            throw new IOException("Unsupported trace log version " + version);
+        }
+        // ID 0 stands for null
+        strings.add(null);
+    }
+
+    /**
+     * Read every record of a log file.
+     *
+     * @param path the log file
+     * @return the records in the order they were written
+     * @throws IOException if the file cannot be read or is not a trace log
+     */
+    public static List<TraceRecord> readAll(Path path) throws IOException {
+        List<TraceRecord> records = new ArrayList<>();
+        try (TraceReader reader = new TraceReader(Files.newInputStream(path))) {
+            TraceRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return the record, or null at the end of the log
+     * @throws IOException if the log cannot be read or is corrupt
+     */
+    public TraceRecord next() throws IOException {
+        try {
+            while (true) {
+                int tag = in.read();
+                if (tag < 0) {
+                    return null;
+                }
+                if (tag == TraceWriter.TAG_STRING) {
+                    byte[] bytes = new byte[(int) readVarLong()];
+                    in.readFully(bytes);
+                    strings.add(new String(bytes, StandardCharsets.UTF_8));
+                } else if (tag == TraceWriter.TAG_RECORD) {
+                    return readRecord();
+                } else {
+                    throw new IOException("Corrupt trace log: unknown entry " + tag);
+                }
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private TraceRecord readRecord() throws IOException {
+        TraceRecord.Kind kind = KINDS[ordinal(KINDS.length)];
+        long startMicros = previousStartMicros + unzigzag(readVarLong());
+        previousStartMicros = startMicros;
+        String model = string();
+        String voice = string();
+        String codec = string();
+        String language = string();
+        int sampleRate = (int) readVarLong();
+        float speed = in.readFloat();
+        float volume = in.readFloat();
+        int pitch = (int) unzigzag(readVarLong());
+        Priority priority = PRIORITIES[ordinal(PRIORITIES.length)];
+        boolean localVariant = (in.readUnsignedByte() & 1) != 0;
+        int textLength = (int) readVarLong();
+        long firstChunkTimeoutMillis = readVarLong();
+        long timeoutMillis = readVarLong();
+        long durationMicros = readVarLong();
+        long firstByteMicros = readVarLong();
+        long audioBytes = readVarLong();
+        String errorCode = string();
+        return new TraceRecord(kind, startMicros * 1000, model, voice, codec, sampleRate, speed, volume, pitch,
+                priority, localVariant, textLength, language, firstChunkTimeoutMillis, timeoutMillis,
+                durationMicros * 1000, firstByteMicros * 1000, audioBytes, errorCode);
+    }
+
+    private int ordinal(int count) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= count) {
+            throw new IOException("Corrupt trace log: unknown constant " + ordinal);
+        }
+        return ordinal;
+    }
+
+    private String string() throws IOException {
+        long id = readVarLong();
+        if (id >= strings.size()) {
+            throw new IOException("Corrupt trace log: unknown string " + id);
+        }
+        return strings.get((int) id);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt trace log: number too long");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
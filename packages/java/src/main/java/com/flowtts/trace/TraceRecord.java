@@ -0,0 +1,247 @@
+package com.flowtts.trace;
+
+import com.flowtts.model.Priority;
+import com.flowtts.model.SynthesizeOptions;
+import com.flowtts.utils.LanguageDetector;
+
+import java.time.Duration;
+
+/**
+ * The anonymized shape of one request: its options without the text, when it started,
+ * how long it took and how it ended.
+ *
+ * <p>The text is reduced to its length and dominant language;
+ * {@link #toOptions()} fills it with a placeholder of the same length and script, so a
+ * replay costs the service about as much as the original request.</p>
+ */
+public final class TraceRecord {
+    /**
+     * How a request was made.
+     */
+    public enum Kind {
+        /** {@link com.flowtts.FlowTTS#synthesize}. */
+        SYNC,
+        /** {@link com.flowtts.FlowTTS#synthesizeStream}. */
+        STREAM,
+        /** {@link com.flowtts.FlowTTS#synthesizeStreamShared}, one record per subscriber. */
+        SHARED_STREAM,
+        /** {@link com.flowtts.FlowTTS#openAudioStream}. */
+        AUDIO_STREAM
+    }
+
+    private static final String[] FILLERS = {
+            LanguageDetector.CHINESE, "今天天气很好我们一起去公园散步吧",
+            LanguageDetector.JAPANESE, "こんにちは今日はいい天気ですね",
+            LanguageDetector.KOREAN, "안녕하세요오늘은날씨가좋네요",
+    };
+    private static final String LATIN_FILLER = "The quick brown fox jumps over the lazy dog. ";
+
+    private final Kind kind;
+    private final long startNanos;
+    private final String model;
+    private final String voice;
+    private final String codec;
+    private final int sampleRate;
+    private final float speed;
+    private final float volume;
+    private final int pitch;
+    private final Priority priority;
+    private final boolean localVariant;
+    private final int textLength;
+    private final String language;
+    private final long firstChunkTimeoutMillis;
+    private final long timeoutMillis;
+    private final long durationNanos;
+    private final long firstByteNanos;
+    private final long audioBytes;
+    private final String errorCode;
+
+    TraceRecord(Kind kind, long startNanos, String model, String voice, String codec, int sampleRate,
+                float speed, float volume, int pitch, Priority priority, boolean localVariant,
+                int textLength, String language, long firstChunkTimeoutMillis, long timeoutMillis,
+                long durationNanos, long firstByteNanos, long audioBytes, String errorCode) {
+        this.kind = kind;
+        this.startNanos = startNanos;
+        this.model = model;
+        this.voice = voice;
+        this.codec = codec;
+        this.sampleRate = sampleRate;
+        this.speed = speed;
+        this.volume = volume;
+        this.pitch = pitch;
+        this.priority = priority;
+        this.localVariant = localVariant;
+        this.textLength = textLength;
+        this.language = language;
+        this.firstChunkTimeoutMillis = firstChunkTimeoutMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.durationNanos = durationNanos;
+        this.firstByteNanos = firstByteNanos;
+        this.audioBytes = audioBytes;
+        this.errorCode = errorCode;
+    }
+
+    static TraceRecord of(SynthesizeOptions options, Kind kind, long startNanos, long durationNanos,
+                          long firstByteNanos, long audioBytes, String errorCode) {
+        String text = options.getText();
+        return new TraceRecord(kind, startNanos, options.getModel(), options.getVoice(), options.getCodec(),
+                options.getSampleRate(), (float) options.getSpeed(), (float) options.getVolume(),
+                options.getPitch(), options.getPriority(), options.isLocalVariant(), text.length(),
+                LanguageDetector.detect(text, LanguageDetector.ENGLISH),
+                millis(options.getFirstChunkTimeout()), millis(options.getTimeout()),
+                durationNanos, firstByteNanos, audioBytes, errorCode);
+    }
+
+    /**
+     * Rebuild options for replaying this request, with placeholder text.
+     *
+     * @return the options
+     */
+    public SynthesizeOptions toOptions() {
+        SynthesizeOptions.Builder builder = SynthesizeOptions.builder()
+                .text(placeholder(textLength, language))
+                .model(model)
+                .voice(voice)
+                .codec(codec)
+                .sampleRate(sampleRate)
+                .speed(speed)
+                .volume(volume)
+                .pitch(pitch)
+                .priority(priority)
+                .localVariant(localVariant);
+        if (firstChunkTimeoutMillis > 0) {
+            builder.firstChunkTimeout(Duration.ofMillis(firstChunkTimeoutMillis));
+        }
+        if (timeoutMillis > 0) {
+            builder.timeout(Duration.ofMillis(timeoutMillis));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Build placeholder text. The same length and language always give the same text, so
+     * replayed requests that were identical can still share a stream.
+     *
+     * @param length   the number of characters
+     * @param language the ISO 639-1 language code
+     * @return the text
+     */
+    public static String placeholder(int length, String language) {
+        String filler = LATIN_FILLER;
+        for (int i = 0; i < FILLERS.length; i += 2) {
+            if (FILLERS[i].equals(language)) {
+                filler = FILLERS[i + 1];
+            }
+        }
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append(filler, 0, Math.min(filler.length(), length - text.length()));
+        }
+        return text.toString();
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Get when the request started, relative to the start of the recording.
+     *
+     * @return the offset in nanoseconds
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String getVoice() {
+        return voice;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public float getSpeed() {
+        return speed;
+    }
+
+    public float getVolume() {
+        return volume;
+    }
+
+    public int getPitch() {
+        return pitch;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public boolean isLocalVariant() {
+        return localVariant;
+    }
+
+    public int getTextLength() {
+        return textLength;
+    }
+
+    /**
+     * Get the dominant language of the original text.
+     *
+     * @return the ISO 639-1 language code
+     */
+    public String getLanguage() {
+        return language;
+    }
+
+    public long getFirstChunkTimeoutMillis() {
+        return firstChunkTimeoutMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Get the time from the call until the audio was complete or the request failed.
+     *
+     * @return the duration in nanoseconds
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Get the time from the call to the first audio chunk of a stream.
+     *
+     * @return the time in nanoseconds, or 0 for synchronous calls and streams without audio
+     */
+    public long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+
+    public long getAudioBytes() {
+        return audioBytes;
+    }
+
+    /**
+     * Get the error code of a failed request.
+     *
+     * @return the code, or null if the request succeeded
+     */
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    private static long millis(Duration duration) {
+        return duration != null ? duration.toMillis() : 0;
+    }
+}
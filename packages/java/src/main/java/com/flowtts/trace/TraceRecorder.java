@@ -0,0 +1,237 @@
+package com.flowtts.trace;
+
+import com.flowtts.model.SynthesizeOptions;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records the anonymized shape of every request a client makes to a compact binary log,
+ * for replay with {@code com.flowtts.bench.TraceReplayer} from the tools jar.
+ *
+ * <pre>
+ * TraceRecorder recorder = TraceRecorder.open(Paths.get("traffic.fttr"));
+ * FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+ *         // credentials...
+ *         .traceRecorder(recorder)
+ *         .build());
+ * </pre>
+ *
+ * <p>Request threads only claim a slot in a fixed ring with a compare-and-set and store
+ * the options and timings there; a background thread builds each {@link TraceRecord},
+ * which scans the text for its language, and writes the log. No request waits for the
+ * disk: when the ring is full, records are dropped and counted in {@link #getDropped()}.
+ * Close the recorder after the clients that use it; a request that finishes while the
+ * recorder closes is either written or counted as dropped.</p>
+ */
+public final class TraceRecorder implements Closeable {
+    private static final int DEFAULT_CAPACITY = 8192;
+    // Left in a claimed slot by a request that found the recorder closed after claiming it
+    private static final Entry DROPPED = new Entry(null, null, 0, 0, 0, 0, null);
+
+    private final long epochNanos = System.nanoTime();
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    // Next slot to claim; slots below head have been written
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final AtomicLong dropped = new AtomicLong();
+    // Only updated by the writer thread
+    private volatile long recorded;
+    private final TraceWriter writer;
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private TraceRecorder(OutputStream out, int capacity) throws IOException {
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.writer = new TraceWriter(out);
+        this.thread = new Thread(this::drain, "flow-tts-trace");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Create a log file, replacing an existing one, and start recording to it.
+     *
+     * @param path the log file
+     * @return the recorder
+     * @throws IOException if the file cannot be created
+     */
+    public static TraceRecorder open(Path path) throws IOException {
+        return open(Files.newOutputStream(path), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Start recording to a stream, which is closed with the recorder.
+     *
+     * @param out      the log stream
+     * @param capacity the number of records that can wait to be written, a power of two
+     * @return the recorder
+     * @throws IOException if the log header cannot be written
+     */
+    public static TraceRecorder open(OutputStream out, int capacity) throws IOException {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        return new TraceRecorder(out, capacity);
+    }
+
+    /**
+     * Record a finished request. Called by the client; never blocks.
+     *
+     * @param options        the request options
+     * @param kind           how the request was made
+     * @param startNanos     {@link System#nanoTime()} when the request was made
+     * @param firstByteNanos {@link System#nanoTime()} when the first audio chunk arrived, or 0
+     * @param audioBytes     the audio received
+     * @param errorCode      the code of the failure, or null if the request succeeded
+     */
+    public void record(SynthesizeOptions options, TraceRecord.Kind kind, long startNanos, long firstByteNanos,
+                       long audioBytes, String errorCode) {
+        if (closed) {
+            return;
+        }
+        long endNanos = System.nanoTime();
+        Entry entry = new Entry(options, kind, startNanos - epochNanos, endNanos - startNanos,
+                firstByteNanos != 0 ? firstByteNanos - startNanos : 0, audioBytes, errorCode);
+        while (true) {
+            long t = tail.get();
+            if (t - head >= slots.length()) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                int index = (int) t & mask;
+                slots.lazySet(index, entry);
+                // The writer may have finished before the slot was claimed; whichever
+                // of the two takes the entry out of the slot first decides its fate
+                if (closed && slots.compareAndSet(index, entry, DROPPED)) {
+                    dropped.incrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the number of records dropped because the ring was full or writing failed.
+     *
+     * @return the dropped count
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Get the number of records written to the log.
+     *
+     * @return the written count
+     */
+    public long getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Write the records still in the ring and close the log.
+     *
+     * @throws IOException if writing the log failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void drain() {
+        boolean unflushed = false;
+        while (true) {
+            long h = head;
+            int index = (int) h & mask;
+            Entry entry = slots.get(index);
+            if (entry == null) {
+                // Empty, or claimed and about to be stored
+                if (closed && tail.get() == h) {
+                    return;
+                }
+                if (unflushed && failure == null) {
+                    try {
+                        writer.flush();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                    unflushed = false;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+            if (entry == DROPPED || !slots.compareAndSet(index, entry, null)) {
+                // Given up and counted by a request that found the recorder closed
+                slots.lazySet(index, null);
+                head = h + 1;
+                continue;
+            }
+            head = h + 1;
+            if (failure != null) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            try {
+                writer.write(TraceRecord.of(entry.options, entry.kind, entry.startNanos, entry.durationNanos,
+                        entry.firstByteNanos, entry.audioBytes, entry.errorCode));
+                recorded++;
+                unflushed = true;
+            } catch (IOException e) {
+                failure = e;
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    private static final class Entry {
+        final SynthesizeOptions options;
+        final TraceRecord.Kind kind;
+        final long startNanos;
+        final long durationNanos;
+        final long firstByteNanos;
+        final long audioBytes;
+        final String errorCode;
+
+        Entry(SynthesizeOptions options, TraceRecord.Kind kind, long startNanos, long durationNanos,
+              long firstByteNanos, long audioBytes, String errorCode) {
+            this.options = options;
+            this.kind = kind;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.firstByteNanos = firstByteNanos;
+            this.audioBytes = audioBytes;
+            this.errorCode = errorCode;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.flowtts.transport;
+
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.core.Threads;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link Transport} built on {@code java.net.http.HttpClient}, with no third-party
+ * dependencies.
+ *
+ * <p>HTTPS requests negotiate HTTP/2, so concurrent calls are multiplexed over one
+ * connection. Streaming bodies are consumed by a {@link HttpResponse.BodySubscriber}
+ * that feeds an {@link SseParser} as buffers arrive, requesting one batch at a time so
+ * a slow listener applies backpressure to the connection.</p>
+ *
+ * <p>A request is sent once more only if its connection could not be opened, since the
+ * server cannot have seen it. Any later I/O error is reported rather than retried: the
+ * request may already have been written, and synthesis is billed per request. Callers
+ * who accept that risk can let {@code HttpClient} resend a POST that fails on a stale
+ * pooled connection by setting the {@code jdk.httpclient.enableAllMethodRetry} system
+ * property.</p>
+ */
+public class JdkHttpTransport implements Transport {
+    // Set by HttpClient itself; passing them explicitly is rejected
+    private static final Set<String> RESTRICTED_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "content-length", "expect", "host", "upgrade"));
+    private static final Duration DEFAULT_RESPONSE_TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient client;
+    private final Duration responseTimeout;
+    private final ExecutorService executor;
+
+    /**
+     * Create a transport on an existing client, e.g. one tuned and shared with other services.
+     *
+     * @param client the HTTP client
+     */
+    public JdkHttpTransport(HttpClient client) {
+        this(client, DEFAULT_RESPONSE_TIMEOUT, null);
+    }
+
+    private JdkHttpTransport(HttpClient client, Duration responseTimeout, ExecutorService executor) {
+        this.client = client;
+        this.responseTimeout = responseTimeout;
+        this.executor = executor;
+    }
+
+    /**
+     * Create a transport with the SDK's default timeouts and the threading settings of
+     * a configuration. Plain-HTTP endpoints use HTTP/1.1 rather than an h2c upgrade.
+     *
+     * @param config the client configuration
+     * @return a new transport that owns its executor
+     */
+    public static JdkHttpTransport create(FlowTTSConfig config) {
+        ExecutorService executor = Threads.newExecutor("flow-tts-http", config.isVirtualThreads());
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(30))
+                .version("http".equals(config.getScheme()) ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2)
+                .executor(executor)
+                .build();
+        return new JdkHttpTransport(client, DEFAULT_RESPONSE_TIMEOUT, executor);
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        return execute(request, call -> { });
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request, Consumer<TransportCall> started) throws IOException {
+        HttpRequest jdkRequest = toJdk(request);
+        SyncExchange exchange = new SyncExchange();
+        started.accept(exchange::cancel);
+        HttpResponse<InputStream> response;
+        try {
+            try {
+                response = exchange.send(client, jdkRequest);
+            } catch (IOException e) {
+                if (exchange.cancelled || !isRetryable(e)) {
+                    throw e;
+                }
+                response = exchange.send(client, jdkRequest);
+            }
+        } catch (InterruptedException e) {
+            exchange.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        }
+        HttpHeaders headers = response.headers();
+        return new TransportResponse(response.statusCode(), name -> headers.firstValue(name).orElse(null),
+                response.body());
+    }
+
+    @Override
+    public TransportCall stream(TransportRequest request, SseListener listener) {
+        SseSubscriber subscriber = new SseSubscriber(listener);
+        AtomicReference<CompletableFuture<HttpResponse<Void>>> current = new AtomicReference<>();
+        send(toJdk(request), subscriber, current, true);
+        return () -> {
+            // Cancelling the future does not stop the exchange on JDK 11; cancelling the
+            // subscription does, and closes the connection mid-body
+            subscriber.cancel();
+            CompletableFuture<HttpResponse<Void>> future = current.get();
+            if (future != null) {
+                future.cancel(true);
+            }
+        };
+    }
+
+    private void send(HttpRequest request, SseSubscriber subscriber,
+                      AtomicReference<CompletableFuture<HttpResponse<Void>>> current, boolean retry) {
+        CompletableFuture<HttpResponse<Void>> future = client.sendAsync(request, info -> {
+            subscriber.responded = true;
+            if (subscriber.cancelled) {
+                // Cancels its subscription at once rather than draining the body
+                return subscriber;
+            }
+            if (info.statusCode() != 200) {
+                HttpHeaders headers = info.headers();
+                subscriber.fail(null, info.statusCode(), name -> headers.firstValue(name).orElse(null));
+                return HttpResponse.BodySubscribers.discarding();
+            }
+            String contentType = info.headers().firstValue("Content-Type").orElse("");
+            if (!contentType.toLowerCase(Locale.ROOT).startsWith("text/event-stream")) {
+                subscriber.fail(new IOException("Invalid content-type: " + contentType), 200);
+                return HttpResponse.BodySubscribers.discarding();
+            }
+            return subscriber;
+        });
+        current.set(future);
+        future.whenComplete((response, error) -> {
+            if (error == null) {
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (retry && !subscriber.responded && !subscriber.cancelled && isRetryable(cause)) {
+                send(request, subscriber, current, false);
+            } else {
+                subscriber.fail(cause, 0);
+            }
+        });
+    }
+
+    // Only a connection that never opened is safe to retry; anything later may have reached the server
+    private static boolean isRetryable(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private HttpRequest toJdk(TransportRequest request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(request.getUrl()))
+                .timeout(responseTimeout)
+                .header("Content-Type", request.getContentType())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(
+                        request.getBody(), request.getOffset(), request.getLength()));
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (!RESTRICTED_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                builder.header(header.getKey(), header.getValue());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * One blocking call, which another thread can abort. Cancelling the future returned
+     * by {@code sendAsync} does not stop the exchange on JDK 11, so cancellation also
+     * closes the body stream, whose subscription then releases the connection.
+     */
+    private static final class SyncExchange {
+        private volatile boolean cancelled;
+        private volatile CompletableFuture<HttpResponse<InputStream>> future;
+        private volatile HttpResponse.BodySubscriber<InputStream> body;
+
+        HttpResponse<InputStream> send(HttpClient client, HttpRequest request)
+                throws IOException, InterruptedException {
+            if (cancelled) {
+                throw new IOException("Canceled");
+            }
+            CompletableFuture<HttpResponse<InputStream>> f = client.sendAsync(request, info -> {
+                HttpResponse.BodySubscriber<InputStream> subscriber = HttpResponse.BodySubscribers.ofInputStream();
+                body = subscriber;
+                if (cancelled) {
+                    close(subscriber);
+                }
+                return subscriber;
+            });
+            future = f;
+            if (cancelled) {
+                f.cancel(true);
+            }
+            try {
+                return f.get();
+            } catch (CancellationException e) {
+                throw new IOException("Canceled");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            CompletableFuture<HttpResponse<InputStream>> f = future;
+            if (f != null) {
+                f.cancel(true);
+            }
+            HttpResponse.BodySubscriber<InputStream> subscriber = body;
+            if (subscriber != null) {
+                close(subscriber);
+            }
+        }
+
+        private static void close(HttpResponse.BodySubscriber<InputStream> subscriber) {
+            subscriber.getBody().thenAccept(in -> {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    // Closing only cancels the subscription
+                }
+            });
+        }
+    }
+
+    /**
+     * Feeds response buffers to an {@link SseParser} and reports exactly one terminal
+     * callback unless cancelled.
+     */
+    private static final class SseSubscriber implements HttpResponse.BodySubscriber<Void> {
+        private final SseListener listener;
+        private final SseParser parser;
+        private final CompletableFuture<Void> body = new CompletableFuture<>();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile Flow.Subscription subscription;
+        private volatile boolean cancelled;
+        private volatile boolean responded;
+
+        SseSubscriber(SseListener listener) {
+            this.listener = listener;
+            this.parser = new SseParser(listener);
+        }
+
+        @Override
+        public CompletionStage<Void> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (cancelled) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (cancelled || done.get()) {
+                return;
+            }
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    parser.feed(buffer);
+                }
+            } catch (RuntimeException e) {
+                subscription.cancel();
+                fail(e, 200);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            body.completeExceptionally(error);
+            fail(error, 200);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(null);
+            if (done.compareAndSet(false, true) && !cancelled) {
+                listener.onClosed();
+            }
+        }
+
+        void fail(Throwable error, int statusCode) {
+            fail(error, statusCode, name -> null);
+        }
+
+        void fail(Throwable error, int statusCode, Function<String, String> headers) {
+            if (done.compareAndSet(false, true) && !cancelled) {
+                listener.onFailure(error, statusCode, headers);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Flow.Subscription s = subscription;
+            if (s != null) {
+                s.cancel();
+            }
+        }
+    }
+}
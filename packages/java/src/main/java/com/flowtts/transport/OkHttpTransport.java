@@ -0,0 +1,135 @@
+package com.flowtts.transport;
+
+import com.flowtts.FlowTTSConfig;
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import okhttp3.sse.EventSources;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@link Transport} built on OkHttp and okhttp-sse.
+ *
+ * <p>OkHttp's dispatcher, connection pool and HTTP/2 reader hold monitors
+ * ({@code synchronized}) around socket I/O, which pins a virtual thread to its carrier
+ * on Java 21. Its threads are therefore always platform threads, and callers running on
+ * virtual threads should use {@link JdkHttpTransport}, which is what
+ * {@link FlowTTSConfig.Builder#virtualThreads(boolean)} selects by default.</p>
+ */
+public class OkHttpTransport implements Transport {
+    private final OkHttpClient client;
+    private final EventSource.Factory eventSources;
+    private final boolean ownsClient;
+
+    /**
+     * Create a transport on an existing client, e.g. one shared with other services.
+     * Closing the transport does not shut the client down.
+     *
+     * @param client the OkHttp client
+     */
+    public OkHttpTransport(OkHttpClient client) {
+        this(client, false);
+    }
+
+    private OkHttpTransport(OkHttpClient client, boolean ownsClient) {
+        this.client = client;
+        this.eventSources = EventSources.createFactory(client);
+        this.ownsClient = ownsClient;
+    }
+
+    /**
+     * Create a transport with the SDK's default timeouts and the concurrency and
+     * threading settings of a configuration.
+     *
+     * @param config the client configuration
+     * @return a new transport that owns its OkHttp client
+     */
+    public static OkHttpTransport create(FlowTTSConfig config) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS);
+        OkHttpClient client = builder.build();
+        if (config.getMaxConcurrentRequests() > 0) {
+            // Admission is done by the scheduler; keep OkHttp's FIFO queue from reordering streams
+            client.dispatcher().setMaxRequests(config.getMaxConcurrentRequests());
+            client.dispatcher().setMaxRequestsPerHost(config.getMaxConcurrentRequests());
+        }
+        return new OkHttpTransport(client, true);
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException {
+        return execute(request, call -> { });
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request, Consumer<TransportCall> started) throws IOException {
+        Call call = client.newCall(toOkHttp(request));
+        started.accept(call::cancel);
+        Response response = call.execute();
+        ResponseBody body = response.body();
+        InputStream stream = body != null ? body.byteStream() : InputStream.nullInputStream();
+        return new TransportResponse(response.code(), response::header, stream) {
+            @Override
+            public void close() {
+                response.close();
+            }
+        };
+    }
+
+    @Override
+    public TransportCall stream(TransportRequest request, SseListener listener) {
+        EventSource source = eventSources.newEventSource(toOkHttp(request), new EventSourceListener() {
+            @Override
+            public void onEvent(EventSource eventSource, String id, String type, String data) {
+                listener.onEvent(id, type, data);
+            }
+
+            @Override
+            public void onClosed(EventSource eventSource) {
+                listener.onClosed();
+            }
+
+            @Override
+            public void onFailure(EventSource eventSource, Throwable t, Response response) {
+                if (response != null) {
+                    listener.onFailure(t, response.code(), response::header);
+                } else {
+                    listener.onFailure(t, 0, name -> null);
+                }
+            }
+        });
+        return source::cancel;
+    }
+
+    @Override
+    public void close() {
+        if (ownsClient) {
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+        }
+    }
+
+    private static Request toOkHttp(TransportRequest request) {
+        Request.Builder builder = new Request.Builder()
+                .url(request.getUrl())
+                .post(RequestBody.create(request.getBody(), MediaType.parse(request.getContentType()),
+                        request.getOffset(), request.getLength()));
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.addHeader(header.getKey(), header.getValue());
+        }
+        return builder.build();
+    }
+}
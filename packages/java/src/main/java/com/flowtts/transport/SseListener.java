@@ -0,0 +1,45 @@
+package com.flowtts.transport;
+
+import java.util.function.Function;
+
+/**
+ * Receives the events of a Server-Sent Events stream.
+ */
+public interface SseListener {
+
+    /**
+     * Called for each dispatched event.
+     *
+     * @param id   the last event ID, or null if none was sent
+     * @param type the event type, or null for the default "message" type
+     * @param data the event data, with multiple data lines joined by newlines
+     */
+    void onEvent(String id, String type, String data);
+
+    /**
+     * Called when the server ends the stream normally.
+     */
+    void onClosed();
+
+    /**
+     * Called when the request or stream fails.
+     *
+     * @param error      the cause, or null if the server answered with an error status
+     * @param statusCode the HTTP status code, or 0 if no response was received
+     */
+    void onFailure(Throwable error, int statusCode);
+
+    /**
+     * Called when the request or stream fails, with the headers of an error response so
+     * that hints such as {@code Retry-After} can be read. Transports call this form; the
+     * default ignores the headers.
+     *
+     * @param error      the cause, or null if the server answered with an error status
+     * @param statusCode the HTTP status code, or 0 if no response was received
+     * @param headers    looks up the first value of a response header by case-insensitive
+     *                   name, returning null if it is absent or there was no response
+     */
+    default void onFailure(Throwable error, int statusCode, Function<String, String> headers) {
+        onFailure(error, statusCode);
+    }
+}
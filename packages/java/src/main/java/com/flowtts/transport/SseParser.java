@@ -0,0 +1,158 @@
+package com.flowtts.transport;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Incremental parser for a {@code text/event-stream} body.
+ *
+ * <p>Bytes can be fed in arbitrary pieces; a line is decoded only once it is complete,
+ * so multi-byte UTF-8 characters split across network reads are handled. Lines may end
+ * in LF, CR or CRLF. Following the Server-Sent Events specification, {@code data} lines
+ * are joined with newlines, comments and {@code retry} fields are ignored, and an event
+ * left incomplete at the end of the stream is discarded.</p>
+ *
+ * <p>Instances are not thread-safe; feed them from one thread at a time.</p>
+ */
+public class SseParser {
+    private static final byte[] DATA = {'d', 'a', 't', 'a'};
+    private static final byte[] EVENT = {'e', 'v', 'e', 'n', 't'};
+    private static final byte[] ID = {'i', 'd'};
+
+    private final SseListener listener;
+    private byte[] line = new byte[1024];
+    private int lineLength;
+    private boolean afterCr;
+    private boolean firstLine = true;
+
+    private final StringBuilder data = new StringBuilder();
+    private boolean hasData;
+    private String eventType;
+    private String lastEventId;
+
+    /**
+     * Create a parser.
+     *
+     * @param listener the listener to receive events; only {@link SseListener#onEvent} is called
+     */
+    public SseParser(SseListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Parse the remaining bytes of a buffer.
+     *
+     * @param buffer the bytes to parse; its position is advanced to its limit
+     */
+    public void feed(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int start = buffer.arrayOffset() + buffer.position();
+            feed(buffer.array(), start, buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        while (buffer.hasRemaining()) {
+            accept(buffer.get());
+        }
+    }
+
+    /**
+     * Parse a region of an array.
+     *
+     * @param bytes  the array
+     * @param offset the start of the region
+     * @param length the region length
+     */
+    public void feed(byte[] bytes, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            accept(bytes[i]);
+        }
+    }
+
+    private void accept(byte b) {
+        if (afterCr) {
+            afterCr = false;
+            if (b == '\n') {
+                return;
+            }
+        }
+        if (b == '\n' || b == '\r') {
+            afterCr = b == '\r';
+            processLine();
+            lineLength = 0;
+            return;
+        }
+        if (lineLength == line.length) {
+            byte[] grown = new byte[line.length * 2];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        line[lineLength++] = b;
+    }
+
+    private void processLine() {
+        int start = 0;
+        if (firstLine) {
+            firstLine = false;
+            // Skip a UTF-8 byte order mark
+            if (lineLength >= 3 && line[0] == (byte) 0xEF && line[1] == (byte) 0xBB && line[2] == (byte) 0xBF) {
+                start = 3;
+            }
+        }
+        if (lineLength == start) {
+            dispatch();
+            return;
+        }
+        if (line[start] == ':') {
+            return;
+        }
+
+        int colon = start;
+        while (colon < lineLength && line[colon] != ':') {
+            colon++;
+        }
+        int fieldLength = colon - start;
+        int valueStart = colon < lineLength ? colon + 1 : lineLength;
+        if (valueStart < lineLength && line[valueStart] == ' ') {
+            valueStart++;
+        }
+
+        if (fieldIs(start, fieldLength, DATA)) {
+            data.append(new String(line, valueStart, lineLength - valueStart, StandardCharsets.UTF_8)).append('\n');
+            hasData = true;
+        } else if (fieldIs(start, fieldLength, EVENT)) {
+            eventType = new String(line, valueStart, lineLength - valueStart, StandardCharsets.UTF_8);
+        } else if (fieldIs(start, fieldLength, ID)) {
+            String id = new String(line, valueStart, lineLength - valueStart, StandardCharsets.UTF_8);
+            if (id.indexOf('\0') < 0) {
+                lastEventId = id;
+            }
+        }
+    }
+
+    private boolean fieldIs(int start, int length, byte[] name) {
+        if (length != name.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line[start + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void dispatch() {
+        if (!hasData) {
+            eventType = null;
+            return;
+        }
+        data.setLength(data.length() - 1);
+        String payload = data.toString();
+        String type = eventType;
+        data.setLength(0);
+        hasData = false;
+        eventType = null;
+        listener.onEvent(lastEventId, type, payload);
+    }
+}
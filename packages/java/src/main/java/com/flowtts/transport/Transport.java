@@ -0,0 +1,62 @@
+package com.flowtts.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * HTTP transport used by {@link com.flowtts.FlowTTS} to reach the TTS API.
+ *
+ * <p>The SDK ships two implementations: {@link OkHttpTransport}, the default when
+ * OkHttp is on the class path, and {@link JdkHttpTransport}, built on
+ * {@code java.net.http.HttpClient}. Implementations must be thread-safe.</p>
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * Send a request and wait for the response headers.
+     * The caller reads the body as a stream and must close the response.
+     *
+     * @param request the request
+     * @return the response
+     * @throws IOException if the request fails before a response is received
+     */
+    TransportResponse execute(TransportRequest request) throws IOException;
+
+    /**
+     * Send a request like {@link #execute(TransportRequest)}, first passing {@code started}
+     * a handle that aborts the call from another thread. Cancelling releases the
+     * connection and makes this method, or a later read of the response body, fail with
+     * an {@link IOException}.
+     *
+     * <p>The default implementation cannot abort the call: it passes a handle that does
+     * nothing and calls {@link #execute(TransportRequest)}.</p>
+     *
+     * @param request the request
+     * @param started receives the handle before the request is sent
+     * @return the response
+     * @throws IOException if the request fails or is cancelled before a response is received
+     */
+    default TransportResponse execute(TransportRequest request, Consumer<TransportCall> started) throws IOException {
+        started.accept(() -> { });
+        return execute(request);
+    }
+
+    /**
+     * Start a Server-Sent Events request.
+     * Events are delivered to the listener on a transport thread, followed by exactly
+     * one of {@link SseListener#onClosed()} or {@link SseListener#onFailure}, unless the
+     * call is cancelled first.
+     *
+     * @param request  the request
+     * @param listener the listener to receive events
+     * @return a handle that cancels the call
+     */
+    TransportCall stream(TransportRequest request, SseListener listener);
+
+    /**
+     * Release connections and threads owned by the transport.
+     */
+    @Override
+    void close();
+}
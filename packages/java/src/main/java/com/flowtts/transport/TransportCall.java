@@ -0,0 +1,14 @@
+package com.flowtts.transport;
+
+/**
+ * Handle to an in-progress streaming call started by {@link Transport#stream}.
+ */
+public interface TransportCall {
+
+    /**
+     * Cancel the call and close its connection or stream.
+     * No further events are delivered after cancellation. Has no effect if the call
+     * has already finished.
+     */
+    void cancel();
+}
@@ -0,0 +1,147 @@
+package com.flowtts.transport;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A POST request sent through a {@link Transport}.
+ *
+ * <p>The body is a region of a caller-owned array, which is not copied. Once
+ * {@link Transport#execute} returns a response, the transport must have finished
+ * reading it and the caller may reuse it. If {@code execute} throws, or the call is
+ * cancelled, the transport may still be reading it, so the caller must not reuse it.
+ * Streaming requests must be given an array that is not reused.</p>
+ */
+public class TransportRequest {
+    private final String url;
+    private final Map<String, String> headers;
+    private final String contentType;
+    private final byte[] body;
+    private final int offset;
+    private final int length;
+
+    private TransportRequest(Builder builder) {
+        this.url = builder.url;
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.headers));
+        this.contentType = builder.contentType;
+        this.body = builder.body;
+        this.offset = builder.offset;
+        this.length = builder.length;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Get the request headers, excluding Content-Type.
+     *
+     * @return an unmodifiable map of header names to values
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Get the array holding the body in {@code [getOffset(), getOffset() + getLength())}.
+     *
+     * @return the body array
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for TransportRequest.
+     */
+    public static class Builder {
+        private String url;
+        private final Map<String, String> headers = new LinkedHashMap<>();
+        private String contentType = "application/json; charset=utf-8";
+        private byte[] body;
+        private int offset;
+        private int length;
+
+        /**
+         * Set the request URL (required).
+         *
+         * @param url the URL
+         * @return this builder
+         */
+        public Builder url(String url) {
+            this.url = url;
+            return this;
+        }
+
+        /**
+         * Add a header. Content-Type is set with {@link #contentType(String)}.
+         *
+         * @param name  the header name
+         * @param value the header value
+         * @return this builder
+         */
+        public Builder header(String name, String value) {
+            this.headers.put(name, value);
+            return this;
+        }
+
+        /**
+         * Set the body content type (default: application/json; charset=utf-8).
+         *
+         * @param contentType the content type
+         * @return this builder
+         */
+        public Builder contentType(String contentType) {
+            this.contentType = contentType;
+            return this;
+        }
+
+        /**
+         * Set the body to a region of an array (required).
+         *
+         * @param body   the array
+         * @param offset the start of the body
+         * @param length the body length
+         * @return this builder
+         */
+        public Builder body(byte[] body, int offset, int length) {
+            this.body = body;
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+
+        /**
+         * Build the TransportRequest instance.
+         *
+         * @return a new TransportRequest
+         * @throws IllegalArgumentException if the URL or body is missing
+         */
+        public TransportRequest build() {
+            if (url == null || url.isEmpty()) {
+                throw new IllegalArgumentException("url is required");
+            }
+            if (body == null || offset < 0 || length < 0 || offset + length > body.length) {
+                throw new IllegalArgumentException("body is required");
+            }
+            return new TransportRequest(this);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.flowtts.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Response to a {@link Transport#execute} call whose body is read as a stream.
+ * Closing the response releases its connection.
+ */
+public class TransportResponse implements Closeable {
+    private final int statusCode;
+    private final Function<String, String> headers;
+    private final InputStream body;
+
+    /**
+     * Create a response without headers.
+     *
+     * @param statusCode the HTTP status code
+     * @param body       the body stream, closed with the response
+     */
+    public TransportResponse(int statusCode, InputStream body) {
+        this(statusCode, name -> null, body);
+    }
+
+    /**
+     * Create a response.
+     *
+     * @param statusCode the HTTP status code
+     * @param headers    looks up the first value of a header by case-insensitive name,
+     *                   returning null if it is absent
+     * @param body       the body stream, closed with the response
+     */
+    public TransportResponse(int statusCode, Function<String, String> headers, InputStream body) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Get the first value of a response header.
+     *
+     * @param name the header name, case-insensitive
+     * @return the value, or null if the header is absent
+     */
+    public String getHeader(String name) {
+        return headers.apply(name);
+    }
+
+    /**
+     * Check if the status code is in the 2xx range.
+     *
+     * @return true if the request succeeded
+     */
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    /**
+     * Get the body stream.
+     *
+     * @return the body, read at most once
+     */
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * Read the whole body as UTF-8 text.
+     *
+     * @return the body text
+     * @throws IOException if the body cannot be read
+     */
+    public String bodyAsString() throws IOException {
+        return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
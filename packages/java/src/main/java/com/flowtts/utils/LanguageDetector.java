@@ -0,0 +1,397 @@
+package com.flowtts.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Zero-dependency language detection using Unicode script ranges.
+ *
+ * <p>Text is scanned once by code point. Each code point is classified through a
+ * precomputed ASCII table or a binary search over a sorted range table, so detection
+ * and segmentation never compile a regex or allocate per character.</p>
+ */
+public final class LanguageDetector {
+    public static final String CHINESE = "zh";
+    public static final String ENGLISH = "en";
+    public static final String JAPANESE = "ja";
+    public static final String KOREAN = "ko";
+
+    private static final byte NEUTRAL = 0;
+    private static final byte HAN = 1;
+    private static final byte KANA = 2;
+    private static final byte HANGUL = 3;
+    private static final byte LATIN = 4;
+
+    // Sorted, non-overlapping code point ranges above ASCII: {start, end, script}
+    private static final int[][] RANGES = {
+            {0x00C0, 0x00D6, LATIN},      // Latin-1 Supplement letters
+            {0x00D8, 0x00F6, LATIN},
+            {0x00F8, 0x024F, LATIN},      // Latin-1 Supplement, Latin Extended-A/B
+            {0x1100, 0x11FF, HANGUL},     // Hangul Jamo
+            {0x1E00, 0x1EFF, LATIN},      // Latin Extended Additional
+            {0x3040, 0x309F, KANA},       // Hiragana
+            {0x30A0, 0x30FF, KANA},       // Katakana
+            {0x3130, 0x318F, HANGUL},     // Hangul Compatibility Jamo
+            {0x31F0, 0x31FF, KANA},       // Katakana Phonetic Extensions
+            {0x3400, 0x4DBF, HAN},        // CJK Extension A
+            {0x4E00, 0x9FFF, HAN},        // CJK Unified Ideographs
+            {0xAC00, 0xD7AF, HANGUL},     // Hangul Syllables
+            {0xF900, 0xFAFF, HAN},        // CJK Compatibility Ideographs
+            {0xFF21, 0xFF3A, LATIN},      // Fullwidth Latin uppercase
+            {0xFF41, 0xFF5A, LATIN},      // Fullwidth Latin lowercase
+            {0xFF66, 0xFF9F, KANA},       // Halfwidth Katakana
+            {0x20000, 0x2FA1F, HAN},      // CJK Extensions B-F, Compatibility Supplement
+    };
+
+    private static final int[] RANGE_STARTS = new int[RANGES.length];
+    private static final int[] RANGE_ENDS = new int[RANGES.length];
+    private static final byte[] RANGE_SCRIPTS = new byte[RANGES.length];
+    private static final byte[] ASCII_SCRIPTS = new byte[128];
+
+    static {
+        for (int i = 0; i < RANGES.length; i++) {
+            RANGE_STARTS[i] = RANGES[i][0];
+            RANGE_ENDS[i] = RANGES[i][1];
+            RANGE_SCRIPTS[i] = (byte) RANGES[i][2];
+        }
+        for (int c = 'A'; c <= 'Z'; c++) {
+            ASCII_SCRIPTS[c] = LATIN;
+        }
+        for (int c = 'a'; c <= 'z'; c++) {
+            ASCII_SCRIPTS[c] = LATIN;
+        }
+    }
+
+    // Share of script characters required to pick a language
+    private static final double THRESHOLD = 0.3;
+
+    private LanguageDetector() {
+    }
+
+    /**
+     * Detect the dominant language of a text.
+     *
+     * @param text the text to analyze
+     * @return the ISO 639-1 language code, or "zh" if detection fails
+     */
+    public static String detect(String text) {
+        return detect(text, CHINESE);
+    }
+
+    /**
+     * Detect the dominant language of a text.
+     * A script wins when it covers more than 30% of the text, checked in the order
+     * Japanese, Korean, Chinese, English. As in the Node detector, the share is taken
+     * of every UTF-16 char of the text with leading and trailing whitespace removed, so
+     * inner spaces and punctuation count against every script. Unlike the Node detector,
+     * Latin letters with diacritics, Hangul Jamo and CJK extension characters count
+     * towards their scripts.
+     *
+     * @param text            the text to analyze
+     * @param defaultLanguage the language to return if detection fails
+     * @return the ISO 639-1 language code
+     */
+    public static String detect(String text, String defaultLanguage) {
+        if (text == null) {
+            return defaultLanguage;
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        int total = end - start;
+        if (total == 0) {
+            return defaultLanguage;
+        }
+
+        int han = 0;
+        int kana = 0;
+        int hangul = 0;
+        int latin = 0;
+
+        for (int i = start; i < end; ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            switch (scriptOf(cp)) {
+                case HAN:
+                    han++;
+                    break;
+                case KANA:
+                    kana++;
+                    break;
+                case HANGUL:
+                    hangul++;
+                    break;
+                case LATIN:
+                    latin++;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if ((double) kana / total > THRESHOLD) {
+            return JAPANESE;
+        }
+        if ((double) hangul / total > THRESHOLD) {
+            return KOREAN;
+        }
+        if ((double) han / total > THRESHOLD) {
+            return CHINESE;
+        }
+        if ((double) latin / total > THRESHOLD) {
+            return ENGLISH;
+        }
+        return defaultLanguage;
+    }
+
+    /**
+     * Check if a text contains Chinese, Japanese or Korean characters.
+     *
+     * @param text the text to check
+     * @return true if any CJK character is present
+     */
+    public static boolean containsCJK(String text) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            byte script = scriptOf(cp);
+            if (script == HAN || script == KANA || script == HANGUL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Split mixed-language text into runs of a single language.
+     *
+     * @param text the text to split
+     * @return the runs in text order
+     */
+    public static List<Segment> segment(String text) {
+        return segment(text, CHINESE);
+    }
+
+    /**
+     * Split mixed-language text into runs of a single language.
+     *
+     * <p>Han and Kana share a run, which is split at sentence ends such as 。！？ so
+     * that each sentence is Japanese if it contains any Kana and Chinese otherwise;
+     * neighbouring sentences of the same language stay in one run. Digits, punctuation
+     * and whitespace stay with the run they follow; leading neutral characters join the
+     * first run. A text without any script characters becomes a single run in the
+     * default language.</p>
+     *
+     * @param text            the text to split
+     * @param defaultLanguage the language for text without script characters
+     * @return the runs in text order
+     */
+    public static List<Segment> segment(String text, String defaultLanguage) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        int runStart = 0;
+        byte runGroup = NEUTRAL;
+
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            byte script = scriptOf(cp);
+            byte group = script == KANA ? HAN : script;
+
+            if (group != NEUTRAL) {
+                if (runGroup == NEUTRAL) {
+                    runGroup = group;
+                } else if (group != runGroup) {
+                    addRun(segments, text, runStart, i, runGroup);
+                    runStart = i;
+                    runGroup = group;
+                }
+            }
+            i += Character.charCount(cp);
+        }
+
+        if (runGroup == NEUTRAL) {
+            segments.add(new Segment(text, runStart, text.length(), defaultLanguage));
+        } else {
+            addRun(segments, text, runStart, text.length(), runGroup);
+        }
+        return segments;
+    }
+
+    private static void addRun(List<Segment> segments, String text, int start, int end, byte group) {
+        switch (group) {
+            case HAN:
+                addHanRun(segments, text, start, end);
+                break;
+            case HANGUL:
+                segments.add(new Segment(text, start, end, KOREAN));
+                break;
+            default:
+                segments.add(new Segment(text, start, end, ENGLISH));
+                break;
+        }
+    }
+
+    // Classifies each sentence of a Han and Kana run and merges neighbours of one language
+    private static void addHanRun(List<Segment> segments, String text, int start, int end) {
+        int pieceStart = start;
+        String pieceLanguage = null;
+        int sentenceStart = start;
+        boolean sentenceHasKana = false;
+        boolean sentenceEnded = false;
+        for (int i = start; i < end; ) {
+            int cp = text.codePointAt(i);
+            byte script = scriptOf(cp);
+            if (sentenceEnded && startsSentence(cp)) {
+                // Closing quotes and spaces after a sentence end stay with that sentence
+                String language = sentenceHasKana ? JAPANESE : CHINESE;
+                if (pieceLanguage != null && !pieceLanguage.equals(language)) {
+                    segments.add(new Segment(text, pieceStart, sentenceStart, pieceLanguage));
+                    pieceStart = sentenceStart;
+                }
+                pieceLanguage = language;
+                sentenceStart = i;
+                sentenceHasKana = false;
+                sentenceEnded = false;
+            }
+            if (script == KANA) {
+                sentenceHasKana = true;
+            } else if (script == NEUTRAL && isSentenceEnd(cp)) {
+                sentenceEnded = true;
+            }
+            i += Character.charCount(cp);
+        }
+        String language = sentenceHasKana ? JAPANESE : CHINESE;
+        if (pieceLanguage != null && !pieceLanguage.equals(language)) {
+            segments.add(new Segment(text, pieceStart, sentenceStart, pieceLanguage));
+            pieceStart = sentenceStart;
+        }
+        segments.add(new Segment(text, pieceStart, end, language));
+    }
+
+    private static boolean startsSentence(int cp) {
+        if (Character.isWhitespace(cp) || isSentenceEnd(cp)) {
+            return false;
+        }
+        int type = Character.getType(cp);
+        return type != Character.END_PUNCTUATION && type != Character.FINAL_QUOTE_PUNCTUATION;
+    }
+
+    private static boolean isSentenceEnd(int cp) {
+        switch (cp) {
+            case '。':
+            case '！':
+            case '？':
+            case '｡':
+            case '．':
+            case '!':
+            case '?':
+            case '\n':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static byte scriptOf(int cp) {
+        if (cp < 128) {
+            return ASCII_SCRIPTS[cp];
+        }
+        int lo = 0;
+        int hi = RANGE_STARTS.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cp < RANGE_STARTS[mid]) {
+                hi = mid - 1;
+            } else if (cp > RANGE_ENDS[mid]) {
+                lo = mid + 1;
+            } else {
+                return RANGE_SCRIPTS[mid];
+            }
+        }
+        return NEUTRAL;
+    }
+
+    /**
+     * A run of text in a single language.
+     */
+    public static final class Segment {
+        private final String source;
+        private final int start;
+        private final int end;
+        private final String language;
+
+        Segment(String source, int start, int end, String language) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+            this.language = language;
+        }
+
+        /**
+         * Get the text of this run.
+         *
+         * @return the run text
+         */
+        public String getText() {
+            return source.substring(start, end);
+        }
+
+        /**
+         * Get the start offset (inclusive) of this run in the source text.
+         *
+         * @return the start char index
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Get the end offset (exclusive) of this run in the source text.
+         *
+         * @return the end char index
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * Get the language of this run.
+         *
+         * @return the ISO 639-1 language code
+         */
+        public String getLanguage() {
+            return language;
+        }
+
+        /**
+         * Check if this run contains only whitespace.
+         *
+         * @return true if the run is blank
+         */
+        public boolean isBlank() {
+            for (int i = start; i < end; i++) {
+                if (!Character.isWhitespace(source.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Segment{" + language + ", '" + getText() + "'}";
+        }
+    }
+}
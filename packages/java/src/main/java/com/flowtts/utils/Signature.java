@@ -19,6 +19,7 @@ public class Signature {
     private static final String SERVICE = "trtc";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd")
             .withZone(ZoneOffset.UTC);
+    private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
 
     /**
      * Generate authorization headers for a Tencent Cloud API request.
@@ -38,8 +39,51 @@ public class Signature {
             String action,
             String payload,
             long timestamp) {
+        return generateHeaders(secretId, secretKey, host, action, sha256(payload), timestamp);
+    }
+
+    /**
+     * Generate authorization headers for a Tencent Cloud API request whose payload
+     * has already been hashed, e.g. by {@link com.flowtts.core.PayloadEncoder}.
+     *
+     * @param secretId      the Secret ID
+     * @param secretKey     the Secret Key
+     * @param host          the API host
+     * @param action        the API action
+     * @param payloadSha256 the SHA-256 digest of the request payload
+     * @param timestamp     the Unix timestamp
+     * @return a map of headers to include in the request
+     */
+    public static TreeMap<String, String> generateHeaders(
+            String secretId,
+            String secretKey,
+            String host,
+            String action,
+            byte[] payloadSha256,
+            long timestamp) {
+        String date = formatDate(timestamp);
+        return generateHeaders(secretId, deriveSigningKey(secretKey, date), date, host, action,
+                payloadSha256, timestamp);
+    }
 
-        String date = DATE_FORMATTER.format(Instant.ofEpochSecond(timestamp));
+    static String formatDate(long timestamp) {
+        return DATE_FORMATTER.format(Instant.ofEpochSecond(timestamp));
+    }
+
+    static byte[] deriveSigningKey(String secretKey, String date) {
+        byte[] secretDate = hmacSha256(("TC3" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        byte[] secretService = hmacSha256(secretDate, SERVICE);
+        return hmacSha256(secretService, "tc3_request");
+    }
+
+    static TreeMap<String, String> generateHeaders(
+            String secretId,
+            byte[] secretSigning,
+            String date,
+            String host,
+            String action,
+            byte[] payloadSha256,
+            long timestamp) {
 
         // Step 1: Create canonical request
         String httpRequestMethod = "POST";
@@ -48,7 +92,7 @@ public class Signature {
         String contentType = "application/json; charset=utf-8";
         String canonicalHeaders = "content-type:" + contentType + "\n" + "host:" + host + "\n";
         String signedHeaders = "content-type;host";
-        String hashedRequestPayload = sha256Hex(payload);
+        String hashedRequestPayload = bytesToHex(payloadSha256);
 
         String canonicalRequest = httpRequestMethod + "\n" +
                 canonicalUri + "\n" +
@@ -66,10 +110,7 @@ public class Signature {
                 credentialScope + "\n" +
                 hashedCanonicalRequest;
 
-        // Step 3: Calculate signature
-        byte[] secretDate = hmacSha256(("TC3" + secretKey).getBytes(StandardCharsets.UTF_8), date);
-        byte[] secretService = hmacSha256(secretDate, SERVICE);
-        byte[] secretSigning = hmacSha256(secretService, "tc3_request");
+        // Step 3: Calculate signature with the date-scoped signing key
         String signature = bytesToHex(hmacSha256(secretSigning, stringToSign));
 
         // Step 4: Create authorization header
@@ -91,10 +132,13 @@ public class Signature {
     }
 
     private static String sha256Hex(String data) {
+        return bytesToHex(sha256(data));
+    }
+
+    private static byte[] sha256(String data) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(data.getBytes(StandardCharsets.UTF_8));
-            return bytesToHex(hash);
+            return digest.digest(data.getBytes(StandardCharsets.UTF_8));
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 algorithm not available", e);
         }
@@ -112,10 +156,11 @@ public class Signature {
     }
 
     private static String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_CHARS[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX_CHARS[bytes[i] & 0xF];
         }
-        return sb.toString();
+        return new String(chars);
     }
 }
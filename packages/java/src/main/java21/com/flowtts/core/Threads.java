@@ -0,0 +1,49 @@
+package com.flowtts.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors that run blocking SDK work.
+ *
+ * <p>This is the Java 21 implementation, selected from {@code META-INF/versions/21}
+ * of the multi-release JAR. Executors created with {@code virtual} set start a virtual
+ * thread per task, so blocking calls cost a small heap object instead of a platform
+ * thread and its stack. Code that blocks while holding a monitor, such as OkHttp, pins a
+ * virtual thread to its carrier, so only pass {@code virtual} for work that blocks in
+ * {@code java.*} I/O and {@code java.util.concurrent} locks.</p>
+ */
+public final class Threads {
+
+    private Threads() {
+    }
+
+    /**
+     * Check if this runtime can run SDK work on virtual threads.
+     *
+     * @return true on Java 21 or later when loaded from the multi-release JAR
+     */
+    public static boolean isVirtualAvailable() {
+        return true;
+    }
+
+    /**
+     * Create an executor that starts a thread per task, or reuses idle ones.
+     *
+     * @param name    the thread name prefix
+     * @param virtual whether to use virtual threads when available
+     * @return a new unbounded executor
+     */
+    public static ExecutorService newExecutor(String name, boolean virtual) {
+        if (virtual) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
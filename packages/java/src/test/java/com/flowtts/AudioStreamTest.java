@@ -0,0 +1,104 @@
+package com.flowtts;
+
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.StreamChunk;
+import com.flowtts.model.SynthesizeOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioStreamTest {
+    private static final String TEXT = "Hello from a pull stream";
+
+    @Test
+    void testReadsWholeStreamFromEmulator() throws Exception {
+        try (TtsEmulator emulator = TtsEmulator.builder().chunkSize(700).build().start()) {
+            FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                    .secretId("id")
+                    .secretKey("key")
+                    .sdkAppId(1)
+                    .endpoint(emulator.getEndpoint())
+                    .scheme("http")
+                    .callbackQueueChunks(2)
+                    .build());
+            SynthesizeOptions options = SynthesizeOptions.builder().text(TEXT).codec("pcm").sampleRate(16000).build();
+            int expected = TEXT.length() * 80 * 16 * 2;
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (AudioStream audio = client.openAudioStream(options)) {
+                assertEquals(expected, audio.transferTo(out));
+                assertTrue(audio.getRequestId().startsWith("emulator-"));
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(expected + 100);
+            try (AudioStream audio = client.openAudioStream(options)) {
+                while (audio.read(buffer) >= 0) {
+                    assertTrue(buffer.hasRemaining());
+                }
+            }
+            assertEquals(expected, buffer.position());
+            assertArrayEquals(out.toByteArray(), Arrays.copyOf(buffer.array(), expected));
+            client.close();
+        }
+    }
+
+    @Test
+    void testFullQueueHoldsBackReaderUntilConsumed() throws Exception {
+        AudioStream audio = new AudioStream(2);
+        StreamListener listener = audio.listener();
+        CountDownLatch delivered = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < 3; i++) {
+                listener.onChunk(chunk(i));
+            }
+            delivered.countDown();
+            listener.onComplete();
+        });
+        reader.start();
+
+        assertFalse(delivered.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(4, audio.available());
+        assertEquals(0, audio.read());
+        assertEquals(0, audio.read());
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+
+        byte[] rest = new byte[10];
+        assertEquals(4, audio.read(rest));
+        assertArrayEquals(new byte[]{1, 1, 2, 2}, Arrays.copyOf(rest, 4));
+        assertEquals(-1, audio.read(rest));
+        reader.join();
+    }
+
+    @Test
+    void testFailureAfterQueuedAudioAndCloseReleasesReader() throws Exception {
+        AudioStream failed = new AudioStream(4);
+        failed.listener().onChunk(chunk(7));
+        failed.listener().onError(new FlowTTSException("NetworkError", "reset", null));
+        assertEquals(7, failed.read());
+        assertEquals(7, failed.read());
+        IOException e = assertThrows(IOException.class, failed::read);
+        assertEquals("NetworkError", ((FlowTTSException) e.getCause()).getCode());
+
+        AudioStream closed = new AudioStream(1);
+        closed.listener().onChunk(chunk(1));
+        Thread reader = new Thread(() -> closed.listener().onChunk(chunk(2)));
+        reader.start();
+        closed.close();
+        reader.join(5000);
+        assertFalse(reader.isAlive());
+        assertFalse(closed.isOpen());
+        assertThrows(IOException.class, closed::read);
+    }
+
+    private static StreamChunk chunk(int value) {
+        return new StreamChunk(new byte[]{(byte) value, (byte) value}, "req", "session", false, value);
+    }
+}
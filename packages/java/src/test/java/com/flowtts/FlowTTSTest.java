@@ -1,11 +1,33 @@
 package com.flowtts;
 
+import com.flowtts.core.AudioSizeEstimator;
+import com.flowtts.core.Threads;
 import com.flowtts.core.VoiceResolver;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.exception.ErrorCategory;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.exception.ThrottledException;
+import com.flowtts.model.StreamChunk;
 import com.flowtts.model.SynthesizeOptions;
 import com.flowtts.model.Voice;
+import com.flowtts.transport.JdkHttpTransport;
+import com.flowtts.transport.OkHttpTransport;
+import com.flowtts.transport.SseListener;
+import com.flowtts.transport.Transport;
+import com.flowtts.transport.TransportCall;
+import com.flowtts.transport.TransportRequest;
+import com.flowtts.transport.TransportResponse;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -63,6 +85,158 @@ class FlowTTSTest {
         });
     }
 
+    @Test
+    void testPlainHttpOnlyForLoopback() {
+        for (String endpoint : new String[]{"localhost:8080", "LOCALHOST", "127.0.0.1:80", "127.1.2.3", "[::1]:9000"}) {
+            assertEquals("http", FlowTTSConfig.builder()
+                    .secretId("id").secretKey("key").sdkAppId(1)
+                    .endpoint(endpoint).scheme("http").build().getScheme());
+        }
+        for (String endpoint : new String[]{"trtc.ai.tencentcloudapi.com", "10.0.0.1:8080", "127.0.0.1.example.com",
+                "localhost.example.com:80", "[::2]:80", "127.0.0.256"}) {
+            assertThrows(IllegalArgumentException.class, () -> FlowTTSConfig.builder()
+                    .secretId("id").secretKey("key").sdkAppId(1)
+                    .endpoint(endpoint).scheme("http").build(), endpoint);
+        }
+    }
+
+    @Test
+    void testEndpointMustBeHostAndPort() {
+        // User info would let a remote host pass as loopback and receive plain HTTP
+        for (String endpoint : new String[]{"127.0.0.1:80@evil.example", "localhost@evil.example:80",
+                "127.0.0.1:80/path", "localhost?x=1", "localhost#frag", "", "bad host"}) {
+            assertThrows(IllegalArgumentException.class, () -> FlowTTSConfig.builder()
+                    .secretId("id").secretKey("key").sdkAppId(1)
+                    .endpoint(endpoint).scheme("http").build(), endpoint);
+            assertThrows(IllegalArgumentException.class, () -> FlowTTSConfig.builder()
+                    .secretId("id").secretKey("key").sdkAppId(1)
+                    .endpoint(endpoint).build(), endpoint);
+        }
+    }
+
+    @Test
+    void testDefaultTransportAvoidsOkHttpOnVirtualThreads() {
+        FlowTTSConfig.Builder builder = FlowTTSConfig.builder().secretId("id").secretKey("key").sdkAppId(1);
+        Transport platform = FlowTTS.defaultTransport(builder.build());
+        Transport virtual = FlowTTS.defaultTransport(builder.virtualThreads(true).build());
+        try {
+            assertTrue(platform instanceof OkHttpTransport);
+            // OkHttp pins virtual threads, so they get the JDK client where they exist
+            Class<?> expected = Threads.isVirtualAvailable() ? JdkHttpTransport.class : OkHttpTransport.class;
+            assertEquals(expected, virtual.getClass());
+        } finally {
+            platform.close();
+            virtual.close();
+        }
+    }
+
+    @Test
+    void testStreamChargesBudgetForPcm() throws Exception {
+        try (TtsEmulator emulator = TtsEmulator.builder().credentials("id", "key").build().start()) {
+            FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                    .secretId("id").secretKey("key").sdkAppId(1)
+                    .endpoint(emulator.getEndpoint()).scheme("http")
+                    .memoryBudget(64L * 1024 * 1024)
+                    .build());
+            SynthesizeOptions options = SynthesizeOptions.builder().text("budget").codec("mp3").sampleRate(16000).build();
+            StreamHandle handle = client.synthesizeStream(options, new StreamListener() {
+                @Override
+                public void onChunk(StreamChunk chunk) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+
+                @Override
+                public void onError(Exception e) {
+                }
+            });
+            assertTrue(handle.await(10, TimeUnit.SECONDS));
+            assertEquals(AudioSizeEstimator.estimate("budget", 16000, "pcm"),
+                    client.getMemoryMetrics().getPeakReservedBytes());
+            client.close();
+        }
+    }
+
+    @Test
+    void testHttpStatusesMapToCategories() {
+        assertHttpError(401, "HttpError.Unauthorized", ErrorCategory.AUTH, false);
+        assertHttpError(403, "HttpError.Forbidden", ErrorCategory.AUTH, false);
+        for (int status : new int[]{400, 404, 413, 302}) {
+            assertHttpError(status, "HttpError.RequestRejected", ErrorCategory.INVALID_PARAMETER, false);
+        }
+        for (int status : new int[]{500, 502, 504}) {
+            assertHttpError(status, "HttpError", ErrorCategory.SERVER, true);
+        }
+        assertHttpError(429, "TooManyRequests", ErrorCategory.THROTTLED, true);
+        assertHttpError(503, "HttpError.ServiceUnavailable", ErrorCategory.THROTTLED, true);
+
+        // Retry-After in seconds or as an HTTP date; without one, the code's default applies
+        assertEquals(Duration.ofSeconds(7), FlowTTS.httpError(429, null, "7").getRetryAfter());
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(120));
+        Duration untilDate = FlowTTS.httpError(503, null, date).getRetryAfter();
+        assertTrue(untilDate.getSeconds() > 100 && untilDate.getSeconds() <= 120, untilDate.toString());
+        assertEquals(Duration.ZERO, FlowTTS.httpError(503, null, "Thu, 01 Jan 1970 00:00:00 GMT").getRetryAfter());
+        assertEquals(Duration.ofSeconds(1), FlowTTS.httpError(429, null, "soon").getRetryAfter());
+        assertEquals(Duration.ofSeconds(1), FlowTTS.httpError(503, null, null).getRetryAfter());
+    }
+
+    private static void assertHttpError(int status, String code, ErrorCategory category, boolean retryable) {
+        FlowTTSException e = FlowTTS.httpError(status, null, null);
+        assertEquals(code, e.getCode(), "status " + status);
+        assertEquals(category, e.getCategory(), "status " + status);
+        assertEquals(retryable, e.isRetryable(), "status " + status);
+        assertEquals(category == ErrorCategory.THROTTLED, e instanceof ThrottledException, "status " + status);
+    }
+
+    @Test
+    void testHttpErrorMessages() throws Exception {
+        // Fails every call with a status code, with a body only for synchronous calls
+        Transport failing = new Transport() {
+            @Override
+            public TransportResponse execute(TransportRequest request) {
+                return new TransportResponse(502, new ByteArrayInputStream("Bad gateway".getBytes(StandardCharsets.UTF_8)));
+            }
+
+            @Override
+            public TransportCall stream(TransportRequest request, SseListener listener) {
+                listener.onFailure(null, 503);
+                return () -> { };
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        FlowTTSConfig config = FlowTTSConfig.builder().secretId("id").secretKey("key").sdkAppId(1).build();
+        FlowTTS client = new FlowTTS(config, failing);
+        SynthesizeOptions options = SynthesizeOptions.builder().text("status").build();
+
+        FlowTTSException sync = assertThrows(FlowTTSException.class, () -> client.synthesize(options));
+        assertEquals("HttpError", sync.getCode());
+        assertEquals("HTTP error 502: Bad gateway", sync.getMessage());
+
+        AtomicReference<Exception> error = new AtomicReference<>();
+        StreamHandle handle = client.synthesizeStream(options, new StreamListener() {
+            @Override
+            public void onChunk(StreamChunk chunk) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+            }
+        });
+        assertTrue(handle.await(5, TimeUnit.SECONDS));
+        assertEquals("HTTP error 503", error.get().getMessage());
+        client.close();
+    }
+
     @Test
     void testSynthesizeOptionsBuilder() {
         SynthesizeOptions options = SynthesizeOptions.builder()
@@ -0,0 +1,93 @@
+package com.flowtts;
+
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.Priority;
+import com.flowtts.model.SynthesizeOptions;
+import com.flowtts.model.SynthesizeResponse;
+import com.flowtts.transport.Transport;
+import com.flowtts.utils.LanguageDetector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.flowtts.emulator.EmulatorTestSupport.client;
+import static com.flowtts.emulator.EmulatorTestSupport.transport;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultilingualTest {
+    private static final String TEXT = "今天的会议改到下午。The meeting is at 3 PM. 明天见";
+
+    private TtsEmulator emulator;
+    private Transport transport;
+
+    @AfterEach
+    void tearDown() {
+        if (transport != null) {
+            transport.close();
+        }
+        if (emulator != null) {
+            emulator.close();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"okhttp", "jdk"})
+    void testSplitsTextIntoRunsAndJoinsAudio(String kind) throws Exception {
+        emulator = TtsEmulator.builder().credentials("id", "key").build().start();
+        transport = transport(emulator, kind);
+        FlowTTS client = client(emulator, transport);
+        SynthesizeOptions options = SynthesizeOptions.builder().text(TEXT).codec("pcm").sampleRate(16000).build();
+
+        List<SynthesizeResponse> parts = client.synthesizeMultilingual(options);
+
+        List<LanguageDetector.Segment> runs = LanguageDetector.segment(TEXT);
+        assertEquals(3, runs.size());
+        assertEquals(3, parts.size());
+        assertEquals(3, emulator.getRequestCount());
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        int expected = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            String run = runs.get(i).getText();
+            // The emulator renders 80ms of 16-bit audio per code point of each run, in order
+            int length = run.codePointCount(0, run.length()) * 80 * 16 * 2;
+            assertEquals(length, parts.get(i).getAudioLength(), run);
+            joined.write(parts.get(i).getAudio());
+            expected += length;
+        }
+        assertEquals(TEXT.codePointCount(0, TEXT.length()) * 80 * 16 * 2, expected);
+        assertEquals(expected, joined.size());
+        client.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"okhttp", "jdk"})
+    void testFailedRunAbortsRequestsInFlight(String kind) throws Exception {
+        // Two runs wait for their first byte while the third is turned away at once
+        emulator = TtsEmulator.builder()
+                .credentials("id", "key")
+                .timeToFirstByte(Duration.ofSeconds(10))
+                .maxConcurrentRequests(2)
+                .build()
+                .start();
+        transport = transport(emulator, kind);
+        FlowTTS client = client(emulator, transport);
+        SynthesizeOptions options = SynthesizeOptions.builder().text(TEXT).codec("pcm").build();
+
+        long start = System.nanoTime();
+        FlowTTSException e = assertThrows(FlowTTSException.class, () -> client.synthesizeMultilingual(options));
+        assertEquals("RequestLimitExceeded", e.getCode());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (client.getSchedulerMetrics(Priority.NORMAL).getInFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, client.getSchedulerMetrics(Priority.NORMAL).getInFlight());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        client.close();
+    }
+}
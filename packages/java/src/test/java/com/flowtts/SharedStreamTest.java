@@ -0,0 +1,207 @@
+package com.flowtts;
+
+import com.flowtts.core.RequestScheduler;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.SlowSubscriberPolicy;
+import com.flowtts.model.StreamChunk;
+import com.flowtts.model.SynthesizeOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedStreamTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, SharedStream> registry = new ConcurrentHashMap<>();
+    private final RequestScheduler scheduler = new RequestScheduler(0);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testLateSubscriberReplaysFromStart() throws Exception {
+        SharedStream stream = stream(8, SlowSubscriberPolicy.DROP);
+        RecordingListener first = new RecordingListener();
+        RecordingListener late = new RecordingListener();
+        StreamHandle firstHandle = subscribe(stream, first);
+
+        stream.onChunk(chunk(0));
+        stream.onChunk(chunk(1));
+        StreamHandle lateHandle = subscribe(stream, late);
+        stream.onChunk(chunk(2));
+        stream.onComplete();
+
+        assertTrue(firstHandle.await(5, TimeUnit.SECONDS));
+        assertTrue(lateHandle.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("0", "1", "2", "complete"), first.events);
+        assertEquals(List.of("0", "1", "2", "complete"), late.events);
+        assertTrue(registry.isEmpty());
+        assertFalse(stream.subscribe(new StreamHandle(new RecordingListener(), scheduler)));
+    }
+
+    @Test
+    void testSlowSubscriberIsDroppedWithoutStallingOthers() throws Exception {
+        SharedStream stream = stream(2, SlowSubscriberPolicy.DROP);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener slow = new RecordingListener(release);
+        RecordingListener fast = new RecordingListener();
+        StreamHandle slowHandle = subscribe(stream, slow);
+        StreamHandle fastHandle = subscribe(stream, fast);
+
+        for (int i = 0; i < 5; i++) {
+            stream.onChunk(chunk(i));
+            fast.awaitEvents(i + 1);
+        }
+        release.countDown();
+        stream.onComplete();
+
+        assertTrue(slowHandle.await(5, TimeUnit.SECONDS));
+        assertTrue(fastHandle.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("0", "error:SubscriberTooSlow"), slow.events);
+        assertEquals(List.of("0", "1", "2", "3", "4", "complete"), fast.events);
+    }
+
+    @Test
+    void testSkipPolicyResumesFromOldestBufferedChunk() throws Exception {
+        SharedStream stream = stream(2, SlowSubscriberPolicy.SKIP);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener slow = new RecordingListener(release);
+        RecordingListener fast = new RecordingListener();
+        StreamHandle slowHandle = subscribe(stream, slow);
+        subscribe(stream, fast);
+
+        for (int i = 0; i < 5; i++) {
+            stream.onChunk(chunk(i));
+            fast.awaitEvents(i + 1);
+        }
+        release.countDown();
+        stream.onComplete();
+
+        assertTrue(slowHandle.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("0", "3", "4", "complete"), slow.events);
+    }
+
+    @Test
+    void testLastCancelledSubscriberCancelsUpstream() {
+        SharedStream stream = stream(8, SlowSubscriberPolicy.DROP);
+        StreamHandle first = subscribe(stream, new RecordingListener());
+        StreamHandle second = subscribe(stream, new RecordingListener());
+        RecordingListener upstreamListener = new RecordingListener();
+        StreamHandle upstream = new StreamHandle(upstreamListener, scheduler);
+        assertTrue(stream.claimUpstream());
+        assertFalse(stream.claimUpstream());
+        stream.start(upstream);
+
+        first.cancel();
+        assertFalse(upstream.isDone());
+        second.cancel();
+        assertTrue(upstream.isDone());
+        assertEquals(List.of("error:Cancelled"), upstreamListener.events);
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    void testIdenticalRequestsShareOneUpstreamCall() throws Exception {
+        try (TtsEmulator emulator = TtsEmulator.builder().credentials("id", "key")
+                .timeToFirstByte(Duration.ofMillis(300)).chunkSize(500).build().start()) {
+            FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                    .secretId("id")
+                    .secretKey("key")
+                    .sdkAppId(1)
+                    .endpoint(emulator.getEndpoint())
+                    .scheme("http")
+                    .build());
+            try {
+                SynthesizeOptions options = SynthesizeOptions.builder().text("Shared announcement").build();
+                RecordingListener a = new RecordingListener();
+                RecordingListener b = new RecordingListener();
+                StreamHandle first = client.synthesizeStreamShared(options, a);
+                StreamHandle second = client.synthesizeStreamShared(options, b);
+
+                assertTrue(first.await(10, TimeUnit.SECONDS));
+                assertTrue(second.await(10, TimeUnit.SECONDS));
+                assertEquals("complete", a.events.get(a.events.size() - 1));
+                assertTrue(a.audio.size() > 0);
+                assertArrayEquals(a.audio.toByteArray(), b.audio.toByteArray());
+                assertEquals(1, emulator.getRequestCount());
+            } finally {
+                client.close();
+            }
+        }
+    }
+
+    private SharedStream stream(int capacity, SlowSubscriberPolicy policy) {
+        SharedStream stream = new SharedStream("k", registry, executor, capacity, policy);
+        registry.put("k", stream);
+        return stream;
+    }
+
+    private StreamHandle subscribe(SharedStream stream, RecordingListener listener) {
+        StreamHandle handle = new StreamHandle(listener, scheduler);
+        assertTrue(stream.subscribe(handle));
+        return handle;
+    }
+
+    private static StreamChunk chunk(int seq) {
+        return new StreamChunk(new byte[]{(byte) seq}, "req", "session", false, seq);
+    }
+
+    private static final class RecordingListener implements StreamListener {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        private final CountDownLatch blockFirst;
+
+        RecordingListener() {
+            this(null);
+        }
+
+        RecordingListener(CountDownLatch blockFirst) {
+            this.blockFirst = blockFirst;
+        }
+
+        @Override
+        public void onChunk(StreamChunk chunk) {
+            events.add(String.valueOf(chunk.getSubtitleSeq()));
+            audio.write(chunk.getAudio(), 0, chunk.getAudio().length);
+            if (blockFirst != null && events.size() == 1) {
+                try {
+                    blockFirst.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            events.add("complete");
+        }
+
+        @Override
+        public void onError(Exception error) {
+            events.add("error:" + ((FlowTTSException) error).getCode());
+        }
+
+        void awaitEvents(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (events.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertTrue(events.size() >= count);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.flowtts;
+
+import com.flowtts.core.RequestScheduler;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.CallbackOverflowPolicy;
+import com.flowtts.model.Priority;
+import com.flowtts.model.StreamChunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamHandleTest {
+
+    @Test
+    void testCancelReleasesSlotAndNotifiesOnce() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        RequestScheduler.Tenant tenant = scheduler.tenant("t", 0);
+        RecordingListener listener = new RecordingListener();
+        StreamHandle handle = new StreamHandle(listener, scheduler);
+
+        handle.queued(scheduler.submit(tenant, Priority.NORMAL, 1, handle::queued));
+        assertEquals(1, scheduler.getInFlight());
+
+        handle.chunk(chunk());
+        assertTrue(handle.cancel());
+        assertFalse(handle.cancel());
+        handle.chunk(chunk());
+        handle.complete();
+
+        assertEquals(List.of("chunk", "error:Cancelled"), listener.events);
+        assertEquals(0, scheduler.getInFlight());
+        assertTrue(handle.await(0, TimeUnit.SECONDS));
+        assertTrue(handle.completion().toCompletableFuture().isCancelled());
+        assertThrows(CancellationException.class, () -> handle.completion().toCompletableFuture().get());
+    }
+
+    @Test
+    void testCancelWhileQueuedRemovesTicket() {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        RequestScheduler.Tenant tenant = scheduler.tenant("t", 0);
+        scheduler.submit(tenant, Priority.NORMAL, 1, t -> { });
+
+        StreamHandle handle = new StreamHandle(new RecordingListener(), scheduler);
+        List<RequestScheduler.Ticket> granted = new ArrayList<>();
+        handle.queued(scheduler.submit(tenant, Priority.NORMAL, 1, granted::add));
+
+        assertTrue(handle.cancel());
+        assertEquals(0, scheduler.getMetrics(Priority.NORMAL).getQueued());
+        assertTrue(granted.isEmpty());
+    }
+
+    @Test
+    void testFirstChunkDeadline() throws Exception {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            RecordingListener listener = new RecordingListener();
+            StreamHandle handle = new StreamHandle(listener, new RequestScheduler(0));
+            handle.scheduleDeadlines(timer, 20, 0);
+
+            assertTrue(handle.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("error:DeadlineExceeded"), listener.events);
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCompleteCancelsDeadlines() throws Exception {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            RecordingListener listener = new RecordingListener();
+            StreamHandle handle = new StreamHandle(listener, new RequestScheduler(0));
+            handle.scheduleDeadlines(timer, 50, 50);
+            handle.chunk(chunk());
+            handle.complete();
+
+            CompletableFuture<Void> completion = handle.completion().toCompletableFuture();
+            assertNull(completion.get(1, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            assertEquals(List.of("chunk", "complete"), listener.events);
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCallbacksRunInOrderOffTheReaderThread() throws Exception {
+        ExecutorService callbacks = Executors.newCachedThreadPool();
+        try {
+            List<Integer> sequence = new ArrayList<>();
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            StreamHandle handle = new StreamHandle(new StreamListener() {
+                @Override
+                public void onChunk(StreamChunk chunk) {
+                    threads.add(Thread.currentThread());
+                    sequence.add(chunk.getSubtitleSeq());
+                }
+
+                @Override
+                public void onComplete() {
+                    threads.add(Thread.currentThread());
+                }
+
+                @Override
+                public void onError(Exception error) {
+                }
+            }, new RequestScheduler(0), callbacks, 4, CallbackOverflowPolicy.BLOCK);
+
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                handle.chunk(new StreamChunk(new byte[]{1}, "req", "session", false, i));
+                expected.add(i);
+            }
+            handle.complete();
+
+            assertTrue(handle.await(5, TimeUnit.SECONDS));
+            assertEquals(expected, sequence);
+            assertFalse(threads.contains(Thread.currentThread()));
+        } finally {
+            callbacks.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFullQueueFailsStream() throws Exception {
+        ExecutorService callbacks = Executors.newCachedThreadPool();
+        try {
+            CountDownLatch entered = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            RecordingListener listener = new RecordingListener() {
+                @Override
+                public void onChunk(StreamChunk chunk) {
+                    super.onChunk(chunk);
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            StreamHandle handle = new StreamHandle(listener, new RequestScheduler(0), callbacks, 2,
+                    CallbackOverflowPolicy.FAIL);
+
+            handle.chunk(chunk());
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            handle.chunk(chunk());
+            handle.chunk(chunk());
+            assertFalse(handle.isDone());
+            // The listener is busy with the first chunk and two are queued
+            handle.chunk(chunk());
+            assertTrue(handle.isDone());
+            assertFalse(handle.await(0, TimeUnit.SECONDS));
+
+            release.countDown();
+            assertTrue(handle.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("chunk", "error:SubscriberTooSlow"), listener.events);
+        } finally {
+            callbacks.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPausedDeliveryHoldsChunksAndCompletion() throws Exception {
+        ExecutorService callbacks = Executors.newCachedThreadPool();
+        try {
+            RecordingListener listener = new RecordingListener();
+            StreamHandle handle = new StreamHandle(listener, new RequestScheduler(0), callbacks, 2,
+                    CallbackOverflowPolicy.BLOCK);
+
+            handle.pause();
+            handle.chunk(chunk());
+            handle.chunk(chunk());
+            // A third chunk would block the reader on the full queue
+            CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+                handle.chunk(chunk());
+                handle.complete();
+            });
+            assertThrows(TimeoutException.class, () -> reader.get(100, TimeUnit.MILLISECONDS));
+            assertFalse(handle.await(0, TimeUnit.SECONDS));
+            assertTrue(listener.events.isEmpty());
+
+            handle.resume();
+            reader.get(5, TimeUnit.SECONDS);
+            assertTrue(handle.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("chunk", "chunk", "chunk", "complete"), listener.events);
+        } finally {
+            callbacks.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCancelWhilePausedIsDelivered() throws Exception {
+        ExecutorService callbacks = Executors.newCachedThreadPool();
+        try {
+            RecordingListener listener = new RecordingListener();
+            StreamHandle handle = new StreamHandle(listener, new RequestScheduler(0), callbacks, 4,
+                    CallbackOverflowPolicy.BLOCK);
+
+            handle.pause();
+            handle.chunk(chunk());
+            assertTrue(handle.cancel());
+            assertTrue(handle.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("error:Cancelled"), listener.events);
+        } finally {
+            callbacks.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCancelDuringDirectChunkWaitsForIt() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void onChunk(StreamChunk chunk) {
+                super.onChunk(chunk);
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        StreamHandle handle = new StreamHandle(listener, new RequestScheduler(0));
+        Thread reader = new Thread(() -> handle.chunk(chunk()));
+        reader.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> cancelled = CompletableFuture.supplyAsync(handle::cancel);
+        // The terminal callback waits for the chunk being delivered
+        assertFalse(handle.await(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(cancelled.get(5, TimeUnit.SECONDS));
+        reader.join();
+        handle.chunk(chunk());
+        assertEquals(List.of("chunk", "error:Cancelled"), listener.events);
+    }
+
+    private static StreamChunk chunk() {
+        return new StreamChunk(new byte[]{1}, "req", "session", false, 0);
+    }
+
+    private static class RecordingListener implements StreamListener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public synchronized void onChunk(StreamChunk chunk) {
+            events.add("chunk");
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            events.add("complete");
+        }
+
+        @Override
+        public synchronized void onError(Exception error) {
+            events.add("error:" + ((FlowTTSException) error).getCode());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.flowtts;
+
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.SynthesizeOptions;
+import com.flowtts.model.SynthesizeResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantTest {
+    private static final TenantCredentials ACME = TenantCredentials.builder()
+            .secretId("acme-id")
+            .secretKey("acme-key")
+            .sdkAppId(1400000001)
+            .build();
+
+    @Test
+    void testViewSignsWithTenantCredentialsAndKeepsItsQuota() throws Exception {
+        try (TtsEmulator emulator = TtsEmulator.builder()
+                .credentials("root-id", "root-key")
+                .credentials("acme-id", "acme-key")
+                .timeToFirstByte(Duration.ofMillis(100))
+                .build()
+                .start()) {
+            FlowTTS root = new FlowTTS(FlowTTSConfig.builder()
+                    .secretId("root-id")
+                    .secretKey("root-key")
+                    .sdkAppId(1)
+                    .endpoint(emulator.getEndpoint())
+                    .scheme("http")
+                    .build());
+            FlowTTS acme = root.forTenant(ACME, 1);
+            // A later view of the same tenant does not raise its quota
+            FlowTTS again = root.forTenant(ACME, 8);
+            SynthesizeOptions options = SynthesizeOptions.builder().text("tenant").codec("pcm").build();
+
+            List<CompletableFuture<SynthesizeResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(acme.synthesizeAsync(options));
+                futures.add(again.synthesizeAsync(options));
+            }
+            for (CompletableFuture<SynthesizeResponse> future : futures) {
+                assertTrue(future.join().getAudioLength() > 0);
+            }
+            assertEquals(6, emulator.getRequestCount());
+            assertEquals(1, emulator.getPeakInFlight());
+
+            // The emulator only accepts signatures made with a known secret key
+            FlowTTS stranger = root.forTenant(TenantCredentials.builder()
+                    .secretId("acme-id")
+                    .secretKey("wrong-key")
+                    .sdkAppId(1400000001)
+                    .build());
+            FlowTTSException e = assertThrows(FlowTTSException.class, () -> stranger.synthesize(options));
+            assertEquals("AuthFailure.SignatureFailure", e.getCode());
+            root.close();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.flowtts.audio;
+
+import com.flowtts.StreamListener;
+import com.flowtts.model.StreamChunk;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentStitcherTest {
+    private static final int RATE = 16000;
+
+    @Test
+    void testTrimsSilenceAroundAndBetweenSegments() {
+        Collector collector = new Collector();
+        SegmentStitcher stitcher = stitcher(collector);
+        short[] segment = concat(silence(1600), tone(3200), silence(1600));
+
+        for (int i = 0; i < 2; i++) {
+            stitcher.onChunk(chunk(segment, false));
+            stitcher.onComplete();
+        }
+        stitcher.finish();
+
+        // 200 ms of tone, the 200 ms join cut to a 50 ms gap, 200 ms of tone, one 5 ms overlap
+        short[] output = collector.samples();
+        assertEquals(3200 + 800 + 3200 - 80, output.length);
+        assertEquals(Duration.ofNanos((12800 - output.length) * 1_000_000_000L / RATE),
+                stitcher.getRemovedDuration());
+        assertEquals(1, collector.completions);
+        assertTrue(collector.finalSeen);
+    }
+
+    @Test
+    void testCrossfadesAbruptJoin() {
+        Collector collector = new Collector();
+        SegmentStitcher stitcher = stitcher(collector);
+        short[] high = new short[1600];
+        short[] low = new short[1600];
+        Arrays.fill(high, (short) 8000);
+        Arrays.fill(low, (short) -8000);
+
+        stitcher.onChunk(chunk(high, true));
+        stitcher.onChunk(chunk(low, true));
+        stitcher.finish();
+
+        short[] output = collector.samples();
+        assertEquals(3200 - 80, output.length);
+        int maxStep = 0;
+        for (int i = 1; i < output.length; i++) {
+            maxStep = Math.max(maxStep, Math.abs(output[i] - output[i - 1]));
+        }
+        assertTrue(maxStep < 1000, "step " + maxStep);
+    }
+
+    @Test
+    void testOutputDoesNotDependOnChunking() {
+        short[] segment = concat(silence(500), tone(2000), silence(4000), tone(1500), silence(700));
+
+        Collector whole = new Collector();
+        SegmentStitcher first = stitcher(whole);
+        first.onChunk(chunk(segment, true));
+        first.finish();
+
+        Collector split = new Collector();
+        SegmentStitcher second = stitcher(split);
+        byte[] bytes = chunk(segment, false).getAudio();
+        for (int offset = 0; offset < bytes.length; offset += 333) {
+            byte[] part = Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + 333));
+            second.onChunk(new StreamChunk(part, "req", "session", false, 0));
+        }
+        second.onComplete();
+        second.finish();
+
+        assertArrayEquals(whole.samples(), split.samples());
+        assertEquals(first.getRemovedDuration(), second.getRemovedDuration());
+    }
+
+    private static SegmentStitcher stitcher(StreamListener downstream) {
+        return SegmentStitcher.builder(downstream)
+                .sampleRate(RATE)
+                .minGap(Duration.ofMillis(50))
+                .crossfade(Duration.ofMillis(5))
+                .build();
+    }
+
+    private static short[] tone(int length) {
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) (10000 * Math.sin(2 * Math.PI * 440 * i / RATE));
+        }
+        return samples;
+    }
+
+    private static short[] silence(int length) {
+        return new short[length];
+    }
+
+    private static short[] concat(short[]... parts) {
+        int length = 0;
+        for (short[] part : parts) {
+            length += part.length;
+        }
+        short[] all = new short[length];
+        int offset = 0;
+        for (short[] part : parts) {
+            System.arraycopy(part, 0, all, offset, part.length);
+            offset += part.length;
+        }
+        return all;
+    }
+
+    private static StreamChunk chunk(short[] samples, boolean isFinal) {
+        byte[] audio = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            audio[2 * i] = (byte) samples[i];
+            audio[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        return new StreamChunk(audio, "req", "session", isFinal, 0);
+    }
+
+    private static class Collector implements StreamListener {
+        final ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        int completions;
+        boolean finalSeen;
+
+        @Override
+        public void onChunk(StreamChunk chunk) {
+            assertFalse(finalSeen, "chunk after the final chunk");
+            audio.write(chunk.getAudio(), 0, chunk.getAudio().length);
+            finalSeen = chunk.isFinal();
+        }
+
+        @Override
+        public void onComplete() {
+            completions++;
+        }
+
+        @Override
+        public void onError(Exception error) {
+            fail(error);
+        }
+
+        short[] samples() {
+            byte[] bytes = audio.toByteArray();
+            short[] samples = new short[bytes.length / 2];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (short) ((bytes[2 * i] & 0xff) | (bytes[2 * i + 1] << 8));
+            }
+            return samples;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.flowtts.audio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeStretcherTest {
+    private static final int RATE = 16000;
+
+    @Test
+    void testChangesDurationButNotPitch() {
+        short[] tone = new short[RATE * 2];
+        for (int i = 0; i < tone.length; i++) {
+            tone[i] = (short) (8000 * Math.sin(2 * Math.PI * 220 * i / RATE));
+        }
+        TimeStretcher stretcher = new TimeStretcher(RATE);
+
+        for (double speed : new double[]{0.5, 0.8, 1.5, 3.0}) {
+            short[] stretched = stretcher.stretch(tone, tone.length, speed);
+            assertEquals(Math.round(tone.length / speed), stretched.length);
+            // Skip the edges, which fade in and out
+            double frequency = crossings(stretched, RATE / 10, stretched.length - RATE / 10) / 2.0
+                    / ((stretched.length - RATE / 5) / (double) RATE);
+            assertEquals(220, frequency, 5, "speed " + speed);
+        }
+    }
+
+    @Test
+    void testRejectsUnsupportedSpeed() {
+        TimeStretcher stretcher = new TimeStretcher(RATE);
+        short[] samples = new short[100];
+        assertThrows(IllegalArgumentException.class, () -> stretcher.stretch(samples, 100, 0.1));
+        assertThrows(IllegalArgumentException.class, () -> stretcher.stretch(samples, 100, Double.NaN));
+        assertArrayEquals(samples, stretcher.stretch(samples, 100, 1.0));
+    }
+
+    private static int crossings(short[] samples, int from, int to) {
+        int count = 0;
+        for (int i = from + 1; i < to; i++) {
+            if ((samples[i - 1] < 0) != (samples[i] < 0)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
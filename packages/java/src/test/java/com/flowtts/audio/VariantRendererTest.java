@@ -0,0 +1,106 @@
+package com.flowtts.audio;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.model.SynthesizeOptions;
+import com.flowtts.model.SynthesizeResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariantRendererTest {
+    @Test
+    void testGainDoesNotClip() {
+        short[] samples = {1000, -20000, 16000};
+        double applied = VariantRenderer.applyGain(samples, samples.length, 2.0);
+        assertEquals(32767 / 20000.0, applied, 1e-9);
+        assertEquals(-32767, samples[1]);
+        assertTrue(samples[2] < Short.MAX_VALUE);
+
+        short[] quiet = {1000, -2000};
+        assertEquals(0.5, VariantRenderer.applyGain(quiet, quiet.length, 0.5));
+        assertArrayEquals(new short[]{500, -1000}, quiet);
+    }
+
+    @Test
+    void testClientDerivesVariantsFromOneBaseRender() throws Exception {
+        try (TtsEmulator emulator = TtsEmulator.builder().credentials("id", "key").build().start()) {
+            FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                    .secretId("id")
+                    .secretKey("key")
+                    .sdkAppId(1)
+                    .endpoint(emulator.getEndpoint())
+                    .scheme("http")
+                    .build());
+            SynthesizeOptions base = SynthesizeOptions.builder()
+                    .text("Please mind the gap")
+                    .codec("pcm")
+                    .sampleRate(16000)
+                    .localVariant(true)
+                    .build();
+            SynthesizeResponse same = client.synthesize(base);
+            byte[] original = same.getAudio();
+            SynthesizeResponse fast = client.synthesize(base.toBuilder().speed(1.5).build());
+            SynthesizeResponse loud = client.synthesize(base.toBuilder().volume(2.0).build());
+            SynthesizeResponse wav = client.synthesize(base.toBuilder().speed(0.8).codec("wav").build());
+
+            assertEquals(1, emulator.getRequestCount());
+            assertEquals(19 * 80 * 16 * 2, original.length);
+            assertEquals(Math.round(original.length / 2 / 1.5) * 2, fast.getAudioLength());
+            assertEquals(original.length, loud.getAudioLength());
+            assertFalse(Arrays.equals(original, loud.getAudio()));
+            assertEquals("RIFF", new String(wav.getAudio(), 0, 4, StandardCharsets.US_ASCII));
+            assertEquals(44 + Math.round(original.length / 2 / 0.8) * 2, wav.getAudioLength());
+            assertEquals(same.getRequestId(), fast.getRequestId());
+
+            // Without the option, the variant is requested
+            SynthesizeResponse requested = client.synthesize(base.toBuilder().localVariant(false).build());
+            assertEquals(2, emulator.getRequestCount());
+            assertArrayEquals(requested.getAudio(), original);
+            client.close();
+        }
+    }
+
+    @Test
+    void testConcurrentVariantsShareOneBaseRender() throws Exception {
+        try (TtsEmulator emulator = TtsEmulator.builder()
+                .credentials("id", "key")
+                .timeToFirstByte(Duration.ofMillis(200))
+                .build()
+                .start()) {
+            FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                    .secretId("id")
+                    .secretKey("key")
+                    .sdkAppId(1)
+                    .endpoint(emulator.getEndpoint())
+                    .scheme("http")
+                    .build());
+            SynthesizeOptions base = SynthesizeOptions.builder()
+                    .text("Please mind the gap")
+                    .codec("pcm")
+                    .sampleRate(16000)
+                    .localVariant(true)
+                    .build();
+
+            // All of them miss the cache while the first render is still in flight
+            List<CompletableFuture<SynthesizeResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(client.synthesizeAsync(base.toBuilder().speed(1.0 + i * 0.25).build()));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                int samples = (int) Math.round(19 * 80 * 16 / (1.0 + i * 0.25));
+                assertEquals(samples * 2, futures.get(i).join().getAudioLength());
+            }
+            assertEquals(1, emulator.getRequestCount());
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.flowtts.batch;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.model.SynthesizeOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+    @TempDir
+    Path dir;
+
+    private TtsEmulator emulator;
+    private FlowTTS client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        emulator = TtsEmulator.builder().credentials("id", "key").build().start();
+        client = new FlowTTS(FlowTTSConfig.builder()
+                .secretId("id")
+                .secretKey("key")
+                .sdkAppId(1)
+                .endpoint(emulator.getEndpoint())
+                .scheme("http")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        emulator.close();
+    }
+
+    @Test
+    void testRendersManifestAndSkipsCompletedJobsOnRerun() throws Exception {
+        Path manifest = manifest(
+                "{\"id\":\"a\",\"text\":\"First line\",\"codec\":\"pcm\",\"sampleRate\":16000}",
+                "",
+                "{\"id\":\"b\",\"text\":\"Second line\",\"codec\":\"pcm\",\"sampleRate\":16000,\"output\":\"ch1/b.pcm\"}",
+                "{\"id\":\"c\",\"text\":\"Third line\"}");
+        Path out = dir.resolve("out");
+
+        List<BatchProgress> reports = new ArrayList<>();
+        BatchProgress first = runner(manifest, out).progressListener(reports::add).build().run();
+        assertEquals(3, first.getTotal());
+        assertEquals(3, first.getCompleted());
+        assertEquals(0, first.getFailed());
+        assertFalse(reports.isEmpty());
+
+        byte[] expected = client.synthesize(SynthesizeOptions.builder()
+                .text("Second line").codec("pcm").sampleRate(16000).build()).getAudio();
+        assertArrayEquals(expected, Files.readAllBytes(out.resolve("ch1/b.pcm")));
+        assertTrue(Files.exists(out.resolve("a.pcm")));
+        assertTrue(Files.exists(out.resolve("c.wav")));
+        long requests = emulator.getRequestCount();
+
+        BatchProgress second = runner(manifest, out).build().run();
+        assertEquals(3, second.getSkipped());
+        assertEquals(0, second.getCompleted());
+        assertEquals(requests, emulator.getRequestCount());
+    }
+
+    @Test
+    void testResumesFromTornJournal() throws Exception {
+        Path manifest = manifest(
+                "{\"id\":\"a\",\"text\":\"Alpha\"}",
+                "{\"id\":\"b\",\"text\":\"Beta\"}",
+                "not json",
+                "{\"id\":\"c\",\"text\":\"Gamma\",\"output\":\"../escape.wav\"}",
+                "{\"id\":\"d\",\"text\":\"Delta\"}");
+        Path out = Files.createDirectories(dir.resolve("out"));
+        Path journal = out.resolve("batch-journal.jsonl");
+        // "a" finished before the crash, "b" was in flight, and the last record was torn
+        Files.write(out.resolve("a.wav"), new byte[]{1});
+        Files.write(journal, ("{\"id\":\"a\",\"state\":\"done\"}\n"
+                + "{\"id\":\"b\",\"state\":\"started\"}\n"
+                + "{\"id\":\"d\",\"sta").getBytes(StandardCharsets.UTF_8));
+
+        BatchProgress result = runner(manifest, out).build().run();
+
+        assertEquals(1, result.getSkipped());
+        assertEquals(2, result.getCompleted());
+        assertEquals(2, result.getFailed());
+        assertEquals(2, emulator.getRequestCount());
+        assertArrayEquals(new byte[]{1}, Files.readAllBytes(out.resolve("a.wav")));
+        assertFalse(Files.exists(dir.resolve("escape.wav")));
+
+        List<String> lines = Files.readAllLines(journal);
+        for (String line : lines) {
+            assertTrue(line.startsWith("{") && line.endsWith("}"), line);
+        }
+        assertTrue(lines.stream().anyMatch(l -> l.contains("\"id\":\"line:3\"") && l.contains("InvalidJob")));
+        assertTrue(lines.stream().anyMatch(l -> l.contains("\"id\":\"d\"") && l.contains("\"state\":\"done\"")));
+    }
+
+    @Test
+    void testWorkersShareManifestThroughLeases() throws Exception {
+        String[] lines = new String[9];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "{\"id\":\"job" + i + "\",\"text\":\"Line number " + i + "\"}";
+        }
+        Path manifest = manifest(lines);
+        Path out = dir.resolve("out");
+        Path leases = dir.resolve("leases");
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<BatchProgress> first = pool.submit(() -> sharded(manifest, out, leases, "w1").build().run());
+            Future<BatchProgress> second = pool.submit(() -> sharded(manifest, out, leases, "w2").build().run());
+            assertEquals(9, first.get().getCompleted() + second.get().getCompleted());
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(9, emulator.getRequestCount());
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(Files.exists(out.resolve("job" + i + ".wav")));
+        }
+        for (int chunk = 0; chunk < 5; chunk++) {
+            assertTrue(Files.exists(leases.resolve(String.format("chunk-%06d.done", chunk))));
+        }
+
+        BatchRunner third = sharded(manifest, out, leases, "w3").build();
+        BatchProgress rerun = third.run();
+        assertEquals(0, rerun.getCompleted());
+        assertEquals(9, third.getClusterProgress().getCompleted());
+        assertEquals(9, emulator.getRequestCount());
+    }
+
+    @Test
+    void testStealsLeaseOfDeadWorker() throws Exception {
+        Path manifest = manifest(
+                "{\"id\":\"a\",\"text\":\"Alpha\"}",
+                "{\"id\":\"b\",\"text\":\"Beta\"}",
+                "{\"id\":\"c\",\"text\":\"Gamma\"}");
+        Path out = Files.createDirectories(dir.resolve("out"));
+        Path leases = Files.createDirectories(dir.resolve("leases"));
+        // A worker claimed the first chunk, finished "a" and died
+        Files.write(leases.resolve("chunk-000000.lease"),
+                "{\"owner\":\"dead\",\"beat\":7}".getBytes(StandardCharsets.UTF_8));
+        Files.write(leases.resolve("chunk-000000.dead.journal"),
+                "{\"id\":\"a\",\"state\":\"done\"}\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(out.resolve("a.wav"), new byte[]{1});
+
+        BatchProgress result = sharded(manifest, out, leases, "alive")
+                .leaseTimeout(Duration.ofMillis(300))
+                .build()
+                .run();
+
+        assertEquals(2, result.getCompleted());
+        assertEquals(1, result.getSkipped());
+        assertEquals(2, emulator.getRequestCount());
+        assertTrue(Files.exists(leases.resolve("chunk-000000.done")));
+        assertFalse(Files.exists(leases.resolve("chunk-000000.lease")));
+    }
+
+    private BatchRunner.Builder sharded(Path manifest, Path out, Path leases, String worker) {
+        return runner(manifest, out).leaseDir(leases).workerId(worker).chunkSize(2)
+                .leaseTimeout(Duration.ofSeconds(3));
+    }
+
+    private BatchRunner.Builder runner(Path manifest, Path out) {
+        return BatchRunner.builder(client).manifest(manifest).outputDir(out).concurrency(2);
+    }
+
+    private Path manifest(String... lines) throws Exception {
+        Path manifest = dir.resolve("manifest.jsonl");
+        Files.write(manifest, String.join("\n", lines).getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        return manifest;
+    }
+}
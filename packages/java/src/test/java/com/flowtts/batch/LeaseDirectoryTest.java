@@ -0,0 +1,81 @@
+package com.flowtts.batch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaseDirectoryTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testLeaseChangesHandsOnlyWhenExpired() throws Exception {
+        LeaseDirectory a = new LeaseDirectory(dir, "worker-a");
+        LeaseDirectory b = new LeaseDirectory(dir, "worker-b");
+
+        assertTrue(a.tryClaim(0));
+        assertFalse(b.tryClaim(0));
+        // The first look only starts the clock, and a renewal restarts it
+        assertFalse(b.tryExpire(0, 0));
+        assertTrue(a.renew(0));
+        assertFalse(b.tryExpire(0, 0));
+        assertTrue(b.tryExpire(0, 0));
+
+        assertFalse(a.renew(0));
+        assertTrue(b.tryClaim(0));
+        assertFalse(a.renew(0));
+        // A worker that lost its lease leaves the new holder's alone
+        a.release(0);
+        assertTrue(b.renew(0));
+        assertFalse(a.tryClaim(0));
+        assertEquals(0, leftovers());
+
+        b.release(0);
+        assertTrue(a.tryClaim(0));
+        assertEquals(0, leftovers());
+    }
+
+    @Test
+    void testRenewalNeverOverwritesStolenLease() throws Exception {
+        LeaseDirectory a = new LeaseDirectory(dir, "worker-a");
+        LeaseDirectory b = new LeaseDirectory(dir, "worker-b");
+        for (int chunk = 0; chunk < 20; chunk++) {
+            assertTrue(a.tryClaim(chunk));
+            int held = chunk;
+            AtomicBoolean holderLost = new AtomicBoolean();
+            Thread holder = new Thread(() -> {
+                try {
+                    while (a.renew(held)) {
+                        Thread.sleep(1);
+                    }
+                    holderLost.set(true);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            holder.start();
+            // With no timeout, any two looks between renewals steal the lease
+            while (!(b.tryExpire(chunk, 0) && b.tryClaim(chunk))) {
+                Thread.yield();
+            }
+            holder.join(5000);
+            assertTrue(holderLost.get());
+            assertFalse(a.renew(chunk));
+            assertTrue(b.renew(chunk));
+        }
+        assertEquals(0, leftovers());
+    }
+
+    // Temporary and taken lease files
+    private long leftovers() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().matches(".*\\.(tmp|taken)")).count();
+        }
+    }
+}
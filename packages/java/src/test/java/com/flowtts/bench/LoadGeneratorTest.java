@@ -0,0 +1,131 @@
+package com.flowtts.bench;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.emulator.TtsEmulator;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+
+    @Test
+    void testHistogramPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v * 1000);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000, histogram.getMax());
+        assertEquals(50_000_500, histogram.getMean(), 1);
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 * 0.02);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 * 0.02);
+        assertTrue(histogram.getValueAtPercentile(99) >= 99_000_000);
+        assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void testHistogramKeepsRareOutliers() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 9_990; i++) {
+            histogram.record(1_000_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(1_000_000_000);
+        }
+
+        assertEquals(1_000_000, histogram.getValueAtPercentile(50), 1_000_000 * 0.02);
+        assertEquals(1_000_000, histogram.getValueAtPercentile(99.8), 1_000_000 * 0.02);
+        assertEquals(1_000_000_000, histogram.getValueAtPercentile(99.95), 1_000_000_000 * 0.02);
+        assertEquals(1_000_000_000, histogram.getMax());
+    }
+
+    @Test
+    void testLatencyMeasuredFromIntendedStart() throws Exception {
+        // One request at a time, 50ms each, while the generator asks for one every 10ms
+        try (TtsEmulator emulator = TtsEmulator.builder()
+                .timeToFirstByte(Duration.ofMillis(50))
+                .build()
+                .start()) {
+            FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                    .secretId("id")
+                    .secretKey("key")
+                    .sdkAppId(1)
+                    .endpoint(emulator.getEndpoint())
+                    .scheme("http")
+                    .maxConcurrentRequests(1)
+                    .build());
+
+            LoadReport report = LoadGenerator.builder(client)
+                    .rate(100)
+                    .arrival(LoadGenerator.Arrival.FIXED)
+                    .duration(Duration.ofMillis(200))
+                    .streamRatio(0)
+                    .build()
+                    .run();
+            client.close();
+
+            assertEquals(20, report.getSent());
+            assertEquals(0, report.getFailed());
+            // Each request waits for the backlog sent on schedule before it: the n-th
+            // finishes near n * 50ms after it was due, not 50ms after the previous one
+            JsonObject total = report.toJsonObject().getAsJsonObject("latencyMillis")
+                    .getAsJsonObject("sync").getAsJsonObject("total");
+            assertTrue(total.get("max").getAsDouble() >= 700, total.toString());
+            assertTrue(total.get("p50").getAsDouble() >= 300, total.toString());
+        }
+    }
+
+    @Test
+    void testHistogramBucketsAreContiguous() {
+        for (long v = 0; v < 1 << 16; v++) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(LatencyHistogram.highestValueAt(index) >= v);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.highestValueAt(index - 1) < v);
+            }
+        }
+        assertTrue(LatencyHistogram.indexOf(Long.MAX_VALUE) >= 0);
+    }
+
+    @Test
+    void testRunAgainstEmulator() throws Exception {
+        try (TtsEmulator emulator = TtsEmulator.builder()
+                .timeToFirstByte(Duration.ofMillis(20))
+                .fault("RequestLimitExceeded", 0.2)
+                .build()
+                .start()) {
+            FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                    .secretId("id")
+                    .secretKey("key")
+                    .sdkAppId(1)
+                    .endpoint(emulator.getEndpoint())
+                    .scheme("http")
+                    .build());
+
+            LoadReport report = LoadGenerator.builder(client)
+                    .rate(200)
+                    .arrival(LoadGenerator.Arrival.FIXED)
+                    .duration(Duration.ofMillis(500))
+                    .streamRatio(0.5)
+                    .build()
+                    .run();
+            client.close();
+
+            assertEquals(100, report.getSent());
+            assertEquals(report.getFailed(), report.getErrors("RequestLimitExceeded"));
+            assertTrue(report.getFailed() > 0 && report.getFailed() < report.getSent());
+
+            JsonObject json = report.toJsonObject();
+            JsonObject requests = json.getAsJsonObject("requests");
+            assertEquals(report.getSent(), requests.get("succeeded").getAsLong() + report.getFailed());
+            JsonObject stream = json.getAsJsonObject("latencyMillis").getAsJsonObject("stream");
+            assertTrue(stream.getAsJsonObject("ttfb").get("p50").getAsDouble() >= 20);
+            assertTrue(json.getAsJsonObject("client").has("allocatedBytesPerRequest"));
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.flowtts.bench;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupWorkloadTest {
+
+    @Test
+    void testPrintsFirstByteAgainstInProcessEmulator() throws Exception {
+        // The appcds profile trains on this run and StartupBenchmark waits for its line
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(out, true, "UTF-8"));
+        try {
+            StartupWorkload.main(new String[0]);
+        } finally {
+            System.setOut(original);
+        }
+        assertEquals(StartupWorkload.FIRST_BYTE, out.toString(StandardCharsets.UTF_8.name()).trim());
+    }
+}
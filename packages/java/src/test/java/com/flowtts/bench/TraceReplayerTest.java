@@ -0,0 +1,103 @@
+package com.flowtts.bench;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.StreamHandle;
+import com.flowtts.StreamListener;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.model.StreamChunk;
+import com.flowtts.model.SynthesizeOptions;
+import com.flowtts.trace.TraceReader;
+import com.flowtts.trace.TraceRecord;
+import com.flowtts.trace.TraceRecorder;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceReplayerTest {
+
+    @Test
+    void testReplaysRecordedTrafficAgainstAnotherEndpoint(@TempDir Path dir) throws Exception {
+        Path log = dir.resolve("traffic.fttr");
+        try (TtsEmulator recorded = TtsEmulator.builder().build().start()) {
+            TraceRecorder recorder = TraceRecorder.open(log);
+            FlowTTS client = client(recorded, recorder);
+            for (int i = 0; i < 4; i++) {
+                client.synthesize(SynthesizeOptions.builder().text("request " + i).codec("pcm").build());
+                StreamHandle handle = client.synthesizeStream(
+                        SynthesizeOptions.builder().text("stream " + i).build(), new NoopListener());
+                assertTrue(handle.await(10, TimeUnit.SECONDS));
+                Thread.sleep(20);
+            }
+            client.close();
+            recorder.close();
+        }
+        List<TraceRecord> records = TraceReader.readAll(log);
+        assertEquals(8, records.size());
+
+        try (TtsEmulator target = TtsEmulator.builder().build().start()) {
+            FlowTTS client = client(target, null);
+            long start = System.nanoTime();
+            LoadReport report = TraceReplayer.builder(client)
+                    .records(records)
+                    .speed(4.0)
+                    .build()
+                    .run();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            client.close();
+
+            assertEquals(8, report.getSent());
+            assertEquals(0, report.getFailed());
+            assertEquals(8, target.getRequestCount());
+            // Four 20ms gaps at four times the speed
+            assertTrue(elapsedMillis >= 20, "replay took " + elapsedMillis + "ms");
+            JsonObject json = report.toJsonObject();
+            assertEquals(4, json.getAsJsonObject("config").get("kind.SYNC").getAsInt());
+            assertEquals(4, json.getAsJsonObject("config").get("kind.STREAM").getAsInt());
+            JsonObject recordedStream = json.getAsJsonObject("recorded")
+                    .getAsJsonObject("latencyMillis").getAsJsonObject("stream");
+            assertEquals(4, recordedStream.getAsJsonObject("ttfb").get("count").getAsLong());
+        }
+    }
+
+    @Test
+    void testRejectsInvalidSettings() {
+        FlowTTS client = new FlowTTS(FlowTTSConfig.builder().secretId("id").secretKey("key").sdkAppId(1).build());
+        assertThrows(IllegalArgumentException.class, () -> TraceReplayer.builder(client).build());
+        assertThrows(IllegalArgumentException.class,
+                () -> TraceReplayer.builder(client).records(List.of()).speed(0).build());
+        assertNotNull(TraceReplayer.builder(client).records(List.of()).speed(0.5).build());
+        client.close();
+    }
+
+    private static FlowTTS client(TtsEmulator emulator, TraceRecorder recorder) {
+        return new FlowTTS(FlowTTSConfig.builder()
+                .secretId("id")
+                .secretKey("key")
+                .sdkAppId(1)
+                .endpoint(emulator.getEndpoint())
+                .scheme("http")
+                .traceRecorder(recorder)
+                .build());
+    }
+
+    private static final class NoopListener implements StreamListener {
+        @Override
+        public void onChunk(StreamChunk chunk) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        @Override
+        public void onError(Exception e) {
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.flowtts.bundle;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.SynthesizeOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PromptBundleTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRoundTrip() throws Exception {
+        Path welcome = audio("welcome.wav", 1000);
+        Path goodbye = audio("goodbye.wav", 37);
+        Path chinese = audio("zh.mp3", 5);
+
+        Path bundlePath = dir.resolve("prompts.bundle");
+        new PromptBundleWriter()
+                .add("welcome", "wav", 24000, welcome)
+                .add("goodbye", "wav", 16000, goodbye)
+                .add("欢迎", "mp3", 24000, chinese)
+                .write(bundlePath);
+
+        try (PromptBundle bundle = PromptBundle.open(bundlePath)) {
+            assertEquals(3, bundle.size());
+            assertEquals(Arrays.asList("goodbye", "welcome", "欢迎"), bundle.ids());
+
+            assertContent(welcome, bundle.getAudio("welcome"));
+            assertContent(goodbye, bundle.getAudio("goodbye"));
+            assertContent(chinese, bundle.getAudio("欢迎"));
+            assertEquals("mp3", bundle.getCodec("欢迎"));
+            assertEquals(16000, bundle.getSampleRate("goodbye"));
+
+            assertTrue(bundle.getAudio("welcome").isReadOnly());
+            assertFalse(bundle.contains("missing"));
+            assertNull(bundle.getAudio("missing"));
+            assertNull(bundle.getAudio("welcom"));
+        }
+    }
+
+    @Test
+    void testRejectsDuplicateIdsAndForeignFiles() throws Exception {
+        Path audio = audio("a.wav", 4);
+        PromptBundleWriter writer = new PromptBundleWriter().add("a", "wav", 24000, audio);
+        assertThrows(IllegalArgumentException.class, () -> writer.add("a", "wav", 24000, audio));
+
+        Path foreign = dir.resolve("foreign.bin");
+        Files.write(foreign, "definitely not a bundle".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> PromptBundle.open(foreign));
+    }
+
+    @Test
+    void testBundleGetsDefaultPermissions() throws Exception {
+        assumeTrue(dir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path bundlePath = dir.resolve("shared.bundle");
+        new PromptBundleWriter().add("a", "wav", 24000, audio("a.wav", 4)).write(bundlePath);
+
+        // Other service processes map the same file
+        Path plain = Files.createFile(dir.resolve("plain.bin"));
+        assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(bundlePath));
+    }
+
+    @Test
+    void testRejectsCorruptEntriesAndOversizedBundles() throws Exception {
+        Path bundlePath = dir.resolve("prompts.bundle");
+        new PromptBundleWriter().add("a", "wav", 24000, audio("a.wav", 40)).write(bundlePath);
+
+        // Point the blob of the only entry past the end of the file
+        try (FileChannel channel = FileChannel.open(bundlePath, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, 1L << 20), PromptBundleWriter.HEADER_SIZE + 32);
+        }
+        IOException e = assertThrows(IOException.class, () -> PromptBundle.open(bundlePath));
+        assertTrue(e.getMessage().startsWith("Corrupt bundle entry 0"), e.getMessage());
+
+        // A sparse source file is enough to exceed what a bundle can map
+        Path huge = dir.resolve("huge.wav");
+        try (RandomAccessFile file = new RandomAccessFile(huge.toFile(), "rw")) {
+            file.setLength(Integer.MAX_VALUE);
+        }
+        Path tooLarge = dir.resolve("large.bundle");
+        assertThrows(IOException.class,
+                () -> new PromptBundleWriter().add("huge", "wav", 24000, huge).write(tooLarge));
+        assertFalse(Files.exists(tooLarge));
+    }
+
+    @Test
+    void testDoesNotRetryPromptsThatCannotSucceed() throws Exception {
+        try (TtsEmulator emulator = TtsEmulator.builder().credentials("id", "key").build().start()) {
+            FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                    .secretId("id")
+                    .secretKey("wrong-key")
+                    .sdkAppId(1)
+                    .endpoint(emulator.getEndpoint())
+                    .scheme("http")
+                    .build());
+            PromptBundleBuilder builder = PromptBundleBuilder.builder(client)
+                    .stagingDirectory(dir.resolve("staging"))
+                    .maxAttempts(3)
+                    .build()
+                    .add("hello", SynthesizeOptions.builder().text("Hello").build());
+
+            assertThrows(FlowTTSException.class, () -> builder.build(dir.resolve("prompts.bundle")));
+            assertEquals(1, emulator.getRequestCount());
+            client.close();
+        }
+    }
+
+    @Test
+    void testStagedNameTracksOptions() {
+        SynthesizeOptions options = SynthesizeOptions.builder().text("Hello").build();
+        String name = PromptBundleBuilder.stagedName("hello", options);
+
+        assertEquals(name, PromptBundleBuilder.stagedName("hello", options.toBuilder().build()));
+        assertNotEquals(name, PromptBundleBuilder.stagedName("hello", options.toBuilder().speed(1.2).build()));
+        assertNotEquals(name, PromptBundleBuilder.stagedName("hi", options));
+        assertTrue(name.endsWith(".wav"));
+    }
+
+    private Path audio(String name, int size) throws IOException {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31 + name.hashCode());
+        }
+        return Files.write(dir.resolve(name), data);
+    }
+
+    private static void assertContent(Path expected, ByteBuffer actual) throws IOException {
+        byte[] bytes = new byte[actual.remaining()];
+        actual.get(bytes);
+        assertArrayEquals(Files.readAllBytes(expected), bytes);
+    }
+}
@@ -0,0 +1,86 @@
+package com.flowtts.core;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadEncoderTest {
+
+    @Test
+    void testMatchesGsonSerialization() throws Exception {
+        String[] texts = {
+                "Hello, world!",
+                "你好，世界。こんにちは",
+                "Quotes \" and \\ backslash, <tags> & 'apostrophes' = escaped",
+                "Control\n\t\r\u0001 chars and \u2028\u2029 separators",
+                "Emoji 😀 and supplementary 𠀀",
+        };
+
+        PayloadEncoder encoder = new PayloadEncoder(16);
+        for (String text : texts) {
+            String expected = gsonPayload(1400000000L, text, "flow_01_turbo", "v-female-R2s4N9qJ",
+                    1.25, 1.0, -3, "pcm", 24000);
+
+            encoder.encode(1400000000L, text, "flow_01_turbo", "v-female-R2s4N9qJ",
+                    1.25, 1.0, -3, "pcm", 24000);
+
+            byte[] expectedBytes = expected.getBytes(StandardCharsets.UTF_8);
+            assertEquals(expected, new String(encoder.toByteArray(), StandardCharsets.UTF_8));
+            assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(expectedBytes), encoder.sha256());
+        }
+    }
+
+    @Test
+    void testBufferGrowsForLongText() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("长文本\"").append(i);
+        }
+        String text = sb.toString();
+
+        PayloadEncoder encoder = new PayloadEncoder(64);
+        encoder.encode(1L, text, "flow_01_ex", "alloy", 0.5, 2.0, 0, "mp3", 16000);
+
+        String expected = gsonPayload(1L, text, "flow_01_ex", "alloy", 0.5, 2.0, 0, "mp3", 16000);
+        assertEquals(expected, new String(encoder.buffer(), 0, encoder.length(), StandardCharsets.UTF_8));
+        assertArrayEquals(
+                MessageDigest.getInstance("SHA-256").digest(expected.getBytes(StandardCharsets.UTF_8)),
+                encoder.sha256());
+    }
+
+    @Test
+    void testRejectsNonFiniteNumbersLikeGson() {
+        PayloadEncoder encoder = new PayloadEncoder();
+        for (double value : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            assertThrows(IllegalArgumentException.class, () -> new Gson().toJson(value));
+            assertThrows(IllegalArgumentException.class,
+                    () -> encoder.encode(1L, "text", "flow_01_turbo", "alloy", value, 1.0, 0, "pcm", 24000));
+            assertThrows(IllegalArgumentException.class,
+                    () -> encoder.encode(1L, "text", "flow_01_turbo", "alloy", 1.0, value, 0, "pcm", 24000));
+        }
+    }
+
+    private static String gsonPayload(long sdkAppId, String text, String model, String voiceId,
+                                      double speed, double volume, int pitch, String format, int sampleRate) {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("SdkAppId", sdkAppId);
+        payload.addProperty("Text", text);
+        payload.addProperty("Model", model);
+        JsonObject voice = new JsonObject();
+        voice.addProperty("VoiceId", voiceId);
+        voice.addProperty("Speed", speed);
+        voice.addProperty("Volume", volume);
+        voice.addProperty("Pitch", pitch);
+        payload.add("Voice", voice);
+        JsonObject audioFormat = new JsonObject();
+        audioFormat.addProperty("Format", format);
+        audioFormat.addProperty("SampleRate", sampleRate);
+        payload.add("AudioFormat", audioFormat);
+        return new Gson().toJson(payload);
+    }
+}
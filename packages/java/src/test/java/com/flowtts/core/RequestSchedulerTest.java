@@ -0,0 +1,213 @@
+package com.flowtts.core;
+
+import com.flowtts.exception.MemoryBudgetExceededException;
+import com.flowtts.model.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestSchedulerTest {
+    private final List<String> granted = new ArrayList<>();
+    private final Map<String, RequestScheduler.Ticket> tickets = new ConcurrentHashMap<>();
+
+    @Test
+    void testTenantsServedRoundRobin() {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        RequestScheduler.Tenant a = scheduler.tenant("a", 0);
+        RequestScheduler.Tenant b = scheduler.tenant("b", 0);
+
+        submit(scheduler, a, Priority.NORMAL, 0, "a1");
+        submit(scheduler, a, Priority.NORMAL, 0, "a2");
+        submit(scheduler, a, Priority.NORMAL, 0, "a3");
+        submit(scheduler, b, Priority.NORMAL, 0, "b1");
+        assertEquals(List.of("a1"), granted);
+
+        scheduler.release(tickets.get("a1"));
+        scheduler.release(tickets.get("a2"));
+        scheduler.release(tickets.get("b1"));
+        assertEquals(List.of("a1", "a2", "b1", "a3"), granted);
+    }
+
+    @Test
+    void testTenantQuota() {
+        RequestScheduler scheduler = new RequestScheduler(2);
+        RequestScheduler.Tenant a = scheduler.tenant("a", 1);
+        RequestScheduler.Tenant b = scheduler.tenant("b", 0);
+
+        submit(scheduler, a, Priority.NORMAL, 0, "a1");
+        submit(scheduler, a, Priority.NORMAL, 0, "a2");
+        submit(scheduler, b, Priority.NORMAL, 0, "b1");
+
+        assertEquals(List.of("a1", "b1"), granted);
+        assertEquals(1, a.getQueued());
+
+        scheduler.release(tickets.get("a1"));
+        assertEquals(List.of("a1", "b1", "a2"), granted);
+        assertEquals(2, scheduler.getInFlight());
+    }
+
+    @Test
+    void testTenantQuotaFixedWhileInUse() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(0);
+        RequestScheduler.Tenant a = scheduler.tenant("a", 1);
+        assertSame(a, scheduler.tenant("a", 5));
+
+        submit(scheduler, a, Priority.NORMAL, 0, "a1");
+        submit(scheduler, scheduler.tenant("a", 0), Priority.NORMAL, 0, "a2");
+        assertEquals(List.of("a1"), granted);
+        scheduler.release(tickets.get("a1"));
+        scheduler.release(tickets.get("a2"));
+        assertEquals(1, scheduler.getTenantCount());
+
+        // Once nothing refers to the tenant it is dropped
+        a = null;
+        tickets.clear();
+        for (int i = 0; i < 50 && scheduler.getTenantCount() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, scheduler.getTenantCount());
+    }
+
+    @Test
+    void testCancelQueuedTicket() {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        RequestScheduler.Tenant a = scheduler.tenant("a", 0);
+
+        RequestScheduler.Ticket first = submit(scheduler, a, Priority.NORMAL, 0, "a1");
+        RequestScheduler.Ticket second = submit(scheduler, a, Priority.NORMAL, 0, "a2");
+
+        assertFalse(scheduler.cancel(first));
+        assertTrue(scheduler.cancel(second));
+
+        scheduler.release(first);
+        scheduler.release(first);
+        assertEquals(List.of("a1"), granted);
+        assertEquals(0, scheduler.getInFlight());
+    }
+
+    @Test
+    void testHigherPriorityAdmittedFirst() {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        RequestScheduler.Tenant a = scheduler.tenant("a", 0);
+
+        submit(scheduler, a, Priority.NORMAL, 0, "n1");
+        submit(scheduler, a, Priority.BULK, 0, "b1");
+        submit(scheduler, a, Priority.NORMAL, 0, "n2");
+        submit(scheduler, a, Priority.INTERACTIVE, 0, "i1");
+
+        scheduler.release(tickets.get("n1"));
+        scheduler.release(tickets.get("i1"));
+        scheduler.release(tickets.get("n2"));
+        assertEquals(List.of("n1", "i1", "n2", "b1"), granted);
+    }
+
+    @Test
+    void testReservedSlotsNotUsedByOtherClasses() {
+        int[] reserved = new int[Priority.values().length];
+        reserved[Priority.INTERACTIVE.ordinal()] = 1;
+        RequestScheduler scheduler = new RequestScheduler(2, reserved);
+        RequestScheduler.Tenant a = scheduler.tenant("a", 0);
+
+        submit(scheduler, a, Priority.BULK, 0, "b1");
+        submit(scheduler, a, Priority.BULK, 0, "b2");
+        assertEquals(List.of("b1"), granted);
+
+        submit(scheduler, a, Priority.INTERACTIVE, 0, "i1");
+        assertEquals(List.of("b1", "i1"), granted);
+        assertEquals(1, scheduler.getMetrics(Priority.BULK).getQueued());
+    }
+
+    @Test
+    void testBulkShortestJobFirst() {
+        RequestScheduler scheduler = new RequestScheduler(1);
+        RequestScheduler.Tenant a = scheduler.tenant("a", 0);
+
+        submit(scheduler, a, Priority.BULK, 10, "first");
+        submit(scheduler, a, Priority.BULK, 500, "long");
+        submit(scheduler, a, Priority.BULK, 20, "short");
+        submit(scheduler, a, Priority.BULK, 20, "short2");
+
+        scheduler.release(tickets.get("first"));
+        scheduler.release(tickets.get("short"));
+        scheduler.release(tickets.get("short2"));
+        assertEquals(List.of("first", "short", "short2", "long"), granted);
+
+        RequestScheduler.Metrics metrics = scheduler.getMetrics(Priority.BULK);
+        assertEquals(4, metrics.getAdmitted());
+        assertEquals(0, metrics.getQueued());
+        assertEquals(1, metrics.getInFlight());
+        assertTrue(metrics.getMaxWaitNanos() >= metrics.getAverageWaitNanos());
+    }
+
+    @Test
+    void testMemoryBudgetQueuesInOrder() {
+        RequestScheduler scheduler = new RequestScheduler(0, new int[Priority.values().length], 1000, false);
+        RequestScheduler.Tenant a = scheduler.tenant("a", 0);
+
+        submitBytes(scheduler, a, 600, "big");
+        submitBytes(scheduler, a, 600, "next");
+        // Fits, but must not overtake the request waiting for memory
+        submitBytes(scheduler, a, 100, "small");
+        assertEquals(List.of("big"), granted);
+
+        scheduler.reserveAtLeast(tickets.get("big"), 900);
+        assertEquals(900, scheduler.getMemoryMetrics().getReservedBytes());
+        scheduler.release(tickets.get("big"));
+        assertEquals(List.of("big", "next", "small"), granted);
+        assertEquals(700, scheduler.getMemoryMetrics().getReservedBytes());
+        assertEquals(900, scheduler.getMemoryMetrics().getPeakReservedBytes());
+
+        // Larger than the whole budget: admitted alone
+        submitBytes(scheduler, a, 5000, "huge");
+        scheduler.release(tickets.get("next"));
+        scheduler.release(tickets.get("small"));
+        assertEquals(List.of("big", "next", "small", "huge"), granted);
+    }
+
+    @Test
+    void testMemoryBudgetFailFast() {
+        RequestScheduler scheduler = new RequestScheduler(0, new int[Priority.values().length], 1000, true);
+        RequestScheduler.Tenant a = scheduler.tenant("a", 0);
+
+        submitBytes(scheduler, a, 800, "a1");
+        MemoryBudgetExceededException e = assertThrows(MemoryBudgetExceededException.class,
+                () -> submitBytes(scheduler, a, 300, "a2"));
+        assertEquals("MemoryBudgetExceeded", e.getCode());
+        assertEquals(800, e.getReservedBytes());
+        assertEquals(1, scheduler.getMemoryMetrics().getRejected());
+
+        scheduler.release(tickets.get("a1"));
+        submitBytes(scheduler, a, 300, "a3");
+        assertEquals(List.of("a1", "a3"), granted);
+    }
+
+    @Test
+    void testAudioSizeEstimate() {
+        // 10 Han characters at 250 ms, 16 kHz 16-bit PCM
+        assertEquals(80_000, AudioSizeEstimator.estimate("一二三四五六七八九十", 16000, "pcm"));
+        assertEquals(80_044, AudioSizeEstimator.estimate("一二三四五六七八九十", 16000, "wav"));
+        assertEquals(16_000 * 800 / 1000, AudioSizeEstimator.estimate("0123456789", 24000, "mp3"));
+    }
+
+    private RequestScheduler.Ticket submitBytes(RequestScheduler scheduler, RequestScheduler.Tenant tenant,
+                                                long bytes, String name) {
+        return scheduler.submit(tenant, Priority.NORMAL, 0, bytes, ticket -> {
+            tickets.put(name, ticket);
+            granted.add(name);
+        });
+    }
+
+    private RequestScheduler.Ticket submit(RequestScheduler scheduler, RequestScheduler.Tenant tenant,
+                                           Priority priority, long cost, String name) {
+        return scheduler.submit(tenant, priority, cost, ticket -> {
+            tickets.put(name, ticket);
+            granted.add(name);
+        });
+    }
+}
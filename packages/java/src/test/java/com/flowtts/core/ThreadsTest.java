@@ -0,0 +1,95 @@
+package com.flowtts.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ThreadsTest {
+    private static final Path JAVA21_CLASS = Paths.get("target", "classes", "META-INF", "versions", "21",
+            "com", "flowtts", "core", "Threads.class");
+
+    @Test
+    void testPlatformExecutorUsesNamedDaemonThreads() throws Exception {
+        ExecutorService executor = Threads.newExecutor("flow-tts-test", false);
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertTrue(thread.isDaemon());
+            assertTrue(thread.getName().startsWith("flow-tts-test-"), thread.getName());
+            assertFalse(isVirtual(thread));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testVirtualRequestFallsBackBelowJava21() throws Exception {
+        // Tests run from target/classes rather than the JAR, so this is always the base class
+        assertFalse(Threads.isVirtualAvailable());
+        ExecutorService executor = Threads.newExecutor("flow-tts-test", true);
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertTrue(thread.isDaemon());
+            assertFalse(isVirtual(thread));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testJava21ClassRunsVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "needs Java 21");
+        assumeTrue(Files.exists(JAVA21_CLASS), "built without the java21 profile");
+        Class<?> threads = new VersionedLoader().loadClass(Threads.class.getName());
+
+        assertEquals(true, threads.getMethod("isVirtualAvailable").invoke(null));
+        Method newExecutor = threads.getMethod("newExecutor", String.class, boolean.class);
+        ExecutorService virtual = (ExecutorService) newExecutor.invoke(null, "flow-tts-test", true);
+        ExecutorService platform = (ExecutorService) newExecutor.invoke(null, "flow-tts-test", false);
+        try {
+            Thread thread = virtual.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            assertTrue(isVirtual(thread));
+            assertTrue(thread.getName().startsWith("flow-tts-test-"), thread.getName());
+            assertFalse(isVirtual(platform.submit(Thread::currentThread).get(5, TimeUnit.SECONDS)));
+        } finally {
+            virtual.shutdown();
+            platform.shutdown();
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        if (Runtime.version().feature() < 21) {
+            return false;
+        }
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    // Defines the versioned Threads class itself, as a multi-release JAR would on Java 21
+    private static final class VersionedLoader extends ClassLoader {
+        VersionedLoader() {
+            super(ThreadsTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(Threads.class.getName())) {
+                return super.loadClass(name, resolve);
+            }
+            try (InputStream in = Files.newInputStream(JAVA21_CLASS)) {
+                byte[] bytes = in.readAllBytes();
+                return defineClass(name, bytes, 0, bytes.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.flowtts.emulator;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.StreamListener;
+import com.flowtts.model.StreamChunk;
+import com.flowtts.transport.JdkHttpTransport;
+import com.flowtts.transport.OkHttpTransport;
+import com.flowtts.transport.Transport;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Clients and listeners shared by tests that run against a {@link TtsEmulator}.
+ */
+public final class EmulatorTestSupport {
+
+    private EmulatorTestSupport() {
+    }
+
+    /**
+     * A plain HTTP configuration for the emulator.
+     */
+    public static FlowTTSConfig config(TtsEmulator emulator, String secretId, String secretKey) {
+        return FlowTTSConfig.builder()
+                .secretId(secretId)
+                .secretKey(secretKey)
+                .sdkAppId(1)
+                .endpoint(emulator.getEndpoint())
+                .scheme("http")
+                .build();
+    }
+
+    /**
+     * A transport of the given kind, "okhttp" or "jdk", for the emulator's "id"/"key" configuration.
+     * The caller closes it.
+     */
+    public static Transport transport(TtsEmulator emulator, String kind) {
+        FlowTTSConfig config = config(emulator, "id", "key");
+        return "jdk".equals(kind) ? JdkHttpTransport.create(config) : OkHttpTransport.create(config);
+    }
+
+    /**
+     * A client for the emulator's "id"/"key" configuration that sends through the given transport.
+     */
+    public static FlowTTS client(TtsEmulator emulator, Transport transport) {
+        return new FlowTTS(config(emulator, "id", "key"), transport);
+    }
+
+    /**
+     * A listener that collects streamed audio and the last error.
+     */
+    public static StreamListener listener(ByteArrayOutputStream audio, AtomicReference<Exception> error) {
+        return new StreamListener() {
+            @Override
+            public void onChunk(StreamChunk chunk) {
+                audio.write(chunk.getAudio(), 0, chunk.getAudio().length);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,104 @@
+package com.flowtts.emulator;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.StreamHandle;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.exception.ThrottledException;
+import com.flowtts.model.SynthesizeOptions;
+import com.flowtts.model.SynthesizeResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.flowtts.emulator.EmulatorTestSupport.listener;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TtsEmulatorTest {
+    private static final String TEXT = "Hello from the emulator";
+
+    private TtsEmulator emulator;
+
+    @AfterEach
+    void tearDown() {
+        if (emulator != null) {
+            emulator.close();
+        }
+    }
+
+    @Test
+    void testSyncSynthesisIsSignedAndDeterministic() throws Exception {
+        emulator = TtsEmulator.builder().credentials("test-id", "test-key").build().start();
+        FlowTTS client = client("test-id", "test-key");
+
+        SynthesizeResponse response = client.synthesize(SynthesizeOptions.builder()
+                .text(TEXT)
+                .codec("pcm")
+                .sampleRate(16000)
+                .build());
+
+        assertArrayEquals(TtsEmulator.renderPcm(TEXT, 16000, 80), response.getAudio());
+        assertEquals(TEXT.length() * 80 * 16 * 2, response.getAudio().length);
+        assertTrue(response.getRequestId().startsWith("emulator-"));
+        client.close();
+    }
+
+    @Test
+    void testRejectsBadSignature() throws Exception {
+        emulator = TtsEmulator.builder().credentials("test-id", "test-key").build().start();
+        FlowTTS client = client("test-id", "wrong-key");
+
+        FlowTTSException e = assertThrows(FlowTTSException.class,
+                () -> client.synthesize(SynthesizeOptions.builder().text(TEXT).build()));
+        assertEquals("AuthFailure.SignatureFailure", e.getCode());
+        client.close();
+    }
+
+    @Test
+    void testStreamDeliversAllChunks() throws Exception {
+        emulator = TtsEmulator.builder().chunkSize(1000).build().start();
+        FlowTTS client = client("id", "key");
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        AtomicReference<Exception> error = new AtomicReference<>();
+
+        StreamHandle handle = client.synthesizeStream(
+                SynthesizeOptions.builder().text(TEXT).sampleRate(16000).build(), listener(audio, error));
+
+        assertTrue(handle.await(10, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertArrayEquals(TtsEmulator.renderPcm(TEXT, 16000, 80), audio.toByteArray());
+        client.close();
+    }
+
+    @Test
+    void testInjectedFaults() throws Exception {
+        emulator = TtsEmulator.builder()
+                .fault("RequestLimitExceeded", 1.0)
+                .build()
+                .start();
+        FlowTTS client = client("id", "key");
+        FlowTTSException e = assertThrows(FlowTTSException.class,
+                () -> client.synthesize(SynthesizeOptions.builder().text(TEXT).build()));
+        assertEquals("RequestLimitExceeded", e.getCode());
+        assertTrue(e instanceof ThrottledException);
+        assertTrue(e.isRetryable());
+        emulator.close();
+
+        emulator = TtsEmulator.builder().chunkSize(500).disconnectProbability(1.0).build().start();
+        FlowTTS streaming = client("id", "key");
+        AtomicReference<Exception> error = new AtomicReference<>();
+        StreamHandle handle = streaming.synthesizeStream(
+                SynthesizeOptions.builder().text(TEXT).build(), listener(new ByteArrayOutputStream(), error));
+
+        assertTrue(handle.await(10, TimeUnit.SECONDS));
+        assertNotNull(error.get());
+        client.close();
+        streaming.close();
+    }
+
+    private FlowTTS client(String secretId, String secretKey) {
+        return new FlowTTS(EmulatorTestSupport.config(emulator, secretId, secretKey));
+    }
+}
@@ -0,0 +1,50 @@
+package com.flowtts.exception;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorCodeTest {
+
+    @Test
+    void testSubCodesFallBackToParent() {
+        assertEquals(ErrorCode.INVALID_PARAMETER_VALUE, ErrorCode.of("InvalidParameterValue.TextTooLong"));
+        assertEquals(ErrorCode.SIGNATURE_EXPIRE, ErrorCode.of("AuthFailure.SignatureExpire"));
+        assertEquals(ErrorCode.AUTH_FAILURE, ErrorCode.of("AuthFailure.SignatureFailure"));
+        assertEquals(ErrorCode.UNKNOWN, ErrorCode.of("SomethingNew.Entirely"));
+        assertEquals(ErrorCode.UNKNOWN, ErrorCode.of(null));
+    }
+
+    @Test
+    void testRetryHints() {
+        FlowTTSException auth = FlowTTSException.of("AuthFailure.SignatureFailure", "bad signature", "req-1");
+        assertEquals(ErrorCategory.AUTH, auth.getCategory());
+        assertFalse(auth.isRetryable());
+        assertNull(auth.getRetryAfter());
+
+        FlowTTSException server = FlowTTSException.of("InternalError", "oops", "req-2");
+        assertTrue(server.isRetryable());
+        assertEquals("InternalError", server.getCode());
+        assertEquals("req-2", server.getRequestId());
+
+        FlowTTSException codeless = new FlowTTSException("local failure");
+        assertEquals(ErrorCode.UNKNOWN, codeless.getErrorCode());
+        assertFalse(codeless.isRetryable());
+    }
+
+    @Test
+    void testThrottlingIsStackless() {
+        FlowTTSException e = FlowTTSException.of("RequestLimitExceeded.UinLimitExceeded", "slow down", "req-3");
+        assertTrue(e instanceof ThrottledException);
+        assertEquals(ErrorCategory.THROTTLED, e.getCategory());
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals(Duration.ofSeconds(1), e.getRetryAfter());
+        assertEquals("RequestLimitExceeded.UinLimitExceeded", e.getCode());
+
+        CancelledException cancelled = new CancelledException("Cancelled", "Stream cancelled", null);
+        assertEquals(0, cancelled.getStackTrace().length);
+        assertFalse(cancelled.isRetryable());
+    }
+}
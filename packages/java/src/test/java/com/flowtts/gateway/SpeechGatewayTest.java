@@ -0,0 +1,273 @@
+package com.flowtts.gateway;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.model.SynthesizeOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpeechGatewayTest {
+    private static final String TEXT = "Gateway streaming";
+
+    private TtsEmulator emulator;
+    private FlowTTS client;
+    private SpeechGateway gateway;
+
+    @AfterEach
+    void tearDown() {
+        if (gateway != null) {
+            gateway.close();
+        }
+        if (client != null) {
+            client.close();
+        }
+        if (emulator != null) {
+            emulator.close();
+        }
+    }
+
+    @Test
+    void testStreamsChunkedAudioOverKeepAlive() throws Exception {
+        start(Duration.ZERO, b -> b);
+        byte[] expected = client.synthesize(SynthesizeOptions.builder()
+                .text(TEXT).codec("pcm").sampleRate(24000).build()).getAudio();
+
+        try (Socket socket = new Socket("127.0.0.1", gateway.getPort())) {
+            Response pcm = exchange(socket, "POST", "/v1/audio/speech", null,
+                    "{\"model\":\"tts-1\",\"input\":\"" + TEXT + "\",\"voice\":\"alloy\",\"response_format\":\"pcm\"}");
+            assertEquals(200, pcm.status);
+            assertEquals("chunked", pcm.headers.get("transfer-encoding"));
+            assertEquals("audio/pcm", pcm.headers.get("content-type"));
+            assertArrayEquals(expected, pcm.body);
+
+            // Same socket: the connection was kept alive
+            Response wav = exchange(socket, "POST", "/v1/audio/speech", null,
+                    "{\"input\":\"" + TEXT + "\",\"response_format\":\"wav\"}");
+            assertEquals(200, wav.status);
+            assertEquals("audio/wav", wav.headers.get("content-type"));
+            assertArrayEquals(GatewayConnection.streamingWavHeader(24000), Arrays.copyOf(wav.body, 44));
+            assertArrayEquals(expected, Arrays.copyOfRange(wav.body, 44, wav.body.length));
+        }
+        assertEquals(2, gateway.getRequestCount());
+        assertEquals(0, gateway.getErrorCount());
+    }
+
+    @Test
+    void testErrorsUseOpenAiFormat() throws Exception {
+        start(Duration.ZERO, b -> b.apiKey("sk-test"));
+        try (Socket socket = new Socket("127.0.0.1", gateway.getPort())) {
+            Response unauthorized = exchange(socket, "POST", "/v1/audio/speech", null, "{\"input\":\"hi\"}");
+            assertEquals(401, unauthorized.status);
+            assertTrue(unauthorized.text().contains("\"code\":\"invalid_api_key\""));
+
+            Response invalid = exchange(socket, "POST", "/v1/audio/speech", "sk-test",
+                    "{\"input\":\"hi\",\"speed\":9}");
+            assertEquals(400, invalid.status);
+            assertTrue(invalid.text().contains("\"param\":\"speed\""));
+
+            Response format = exchange(socket, "POST", "/v1/audio/speech", "sk-test",
+                    "{\"input\":\"hi\",\"response_format\":\"aac\"}");
+            assertEquals(400, format.status);
+
+            Response missing = exchange(socket, "GET", "/v1/models", "sk-test", null);
+            assertEquals(404, missing.status);
+
+            Response method = exchange(socket, "GET", "/v1/audio/speech", "sk-test", null);
+            assertEquals(405, method.status);
+            assertEquals("POST", method.headers.get("allow"));
+
+            Response health = exchange(socket, "GET", "/health", null, null);
+            assertEquals(200, health.status);
+        }
+        assertEquals(5, gateway.getErrorCount());
+    }
+
+    @Test
+    void testRejectsRequestsOverPerClientLimit() throws Exception {
+        start(Duration.ofMillis(500), b -> b.apiKey("sk-test").maxConcurrentPerClient(1));
+        String body = "{\"input\":\"" + TEXT + "\",\"response_format\":\"pcm\"}";
+        try (Socket first = new Socket("127.0.0.1", gateway.getPort());
+             Socket second = new Socket("127.0.0.1", gateway.getPort())) {
+            write(first, "POST", "/v1/audio/speech", "sk-test", body);
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (gateway.getActiveStreams() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+
+            Response rejected = exchange(second, "POST", "/v1/audio/speech", "sk-test", body);
+            assertEquals(429, rejected.status);
+            assertTrue(rejected.text().contains("concurrency_limit_exceeded"));
+
+            assertEquals(200, read(first.getInputStream()).status);
+            // The permit is returned once the first stream ends
+            assertEquals(200, exchange(second, "POST", "/v1/audio/speech", "sk-test", body).status);
+        }
+        assertEquals(1, gateway.getRejectedCount());
+    }
+
+    @Test
+    void testSlowClientDoesNotStallOtherStreams() throws Exception {
+        // One callback thread: a listener that waited for the slow client would hold it
+        ExecutorService callbacks = Executors.newSingleThreadExecutor();
+        try {
+            start(Duration.ZERO, b -> b.maxBufferedBytes(16 * 1024), c -> c.callbackExecutor(callbacks));
+            // About 6 MB of audio, more than the socket buffers hold
+            String longText = TEXT.repeat(100);
+            byte[] expected = client.synthesize(SynthesizeOptions.builder()
+                    .text(longText).codec("pcm").sampleRate(24000).build()).getAudio();
+
+            try (Socket slow = new Socket(); Socket fast = new Socket("127.0.0.1", gateway.getPort())) {
+                slow.setReceiveBufferSize(4096);
+                slow.connect(new InetSocketAddress("127.0.0.1", gateway.getPort()));
+                write(slow, "POST", "/v1/audio/speech", null,
+                        "{\"input\":\"" + longText + "\",\"response_format\":\"pcm\"}");
+                long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+                while (gateway.getPausedStreams() == 0 && System.nanoTime() < deadline) {
+                    Thread.sleep(5);
+                }
+                assertEquals(1, gateway.getPausedStreams());
+
+                Response response = exchange(fast, "POST", "/v1/audio/speech", null,
+                        "{\"input\":\"" + TEXT + "\",\"response_format\":\"pcm\"}");
+                assertEquals(200, response.status);
+                assertEquals(1, gateway.getActiveStreams());
+
+                // The paused stream resumes as the slow client reads, without losing audio
+                Response stalled = read(slow.getInputStream());
+                assertEquals(200, stalled.status);
+                assertArrayEquals(expected, stalled.body);
+                assertEquals(0, gateway.getPausedStreams());
+            }
+        } finally {
+            callbacks.shutdownNow();
+        }
+    }
+
+    private void start(Duration timeToFirstByte,
+                       UnaryOperator<SpeechGateway.Builder> customizer) throws IOException {
+        start(timeToFirstByte, customizer, c -> c);
+    }
+
+    private void start(Duration timeToFirstByte, UnaryOperator<SpeechGateway.Builder> customizer,
+                       UnaryOperator<FlowTTSConfig.Builder> config) throws IOException {
+        emulator = TtsEmulator.builder().credentials("id", "key").timeToFirstByte(timeToFirstByte)
+                .chunkSize(1000).build().start();
+        client = new FlowTTS(config.apply(FlowTTSConfig.builder()
+                .secretId("id")
+                .secretKey("key")
+                .sdkAppId(1)
+                .endpoint(emulator.getEndpoint())
+                .scheme("http")).build());
+        gateway = customizer.apply(SpeechGateway.builder(client).port(0).ioThreads(1)).build().start();
+    }
+
+    private static Response exchange(Socket socket, String method, String path, String apiKey, String body)
+            throws IOException {
+        write(socket, method, path, apiKey, body);
+        return read(socket.getInputStream());
+    }
+
+    private static void write(Socket socket, String method, String path, String apiKey, String body)
+            throws IOException {
+        byte[] content = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        StringBuilder head = new StringBuilder()
+                .append(method).append(' ').append(path).append(" HTTP/1.1\r\n")
+                .append("Host: localhost\r\n");
+        if (apiKey != null) {
+            head.append("Authorization: Bearer ").append(apiKey).append("\r\n");
+        }
+        if (body != null) {
+            head.append("Content-Type: application/json\r\n")
+                    .append("Content-Length: ").append(content.length).append("\r\n");
+        }
+        head.append("\r\n");
+        OutputStream out = socket.getOutputStream();
+        out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+        out.write(content);
+        out.flush();
+    }
+
+    private static Response read(InputStream in) throws IOException {
+        String[] status = line(in).split(" ", 3);
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while (!(line = line(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if ("chunked".equals(headers.get("transfer-encoding"))) {
+            int size;
+            while ((size = Integer.parseInt(line(in), 16)) > 0) {
+                body.write(bytes(in, size));
+                line(in);
+            }
+            line(in);
+        } else {
+            body.write(bytes(in, Integer.parseInt(headers.getOrDefault("content-length", "0"))));
+        }
+        return new Response(Integer.parseInt(status[1]), headers, body.toByteArray());
+    }
+
+    private static String line(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Connection closed");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static byte[] bytes(InputStream in, int length) throws IOException {
+        byte[] data = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(data, read, length - read);
+            if (n < 0) {
+                throw new IOException("Connection closed");
+            }
+            read += n;
+        }
+        return data;
+    }
+
+    private static final class Response {
+        final int status;
+        final Map<String, String> headers;
+        final byte[] body;
+
+        Response(int status, Map<String, String> headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.flowtts.io;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.AudioStorage;
+import com.flowtts.model.SynthesizeOptions;
+import com.flowtts.model.SynthesizeResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectAudioDecoderTest {
+
+    @Test
+    void testDecodesAcrossSegmentsAndPadding() throws Exception {
+        SegmentPool pool = new SegmentPool(1024, 1 << 20);
+        Random random = new Random(7);
+        // Lengths cover every padding case and segment boundaries
+        for (int length : new int[]{0, 1, 2, 3, 1023, 1024, 1025, 5000}) {
+            byte[] audio = new byte[length];
+            random.nextBytes(audio);
+            String encoded = Base64.getEncoder().encodeToString(audio).replace("/", "\\/");
+            String body = "{\"Response\": {\"RequestId\":\"Audio\", \"Audio\" : \"" + encoded
+                    + "\",\"Nested\":{\"Audio\":\"x\"}}}";
+
+            DirectAudioDecoder decoder = new DirectAudioDecoder(pool);
+            String rest = decoder.extract(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "Audio");
+            AudioBuffer buffer = decoder.finish();
+
+            assertEquals("{\"Response\": {\"RequestId\":\"Audio\", \"Audio\" : \"\",\"Nested\":{\"Audio\":\"x\"}}}", rest);
+            assertEquals(length, buffer.size());
+            assertArrayEquals(audio, buffer.toByteArray());
+            ByteBuffer view = buffer.asByteBuffer();
+            assertTrue(view.isDirect());
+            assertTrue(view.isReadOnly());
+            assertEquals(length, view.remaining());
+            buffer.release();
+        }
+    }
+
+    @Test
+    void testReleaseReturnsSegmentsForReuse() throws Exception {
+        SegmentPool pool = new SegmentPool(1024, 1 << 20);
+        byte[] audio = new byte[3000];
+        String body = "{\"Audio\":\"" + Base64.getEncoder().encodeToString(audio) + "\"}";
+
+        DirectAudioDecoder decoder = new DirectAudioDecoder(pool);
+        decoder.extract(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "Audio");
+        AudioBuffer buffer = decoder.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(3000, buffer.writeTo(Channels.newChannel(out)));
+        assertArrayEquals(audio, out.toByteArray());
+        assertEquals(3, pool.getAllocatedSegments());
+
+        buffer.release();
+        buffer.release();
+        assertTrue(buffer.isReleased());
+        assertEquals(3 * 1024, pool.getPooledBytes());
+        assertThrows(IllegalStateException.class, buffer::toByteArray);
+
+        decoder = new DirectAudioDecoder(pool);
+        decoder.extract(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "Audio");
+        decoder.finish().release();
+        assertEquals(3, pool.getAllocatedSegments());
+
+        DirectAudioDecoder invalid = new DirectAudioDecoder(pool);
+        assertThrows(FlowTTSException.class, () -> invalid.extract(
+                new ByteArrayInputStream("{\"Audio\":\"AAAA*A==\"}".getBytes(StandardCharsets.UTF_8)), "Audio"));
+        invalid.abort();
+        assertEquals(3 * 1024, pool.getPooledBytes());
+    }
+
+    @Test
+    void testDirectResponsesMatchHeapResponses() throws Exception {
+        try (TtsEmulator emulator = TtsEmulator.builder().credentials("id", "key").build().start()) {
+            SynthesizeOptions options = SynthesizeOptions.builder().text("Off-heap audio").codec("pcm").build();
+            FlowTTS heap = new FlowTTS(config(emulator, AudioStorage.HEAP));
+            FlowTTS direct = new FlowTTS(config(emulator, AudioStorage.DIRECT));
+
+            SynthesizeResponse expected = heap.synthesize(options);
+            SynthesizeResponse response = direct.synthesize(options);
+            assertFalse(expected.isDirect());
+            assertTrue(response.isDirect());
+            assertNotNull(response.getRequestId());
+            assertEquals(expected.getAudioLength(), response.getAudioLength());
+            assertEquals(ByteBuffer.wrap(expected.getAudio()), response.asByteBuffer());
+
+            response.release();
+            assertThrows(IllegalStateException.class, response::asByteBuffer);
+            heap.close();
+            direct.close();
+        }
+    }
+
+    private static FlowTTSConfig config(TtsEmulator emulator, AudioStorage storage) {
+        return FlowTTSConfig.builder()
+                .secretId("id")
+                .secretKey("key")
+                .sdkAppId(1)
+                .endpoint(emulator.getEndpoint())
+                .scheme("http")
+                .audioStorage(storage)
+                .audioSegmentSize(4096)
+                .build();
+    }
+}
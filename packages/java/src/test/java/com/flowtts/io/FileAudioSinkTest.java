@@ -0,0 +1,135 @@
+package com.flowtts.io;
+
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.StreamChunk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FileAudioSinkTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testWavHeaderPatchedOnComplete() throws Exception {
+        assertWavWritten(false);
+    }
+
+    @Test
+    void testAsyncWavHeaderPatchedOnComplete() throws Exception {
+        assertWavWritten(true);
+    }
+
+    @Test
+    void testRawAudioWithoutHeader() throws Exception {
+        Path target = dir.resolve("out.pcm");
+        FileAudioSink sink = FileAudioSink.builder(target)
+                .fsync(FileAudioSink.FsyncPolicy.EVERY_CHUNK)
+                .build();
+
+        sink.onChunk(chunk(new byte[]{1, 2, 3}, false));
+        sink.onChunk(chunk(new byte[0], true));
+        sink.onComplete();
+        sink.onComplete();
+
+        assertEquals(target, sink.await(1, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(target));
+    }
+
+    @Test
+    void testAsyncEveryChunkForcesWrittenAudio() throws Exception {
+        Path target = dir.resolve("forced.pcm");
+        FileAudioSink sink = FileAudioSink.builder(target)
+                .async(true)
+                .bufferSize(3)
+                .asyncBuffers(2)
+                .fsync(FileAudioSink.FsyncPolicy.EVERY_CHUNK)
+                .build();
+        Path part;
+        try (Stream<Path> files = Files.list(dir)) {
+            part = files.findFirst().orElseThrow();
+        }
+
+        sink.onChunk(chunk(new byte[]{1, 2, 3, 4, 5, 6, 7}, false));
+        // The chunk's writes have finished by the time onChunk returns
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7}, Files.readAllBytes(part));
+        sink.onComplete();
+
+        assertEquals(target, sink.await(1, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7}, Files.readAllBytes(target));
+    }
+
+    @Test
+    void testTargetGetsDefaultPermissions() throws Exception {
+        assumeTrue(dir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path target = dir.resolve("shared.pcm");
+        FileAudioSink sink = FileAudioSink.builder(target).build();
+        sink.onChunk(chunk(new byte[]{1}, true));
+        sink.onComplete();
+        sink.await(1, TimeUnit.SECONDS);
+
+        Path plain = Files.createFile(dir.resolve("plain.pcm"));
+        assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(target));
+    }
+
+    @Test
+    void testErrorRemovesTemporaryFile() throws Exception {
+        Path target = dir.resolve("failed.wav");
+        FileAudioSink sink = FileAudioSink.builder(target).wavHeader(16000).build();
+
+        sink.onChunk(chunk(new byte[]{1, 2}, false));
+        sink.onError(new FlowTTSException("boom"));
+
+        assertThrows(FlowTTSException.class, () -> sink.await(1, TimeUnit.SECONDS));
+        assertFalse(Files.exists(target));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private void assertWavWritten(boolean async) throws Exception {
+        Path target = dir.resolve(async ? "async.wav" : "sync.wav");
+        FileAudioSink sink = FileAudioSink.builder(target)
+                .wavHeader(16000)
+                .async(async)
+                .bufferSize(7)
+                .asyncBuffers(2)
+                .build();
+
+        byte[] audio = new byte[1000];
+        for (int i = 0; i < audio.length; i++) {
+            audio[i] = (byte) i;
+        }
+        sink.onChunk(chunk(Arrays.copyOfRange(audio, 0, 300), false));
+        sink.onChunk(chunk(Arrays.copyOfRange(audio, 300, 1000), true));
+        sink.onComplete();
+
+        assertEquals(target, sink.await(5, TimeUnit.SECONDS));
+        assertEquals(1000, sink.getAudioBytes());
+
+        byte[] file = Files.readAllBytes(target);
+        assertEquals(1044, file.length);
+        ByteBuffer header = ByteBuffer.wrap(file).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("RIFF", new String(file, 0, 4, "US-ASCII"));
+        assertEquals(1036, header.getInt(4));
+        assertEquals(16000, header.getInt(24));
+        assertEquals("data", new String(file, 36, 4, "US-ASCII"));
+        assertEquals(1000, header.getInt(40));
+        assertArrayEquals(audio, Arrays.copyOfRange(file, 44, file.length));
+    }
+
+    private static StreamChunk chunk(byte[] audio, boolean isFinal) {
+        return new StreamChunk(audio, "req", "session", isFinal, 0);
+    }
+}
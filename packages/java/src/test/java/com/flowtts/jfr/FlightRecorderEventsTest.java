@@ -0,0 +1,128 @@
+package com.flowtts.jfr;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.StreamHandle;
+import com.flowtts.StreamListener;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.StreamChunk;
+import com.flowtts.model.SynthesizeOptions;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderEventsTest {
+    private static final String TEXT = "Hello from the recorder";
+
+    @Test
+    void testSynthesisAndStreamEventsAreRecorded(@TempDir Path dir) throws Exception {
+        TtsEmulator emulator = TtsEmulator.builder().chunkSize(1000).build().start();
+        FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                .secretId("id")
+                .secretKey("key")
+                .sdkAppId(1)
+                .endpoint(emulator.getEndpoint())
+                .scheme("http")
+                .build());
+        Path file = dir.resolve("flow-tts.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[]{"com.flowtts.Synthesize", "com.flowtts.Stream",
+                    "com.flowtts.ChunkDecode", "com.flowtts.Sign", "com.flowtts.VoiceCatalogLoad"}) {
+                recording.enable(name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+
+            SynthesizeOptions options = SynthesizeOptions.builder().text(TEXT).codec("pcm").build();
+            String requestId = client.synthesize(options).getRequestId();
+            StreamHandle handle = client.synthesizeStream(options, new StreamListener() {
+                @Override
+                public void onChunk(StreamChunk chunk) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+
+                @Override
+                public void onError(Exception error) {
+                }
+            });
+            assertTrue(handle.await(10, TimeUnit.SECONDS));
+            client.close();
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            RecordedEvent synthesize = only(events, "com.flowtts.Synthesize");
+            assertEquals(requestId, synthesize.getString("requestId"));
+            assertEquals("pcm", synthesize.getString("codec"));
+            assertEquals(TEXT.length(), synthesize.getInt("textLength"));
+            assertEquals(TEXT.length() * 80 * 24 * 2, synthesize.getLong("audioBytes"));
+            assertNull(synthesize.getString("errorCode"));
+
+            RecordedEvent stream = only(events, "com.flowtts.Stream");
+            long audioBytes = stream.getLong("audioBytes");
+            assertEquals(TEXT.length() * 80 * 24 * 2, audioBytes);
+            assertTrue(stream.getInt("chunks") > 1);
+            assertTrue(stream.getDuration("timeToFirstByte").toNanos() > 0);
+            assertNotNull(stream.getString("requestId"));
+
+            assertEquals(stream.getInt("chunks"), named(events, "com.flowtts.ChunkDecode").size());
+            assertEquals(2, named(events, "com.flowtts.Sign").size());
+        } finally {
+            emulator.close();
+        }
+    }
+
+    @Test
+    void testFailedSynthesisRecordsErrorCode(@TempDir Path dir) throws Exception {
+        TtsEmulator emulator = TtsEmulator.builder().fault("RequestLimitExceeded", 1.0).build().start();
+        FlowTTS client = new FlowTTS(FlowTTSConfig.builder()
+                .secretId("id")
+                .secretKey("key")
+                .sdkAppId(1)
+                .endpoint(emulator.getEndpoint())
+                .scheme("http")
+                .build());
+        Path file = dir.resolve("flow-tts.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.flowtts.Synthesize").withThreshold(Duration.ZERO);
+            recording.start();
+            assertThrows(FlowTTSException.class,
+                    () -> client.synthesize(SynthesizeOptions.builder().text(TEXT).build()));
+            client.close();
+            recording.stop();
+            recording.dump(file);
+
+            RecordedEvent synthesize = only(RecordingFile.readAllEvents(file), "com.flowtts.Synthesize");
+            assertEquals("RequestLimitExceeded", synthesize.getString("errorCode"));
+            assertEquals(0, synthesize.getLong("audioBytes"));
+        } finally {
+            emulator.close();
+        }
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .collect(Collectors.toList());
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = named(events, name);
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
@@ -0,0 +1,220 @@
+package com.flowtts.trace;
+
+import com.flowtts.AudioStream;
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.StreamHandle;
+import com.flowtts.StreamListener;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.model.Priority;
+import com.flowtts.model.StreamChunk;
+import com.flowtts.model.SynthesizeOptions;
+import com.flowtts.utils.LanguageDetector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceRecorderTest {
+    private static final String SECRET_TEXT = "Meet me at the old harbour at nine";
+
+    private TtsEmulator emulator;
+
+    @AfterEach
+    void tearDown() {
+        if (emulator != null) {
+            emulator.close();
+        }
+    }
+
+    @Test
+    void testRecordsAnonymizedShapeOfEachRequest(@TempDir Path dir) throws Exception {
+        emulator = TtsEmulator.builder().chunkSize(2000).build().start();
+        Path log = dir.resolve("traffic.fttr");
+        TraceRecorder recorder = TraceRecorder.open(log);
+        FlowTTS client = client(recorder);
+        SynthesizeOptions options = SynthesizeOptions.builder()
+                .text(SECRET_TEXT)
+                .voice("echo")
+                .codec("pcm")
+                .sampleRate(16000)
+                .pitch(-3)
+                .priority(Priority.INTERACTIVE)
+                .build();
+
+        client.synthesize(options);
+        StreamHandle stream = client.synthesizeStream(options, new NoopListener());
+        assertTrue(stream.await(10, TimeUnit.SECONDS));
+        StreamHandle shared = client.synthesizeStreamShared(options, new NoopListener());
+        assertTrue(shared.await(10, TimeUnit.SECONDS));
+        try (AudioStream audio = client.openAudioStream(options)) {
+            audio.transferTo(OutputStream.nullOutputStream());
+        }
+        client.synthesize(SynthesizeOptions.builder().text("今天天气很好").codec("pcm").build());
+        client.close();
+        recorder.close();
+
+        assertEquals(5, recorder.getRecorded());
+        assertEquals(0, recorder.getDropped());
+        byte[] bytes = Files.readAllBytes(log);
+        assertFalse(new String(bytes, StandardCharsets.ISO_8859_1).contains("harbour"));
+
+        List<TraceRecord> records = TraceReader.readAll(log);
+        assertEquals(5, records.size());
+        Map<TraceRecord.Kind, Integer> kinds = new EnumMap<>(TraceRecord.Kind.class);
+        long pcmBytes = SECRET_TEXT.length() * 80L * 16 * 2;
+        for (TraceRecord record : records) {
+            kinds.merge(record.getKind(), 1, Integer::sum);
+            assertNull(record.getErrorCode());
+            assertTrue(record.getDurationNanos() > 0);
+            if (record.getLanguage().equals("zh")) {
+                assertEquals(6, record.getTextLength());
+                assertEquals(6, record.toOptions().getText().length());
+                continue;
+            }
+            assertEquals(SECRET_TEXT.length(), record.getTextLength());
+            assertEquals("echo", record.getVoice());
+            assertEquals(-3, record.getPitch());
+            assertEquals(Priority.INTERACTIVE, record.getPriority());
+            assertEquals(pcmBytes, record.getAudioBytes());
+            if (record.getKind() != TraceRecord.Kind.SYNC) {
+                assertTrue(record.getFirstByteNanos() > 0);
+                assertTrue(record.getFirstByteNanos() <= record.getDurationNanos());
+            }
+            SynthesizeOptions replay = record.toOptions();
+            assertEquals(SECRET_TEXT.length(), replay.getText().length());
+            assertNotEquals(SECRET_TEXT, replay.getText());
+            assertEquals(16000, replay.getSampleRate());
+        }
+        assertEquals(2, kinds.get(TraceRecord.Kind.SYNC));
+        assertEquals(1, kinds.get(TraceRecord.Kind.STREAM));
+        assertEquals(1, kinds.get(TraceRecord.Kind.SHARED_STREAM));
+        assertEquals(1, kinds.get(TraceRecord.Kind.AUDIO_STREAM));
+    }
+
+    @Test
+    void testRecordsFailuresAndStopsAtTruncation() throws Exception {
+        emulator = TtsEmulator.builder().fault("RequestLimitExceeded", 1.0).build().start();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TraceRecorder recorder = TraceRecorder.open(out, 1024);
+        FlowTTS client = client(recorder);
+
+        assertThrows(FlowTTSException.class,
+                () -> client.synthesize(SynthesizeOptions.builder().text("hello").build()));
+        client.close();
+        // Records after close are ignored rather than written
+        recorder.close();
+        recorder.record(SynthesizeOptions.builder().text("late").build(), TraceRecord.Kind.SYNC,
+                System.nanoTime(), 0, 0, null);
+
+        try (TraceReader reader = new TraceReader(new ByteArrayInputStream(out.toByteArray()))) {
+            TraceRecord record = reader.next();
+            assertEquals(TraceRecord.Kind.SYNC, record.getKind());
+            assertEquals("RequestLimitExceeded", record.getErrorCode());
+            assertEquals(0, record.getAudioBytes());
+            assertNull(reader.next());
+        }
+
+        // A log cut off mid-record ends at the last whole record
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 3);
+        assertNull(new TraceReader(new ByteArrayInputStream(truncated)).next());
+        assertThrows(IllegalArgumentException.class, () -> TraceRecorder.open(new ByteArrayOutputStream(), 1000));
+    }
+
+    @Test
+    void testRecordsRacingCloseAreWrittenOrCounted() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TraceRecorder recorder = TraceRecorder.open(out, 64);
+        SynthesizeOptions options = SynthesizeOptions.builder().text("race").build();
+        AtomicBoolean closing = new AtomicBoolean();
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong beforeClose = new AtomicLong();
+        AtomicLong calls = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                while (!stop.get()) {
+                    boolean early = !closing.get();
+                    recorder.record(options, TraceRecord.Kind.SYNC, System.nanoTime(), 0, 0, null);
+                    calls.incrementAndGet();
+                    if (early && !closing.get()) {
+                        beforeClose.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        Thread.sleep(50);
+        closing.set(true);
+        recorder.close();
+        Thread.sleep(10);
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Every call made before close is accounted for, and none is counted twice
+        long accounted = recorder.getRecorded() + recorder.getDropped();
+        assertTrue(accounted >= beforeClose.get(), accounted + " < " + beforeClose.get());
+        assertTrue(accounted <= calls.get());
+        List<TraceRecord> records = new ArrayList<>();
+        try (TraceReader reader = new TraceReader(new ByteArrayInputStream(out.toByteArray()))) {
+            for (TraceRecord record = reader.next(); record != null; record = reader.next()) {
+                records.add(record);
+            }
+        }
+        assertEquals(recorder.getRecorded(), records.size());
+    }
+
+    @Test
+    void testPlaceholderKeepsLengthAndScript() {
+        assertEquals(100, TraceRecord.placeholder(100, "en").length());
+        assertEquals(TraceRecord.placeholder(37, "ja"), TraceRecord.placeholder(37, "ja"));
+        assertEquals("ja", LanguageDetector.detect(TraceRecord.placeholder(37, "ja"), "en"));
+        assertEquals("ko", LanguageDetector.detect(TraceRecord.placeholder(5, "ko"), "en"));
+        assertEquals("", TraceRecord.placeholder(0, "zh"));
+    }
+
+    private FlowTTS client(TraceRecorder recorder) {
+        return new FlowTTS(FlowTTSConfig.builder()
+                .secretId("id")
+                .secretKey("key")
+                .sdkAppId(1)
+                .endpoint(emulator.getEndpoint())
+                .scheme("http")
+                .traceRecorder(recorder)
+                .build());
+    }
+
+    private static final class NoopListener implements StreamListener {
+        @Override
+        public void onChunk(StreamChunk chunk) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        @Override
+        public void onError(Exception e) {
+        }
+    }
+}
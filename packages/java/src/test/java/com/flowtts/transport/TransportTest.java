@@ -0,0 +1,251 @@
+package com.flowtts.transport;
+
+import com.flowtts.FlowTTS;
+import com.flowtts.FlowTTSConfig;
+import com.flowtts.StreamHandle;
+import com.flowtts.StreamListener;
+import com.flowtts.emulator.TtsEmulator;
+import com.flowtts.exception.FlowTTSException;
+import com.flowtts.exception.ThrottledException;
+import com.flowtts.model.StreamChunk;
+import com.flowtts.model.SynthesizeOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.flowtts.emulator.EmulatorTestSupport.client;
+import static com.flowtts.emulator.EmulatorTestSupport.listener;
+import static com.flowtts.emulator.EmulatorTestSupport.transport;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransportTest {
+    private static final String TEXT = "Transport parity";
+
+    private TtsEmulator emulator;
+    private Transport transport;
+
+    @AfterEach
+    void tearDown() {
+        if (transport != null) {
+            transport.close();
+        }
+        if (emulator != null) {
+            emulator.close();
+        }
+    }
+
+    @Test
+    void testSseParserHandlesSplitLinesAndFields() {
+        List<String> events = new ArrayList<>();
+        SseParser parser = new SseParser(new SseListener() {
+            @Override
+            public void onEvent(String id, String type, String data) {
+                events.add(id + "|" + type + "|" + data);
+            }
+
+            @Override
+            public void onClosed() {
+            }
+
+            @Override
+            public void onFailure(Throwable error, int statusCode) {
+            }
+        });
+
+        byte[] stream = (": comment\r\nevent: audio\r\nid: 7\r\ndata: {\"Text\":\"你好\"}\r\n\r\n"
+                + "data:first\ndata: second\n\n"
+                + "retry: 10\n\n"
+                + "data: incomplete").getBytes(StandardCharsets.UTF_8);
+        // Feed one byte at a time so the multi-byte characters and CRLF pairs are split
+        for (byte b : stream) {
+            parser.feed(ByteBuffer.wrap(new byte[]{b}));
+        }
+
+        assertEquals(2, events.size());
+        assertEquals("7|audio|{\"Text\":\"你好\"}", events.get(0));
+        assertEquals("7|null|first\nsecond", events.get(1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"okhttp", "jdk"})
+    void testSyncAndStreamParity(String kind) throws Exception {
+        emulator = TtsEmulator.builder().credentials("id", "key").chunkSize(700).build().start();
+        transport = transport(emulator, kind);
+        FlowTTS client = client(emulator, transport);
+        SynthesizeOptions options = SynthesizeOptions.builder().text(TEXT).codec("pcm").sampleRate(16000).build();
+        byte[] expected = client.synthesize(options).getAudio();
+        assertEquals(TEXT.length() * 80 * 16 * 2, expected.length);
+
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+        AtomicReference<Exception> error = new AtomicReference<>();
+        StreamHandle handle = client.synthesizeStream(options, listener(audio, error));
+        assertTrue(handle.await(10, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertArrayEquals(expected, audio.toByteArray());
+        client.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"okhttp", "jdk"})
+    void testErrorsAndCancellation(String kind) throws Exception {
+        emulator = TtsEmulator.builder()
+                .timeToFirstByte(Duration.ofSeconds(5))
+                .fault("RequestLimitExceeded", 0.5)
+                .seed(1)
+                .build()
+                .start();
+        transport = transport(emulator, kind);
+        FlowTTS client = client(emulator, transport);
+        SynthesizeOptions options = SynthesizeOptions.builder().text(TEXT).build();
+
+        // Keep streaming until one is admitted past the injected faults, then cancel it
+        for (int i = 0; i < 20; i++) {
+            AtomicReference<Exception> error = new AtomicReference<>();
+            StreamHandle handle = client.synthesizeStream(options, listener(new ByteArrayOutputStream(), error));
+            if (handle.await(500, TimeUnit.MILLISECONDS)) {
+                assertEquals("RequestLimitExceeded", ((FlowTTSException) error.get()).getCode());
+                continue;
+            }
+            assertTrue(handle.cancel());
+            assertEquals("Cancelled", ((FlowTTSException) error.get()).getCode());
+            client.close();
+            return;
+        }
+        fail("No stream got past the injected faults");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"okhttp", "jdk"})
+    void testCancelMidStreamClosesConnection(String kind) throws Exception {
+        // About 16 seconds of chunks if the client kept reading
+        emulator = TtsEmulator.builder()
+                .credentials("id", "key")
+                .chunkSize(320)
+                .chunkInterval(Duration.ofMillis(100))
+                .build()
+                .start();
+        transport = transport(emulator, kind);
+        FlowTTS client = client(emulator, transport);
+        SynthesizeOptions options = SynthesizeOptions.builder().text(TEXT).codec("pcm").sampleRate(16000).build();
+        CountDownLatch firstChunk = new CountDownLatch(1);
+        StreamHandle handle = client.synthesizeStream(options, new StreamListener() {
+            @Override
+            public void onChunk(StreamChunk chunk) {
+                firstChunk.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+        });
+        assertTrue(firstChunk.await(5, TimeUnit.SECONDS));
+        assertTrue(handle.cancel());
+
+        // The emulator only finishes early once its writes fail on the closed connection
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (emulator.getInFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, emulator.getInFlight());
+        client.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"okhttp", "jdk"})
+    void testRetryAfterReachesThrottledErrors(String kind) throws Exception {
+        // A server that throttles every request
+        byte[] throttled = ("HTTP/1.1 429 Too Many Requests\r\nRetry-After: 7\r\n"
+                + "Content-Length: 0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> {
+                while (!server.isClosed()) {
+                    try (Socket socket = server.accept()) {
+                        socket.getInputStream().read(new byte[8192]);
+                        socket.getOutputStream().write(throttled);
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            FlowTTSConfig config = FlowTTSConfig.builder()
+                    .secretId("id")
+                    .secretKey("key")
+                    .sdkAppId(1)
+                    .endpoint("127.0.0.1:" + server.getLocalPort())
+                    .scheme("http")
+                    .build();
+            transport = "jdk".equals(kind) ? JdkHttpTransport.create(config) : OkHttpTransport.create(config);
+            FlowTTS client = new FlowTTS(config, transport);
+            SynthesizeOptions options = SynthesizeOptions.builder().text(TEXT).build();
+
+            ThrottledException sync = assertThrows(ThrottledException.class, () -> client.synthesize(options));
+            assertEquals(Duration.ofSeconds(7), sync.getRetryAfter());
+            AtomicReference<Exception> error = new AtomicReference<>();
+            StreamHandle handle = client.synthesizeStream(options, listener(new ByteArrayOutputStream(), error));
+            assertTrue(handle.await(5, TimeUnit.SECONDS));
+            assertTrue(error.get() instanceof ThrottledException, String.valueOf(error.get()));
+            assertEquals(Duration.ofSeconds(7), ((ThrottledException) error.get()).getRetryAfter());
+            client.close();
+        }
+    }
+
+    @Test
+    void testJdkTransportDoesNotResendWrittenRequest() throws Exception {
+        // A server that reads each request and hangs up without answering
+        AtomicInteger accepted = new AtomicInteger();
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread acceptor = new Thread(() -> {
+                while (!server.isClosed()) {
+                    try (Socket socket = server.accept()) {
+                        accepted.incrementAndGet();
+                        socket.getInputStream().read(new byte[8192]);
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            FlowTTSConfig config = FlowTTSConfig.builder()
+                    .secretId("id")
+                    .secretKey("key")
+                    .sdkAppId(1)
+                    .endpoint("127.0.0.1:" + server.getLocalPort())
+                    .scheme("http")
+                    .build();
+            transport = JdkHttpTransport.create(config);
+            FlowTTS client = new FlowTTS(config, transport);
+            SynthesizeOptions options = SynthesizeOptions.builder().text(TEXT).build();
+
+            assertThrows(FlowTTSException.class, () -> client.synthesize(options));
+            AtomicReference<Exception> error = new AtomicReference<>();
+            StreamHandle handle = client.synthesizeStream(options, listener(new ByteArrayOutputStream(), error));
+            assertTrue(handle.await(5, TimeUnit.SECONDS));
+            assertNotNull(error.get());
+            assertEquals(2, accepted.get());
+            client.close();
+        }
+    }
+}
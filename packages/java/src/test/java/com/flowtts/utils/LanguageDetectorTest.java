@@ -0,0 +1,88 @@
+package com.flowtts.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LanguageDetectorTest {
+
+    @Test
+    void testDetect() {
+        assertEquals("zh", LanguageDetector.detect("你好，世界"));
+        assertEquals("en", LanguageDetector.detect("Hello, world!"));
+        assertEquals("ja", LanguageDetector.detect("こんにちは世界"));
+        assertEquals("ko", LanguageDetector.detect("안녕하세요"));
+    }
+
+    @Test
+    void testDetectDefault() {
+        assertEquals("zh", LanguageDetector.detect(""));
+        assertEquals("zh", LanguageDetector.detect(null));
+        assertEquals("en", LanguageDetector.detect("12345 !?", "en"));
+        assertEquals("en", LanguageDetector.detect(" \n\t ", "en"));
+    }
+
+    @Test
+    void testDetectCountsInnerWhitespaceLikeNode() {
+        // 3 Han of 13 chars: below the threshold once the spaces are counted
+        assertEquals("en", LanguageDetector.detect("你 好 吗 1 2 3 4", "en"));
+        // Surrounding whitespace is trimmed first
+        assertEquals("zh", LanguageDetector.detect("   你好吗 1 2   ", "en"));
+    }
+
+    @Test
+    void testContainsCJK() {
+        assertTrue(LanguageDetector.containsCJK("Hello 世界"));
+        assertTrue(LanguageDetector.containsCJK("𠀀"));
+        assertFalse(LanguageDetector.containsCJK("Hello world"));
+        assertFalse(LanguageDetector.containsCJK(null));
+    }
+
+    @Test
+    void testSegmentMixedText() {
+        List<LanguageDetector.Segment> segments = LanguageDetector.segment("今天天气很好。Let's go! 東京へ行きます");
+
+        assertEquals(3, segments.size());
+        assertEquals("今天天气很好。", segments.get(0).getText());
+        assertEquals("zh", segments.get(0).getLanguage());
+        assertEquals("Let's go! ", segments.get(1).getText());
+        assertEquals("en", segments.get(1).getLanguage());
+        assertEquals("東京へ行きます", segments.get(2).getText());
+        assertEquals("ja", segments.get(2).getLanguage());
+    }
+
+    @Test
+    void testSegmentSplitsChineseAndJapaneseSentences() {
+        List<LanguageDetector.Segment> segments = LanguageDetector.segment(
+                "我们明天见。天气很好！」「明日は雨が降ります。東京へ行きます。」会议改到下午");
+
+        assertEquals(3, segments.size());
+        assertEquals("我们明天见。天气很好！」", segments.get(0).getText());
+        assertEquals("zh", segments.get(0).getLanguage());
+        assertEquals("「明日は雨が降ります。東京へ行きます。」", segments.get(1).getText());
+        assertEquals("ja", segments.get(1).getLanguage());
+        assertEquals("会议改到下午", segments.get(2).getText());
+        assertEquals("zh", segments.get(2).getLanguage());
+    }
+
+    @Test
+    void testSegmentLeadingNeutralJoinsFirstRun() {
+        List<LanguageDetector.Segment> segments = LanguageDetector.segment("2024年 is here");
+
+        assertEquals(2, segments.size());
+        assertEquals("2024年 ", segments.get(0).getText());
+        assertEquals("zh", segments.get(0).getLanguage());
+        assertEquals("is here", segments.get(1).getText());
+    }
+
+    @Test
+    void testSegmentWithoutScriptCharacters() {
+        List<LanguageDetector.Segment> segments = LanguageDetector.segment("123 456", "en");
+
+        assertEquals(1, segments.size());
+        assertEquals("en", segments.get(0).getLanguage());
+        assertTrue(LanguageDetector.segment("").isEmpty());
+    }
+}
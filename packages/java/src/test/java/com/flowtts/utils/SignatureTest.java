@@ -2,6 +2,8 @@ package com.flowtts.utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.TreeMap;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -78,4 +80,33 @@ class SignatureTest {
 
         assertNotEquals(headers1.get("Authorization"), headers2.get("Authorization"));
     }
+
+    @Test
+    void testPrecomputedDigestMatchesPayload() throws Exception {
+        String payload = "{\"Text\":\"你好\"}";
+        byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(payload.getBytes(StandardCharsets.UTF_8));
+
+        TreeMap<String, String> fromPayload = Signature.generateHeaders(
+                "test-id", "test-key", "trtc.ai.tencentcloudapi.com", "TextToSpeech", payload, 1704067200
+        );
+        TreeMap<String, String> fromDigest = Signature.generateHeaders(
+                "test-id", "test-key", "trtc.ai.tencentcloudapi.com", "TextToSpeech", digest, 1704067200
+        );
+
+        assertEquals(fromPayload, fromDigest);
+    }
+
+    @Test
+    void testSignerMatchesStaticSignature() {
+        byte[] digest = new byte[32];
+        Signer signer = new Signer("test-id", "test-key");
+
+        for (long timestamp : new long[]{1704067200, 1704067260, 1704153600}) {
+            TreeMap<String, String> expected = Signature.generateHeaders(
+                    "test-id", "test-key", "trtc.ai.tencentcloudapi.com", "TextToSpeech", digest, timestamp
+            );
+            assertEquals(expected, signer.sign("trtc.ai.tencentcloudapi.com", "TextToSpeech", digest, timestamp));
+        }
+    }
 }